@@ -16,11 +16,24 @@
 package io.fabric8.updatebot;
 
 import com.beust.jcommander.Parameter;
+import io.fabric8.updatebot.kind.maven.MavenDependencyResolver;
+import io.fabric8.updatebot.kind.maven.MavenMetadataResolver;
 import io.fabric8.updatebot.kind.npm.DefaultNpmDependencyTreeGenerator;
+import io.fabric8.updatebot.kind.npm.DependencyTreeCache;
 import io.fabric8.updatebot.kind.npm.NpmDependencyTreeGenerator;
+import io.fabric8.updatebot.kind.npm.NpmInstallPool;
+import io.fabric8.updatebot.kind.npm.NpmRangePolicy;
+import io.fabric8.updatebot.kind.npm.NpmRegistry;
+import io.fabric8.updatebot.kind.npm.SandboxNpmDependencyTreeGenerator;
+import io.fabric8.updatebot.logging.AsyncLogWriter;
+import io.fabric8.updatebot.support.FileHelper;
+import io.fabric8.updatebot.support.MetadataCache;
+import io.fabric8.updatebot.support.Metrics;
+import io.fabric8.updatebot.support.MetricsServer;
 import io.fabric8.updatebot.support.Strings;
 import io.fabric8.updatebot.support.Systems;
 import org.kohsuke.github.AbuseLimitHandler;
+import org.kohsuke.github.GHRateLimit;
 import org.kohsuke.github.GitHub;
 import org.kohsuke.github.GitHubBuilder;
 import org.kohsuke.github.RateLimitHandler;
@@ -29,13 +42,18 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Common configuration parameters
  */
 public class Configuration {
+    private static final long CONFIG_CACHE_SIZE = 1024 * 1024;
+
     @Parameter(names = {"--github-pr-label", "-ghl"}, description = "GitHub Pull Request Label")
     private String githubPullRequestLabel = Systems.getConfigValue(EnvironmentVariables.GITHUB_PR_LABEL, "updatebot");
     @Parameter(names = {"--dry"}, description = "Dry Run mode does not perform any git commits")
@@ -43,6 +61,8 @@ public class Configuration {
     private GitHub github;
     @Parameter(names = {"--config", "-c"}, description = "Location of the UpdateBot YAML configuration file")
     private String configFile = Systems.getConfigValue(EnvironmentVariables.CONFIG_FILE, ".updatebot.yml");
+    @Parameter(names = "--config-timeout", description = "The number of seconds to wait for a remote configuration URL before using the cached copy")
+    private int configTimeout = 10;
     @Parameter(names = {"--work-dir", "-wd"}, description = "The work directory where other downstream projects are cloned")
     private String workDir = Systems.getConfigValue(EnvironmentVariables.WORK_DIR, "./.updatebot-repos");
     @Parameter(names = {"--github-username", "-ghu"}, description = "GitHub Username")
@@ -51,14 +71,69 @@ public class Configuration {
     private String githubPassword = Systems.getConfigValue(EnvironmentVariables.GITHUB_PASSWORD);
     @Parameter(names = {"--github-token", "-ght"}, description = "GitHub Token")
     private String githubToken = Systems.getConfigValue(EnvironmentVariables.GITHUB_TOKEN);
+    @Parameter(names = "--github-concurrency", description = "The number of concurrent requests used to find the repositories of the GitHub organisations")
+    private int githubConcurrency = 4;
+    @Parameter(names = "--command-timeout", description = "The number of minutes a git or npm command can run before it is killed")
+    private long commandTimeout = 30;
+    @Parameter(names = "--git-concurrency", description = "The maximum number of git commands which run at once. Use 0 for no limit")
+    private int gitConcurrency = 4;
+    @Parameter(names = "--npm-concurrency", description = "The maximum number of npm commands which run at once. Use 0 for no limit")
+    private int npmConcurrency = 4;
+    @Parameter(names = "--metrics-file", description = "The file to write the metrics of the run to as JSON")
+    private String metricsFile;
+    @Parameter(names = "--metrics-port", description = "The port to serve the metrics on in the Prometheus text format while UpdateBot is running. Use 0 to disable")
+    private int metricsPort;
+    @Parameter(names = "--log-async", description = "Whether to write the log from a background thread so that logging never blocks. Enabled by --log-json or --log-dir")
+    private boolean logAsync;
+    @Parameter(names = "--log-json", description = "Whether to write the log as JSON lines including the repository, command, stage and pull request being processed")
+    private boolean logJson;
+    @Parameter(names = "--log-dir", description = "The directory to write a log file for each repository to")
+    private String logDir;
+    @Parameter(names = "--log-buffer-size", description = "The number of log records buffered for the background log writer. Debug and info records are dropped when it is three quarters full")
+    private int logBufferSize = AsyncLogWriter.DEFAULT_BUFFER_SIZE;
+    @Parameter(names = "--catalog", description = "Whether or not the repositories of GitHub organisations are kept in a catalog in the work directory which is only refreshed with the recently pushed repositories", arity = 1)
+    private boolean catalog = true;
+    @Parameter(names = "--catalog-full-sync-hours", description = "The number of hours after which the catalog of an organisation is listed again in full to remove renamed and deleted repositories")
+    private long catalogFullSyncHours = 24;
     @Parameter(names = "--check", description = "Whether or not we should check dependencies are valid before submitting Pull Requests", arity = 1)
     private boolean checkDependencies = true;
+    @Parameter(names = "--dependency-cache-size", description = "The maximum size in megabytes of the cache of dependency trees of npm projects with a lock file in the work directory. Use 0 to disable the cache")
+    private long dependencyCacheSize = 64;
+    @Parameter(names = "--metadata-cache-size", description = "The maximum size in megabytes of the cache of registry metadata in the work directory. Use 0 to disable the cache")
+    private long metadataCacheSize = 32;
+    @Parameter(names = "--metadata-cache-ttl", description = "The number of minutes cached registry metadata is used before checking if it has changed")
+    private long metadataCacheTimeToLive = 60;
+    @Parameter(names = "--npm-registry", description = "The URL of the npm registry used to find new versions when pulling")
+    private String npmRegistryUrl = Systems.getConfigValue(EnvironmentVariables.NPM_REGISTRY, NpmRegistry.DEFAULT_REGISTRY);
+    @Parameter(names = "--npm-range-policy", description = "Whether to UPDATE, SKIP or BATCH pushing npm versions which are already included in the declared version range. BATCH only updates them when other changes modify the same file")
+    private NpmRangePolicy npmRangePolicy = NpmRangePolicy.UPDATE;
+    @Parameter(names = "--npm-sandbox", description = "Whether to run npm install in a shared pool of sandbox directories rather than in each repository when checking dependencies. The whole repository is copied into a sandbox for each install", arity = 1)
+    private boolean npmSandbox;
+    @Parameter(names = "--npm-install-concurrency", description = "The maximum number of concurrent npm installs in the sandbox pool. Use 0 to use the number of processors and memory available")
+    private int npmInstallConcurrency;
+    @Parameter(names = "--npm-install-memory", description = "The megabytes of memory to allow for each concurrent npm install in the sandbox pool")
+    private long npmInstallMemory = 1024;
+    @Parameter(names = "--maven-check", description = "Whether to check maven dependency changes for convergence conflicts", arity = 1)
+    private boolean mavenCheck = true;
+    @Parameter(names = "--maven-local-repository", description = "The local maven repository shared by all the maven dependency checks. Defaults to ~/.m2/repository")
+    private String mavenLocalRepository;
+    @Parameter(names = "--maven-repositories", description = "The comma separated URLs of the remote maven repositories used to check and pull maven dependencies")
+    private String mavenRepositories = "https://repo1.maven.org/maven2/";
+    @Parameter(names = "--maven-offline", description = "Whether to only use the local and file based maven repositories when checking and pulling maven dependencies")
+    private boolean mavenOffline;
     @Parameter(names = {"--dir", "-d"}, description = "The source directory containing the git clone of the source to process")
     private String sourcePath;
 
     private File sourceDir;
     private boolean rebaseMode = true;
-    private NpmDependencyTreeGenerator npmDependencyTreeGenerator = new DefaultNpmDependencyTreeGenerator();
+    private NpmDependencyTreeGenerator npmDependencyTreeGenerator;
+    private NpmInstallPool npmInstallPool;
+    private MavenDependencyResolver mavenDependencyResolver;
+    private MavenMetadataResolver mavenMetadataResolver;
+    private DependencyTreeCache dependencyTreeCache;
+    private NpmRegistry npmRegistry;
+    private MetadataCache configCache;
+    private MetricsServer metricsServer;
     private boolean pullDisabled;
     private Map<String, String> pollStatusCache = new TreeMap<>();
 
@@ -80,10 +155,138 @@ public class Configuration {
             ghb.withRateLimitHandler(RateLimitHandler.WAIT).
                     withAbuseLimitHandler(AbuseLimitHandler.WAIT);
             this.github = ghb.build();
+            GitHub client = this.github;
+            Metrics.gauge("updatebot_github_rate_limit_remaining", "The number of GitHub API requests remaining in the current rate limit window", () -> {
+                GHRateLimit rateLimit = client.lastRateLimit();
+                return rateLimit != null ? rateLimit.remaining : -1;
+            });
         }
         return this.github;
     }
 
+    public int getGithubConcurrency() {
+        return githubConcurrency;
+    }
+
+    public void setGithubConcurrency(int githubConcurrency) {
+        this.githubConcurrency = githubConcurrency;
+    }
+
+    public long getCommandTimeout() {
+        return commandTimeout;
+    }
+
+    public void setCommandTimeout(long commandTimeout) {
+        this.commandTimeout = commandTimeout;
+    }
+
+    public int getGitConcurrency() {
+        return gitConcurrency;
+    }
+
+    public void setGitConcurrency(int gitConcurrency) {
+        this.gitConcurrency = gitConcurrency;
+    }
+
+    public int getNpmConcurrency() {
+        return npmConcurrency;
+    }
+
+    public void setNpmConcurrency(int npmConcurrency) {
+        this.npmConcurrency = npmConcurrency;
+    }
+
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    public void setMetricsFile(String metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    /**
+     * Starts serving the metrics if a metrics port is configured and they are not already being served
+     */
+    public synchronized MetricsServer startMetricsServer() throws IOException {
+        if (metricsServer == null && metricsPort > 0) {
+            metricsServer = MetricsServer.start(metricsPort);
+        }
+        return metricsServer;
+    }
+
+    /**
+     * Stops serving the metrics so that the process can exit once the command has completed
+     */
+    public synchronized void stopMetricsServer() {
+        if (metricsServer != null) {
+            metricsServer.stop();
+            metricsServer = null;
+        }
+    }
+
+    /**
+     * Returns true if the log should be written by a background thread
+     */
+    public boolean isAsyncLogging() {
+        return logAsync || logJson || Strings.notEmpty(logDir);
+    }
+
+    public boolean isLogAsync() {
+        return logAsync;
+    }
+
+    public void setLogAsync(boolean logAsync) {
+        this.logAsync = logAsync;
+    }
+
+    public boolean isLogJson() {
+        return logJson;
+    }
+
+    public void setLogJson(boolean logJson) {
+        this.logJson = logJson;
+    }
+
+    public String getLogDir() {
+        return logDir;
+    }
+
+    public void setLogDir(String logDir) {
+        this.logDir = logDir;
+    }
+
+    public int getLogBufferSize() {
+        return logBufferSize;
+    }
+
+    public void setLogBufferSize(int logBufferSize) {
+        this.logBufferSize = logBufferSize;
+    }
+
+    public boolean isCatalog() {
+        return catalog;
+    }
+
+    public void setCatalog(boolean catalog) {
+        this.catalog = catalog;
+    }
+
+    public long getCatalogFullSyncHours() {
+        return catalogFullSyncHours;
+    }
+
+    public void setCatalogFullSyncHours(long catalogFullSyncHours) {
+        this.catalogFullSyncHours = catalogFullSyncHours;
+    }
+
     public String getConfigFile() {
         return configFile;
     }
@@ -100,6 +303,20 @@ public class Configuration {
         this.workDir = workDir;
     }
 
+    /**
+     * Returns the work directory resolving a relative path against the source directory
+     */
+    public File getWorkDirectory() {
+        File answer = new File(workDir);
+        if (!answer.isAbsolute()) {
+            File dir = getSourceDir();
+            if (FileHelper.isDirectory(dir)) {
+                answer = new File(dir, workDir);
+            }
+        }
+        return answer;
+    }
+
     public String getGithubUsername() {
         return githubUsername;
     }
@@ -156,7 +373,91 @@ public class Configuration {
         this.checkDependencies = checkDependencies;
     }
 
+    /**
+     * Returns the resolver used to check maven dependencies or null if they should not be checked
+     */
+    public MavenDependencyResolver getMavenDependencyResolver() {
+        if (mavenDependencyResolver == null && mavenCheck) {
+            File localRepository = Strings.notEmpty(mavenLocalRepository) ? new File(mavenLocalRepository) : new File(System.getProperty("user.home", "."), ".m2/repository");
+            mavenDependencyResolver = new MavenDependencyResolver(localRepository, getMavenRepositoryUrls(), mavenOffline);
+        }
+        return mavenDependencyResolver;
+    }
+
+    public void setMavenDependencyResolver(MavenDependencyResolver mavenDependencyResolver) {
+        this.mavenDependencyResolver = mavenDependencyResolver;
+    }
+
+    /**
+     * Returns the resolver of the latest maven releases which is shared by all repositories so that
+     * the metadata of each artifact is only loaded once
+     */
+    public MavenMetadataResolver getMavenMetadataResolver() {
+        if (mavenMetadataResolver == null) {
+            mavenMetadataResolver = new MavenMetadataResolver(getMavenRepositoryUrls(), createMetadataCache("maven-metadata"), mavenOffline);
+        }
+        return mavenMetadataResolver;
+    }
+
+    public void setMavenMetadataResolver(MavenMetadataResolver mavenMetadataResolver) {
+        this.mavenMetadataResolver = mavenMetadataResolver;
+    }
+
+    /**
+     * Returns the URLs of the remote maven repositories
+     */
+    public List<String> getMavenRepositoryUrls() {
+        List<String> answer = new ArrayList<>();
+        for (String url : mavenRepositories.split(",")) {
+            if (Strings.notEmpty(url.trim())) {
+                answer.add(url.trim());
+            }
+        }
+        return answer;
+    }
+
+    public boolean isMavenCheck() {
+        return mavenCheck;
+    }
+
+    public void setMavenCheck(boolean mavenCheck) {
+        this.mavenCheck = mavenCheck;
+    }
+
+    public String getMavenLocalRepository() {
+        return mavenLocalRepository;
+    }
+
+    public void setMavenLocalRepository(String mavenLocalRepository) {
+        this.mavenLocalRepository = mavenLocalRepository;
+    }
+
+    public String getMavenRepositories() {
+        return mavenRepositories;
+    }
+
+    public void setMavenRepositories(String mavenRepositories) {
+        this.mavenRepositories = mavenRepositories;
+        this.mavenDependencyResolver = null;
+        this.mavenMetadataResolver = null;
+    }
+
+    public boolean isMavenOffline() {
+        return mavenOffline;
+    }
+
+    public void setMavenOffline(boolean mavenOffline) {
+        this.mavenOffline = mavenOffline;
+    }
+
     public NpmDependencyTreeGenerator getNpmDependencyTreeGenerator() {
+        if (npmDependencyTreeGenerator == null) {
+            if (npmSandbox) {
+                npmDependencyTreeGenerator = new SandboxNpmDependencyTreeGenerator(getNpmInstallPool());
+            } else {
+                npmDependencyTreeGenerator = new DefaultNpmDependencyTreeGenerator();
+            }
+        }
         return npmDependencyTreeGenerator;
     }
 
@@ -164,6 +465,154 @@ public class Configuration {
         this.npmDependencyTreeGenerator = npmDependencyTreeGenerator;
     }
 
+    public boolean isNpmSandbox() {
+        return npmSandbox;
+    }
+
+    public void setNpmSandbox(boolean npmSandbox) {
+        this.npmSandbox = npmSandbox;
+    }
+
+    public int getNpmInstallConcurrency() {
+        return npmInstallConcurrency;
+    }
+
+    public void setNpmInstallConcurrency(int npmInstallConcurrency) {
+        this.npmInstallConcurrency = npmInstallConcurrency;
+    }
+
+    public long getNpmInstallMemory() {
+        return npmInstallMemory;
+    }
+
+    public void setNpmInstallMemory(long npmInstallMemory) {
+        this.npmInstallMemory = npmInstallMemory;
+    }
+
+    /**
+     * Returns the pool of sandboxes used to run npm installs which is shared by all repositories
+     */
+    public NpmInstallPool getNpmInstallPool() {
+        if (npmInstallPool == null) {
+            File dir = new File(getWorkDirectory(), "npm");
+            npmInstallPool = new NpmInstallPool(dir, npmInstallConcurrency, npmInstallMemory * 1024 * 1024);
+        }
+        return npmInstallPool;
+    }
+
+    public void setNpmInstallPool(NpmInstallPool npmInstallPool) {
+        this.npmInstallPool = npmInstallPool;
+    }
+
+    public long getDependencyCacheSize() {
+        return dependencyCacheSize;
+    }
+
+    public void setDependencyCacheSize(long dependencyCacheSize) {
+        this.dependencyCacheSize = dependencyCacheSize;
+        this.dependencyTreeCache = null;
+    }
+
+    /**
+     * Returns the cache of dependency trees or null if caching is disabled
+     */
+    public DependencyTreeCache getDependencyTreeCache() {
+        if (dependencyTreeCache == null && dependencyCacheSize > 0) {
+            File dir = new File(getWorkDirectory(), "cache/dependency-trees");
+            dependencyTreeCache = new DependencyTreeCache(dir, dependencyCacheSize * 1024 * 1024);
+        }
+        return dependencyTreeCache;
+    }
+
+    public void setDependencyTreeCache(DependencyTreeCache dependencyTreeCache) {
+        this.dependencyTreeCache = dependencyTreeCache;
+    }
+
+    public long getMetadataCacheSize() {
+        return metadataCacheSize;
+    }
+
+    public void setMetadataCacheSize(long metadataCacheSize) {
+        this.metadataCacheSize = metadataCacheSize;
+        this.npmRegistry = null;
+    }
+
+    public long getMetadataCacheTimeToLive() {
+        return metadataCacheTimeToLive;
+    }
+
+    public void setMetadataCacheTimeToLive(long metadataCacheTimeToLive) {
+        this.metadataCacheTimeToLive = metadataCacheTimeToLive;
+        this.npmRegistry = null;
+    }
+
+    /**
+     * Creates a cache of registry metadata in the given directory of the work directory
+     */
+    public MetadataCache createMetadataCache(String name) {
+        File dir = new File(getWorkDirectory(), "cache/" + name);
+        return new MetadataCache(dir, metadataCacheSize * 1024 * 1024, TimeUnit.MINUTES.toMillis(metadataCacheTimeToLive));
+    }
+
+    /**
+     * Returns the cache of remote configuration files which is revalidated every time the configuration is loaded
+     * so that changes are picked up straight away, falling back to the cached copy if the origin is slow or down
+     */
+    public MetadataCache getConfigCache() {
+        if (configCache == null) {
+            configCache = new MetadataCache(new File(getWorkDirectory(), "cache/config"), CONFIG_CACHE_SIZE, 0);
+            configCache.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(configTimeout));
+            configCache.setReadTimeout((int) TimeUnit.SECONDS.toMillis(configTimeout));
+        }
+        return configCache;
+    }
+
+    public void setConfigCache(MetadataCache configCache) {
+        this.configCache = configCache;
+    }
+
+    public int getConfigTimeout() {
+        return configTimeout;
+    }
+
+    public void setConfigTimeout(int configTimeout) {
+        this.configTimeout = configTimeout;
+        this.configCache = null;
+    }
+
+    public String getNpmRegistryUrl() {
+        return npmRegistryUrl;
+    }
+
+    public void setNpmRegistryUrl(String npmRegistryUrl) {
+        this.npmRegistryUrl = npmRegistryUrl;
+        this.npmRegistry = null;
+    }
+
+    /**
+     * Returns the npm registry client which is shared by all repositories so that each package is only looked up once
+     */
+    public NpmRegistry getNpmRegistry() {
+        if (npmRegistry == null) {
+            MetadataCache cache = createMetadataCache("npm-registry");
+            cache.setAccept(NpmRegistry.ABBREVIATED_METADATA);
+            npmRegistry = new NpmRegistry(npmRegistryUrl, cache);
+        }
+        return npmRegistry;
+    }
+
+    public void setNpmRegistry(NpmRegistry npmRegistry) {
+        this.npmRegistry = npmRegistry;
+    }
+
+    public NpmRangePolicy getNpmRangePolicy() {
+        return npmRangePolicy;
+    }
+
+    public void setNpmRangePolicy(NpmRangePolicy npmRangePolicy) {
+        this.npmRangePolicy = npmRangePolicy;
+    }
+
     public boolean isPullDisabled() {
         return pullDisabled;
     }
@@ -24,10 +24,12 @@ import io.fabric8.updatebot.commands.PullVersionChanges;
 import io.fabric8.updatebot.commands.PushSourceChanges;
 import io.fabric8.updatebot.commands.PushVersionChanges;
 import io.fabric8.updatebot.commands.UpdatePullRequests;
+import io.fabric8.updatebot.support.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.impl.UpdateBotLogConfiguration;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
@@ -46,6 +48,8 @@ public class UpdateBot {
     private Configuration config = new Configuration();
     private CommandSupport lastCommend;
     private UpdatePullRequests updatePullRequests = new UpdatePullRequests();
+    private PrintStream loggerOutput;
+    private UpdateBotLogConfiguration logConfiguration;
     private Logger LOG;
 
     public static void main(String[] args) {
@@ -121,20 +125,50 @@ public class UpdateBot {
     }
 
     public void setLoggerOutput(PrintStream out) {
-        UpdateBotLogConfiguration config = new UpdateBotLogConfiguration(out);
-        config.init();
+        this.loggerOutput = out;
+        configureLogger(new UpdateBotLogConfiguration(out));
+    }
+
+    protected void configureLogger(UpdateBotLogConfiguration logConfiguration) {
+        logConfiguration.init();
+        this.logConfiguration = logConfiguration;
 
         LOG = LoggerFactory.getLogger(UpdateBot.class);
         LOG.debug("Configured custom logger");
     }
 
+    /**
+     * Switches to the asynchronous logger if the configuration asks for it and it is not already in use
+     */
+    protected void configureAsyncLogging() {
+        if (!config.isAsyncLogging() || (logConfiguration != null && logConfiguration.isAsync())) {
+            return;
+        }
+        UpdateBotLogConfiguration asyncConfiguration = new UpdateBotLogConfiguration(loggerOutput != null ? loggerOutput : System.err);
+        asyncConfiguration.setBufferSize(Math.max(1, config.getLogBufferSize()));
+        asyncConfiguration.setJson(config.isLogJson());
+        String logDir = config.getLogDir();
+        if (Strings.notEmpty(logDir)) {
+            asyncConfiguration.setLogDir(new File(logDir));
+        }
+        configureLogger(asyncConfiguration);
+    }
+
     /**
      * Runs a command
      */
     public CommandSupport run(String[] args) throws IOException {
         CommandSupport command = parseCommand(args, config, true);
         this.lastCommend = command;
-        command.run(config);
+        configureAsyncLogging();
+        try {
+            command.run(config);
+        } finally {
+            config.stopMetricsServer();
+            if (logConfiguration != null) {
+                logConfiguration.flush();
+            }
+        }
         return command;
     }
 
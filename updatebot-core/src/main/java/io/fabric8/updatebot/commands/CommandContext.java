@@ -18,8 +18,10 @@ package io.fabric8.updatebot.commands;
 import io.fabric8.updatebot.Configuration;
 import io.fabric8.updatebot.github.GitHubHelpers;
 import io.fabric8.updatebot.kind.Kind;
+import io.fabric8.updatebot.logging.LogContext;
 import io.fabric8.updatebot.model.DependencyVersionChange;
 import io.fabric8.updatebot.repository.LocalRepository;
+import io.fabric8.updatebot.support.ManifestScanner;
 import io.fabric8.updatebot.support.Markdown;
 import io.fabric8.updatebot.support.Strings;
 import io.fabric8.utils.Objects;
@@ -32,7 +34,9 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -51,6 +55,8 @@ public class CommandContext {
     private GHIssue issue;
     private GHPullRequest pullRequest;
     private Status status = Status.PENDING;
+    private Map<DependencyVersionChange, VersionChangeStatus> versionChangeResults = new LinkedHashMap<>();
+    private Map<String, List<File>> manifests;
 
     public CommandContext(LocalRepository repository, Configuration configuration) {
         this.repository = repository;
@@ -96,6 +102,7 @@ public class CommandContext {
 
     public void setPullRequest(GHPullRequest pullRequest) {
         this.pullRequest = pullRequest;
+        LogContext.put(LogContext.PULL_REQUEST, pullRequest != null ? pullRequest.getNumber() : null);
     }
 
     public String getRepositoryFullName() {
@@ -110,6 +117,17 @@ public class CommandContext {
         this.status = status;
     }
 
+    /**
+     * Returns the outcome of each version change pushed into this repository in the order they were pushed
+     */
+    public Map<DependencyVersionChange, VersionChangeStatus> getVersionChangeResults() {
+        return versionChangeResults;
+    }
+
+    public void versionChangeResult(DependencyVersionChange change, VersionChangeStatus status) {
+        versionChangeResults.put(change, status);
+    }
+
     /**
      * Returns true if one or more files have been updated
      */
@@ -144,6 +162,21 @@ public class CommandContext {
         return new File(repository.getDir(), relativePath);
     }
 
+    /**
+     * Returns the manifest files with the given name anywhere in the local repo. The repo is scanned for all the
+     * {@link ManifestScanner#MANIFEST_FILE_NAMES} once and the results shared by all the contexts of the repo
+     */
+    public List<File> manifests(String fileName) {
+        if (parentContext != null) {
+            return parentContext.manifests(fileName);
+        }
+        if (manifests == null) {
+            manifests = ManifestScanner.scan(getDir(), ManifestScanner.MANIFEST_FILE_NAMES);
+        }
+        List<File> answer = manifests.get(fileName);
+        return answer != null ? answer : Collections.emptyList();
+    }
+
     public void updatedFile(File file) {
         updatedFiles.add(file);
     }
@@ -184,6 +217,14 @@ public class CommandContext {
 
 
     public String createPullRequestBody() {
+        if (children.size() > 1) {
+            StringBuilder builder = new StringBuilder();
+            for (CommandContext child : children) {
+                builder.append(child.createPullRequestBody());
+                builder.append("\n");
+            }
+            return builder.toString();
+        }
         CommandContext child = firstChild();
         if (child != null) {
             return child.createPullRequestBody();
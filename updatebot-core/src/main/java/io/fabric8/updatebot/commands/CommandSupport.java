@@ -19,18 +19,27 @@ import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import io.fabric8.updatebot.Configuration;
 import io.fabric8.updatebot.github.Issues;
+import io.fabric8.updatebot.jfr.FlightRecorderEvents;
+import io.fabric8.updatebot.logging.LogContext;
 import io.fabric8.updatebot.model.Projects;
 import io.fabric8.updatebot.repository.LocalRepository;
 import io.fabric8.updatebot.repository.Repositories;
+import io.fabric8.updatebot.support.Commands;
+import io.fabric8.updatebot.support.Metrics;
 import io.fabric8.utils.Strings;
 import org.kohsuke.github.GHIssue;
 import org.kohsuke.github.GHRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static io.fabric8.updatebot.github.PullRequests.COMMAND_COMMENT_INDENT;
 import static io.fabric8.updatebot.github.PullRequests.COMMAND_COMMENT_PREFIX;
@@ -41,7 +50,10 @@ import static io.fabric8.updatebot.support.ReflectionHelper.getFieldValue;
 /**
  */
 public abstract class CommandSupport {
+    private static final transient Logger LOG = LoggerFactory.getLogger(CommandSupport.class);
+
     private List<LocalRepository> localRepositories;
+    private Map<String, Integer> spawnCounts = Collections.emptyMap();
 
     public String createPullRequestComment() {
         StringBuilder builder = new StringBuilder(COMMAND_COMMENT_PREFIX);
@@ -105,13 +117,43 @@ public abstract class CommandSupport {
 
     public ParentContext run(Configuration configuration) throws IOException {
         validateConfiguration(configuration);
+        configureCommands(configuration);
+        configuration.startMetricsServer();
+        spawnCounts = Commands.getSpawnCounts();
 
         ParentContext parentContext = new ParentContext();
-        List<LocalRepository> repositories = cloneOrPullRepositories(configuration);
-        for (LocalRepository repository : repositories) {
-            CommandContext context = createCommandContext(repository, configuration);
-            parentContext.addChild(context);
-            run(context);
+        String commandName = getCommandName();
+        Map<String, String> logContext = LogContext.getContext();
+        List<LocalRepository> repositories;
+        try {
+            LogContext.put(LogContext.COMMAND, commandName);
+            repositories = cloneOrPullRepositories(configuration);
+            for (LocalRepository repository : repositories) {
+                CommandContext context = createCommandContext(repository, configuration);
+                parentContext.addChild(context);
+                long start = System.nanoTime();
+                Object event = FlightRecorderEvents.startRepository();
+                String status = "error";
+                LogContext.put(LogContext.REPOSITORY, repository.getFullName());
+                LogContext.put(LogContext.STAGE, "process");
+                try {
+                    run(context);
+                    status = String.valueOf(context.getStatus());
+                } finally {
+                    FlightRecorderEvents.commitRepository(event, repository.getFullName(), commandName, status);
+                    LogContext.remove(LogContext.REPOSITORY);
+                    LogContext.remove(LogContext.STAGE);
+                    LogContext.remove(LogContext.PULL_REQUEST);
+                }
+                Metrics.timer("updatebot_repository_duration_seconds", "The time taken to process each repository by command", "command", commandName).observeSince(start);
+            }
+            logSummary(repositories);
+        } finally {
+            LogContext.setContext(logContext);
+        }
+        String metricsFile = configuration.getMetricsFile();
+        if (Strings.notEmpty(metricsFile)) {
+            Metrics.saveJson(new File(metricsFile));
         }
         return parentContext;
     }
@@ -119,6 +161,39 @@ public abstract class CommandSupport {
     protected void validateConfiguration(Configuration configuration) throws IOException {
     }
 
+    /**
+     * Returns the name of the command used on the command line
+     */
+    protected String getCommandName() {
+        Parameters annotation = getClass().getAnnotation(Parameters.class);
+        if (annotation != null && annotation.commandNames().length > 0) {
+            return annotation.commandNames()[0];
+        }
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Logs how many processes this command has started in each repository
+     */
+    protected void logSummary(List<LocalRepository> repositories) {
+        int total = 0;
+        for (LocalRepository repository : repositories) {
+            int count = Commands.getSpawnCount(repository.getDir(), spawnCounts);
+            total += count;
+            LOG.debug("Ran " + count + " processes in " + repository.getFullName());
+        }
+        LOG.info("Ran " + total + " processes in " + repositories.size() + " repositories");
+    }
+
+    /**
+     * Applies the timeout and concurrency limits of the child processes
+     */
+    protected void configureCommands(Configuration configuration) {
+        Commands.setTimeout(TimeUnit.MINUTES.toMillis(configuration.getCommandTimeout()));
+        Commands.setConcurrency("git", configuration.getGitConcurrency());
+        Commands.setConcurrency("npm", configuration.getNpmConcurrency());
+    }
+
     protected CommandContext createCommandContext(LocalRepository repository, Configuration configuration) {
         return new CommandContext(repository, configuration);
     }
@@ -140,9 +215,7 @@ public abstract class CommandSupport {
     // Properties
     //-------------------------------------------------------------------------
     protected Projects loadProjects(Configuration configuration) throws IOException {
-        String configFile = configuration.getConfigFile();
-        File sourceDir = configuration.getSourceDir();
-        return Repositories.loadProjects(configFile, sourceDir);
+        return Repositories.loadProjects(configuration);
     }
 
     protected GHIssue getOrFindIssue(CommandContext context, GHRepository ghRepository) throws IOException {
@@ -23,7 +23,9 @@ import io.fabric8.updatebot.kind.DependenciesCheck;
 import io.fabric8.updatebot.kind.Kind;
 import io.fabric8.updatebot.kind.KindDependenciesCheck;
 import io.fabric8.updatebot.kind.Updater;
+import io.fabric8.updatebot.logging.LogContext;
 import io.fabric8.updatebot.model.DependencyVersionChange;
+import io.fabric8.updatebot.repository.LocalRepository;
 import io.fabric8.updatebot.support.Commands;
 import io.fabric8.updatebot.support.GitHelper;
 import io.fabric8.utils.Objects;
@@ -38,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,17 +52,22 @@ import java.util.UUID;
 public abstract class ModifyFilesCommandSupport extends CommandSupport {
     private static final transient Logger LOG = LoggerFactory.getLogger(ModifyFilesCommandSupport.class);
     private GHIssue issue;
+    private int skippedPushCount;
 
     @Override
     public void run(CommandContext context) throws IOException {
+        LogContext.put(LogContext.STAGE, "prepare");
         prepareDirectory(context);
+        LogContext.put(LogContext.STAGE, "update");
         if (doProcess(context) && !context.getConfiguration().isDryRun()) {
             gitCommitAndPullRequest(context);
         }
     }
 
     public void run(CommandContext context, GHRepository ghRepository, GHPullRequest pullRequest) throws IOException {
+        LogContext.put(LogContext.STAGE, "prepare");
         prepareDirectory(context);
+        LogContext.put(LogContext.STAGE, "update");
         if (doProcess(context)) {
             processPullRequest(context, ghRepository, pullRequest);
         }
@@ -67,10 +75,18 @@ public abstract class ModifyFilesCommandSupport extends CommandSupport {
 
     // Implementation methods
     //-------------------------------------------------------------------------
+    @Override
+    protected void logSummary(List<LocalRepository> repositories) {
+        super.logSummary(repositories);
+        if (skippedPushCount > 0) {
+            LOG.info("Skipped " + skippedPushCount + " pushes to pull requests which were unchanged");
+        }
+    }
+
     protected void prepareDirectory(CommandContext context) {
         File dir = context.getRepository().getDir();
         dir.getParentFile().mkdirs();
-        GitHelper.gitStashAndCheckoutMaster(dir);
+        GitHelper.gitCheckoutMaster(dir);
     }
 
     protected boolean doProcess(CommandContext context) throws IOException {
@@ -90,11 +106,12 @@ public abstract class ModifyFilesCommandSupport extends CommandSupport {
     }
 
     protected void processPullRequest(CommandContext context, GHRepository ghRepository, GHPullRequest pullRequest) throws IOException {
+        LogContext.put(LogContext.STAGE, "pull-request");
         Configuration configuration = context.getConfiguration();
         String title = context.createPullRequestTitle();
         String remoteURL = "git@github.com:" + ghRepository.getOwnerName() + "/" + ghRepository.getName();
         File dir = context.getDir();
-        if (Commands.runCommandIgnoreOutput(dir, "git", "remote", "set-url", "origin", remoteURL) != 0) {
+        if (!GitHelper.gitSetRemoteUrl(dir, "origin", remoteURL)) {
             LOG.warn("Could not set the remote URL of " + remoteURL);
         }
 
@@ -112,7 +129,8 @@ public abstract class ModifyFilesCommandSupport extends CommandSupport {
                 LOG.warn("Failed to push branch " + localBranch + " for " + context.getCloneUrl());
                 return;
             }
-            pullRequest = ghRepository.createPullRequest(title, head, "master", body);
+            pullRequest = GitHubHelpers.callGithub("pulls.create", () -> ghRepository.createPullRequest(title, head, "master", body));
+            PullRequests.countPullRequests("created");
             context.setPullRequest(pullRequest);
             LOG.info("Created pull request " + pullRequest.getHtmlUrl());
 
@@ -122,21 +140,16 @@ public abstract class ModifyFilesCommandSupport extends CommandSupport {
         } else {
             context.setPullRequest(pullRequest);
 
-            addIssueClosedCommentIfRequired(context, pullRequest, false);
             String oldTitle = pullRequest.getTitle();
+            boolean rebase = false;
             if (Objects.equal(oldTitle, title)) {
                 // lets check if we need to rebase
                 if (configuration.isRebaseMode()) {
                     if (GitHubHelpers.isMergeable(pullRequest)) {
                         return;
                     }
-                    pullRequest.comment("[UpdateBot](https://github.com/fabric8io/updatebot) rebasing due to merge conflicts");
+                    rebase = true;
                 }
-            } else {
-                //pullRequest.comment("Replacing previous commit");
-                pullRequest.setTitle(title);
-
-                pullRequest.comment(commandComment);
             }
 
             GHCommitPointer head = pullRequest.getHead();
@@ -144,14 +157,41 @@ public abstract class ModifyFilesCommandSupport extends CommandSupport {
 
             String localBranch = remoteRef;
 
-            // lets remove any local branches of this name
-            Commands.runCommandIgnoreOutput(dir, "git", "branch", "-D", localBranch);
+            if (!GitHelper.gitCheckoutNewBranch(dir, localBranch) || !GitHelper.gitAdd(dir)) {
+                LOG.warn("Failed to stage the changes on branch " + localBranch + " for " + pullRequest.getHtmlUrl());
+                return;
+            }
+            // a new commit with the same tree would only restart the CI builds of the PR
+            if (!rebase && GitHelper.gitIsIndexUnchanged(dir, head.getSha())) {
+                skippedPushCount++;
+                PullRequests.countPullRequests("unchanged");
+                LOG.info("PR " + pullRequest.getHtmlUrl() + " is unchanged so not pushing");
+                if (!Objects.equal(oldTitle, title)) {
+                    pullRequest.setTitle(title);
+                }
+                return;
+            }
+
+            if (!GitHelper.gitCommit(dir, context.createCommit())) {
+                LOG.warn("Failed to commit the changes on branch " + localBranch + " for " + pullRequest.getHtmlUrl());
+                return;
+            }
 
-            doCommit(context, dir, localBranch);
+            addIssueClosedCommentIfRequired(context, pullRequest, false);
+            if (rebase) {
+                pullRequest.comment("[UpdateBot](https://github.com/fabric8io/updatebot) rebasing due to merge conflicts");
+            } else if (!Objects.equal(oldTitle, title)) {
+                //pullRequest.comment("Replacing previous commit");
+                pullRequest.setTitle(title);
+
+                pullRequest.comment(commandComment);
+            }
 
             if (Commands.runCommand(dir, "git", "push", "-f", "origin", localBranch + ":" + remoteRef) != 0) {
                 LOG.warn("Failed to push branch " + localBranch + " to existing github branch " + remoteRef + " for " + pullRequest.getHtmlUrl());
+                return;
             }
+            PullRequests.countPullRequests("updated");
             LOG.info("Updated PR " + pullRequest.getHtmlUrl());
         }
     }
@@ -184,12 +224,19 @@ public abstract class ModifyFilesCommandSupport extends CommandSupport {
 
     private boolean doCommit(CommandContext context, File dir, String branch) {
         String commitComment = context.createCommit();
-        if (Commands.runCommandIgnoreOutput(dir, "git", "checkout", "-b", branch) == 0) {
+        if (GitHelper.gitCheckoutNewBranch(dir, branch)) {
             return GitHelper.gitAddAndCommit(dir, commitComment);
         }
         return false;
     }
 
+    /**
+     * Returns the number of pushes to existing pull requests which were skipped as their changes were unchanged
+     */
+    public int getSkippedPushCount() {
+        return skippedPushCount;
+    }
+
     /**
      * Lets try find a pull request for previous PRs
      */
@@ -206,61 +253,105 @@ public abstract class ModifyFilesCommandSupport extends CommandSupport {
         return null;
     }
 
+    /**
+     * Applies the changes of each kind as a single batch so that each file is only read and written once
+     */
     protected boolean pushVersionChangesWithoutChecks(CommandContext parentContext, List<DependencyVersionChange> steps) throws IOException {
         boolean answer = false;
-        for (DependencyVersionChange step : steps) {
-            if (pushSingleVersionChangeWithoutChecks(parentContext, step)) {
+        for (Map.Entry<Kind, List<DependencyVersionChange>> entry : groupByKind(steps).entrySet()) {
+            Updater updater = entry.getKey().getUpdater();
+            List<PushVersionChangesContext> contexts = new ArrayList<>();
+            for (DependencyVersionChange step : entry.getValue()) {
+                contexts.add(new PushVersionChangesContext(parentContext, step));
+            }
+            if (updater.isApplicable(parentContext) && updater.pushVersions(contexts)) {
                 answer = true;
             }
-        }
-        return answer;
-    }
-
-    protected boolean pushSingleVersionChangeWithoutChecks(CommandContext parentContext, DependencyVersionChange step) throws IOException {
-        Kind kind = step.getKind();
-        Updater updater = kind.getUpdater();
-        PushVersionChangesContext context = new PushVersionChangesContext(parentContext, step);
-        if (updater.isApplicable(context)) {
-            boolean updated = updater.pushVersions(context);
-            if (!updated) {
-                parentContext.removeChild(context);
+            for (PushVersionChangesContext context : contexts) {
+                if (context.getChanges().isEmpty()) {
+                    parentContext.removeChild(context);
+                    parentContext.versionChangeResult(context.getStep(), context.isSkippedByRange() ? VersionChangeStatus.IN_RANGE : VersionChangeStatus.UNCHANGED);
+                } else {
+                    parentContext.versionChangeResult(context.getStep(), VersionChangeStatus.APPLIED);
+                }
             }
-            return updated;
         }
-        return false;
+        return answer;
     }
 
     protected boolean pushVersionsWithChecks(CommandContext context, List<DependencyVersionChange> originalSteps) throws IOException {
         List<DependencyVersionChange> pendingChanges = loadPendingChanges(context);
         List<DependencyVersionChange> steps = combinePendingChanges(originalSteps, pendingChanges);
-        boolean answer = pushVersionChangesWithoutChecks(context, steps);
-        if (answer) {
-            if (context.getConfiguration().isCheckDependencies()) {
-                DependenciesCheck check = checkDependencyChanges(context, steps);
-                List<DependencyVersionChange> invalidChanges = check.getInvalidChanges();
-                List<DependencyVersionChange> validChanges = check.getValidChanges();
-                if (invalidChanges.size() > 0) {
-                    // lets revert the current changes
-                    GitHelper.revertChanges(context.getDir());
-                    if (validChanges.size() > 0) {
-                        // lets perform just the valid changes
-                        if (!pushVersionChangesWithoutChecks(context, validChanges)) {
-                            LOG.warn("Attempted to apply the subset of valid changes " + DependencyVersionChange.describe(validChanges) + " but no files were modified!");
-                            return false;
-                        }
-                    }
+        if (!context.getConfiguration().isCheckDependencies()) {
+            return pushVersionChangesWithoutChecks(context, steps);
+        }
+
+        // lets only write the changes which the baseline dependency tree predicts are valid
+        DependenciesCheck predicted = predictDependencyChanges(context, steps);
+        if (predicted != null) {
+            steps = predicted.getValidChanges();
+            if (predicted.getInvalidChanges().size() > 0) {
+                LOG.info("Not applying the changes " + DependencyVersionChange.describe(predicted.getInvalidChanges()) + " as they are predicted to conflict");
+            }
+        }
+        List<CommandContext> children = new ArrayList<>(context.getChildren());
+        boolean answer = !steps.isEmpty() && pushVersionChangesWithoutChecks(context, steps);
+        if (!answer) {
+            if (predicted != null && predicted.getInvalidChanges().size() > 0) {
+                rejectedChanges(context, predicted.getInvalidChanges());
+                updatePendingChanges(context, predicted, pendingChanges);
+            }
+            return false;
+        }
+
+        // the real check confirms the prediction so the files are normally only written once
+        DependenciesCheck check = checkDependencyChanges(context, steps);
+        List<DependencyVersionChange> invalidChanges = check.getInvalidChanges();
+        List<DependencyVersionChange> validChanges = check.getValidChanges();
+        if (invalidChanges.size() > 0) {
+            // the prediction was wrong so lets revert the current changes
+            GitHelper.revertChanges(context.getDir());
+            context.getChildren().retainAll(children);
+            if (validChanges.size() > 0) {
+                // lets perform just the valid changes
+                if (!pushVersionChangesWithoutChecks(context, validChanges)) {
+                    LOG.warn("Attempted to apply the subset of valid changes " + DependencyVersionChange.describe(validChanges) + " but no files were modified!");
+                    return false;
                 }
-                updatePendingChanges(context, check, pendingChanges);
-                return validChanges.size() > 0;
             }
         }
-        return answer;
+        if (predicted != null) {
+            // lets report the predicted conflicts along with any found by the real check
+            check = predictedInvalidChanges(predicted).append(check);
+        }
+        rejectedChanges(context, check.getInvalidChanges());
+        updatePendingChanges(context, check, pendingChanges);
+        return validChanges.size() > 0;
+    }
+
+    protected static void rejectedChanges(CommandContext context, List<DependencyVersionChange> invalidChanges) {
+        for (DependencyVersionChange change : invalidChanges) {
+            context.versionChangeResult(change, VersionChangeStatus.REJECTED);
+        }
+    }
+
+    /**
+     * Returns the changes which were predicted to be invalid along with their conflicts
+     */
+    protected static DependenciesCheck predictedInvalidChanges(DependenciesCheck predicted) {
+        Map<Kind, KindDependenciesCheck> failures = new LinkedHashMap<>();
+        for (Map.Entry<Kind, KindDependenciesCheck> entry : predicted.getFailures().entrySet()) {
+            KindDependenciesCheck results = entry.getValue();
+            failures.put(entry.getKey(), new KindDependenciesCheck(new ArrayList<>(), new ArrayList<>(results.getInvalidChanges()), new LinkedHashMap<>(results.getFailedChecks())));
+        }
+        return new DependenciesCheck(new ArrayList<>(), new ArrayList<>(predicted.getInvalidChanges()), failures);
     }
 
     public void updatePendingChanges(CommandContext context, DependenciesCheck check, List<DependencyVersionChange> pendingChanges) throws IOException {
         List<DependencyVersionChange> currentPendingChanges = check.getInvalidChanges();
         GHRepository ghRepository = context.gitHubRepository();
         if (ghRepository != null) {
+            LogContext.put(LogContext.STAGE, "issue");
             GHIssue issue = getOrFindIssue(context, ghRepository);
             if (currentPendingChanges.equals(pendingChanges)) {
                 if (issue != null) {
@@ -273,7 +364,7 @@ public abstract class ModifyFilesCommandSupport extends CommandSupport {
                 if (issue != null) {
                     LOG.info("Closing issue as we have no further pending issues " + issue.getHtmlUrl());
                     issue.comment(Issues.CLOSE_MESSAGE + operationDescrption);
-                    issue.close();
+                    GitHubHelpers.closeIssues(Collections.singletonList(issue));
                 }
                 return;
             }
@@ -284,7 +375,7 @@ public abstract class ModifyFilesCommandSupport extends CommandSupport {
             } else {
                 LOG.info("Modifying issue " + issue.getHtmlUrl());
             }
-            Issues.addConflictsComment(issue, currentPendingChanges, operationDescrption, check);
+            Issues.addConflictsComment(issue, currentPendingChanges, operationDescrption, check, context.getVersionChangeResults());
         } else {
             // TODO what to do with vanilla git repos?
         }
@@ -323,24 +414,37 @@ public abstract class ModifyFilesCommandSupport extends CommandSupport {
     }
 
 
-    protected DependenciesCheck checkDependencyChanges(CommandContext context, List<DependencyVersionChange> steps) {
-        Map<Kind, List<DependencyVersionChange>> map = new LinkedHashMap<>();
-        for (DependencyVersionChange change : steps) {
-            Kind kind = change.getKind();
-            List<DependencyVersionChange> list = map.get(kind);
-            if (list == null) {
-                list = new ArrayList<>();
-                map.put(kind, list);
+    /**
+     * Estimates the results of checking the changes without modifying any files so that only the changes likely
+     * to be valid are written
+     *
+     * @return the predicted results or null if a prediction is not available for every kind of change
+     */
+    protected DependenciesCheck predictDependencyChanges(CommandContext context, List<DependencyVersionChange> steps) {
+        List<DependencyVersionChange> validChanges = new ArrayList<>();
+        List<DependencyVersionChange> invalidChanges = new ArrayList<>();
+        Map<Kind, KindDependenciesCheck> allResults = new LinkedHashMap<>();
+
+        for (Map.Entry<Kind, List<DependencyVersionChange>> entry : groupByKind(steps).entrySet()) {
+            Kind kind = entry.getKey();
+            Updater updater = kind.getUpdater();
+            KindDependenciesCheck results = updater.predictDependencies(context, entry.getValue());
+            if (results == null) {
+                return null;
             }
-            list.add(change);
+            validChanges.addAll(results.getValidChanges());
+            invalidChanges.addAll(results.getInvalidChanges());
+            allResults.put(kind, results);
         }
+        return new DependenciesCheck(validChanges, invalidChanges, allResults);
+    }
 
-
+    protected DependenciesCheck checkDependencyChanges(CommandContext context, List<DependencyVersionChange> steps) {
         List<DependencyVersionChange> validChanges = new ArrayList<>();
         List<DependencyVersionChange> invalidChanges = new ArrayList<>();
         Map<Kind, KindDependenciesCheck> allResults = new LinkedHashMap<>();
 
-        for (Map.Entry<Kind, List<DependencyVersionChange>> entry : map.entrySet()) {
+        for (Map.Entry<Kind, List<DependencyVersionChange>> entry : groupByKind(steps).entrySet()) {
             Kind kind = entry.getKey();
             Updater updater = kind.getUpdater();
             KindDependenciesCheck results = updater.checkDependencies(context, entry.getValue());
@@ -350,4 +454,18 @@ public abstract class ModifyFilesCommandSupport extends CommandSupport {
         }
         return new DependenciesCheck(validChanges, invalidChanges, allResults);
     }
+
+    protected static Map<Kind, List<DependencyVersionChange>> groupByKind(List<DependencyVersionChange> steps) {
+        Map<Kind, List<DependencyVersionChange>> map = new LinkedHashMap<>();
+        for (DependencyVersionChange change : steps) {
+            Kind kind = change.getKind();
+            List<DependencyVersionChange> list = map.get(kind);
+            if (list == null) {
+                list = new ArrayList<>();
+                map.put(kind, list);
+            }
+            list.add(change);
+        }
+        return map;
+    }
 }
@@ -27,8 +27,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Push changes from a specific release pipeline into downstream projects
@@ -88,15 +90,19 @@ public class PushVersionChanges extends ModifyFilesCommandSupport {
         File dir = repository.getDir();
         LOG.debug("Updating version in: " + dir + " repo: " + repository.getCloneUrl());
 
-        boolean answer = false;
+        // lets apply all the pairs as a single change set so that they are only verified once
+        List<DependencyVersionChange> steps = new ArrayList<>();
         for (int i = 0; i + 1 < values.size(); i += 2) {
             String propertyName = values.get(i);
             String version = values.get(i + 1);
+            steps.add(new DependencyVersionChange(kind, propertyName, version));
+        }
+        boolean answer = pushVersionsWithChecks(context, steps);
 
-            DependencyVersionChange step = new DependencyVersionChange(Kind.NPM, propertyName, version);
-            if (pushVersionsWithChecks(context, Arrays.asList(step))) {
-                answer = true;
-            }
+        Map<DependencyVersionChange, VersionChangeStatus> results = context.getVersionChangeResults();
+        for (DependencyVersionChange step : steps) {
+            VersionChangeStatus status = results.getOrDefault(step, VersionChangeStatus.UNCHANGED);
+            LOG.info(step.getKind() + " dependency " + step.getDependency() + " " + step.getVersion() + " " + status.getDescription() + " in " + repository.getCloneUrl());
         }
         return answer;
     }
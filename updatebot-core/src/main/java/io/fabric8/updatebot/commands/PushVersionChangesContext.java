@@ -28,6 +28,7 @@ import java.util.List;
 public class PushVersionChangesContext extends CommandContext {
     private final DependencyVersionChange step;
     private List<Change> changes = new ArrayList<>();
+    private boolean skippedByRange;
 
     public PushVersionChangesContext(CommandContext parentContext, DependencyVersionChange step) {
         super(parentContext);
@@ -75,6 +76,10 @@ public class PushVersionChangesContext extends CommandContext {
         return step.getVersion();
     }
 
+    public DependencyVersionChange getStep() {
+        return step;
+    }
+
     public List<Change> getChanges() {
         return changes;
     }
@@ -83,6 +88,17 @@ public class PushVersionChangesContext extends CommandContext {
         changes.add(new Change(dependencyKey, name, newValue, oldValue));
     }
 
+    /**
+     * Returns true if the version was not changed as the declared version range already includes it
+     */
+    public boolean isSkippedByRange() {
+        return skippedByRange;
+    }
+
+    public void skippedByRange() {
+        skippedByRange = true;
+    }
+
     /**
      * Returns the change for the given name or null if there is none
      */
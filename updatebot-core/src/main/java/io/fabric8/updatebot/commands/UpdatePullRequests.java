@@ -22,6 +22,7 @@ import io.fabric8.updatebot.Configuration;
 import io.fabric8.updatebot.UpdateBot;
 import io.fabric8.updatebot.github.GitHubHelpers;
 import io.fabric8.updatebot.github.PullRequests;
+import io.fabric8.updatebot.logging.LogContext;
 import io.fabric8.updatebot.support.Markdown;
 import io.fabric8.updatebot.support.Strings;
 import io.fabric8.utils.Objects;
@@ -72,6 +73,7 @@ public class UpdatePullRequests extends CommandSupport {
                     context.setPullRequest(pullRequest);
 
                     if (!GitHubHelpers.isMergeable(pullRequest)) {
+                        LogContext.put(LogContext.STAGE, "rebase");
                         // lets re-run the update commands we can find on the PR
                         CompositeCommand commands = loadCommandsFromPullRequest(context, ghRepository, pullRequest);
                         if (commands != null) {
@@ -80,13 +82,18 @@ public class UpdatePullRequests extends CommandSupport {
                     }
 
                     if (mergeOnSuccess) {
+                        LogContext.put(LogContext.STAGE, "merge");
                         try {
                             GHCommitStatus status = getLastCommitStatus(ghRepository, pullRequest);
                             if (status != null) {
                                 GHCommitState state = status.getState();
                                 if (state != null && state.equals(GHCommitState.SUCCESS)) {
                                     String message = Markdown.UPDATEBOT_ICON + " merging this pull request as its CI was successful";
-                                    pullRequest.merge(message);
+                                    GitHubHelpers.callGithub("pulls.merge", () -> {
+                                        pullRequest.merge(message);
+                                        return null;
+                                    });
+                                    PullRequests.countPullRequests("merged");
                                 }
                             }
                         } catch (IOException e) {
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.commands;
+
+/**
+ * The outcome of pushing a dependency version into a repository
+ */
+public enum VersionChangeStatus {
+    /**
+     * The new version was written to the files which declare the dependency
+     */
+    APPLIED("applied"),
+    /**
+     * The version range declared by the dependency already includes the new version
+     */
+    IN_RANGE("skipped as the declared version range already includes it"),
+    /**
+     * No file declares the dependency with a different version
+     */
+    UNCHANGED("skipped as no file declares a different version"),
+    /**
+     * The new version conflicts with other dependencies so it is pending until they are released
+     */
+    REJECTED("rejected as it conflicts with other dependencies");
+
+    private final String description;
+
+    VersionChangeStatus(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -15,9 +15,11 @@
  */
 package io.fabric8.updatebot.github;
 
+import io.fabric8.updatebot.jfr.FlightRecorderEvents;
 import io.fabric8.updatebot.model.GitRepository;
 import io.fabric8.updatebot.model.GithubRepository;
 import io.fabric8.updatebot.repository.LocalRepository;
+import io.fabric8.updatebot.support.Metrics;
 import io.fabric8.utils.Objects;
 import org.kohsuke.github.GHCommitStatus;
 import org.kohsuke.github.GHIssue;
@@ -56,13 +58,21 @@ public class GitHubHelpers {
 
     public static void closeIssues(List<GHIssue> issues) throws IOException {
         for (GHIssue issue : issues) {
-            issue.close();
+            callGithub("issues.close", () -> {
+                issue.close();
+                return null;
+            });
+            Issues.countIssues("closed");
         }
     }
 
     public static void closePullRequests(List<GHPullRequest> pullRequests) throws IOException {
         for (GHPullRequest pullRequest : pullRequests) {
-            pullRequest.close();
+            callGithub("pulls.close", () -> {
+                pullRequest.close();
+                return null;
+            });
+            PullRequests.countPullRequests("closed");
         }
     }
 
@@ -95,7 +105,7 @@ public class GitHubHelpers {
         Boolean mergeable = pullRequest.getMergeable();
         GHPullRequest single = null;
         if (mergeable == null) {
-            single = pullRequest.getRepository().getPullRequest(pullRequest.getNumber());
+            single = callGithub("pulls.get", () -> pullRequest.getRepository().getPullRequest(pullRequest.getNumber()));
             mergeable = single.getMergeable();
         }
         if (mergeable == null) {
@@ -143,13 +153,42 @@ public class GitHubHelpers {
 
     public static GHCommitStatus getLastCommitStatus(GHRepository repository, GHPullRequest pullRequest) throws IOException {
         String commitSha = pullRequest.getHead().getRef();
-        return repository.getLastCommitStatus(commitSha);
+        return callGithub("repos.statuses", () -> repository.getLastCommitStatus(commitSha));
     }
 
     public static <T> T retryGithub(Callable<T> callable) throws IOException {
         return retryGithub(callable, 5, 1000);
     }
 
+    public static <T> T retryGithub(String endpoint, Callable<T> callable) throws IOException {
+        return retryGithub(() -> callGithub(endpoint, callable), 5, 1000);
+    }
+
+    /**
+     * Calls GitHub recording the duration of the call by endpoint and response status in the {@link Metrics}
+     */
+    public static <T> T callGithub(String endpoint, Callable<T> callable) throws IOException {
+        long start = System.nanoTime();
+        Object event = FlightRecorderEvents.startGitHubCall();
+        String status = "error";
+        try {
+            T answer = callable.call();
+            status = "ok";
+            return answer;
+        } catch (HttpException e) {
+            status = Integer.toString(e.getResponseCode());
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        } finally {
+            FlightRecorderEvents.commitGitHubCall(event, endpoint, status);
+            Metrics.timer("updatebot_github_request_duration_seconds", "The time taken by GitHub API calls by endpoint and response status",
+                    "endpoint", endpoint, "status", status).observeSince(start);
+        }
+    }
+
     /**
      * Allow automatic retries when timeout exceptions happen
      */
@@ -17,12 +17,14 @@ package io.fabric8.updatebot.github;
 
 import io.fabric8.updatebot.Configuration;
 import io.fabric8.updatebot.commands.CommandContext;
+import io.fabric8.updatebot.commands.VersionChangeStatus;
 import io.fabric8.updatebot.kind.DependenciesCheck;
 import io.fabric8.updatebot.kind.Kind;
 import io.fabric8.updatebot.kind.KindDependenciesCheck;
 import io.fabric8.updatebot.kind.npm.dependency.DependencyCheck;
 import io.fabric8.updatebot.model.DependencyVersionChange;
 import io.fabric8.updatebot.support.Markdown;
+import io.fabric8.updatebot.support.Metrics;
 import io.fabric8.updatebot.support.Strings;
 import io.fabric8.utils.Objects;
 import org.kohsuke.github.GHIssue;
@@ -37,6 +39,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -52,6 +55,7 @@ public class Issues {
     public static final String HEADER_KIND = "## ";
     public static final String CONFLICTS_HEADER = "### Conflicts";
     public static final String CONFLICT_PREFIX = "* ";
+    public static final String RESULTS_HEADER = "## Results";
     public static final String PENDING_COMMAND_PREFIX = "    ";
     private static final transient Logger LOG = LoggerFactory.getLogger(Issues.class);
 
@@ -61,7 +65,7 @@ public class Issues {
     }
 
     public static List<GHIssue> getOpenIssues(GHRepository ghRepository, String label) throws IOException {
-        List<GHIssue> issues = retryGithub(() -> ghRepository.getIssues(GHIssueState.OPEN));
+        List<GHIssue> issues = retryGithub("issues.list", () -> ghRepository.getIssues(GHIssueState.OPEN));
         List<GHIssue> answer = new ArrayList<>();
         for (GHIssue issue : issues) {
             if (GitHubHelpers.hasLabel(getLabels(issue), label) && !issue.isPullRequest()) {
@@ -148,11 +152,36 @@ public class Issues {
 
 
     public static void addConflictsComment(GHIssue issue, List<DependencyVersionChange> pendingChanges, String operationDescription, DependenciesCheck check) throws IOException {
+        addConflictsComment(issue, pendingChanges, operationDescription, check, Collections.emptyMap());
+    }
+
+    /**
+     * Adds the comment of the pending changes and their conflicts followed by the outcome of each version change
+     */
+    public static void addConflictsComment(GHIssue issue, List<DependencyVersionChange> pendingChanges, String operationDescription, DependenciesCheck check, Map<DependencyVersionChange, VersionChangeStatus> results) throws IOException {
         String prefix = PENDING_CHANGE_COMMENT_PREFIX + operationDescription + "\n";
-        String issueComment = prefix + conflictChangesComment(pendingChanges, check);
+        String issueComment = prefix + conflictChangesComment(pendingChanges, check) + versionChangeResultsComment(results);
         issue.comment(issueComment);
     }
 
+    /**
+     * Returns the outcome of each version change as a list which is ignored when the pending changes are parsed
+     */
+    public static String versionChangeResultsComment(Map<DependencyVersionChange, VersionChangeStatus> results) {
+        if (results.isEmpty()) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append("\n\n");
+        builder.append(RESULTS_HEADER);
+        builder.append("\n\n");
+        for (Map.Entry<DependencyVersionChange, VersionChangeStatus> entry : results.entrySet()) {
+            DependencyVersionChange change = entry.getKey();
+            builder.append(CONFLICT_PREFIX + change.getKind() + " `" + change.getDependency() + "` `" + change.getVersion() + "` " + entry.getValue().getDescription() + "\n");
+        }
+        return builder.toString();
+    }
+
     public static String conflictChangesComment(List<DependencyVersionChange> pendingChanges, DependenciesCheck check) {
         StringBuilder builder = new StringBuilder();
         Map<Kind, KindDependenciesCheck> failures = check.getFailures();
@@ -234,10 +263,19 @@ public class Issues {
     }
 
     public static GHIssue createIssue(CommandContext context, GHRepository repository) throws IOException {
-        return repository.createIssue(context.createIssueTitlePrefix()).
+        GHIssue answer = GitHubHelpers.callGithub("issues.create", () -> repository.createIssue(context.createIssueTitlePrefix()).
                 body(BODY).
                 label(context.getConfiguration().getGithubPullRequestLabel()).
-                create();
+                create());
+        countIssues("opened");
+        return answer;
+    }
+
+    /**
+     * Counts the issues which have been opened or closed
+     */
+    public static void countIssues(String action) {
+        Metrics.counter("updatebot_issues_total", "The number of issues opened or closed", "action", action).increment();
     }
 
     public static void logOpen(List<GHIssue> issues) {
@@ -250,7 +288,7 @@ public class Issues {
      * Lets return the labels on an issue with retries
      */
     public static Collection<GHLabel> getLabels(GHIssue issue) throws IOException {
-        return retryGithub(() -> issue.getLabels());
+        return retryGithub("issues.labels", () -> issue.getLabels());
     }
 
     public static boolean isOpen(GHIssue issue) {
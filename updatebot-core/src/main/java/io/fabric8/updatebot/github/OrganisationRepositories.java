@@ -0,0 +1,321 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.github;
+
+import io.fabric8.updatebot.logging.LogContext;
+import io.fabric8.updatebot.model.GitHubRepositoryDetails;
+import io.fabric8.updatebot.model.GitRepository;
+import io.fabric8.updatebot.model.GithubOrganisation;
+import io.fabric8.updatebot.model.GithubRepository;
+import io.fabric8.updatebot.support.Strings;
+import io.fabric8.utils.Filter;
+import org.kohsuke.github.GHPerson;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GitHub;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds the repositories of GitHub organisations or users.
+ * <p>
+ * The repositories of an organisation are only listed if its filter can match repositories which are not named;
+ * if the includes are all exact names they are looked up directly instead. Listings are fetched a page at a time
+ * and filtered as each page arrives rather than loading every repository first. Named repositories found in a
+ * listing are not looked up again. The organisations and then the remaining lookups are processed concurrently.
+ * <p>
+ * If a work directory is given the listings are kept in a {@link RepositoryCatalog} for each organisation which is
+ * only refreshed with the repositories pushed since the previous run.
+ */
+public class OrganisationRepositories {
+    public static final int PAGE_SIZE = 100;
+
+    private static final transient Logger LOG = LoggerFactory.getLogger(OrganisationRepositories.class);
+
+    private final GitHub github;
+    private final int concurrency;
+    private final File workDir;
+    private final long fullSyncInterval;
+
+    public OrganisationRepositories(GitHub github, int concurrency) {
+        this(github, concurrency, null, 0);
+    }
+
+    /**
+     * @param workDir          the work directory used to store the catalogs or null to list the repositories every time
+     * @param fullSyncInterval the number of milliseconds after which a catalog is listed again in full
+     */
+    public OrganisationRepositories(GitHub github, int concurrency, File workDir, long fullSyncInterval) {
+        this.github = github;
+        this.concurrency = Math.max(1, concurrency);
+        this.workDir = workDir;
+        this.fullSyncInterval = fullSyncInterval;
+    }
+
+    /**
+     * Returns the file the catalog of the given organisation is stored in
+     */
+    public static File getCatalogFile(File workDir, String orgName) {
+        return new File(workDir, "catalog" + File.separator + orgName + ".json");
+    }
+
+    /**
+     * Returns the repositories of each organisation with the named repositories first in the order they are
+     * configured, then the exact names of the includes in the order they are configured and then the repositories
+     * matching the filter in the order they are listed
+     */
+    public Map<GithubOrganisation, List<GitRepository>> findRepositories(List<GithubOrganisation> organisations) throws IOException {
+        List<OrganisationListing> listings = new ArrayList<>();
+        for (GithubOrganisation organisation : organisations) {
+            listings.add(new OrganisationListing(organisation));
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "updatebot-github-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (OrganisationListing listing : listings) {
+                tasks.add(LogContext.wrap(() -> {
+                    listing.list();
+                    return null;
+                }));
+            }
+            invokeAll(executor, tasks);
+
+            tasks.clear();
+            for (OrganisationListing listing : listings) {
+                for (String name : listing.getMissingNames()) {
+                    tasks.add(LogContext.wrap(() -> {
+                        listing.lookup(name);
+                        return null;
+                    }));
+                }
+            }
+            invokeAll(executor, tasks);
+        } finally {
+            executor.shutdownNow();
+        }
+        Map<GithubOrganisation, List<GitRepository>> answer = new LinkedHashMap<>();
+        for (OrganisationListing listing : listings) {
+            answer.put(listing.organisation, listing.getRepositories());
+        }
+        return answer;
+    }
+
+    /**
+     * Returns the GitHub organisation or user of the given name or null if it could not be found
+     */
+    protected GHPerson getOrganisationOrUser(String orgName) {
+        return GitHubHelpers.getOrganisationOrUser(github, orgName);
+    }
+
+    /**
+     * Lists the repositories of the organisation or user a page at a time
+     */
+    protected Iterable<GHRepository> listRepositories(GHPerson person) {
+        return person.listRepositories(PAGE_SIZE);
+    }
+
+    /**
+     * Returns the exact names included by the organisation or null if its includes use wildcards so the
+     * repositories must be listed
+     */
+    protected static Set<String> getExactIncludes(GithubOrganisation organisation) {
+        Set<String> answer = new LinkedHashSet<>();
+        for (String include : organisation.getIncludes()) {
+            for (String text : include.split(",")) {
+                String name = text.trim();
+                if (name.contains("*")) {
+                    return null;
+                }
+                if (!name.isEmpty()) {
+                    answer.add(name);
+                }
+            }
+        }
+        return answer;
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Void>> tasks) throws IOException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IOException("Failed to find GitHub repositories. " + cause, cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while finding GitHub repositories");
+        }
+    }
+
+    private class OrganisationListing {
+        private final GithubOrganisation organisation;
+        private final String orgName;
+        private final Map<String, GitHubRepositoryDetails> named = new LinkedHashMap<>();
+        private final Map<String, GithubRepository> found = new ConcurrentHashMap<>();
+        private final List<GithubRepository> listed = new ArrayList<>();
+        private GHPerson person;
+
+        OrganisationListing(GithubOrganisation organisation) {
+            this.organisation = organisation;
+            this.orgName = organisation.getName();
+            List<GitHubRepositoryDetails> namedRepositories = organisation.getRepositories();
+            if (namedRepositories != null) {
+                for (GitHubRepositoryDetails namedRepository : namedRepositories) {
+                    if (Strings.notEmpty(namedRepository.getName())) {
+                        named.putIfAbsent(namedRepository.getName(), namedRepository);
+                    }
+                }
+            }
+        }
+
+        void list() {
+            person = getOrganisationOrUser(orgName);
+            if (person == null) {
+                return;
+            }
+            if (organisation.getIncludes().isEmpty() && organisation.getExcludes().isEmpty()) {
+                return;
+            }
+            Filter<String> filter = organisation.createFilter();
+            Set<String> exactIncludes = getExactIncludes(organisation);
+            if (exactIncludes != null && !exactIncludes.isEmpty()) {
+                for (String name : exactIncludes) {
+                    if (filter.matches(name)) {
+                        named.putIfAbsent(name, null);
+                    }
+                }
+                return;
+            }
+            if (workDir != null) {
+                listCatalog(filter);
+                return;
+            }
+            int count = 0;
+            try {
+                for (GHRepository repository : listRepositories(person)) {
+                    count++;
+                    String name = repository.getName();
+                    if (named.containsKey(name)) {
+                        found.put(name, new GithubRepository(repository));
+                    } else if (filter.matches(name)) {
+                        listed.add(new GithubRepository(repository));
+                    }
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to load organisation: " + orgName + ". " + e, e);
+            }
+            LOG.debug("Listed " + count + " repositories of " + orgName + " of which " + listed.size() + " match " + filter);
+        }
+
+        void listCatalog(Filter<String> filter) {
+            File file = getCatalogFile(workDir, orgName);
+            RepositoryCatalog catalog = RepositoryCatalog.load(file);
+            if (catalog == null) {
+                catalog = new RepositoryCatalog(orgName);
+            }
+            try {
+                catalog.sync(github, person, fullSyncInterval);
+                catalog.save(file);
+            } catch (RuntimeException | IOException e) {
+                LOG.warn("Failed to sync the repositories of organisation: " + orgName + " so using the previous catalog. " + e, e);
+            }
+            for (RepositoryCatalog.Entry entry : catalog.getRepositories()) {
+                String name = entry.getName();
+                if (named.containsKey(name)) {
+                    found.put(name, entry.createRepository(github));
+                } else if (filter.matches(name)) {
+                    listed.add(entry.createRepository(github));
+                }
+            }
+            LOG.debug("Catalog of " + orgName + " has " + catalog.getRepositories().size() + " repositories of which " + listed.size() + " match " + filter);
+        }
+
+        List<String> getMissingNames() {
+            List<String> answer = new ArrayList<>();
+            if (person != null) {
+                for (String name : named.keySet()) {
+                    if (!found.containsKey(name)) {
+                        answer.add(name);
+                    }
+                }
+            }
+            return answer;
+        }
+
+        void lookup(String name) {
+            GHRepository repository;
+            try {
+                repository = person.getRepository(name);
+            } catch (IOException e) {
+                LOG.warn("Github repository " + orgName + "/" + name + " not found: " + e);
+                return;
+            }
+            if (repository != null) {
+                found.put(name, new GithubRepository(repository));
+            } else {
+                LOG.warn("Github repository " + orgName + "/" + name + " not found!");
+            }
+        }
+
+        List<GitRepository> getRepositories() {
+            List<GitRepository> answer = new ArrayList<>();
+            for (Map.Entry<String, GitHubRepositoryDetails> entry : named.entrySet()) {
+                GithubRepository repository = found.get(entry.getKey());
+                if (repository != null) {
+                    if (entry.getValue() != null) {
+                        repository.setRepositoryDetails(entry.getValue());
+                    }
+                    answer.add(repository);
+                }
+            }
+            answer.addAll(listed);
+            return answer;
+        }
+    }
+}
@@ -17,6 +17,7 @@ package io.fabric8.updatebot.github;
 
 import io.fabric8.updatebot.Configuration;
 import io.fabric8.updatebot.support.Markdown;
+import io.fabric8.updatebot.support.Metrics;
 import org.kohsuke.github.GHIssueState;
 import org.kohsuke.github.GHPullRequest;
 import org.kohsuke.github.GHRepository;
@@ -44,7 +45,7 @@ public class PullRequests {
     }
 
     public static List<GHPullRequest> getOpenPullRequests(GHRepository ghRepository, String label) throws IOException {
-        List<GHPullRequest> pullRequests = retryGithub(() -> ghRepository.getPullRequests(GHIssueState.OPEN));
+        List<GHPullRequest> pullRequests = retryGithub("pulls.list", () -> ghRepository.getPullRequests(GHIssueState.OPEN));
         List<GHPullRequest> answer = new ArrayList<>();
         if (pullRequests != null) {
             for (GHPullRequest pullRequest : pullRequests) {
@@ -57,6 +58,13 @@ public class PullRequests {
     }
 
 
+    /**
+     * Counts the pull requests which have been created, updated, merged or closed
+     */
+    public static void countPullRequests(String action) {
+        Metrics.counter("updatebot_pull_requests_total", "The number of pull requests created, updated, merged or closed", "action", action).increment();
+    }
+
     public static void logOpen(List<GHPullRequest> prs) {
         for (GHPullRequest pr : prs) {
             LOG.info("Open Pull Request " + pr.getHtmlUrl());
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.github;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.fabric8.updatebot.model.GithubRepository;
+import io.fabric8.updatebot.support.FileHelper;
+import io.fabric8.updatebot.support.MarkupHelper;
+import org.kohsuke.github.GHPerson;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GitHub;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * A catalog of the repositories of a GitHub organisation or user which is kept in the work directory between runs.
+ * <p>
+ * Each sync only searches for the repositories pushed since the previous sync; a full listing is only used when
+ * there is no catalog yet or the last one is older than the full sync interval so that renamed and deleted
+ * repositories are eventually removed.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RepositoryCatalog {
+    /**
+     * How far before the start of a sync the next incremental sync searches from, to allow for clock skew and
+     * for the search index lagging behind pushes
+     */
+    public static final long SYNC_OVERLAP = 10 * 60 * 1000L;
+
+    private static final transient Logger LOG = LoggerFactory.getLogger(RepositoryCatalog.class);
+
+    private String organisation;
+    private long lastSync;
+    private long lastFullSync;
+    private Map<String, Entry> repositories = new LinkedHashMap<>();
+
+    public RepositoryCatalog() {
+    }
+
+    public RepositoryCatalog(String organisation) {
+        this.organisation = organisation;
+    }
+
+    @Override
+    public String toString() {
+        return "RepositoryCatalog{" +
+                "organisation='" + organisation + '\'' +
+                ", repositories=" + repositories.size() +
+                ", lastSync=" + lastSync +
+                ", lastFullSync=" + lastFullSync +
+                '}';
+    }
+
+    /**
+     * Returns the catalog stored in the given file or null if there is no catalog or it could not be read
+     */
+    public static RepositoryCatalog load(File file) {
+        if (!FileHelper.isFile(file)) {
+            return null;
+        }
+        try {
+            return MarkupHelper.loadJson(file, RepositoryCatalog.class);
+        } catch (IOException e) {
+            LOG.warn("Ignoring corrupt repository catalog " + file + ". " + e, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the catalog to the given file replacing it atomically
+     */
+    public void save(File file) throws IOException {
+        File dir = file.getParentFile();
+        dir.mkdirs();
+        File tmpFile = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            MarkupHelper.saveJson(tmpFile, this);
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Returns true if the catalog has never been fully listed or the last full listing is older than the interval
+     */
+    public boolean isFullSyncRequired(long now, long fullSyncInterval) {
+        return lastFullSync <= 0 || now - lastFullSync >= fullSyncInterval;
+    }
+
+    /**
+     * Brings the catalog up to date with the repositories on GitHub
+     *
+     * @param github           the GitHub client used to search for recently pushed repositories
+     * @param person           the organisation or user to list if a full sync is required
+     * @param fullSyncInterval the number of milliseconds after which the repositories are listed again in full
+     */
+    public void sync(GitHub github, GHPerson person, long fullSyncInterval) {
+        long now = System.currentTimeMillis();
+        if (!isFullSyncRequired(now, fullSyncInterval)) {
+            try {
+                int count = 0;
+                for (GHRepository repository : github.searchRepositories().user(organisation).q("fork:true").
+                        q("pushed:>=" + formatSearchDate(lastSync)).list()) {
+                    putRepository(Entry.from(repository));
+                    count++;
+                }
+                LOG.debug("Found " + count + " repositories of " + organisation + " pushed since the last sync");
+                lastSync = now - SYNC_OVERLAP;
+                return;
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to search the repositories of " + organisation + " so listing them all. " + e, e);
+            }
+        }
+        Map<String, Entry> listed = new LinkedHashMap<>();
+        for (GHRepository repository : person.listRepositories(OrganisationRepositories.PAGE_SIZE)) {
+            Entry entry = Entry.from(repository);
+            listed.put(entry.getName(), entry);
+        }
+        LOG.debug("Listed " + listed.size() + " repositories of " + organisation);
+        repositories = listed;
+        lastSync = now - SYNC_OVERLAP;
+        lastFullSync = now;
+    }
+
+    public void putRepository(Entry entry) {
+        repositories.put(entry.getName(), entry);
+    }
+
+    public Entry getRepository(String name) {
+        return repositories.get(name);
+    }
+
+    public List<Entry> getRepositories() {
+        return new ArrayList<>(repositories.values());
+    }
+
+    public void setRepositories(List<Entry> repositories) {
+        this.repositories = new LinkedHashMap<>();
+        if (repositories != null) {
+            for (Entry entry : repositories) {
+                putRepository(entry);
+            }
+        }
+    }
+
+    public String getOrganisation() {
+        return organisation;
+    }
+
+    public void setOrganisation(String organisation) {
+        this.organisation = organisation;
+    }
+
+    public long getLastSync() {
+        return lastSync;
+    }
+
+    public void setLastSync(long lastSync) {
+        this.lastSync = lastSync;
+    }
+
+    public long getLastFullSync() {
+        return lastFullSync;
+    }
+
+    public void setLastFullSync(long lastFullSync) {
+        this.lastFullSync = lastFullSync;
+    }
+
+    protected static String formatSearchDate(long time) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(time));
+    }
+
+    /**
+     * The details of a repository in the catalog
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Entry {
+        private String name;
+        private String fullName;
+        private String cloneUrl;
+        private String htmlUrl;
+
+        /**
+         * Creates the entry for the repository
+         */
+        public static Entry from(GHRepository repository) {
+            Entry answer = new Entry();
+            answer.setName(repository.getName());
+            answer.setFullName(repository.getFullName());
+            answer.setCloneUrl(repository.getGitTransportUrl());
+            URL htmlUrl = repository.getHtmlUrl();
+            if (htmlUrl != null) {
+                answer.setHtmlUrl(htmlUrl.toString());
+            }
+            return answer;
+        }
+
+        /**
+         * Creates the repository which only loads its GitHub details if they are used
+         */
+        public GithubRepository createRepository(GitHub github) {
+            return new GithubRepository(github, fullName, name, cloneUrl, htmlUrl);
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "fullName='" + fullName + '\'' +
+                    '}';
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getFullName() {
+            return fullName;
+        }
+
+        public void setFullName(String fullName) {
+            this.fullName = fullName;
+        }
+
+        public String getCloneUrl() {
+            return cloneUrl;
+        }
+
+        public void setCloneUrl(String cloneUrl) {
+            this.cloneUrl = cloneUrl;
+        }
+
+        public String getHtmlUrl() {
+            return htmlUrl;
+        }
+
+        public void setHtmlUrl(String htmlUrl) {
+            this.htmlUrl = htmlUrl;
+        }
+    }
+}
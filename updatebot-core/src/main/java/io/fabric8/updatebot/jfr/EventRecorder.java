@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.jfr;
+
+import java.io.File;
+
+/**
+ * Records the events of {@link FlightRecorderEvents}. Each <code>start</code> method returns an opaque event which
+ * is passed to the matching <code>commit</code> method when the operation completes.
+ */
+public interface EventRecorder {
+    Object startCommand();
+
+    void commitCommand(Object event, File dir, String repository, String command, int exitCode, boolean timedOut);
+
+    Object startGitHubCall();
+
+    void commitGitHubCall(Object event, String endpoint, String status);
+
+    Object startParseDependencyTree();
+
+    void commitParseDependencyTree(Object event, File file, int packages);
+
+    Object startPushVersions();
+
+    void commitPushVersions(Object event, File file, int changes, boolean modified);
+
+    Object startRepository();
+
+    void commitRepository(Object event, String repository, String command, String status);
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.jfr;
+
+import io.fabric8.updatebot.logging.LogContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * Emits Java Flight Recorder events for the operations of UpdateBot.
+ * <p>
+ * Each operation calls a <code>start</code> method which returns an opaque event, or null if events are not being
+ * recorded, and passes it to the matching <code>commit</code> method when the operation completes.
+ * The events are implemented in <code>src/main/jfr</code> which is only compiled on Java 11 or later and they are
+ * only loaded if the JVM has a flight recorder so that UpdateBot still builds and runs on Java 8.
+ * The bundled <code>updatebot.jfc</code> settings enable the events along with a low overhead selection of JVM events.
+ */
+public class FlightRecorderEvents {
+    public static final String PREFIX = "io.fabric8.updatebot.";
+    public static final String CATEGORY = "UpdateBot";
+
+    private static final transient Logger LOG = LoggerFactory.getLogger(FlightRecorderEvents.class);
+    private static final String RECORDER_CLASS = "io.fabric8.updatebot.jfr.JfrEventRecorder";
+    private static final EventRecorder RECORDER = createRecorder();
+
+    public static boolean isAvailable() {
+        return RECORDER != null;
+    }
+
+    public static Object startCommand() {
+        return RECORDER != null ? RECORDER.startCommand() : null;
+    }
+
+    /**
+     * Commits the event of a command run in the given directory for the repository in the {@link LogContext}
+     */
+    public static void commitCommand(Object event, File dir, String command, int exitCode, boolean timedOut) {
+        if (event != null) {
+            RECORDER.commitCommand(event, dir, LogContext.get(LogContext.REPOSITORY), command, exitCode, timedOut);
+        }
+    }
+
+    public static Object startGitHubCall() {
+        return RECORDER != null ? RECORDER.startGitHubCall() : null;
+    }
+
+    public static void commitGitHubCall(Object event, String endpoint, String status) {
+        if (event != null) {
+            RECORDER.commitGitHubCall(event, endpoint, status);
+        }
+    }
+
+    public static Object startParseDependencyTree() {
+        return RECORDER != null ? RECORDER.startParseDependencyTree() : null;
+    }
+
+    public static void commitParseDependencyTree(Object event, File file, int packages) {
+        if (event != null) {
+            RECORDER.commitParseDependencyTree(event, file, packages);
+        }
+    }
+
+    public static Object startPushVersions() {
+        return RECORDER != null ? RECORDER.startPushVersions() : null;
+    }
+
+    public static void commitPushVersions(Object event, File file, int changes, boolean modified) {
+        if (event != null) {
+            RECORDER.commitPushVersions(event, file, changes, modified);
+        }
+    }
+
+    public static Object startRepository() {
+        return RECORDER != null ? RECORDER.startRepository() : null;
+    }
+
+    public static void commitRepository(Object event, String repository, String command, String status) {
+        if (event != null) {
+            RECORDER.commitRepository(event, repository, command, status);
+        }
+    }
+
+    private static EventRecorder createRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+        try {
+            return (EventRecorder) Class.forName(RECORDER_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            LOG.debug("No flight recorder events as UpdateBot was built without " + RECORDER_CLASS);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOG.warn("Failed to create the flight recorder events. " + e, e);
+        }
+        return null;
+    }
+}
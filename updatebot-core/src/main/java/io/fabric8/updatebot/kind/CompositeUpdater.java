@@ -50,6 +50,23 @@ public class CompositeUpdater implements Updater {
         return answer;
     }
 
+    @Override
+    public boolean pushVersions(List<PushVersionChangesContext> contexts) throws IOException {
+        if (contexts.isEmpty()) {
+            return false;
+        }
+        Kind[] kinds = Kind.values();
+        boolean answer = false;
+        for (Kind kind : kinds) {
+            Updater updater = kind.getUpdater();
+            if (updater.isApplicable(contexts.get(0))) {
+                if (updater.pushVersions(contexts)) {
+                    answer = true;
+                }
+            }
+        }
+        return answer;
+    }
 
     @Override
     public boolean pullVersions(CommandContext context) throws IOException {
@@ -92,4 +109,5 @@ public class CompositeUpdater implements Updater {
         }
         return answer;
     }
+
 }
@@ -34,6 +34,25 @@ public class DependenciesCheck {
         this.failures = failures;
     }
 
+    /**
+     * Appends the results of another check such as when the changes are checked in more than one pass
+     *
+     * @return this check
+     */
+    public DependenciesCheck append(DependenciesCheck that) {
+        this.validChanges.addAll(that.validChanges);
+        this.invalidChanges.addAll(that.invalidChanges);
+        for (Map.Entry<Kind, KindDependenciesCheck> entry : that.failures.entrySet()) {
+            KindDependenciesCheck results = this.failures.get(entry.getKey());
+            if (results == null) {
+                this.failures.put(entry.getKey(), entry.getValue());
+            } else {
+                results.append(entry.getValue());
+            }
+        }
+        return this;
+    }
+
     public List<DependencyVersionChange> getValidChanges() {
         return validChanges;
     }
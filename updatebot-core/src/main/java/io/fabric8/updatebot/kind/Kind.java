@@ -15,12 +15,14 @@
  */
 package io.fabric8.updatebot.kind;
 
+import io.fabric8.updatebot.kind.maven.PomUpdater;
 import io.fabric8.updatebot.kind.npm.PackageJsonUpdater;
 
 /**
  */
 public enum Kind {
-    NPM("npm", new PackageJsonUpdater());
+    NPM("npm", new PackageJsonUpdater()),
+    MAVEN("maven", new PomUpdater());
 
     private String name;
     private Updater updater;
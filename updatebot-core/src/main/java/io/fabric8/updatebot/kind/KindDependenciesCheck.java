@@ -16,6 +16,7 @@
 package io.fabric8.updatebot.kind;
 
 import io.fabric8.updatebot.kind.npm.dependency.DependencyCheck;
+import io.fabric8.updatebot.kind.npm.dependency.DependencyTree;
 import io.fabric8.updatebot.model.DependencyVersionChange;
 
 import java.util.ArrayList;
@@ -45,6 +46,31 @@ public class KindDependenciesCheck {
         this.failedChecks = failedChecks;
     }
 
+    /**
+     * Partitions the changes into those which have no conflicts in any of the dependency trees and those
+     * which do, using the first tree with a conflict to report it
+     */
+    public static KindDependenciesCheck checkConflicts(List<DependencyTree> dependencyTrees, List<DependencyVersionChange> changes) {
+        KindDependenciesCheck answer = new KindDependenciesCheck();
+        for (DependencyVersionChange change : changes) {
+            String dependency = change.getDependency();
+            DependencyTree conflictingTree = null;
+            for (DependencyTree dependencyTree : dependencyTrees) {
+                if (dependencyTree.hasConflicts(dependency)) {
+                    conflictingTree = dependencyTree;
+                    break;
+                }
+            }
+            if (conflictingTree == null) {
+                answer.validChanges.add(change);
+            } else {
+                answer.invalidChanges.add(change);
+                answer.failedChecks.put(dependency, conflictingTree.dependencyCheck(dependency));
+            }
+        }
+        return answer;
+    }
+
     public List<DependencyVersionChange> getValidChanges() {
         return validChanges;
     }
@@ -30,9 +30,30 @@ public interface Updater {
 
     boolean pushVersions(PushVersionChangesContext context) throws IOException;
 
+    /**
+     * Applies a batch of version changes reading and writing each file at most once.
+     * <p>
+     * Each context records the changes it made so that those contexts which did not modify anything can be ignored
+     *
+     * @return true if any file was modified
+     */
+    boolean pushVersions(List<PushVersionChangesContext> contexts) throws IOException;
+
     void addPushVersionsSteps(CommandContext context, Dependencies dependencyConfig, List<DependencyVersionChange> list) throws IOException;
 
     boolean pullVersions(CommandContext context) throws IOException;
 
     KindDependenciesCheck checkDependencies(CommandContext context, List<DependencyVersionChange> value);
+
+    /**
+     * Estimates which changes are valid without modifying any files or running any build tools.
+     * <p>
+     * Only the changes estimated to be valid are written; {@link #checkDependencies(CommandContext, List)} then
+     * confirms them
+     *
+     * @return the estimate or null if this kind cannot make one
+     */
+    default KindDependenciesCheck predictDependencies(CommandContext context, List<DependencyVersionChange> changes) {
+        return null;
+    }
 }
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.maven;
+
+/**
+ */
+public class MavenDependencyKinds {
+    public static final String DEPENDENCIES = "dependencies";
+    public static final String PLUGINS = "plugins";
+    public static final String PARENT = "parent";
+
+    public static final String DEFAULT_PLUGIN_GROUP_ID = "org.apache.maven.plugins";
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.maven;
+
+import io.fabric8.updatebot.kind.maven.MavenPom.VersionReference;
+import io.fabric8.updatebot.kind.npm.dependency.DependencyInfo;
+import io.fabric8.updatebot.kind.npm.dependency.DependencyTree;
+import io.fabric8.updatebot.support.Strings;
+import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.eclipse.aether.DefaultRepositoryCache;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.collection.CollectResult;
+import org.eclipse.aether.collection.DependencyCollectionException;
+import org.eclipse.aether.connector.basic.BasicRepositoryConnectorFactory;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.Exclusion;
+import org.eclipse.aether.impl.DefaultServiceLocator;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.RepositoryConnectorFactory;
+import org.eclipse.aether.spi.connector.transport.TransporterFactory;
+import org.eclipse.aether.transport.file.FileTransporterFactory;
+import org.eclipse.aether.transport.http.HttpTransporterFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the maven dependency graph of a pom in process using Aether and converts it into a
+ * {@link DependencyTree} so that convergence conflicts are detected and reported just like npm conflicts.
+ * <p>
+ * A single repository system and session are shared by all repositories so that the local repository and the
+ * artifact descriptors already read are reused. The graph is collected without conflict resolution so that every
+ * version requested by each dependency is visible; the version of each artifact in the tree is the one maven
+ * would pick using nearest wins.
+ */
+public class MavenDependencyResolver {
+    private static final transient Logger LOG = LoggerFactory.getLogger(MavenDependencyResolver.class);
+
+    private final File localRepository;
+    private final List<RemoteRepository> repositories = new ArrayList<>();
+    private final RepositorySystem system;
+    private final DefaultRepositorySystemSession session;
+
+    /**
+     * @param localRepository    the local repository shared by all the dependency checks
+     * @param remoteRepositories the URLs of the remote repositories
+     * @param offline            whether to only use the local repository and <code>file:</code> repositories
+     */
+    public MavenDependencyResolver(File localRepository, List<String> remoteRepositories, boolean offline) {
+        this.localRepository = localRepository;
+        int index = 0;
+        for (String url : remoteRepositories) {
+            repositories.add(new RemoteRepository.Builder("repo" + (index++), "default", url).build());
+        }
+
+        DefaultServiceLocator locator = MavenRepositorySystemUtils.newServiceLocator();
+        locator.addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class);
+        locator.addService(TransporterFactory.class, FileTransporterFactory.class);
+        locator.addService(TransporterFactory.class, HttpTransporterFactory.class);
+        this.system = locator.getService(RepositorySystem.class);
+
+        DefaultRepositorySystemSession session = MavenRepositorySystemUtils.newSession();
+        session.setLocalRepositoryManager(system.newLocalRepositoryManager(session, new LocalRepository(localRepository)));
+        session.setCache(new DefaultRepositoryCache());
+        session.setOffline(offline);
+        session.setConfigProperty("aether.offline.protocols", "file");
+
+        // lets keep all the requested versions so we can find conflicts
+        session.setDependencyGraphTransformer(null);
+        session.setReadOnly();
+        this.session = session;
+    }
+
+    @Override
+    public String toString() {
+        return "MavenDependencyResolver{" +
+                "localRepository=" + localRepository +
+                ", repositories=" + repositories +
+                '}';
+    }
+
+    /**
+     * Returns the dependency tree of the pom or null if it has no dependencies which can be resolved
+     *
+     * @param pom     the pom to resolve
+     * @param reactor the poms of the repository indexed by <code>groupId:artifactId</code>
+     */
+    public DependencyTree collectDependencyTree(MavenPom pom, Map<String, MavenPom> reactor) {
+        Map<String, Dependency> managed = getManagedDependencies(pom, reactor);
+        List<Dependency> dependencies = new ArrayList<>();
+        for (VersionReference reference : pom.getReferences()) {
+            if (!MavenDependencyKinds.DEPENDENCIES.equals(reference.getKind()) || reference.isManaged() ||
+                    reference.isPluginDependency() || reference.isInProfile() || reactor.containsKey(reference.getKey())) {
+                continue;
+            }
+            String version = PomUpdater.resolveValue(pom, reference.getVersionValue(), reactor);
+            if (version == null) {
+                Dependency managedDependency = managed.get(reference.getKey());
+                version = managedDependency != null ? managedDependency.getArtifact().getVersion() : null;
+            }
+            if (Strings.empty(version)) {
+                LOG.debug("Ignoring dependency " + reference.getKey() + " of " + pom.getFile() + " as its version is not known");
+                continue;
+            }
+            dependencies.add(createDependency(reference, version));
+        }
+        if (dependencies.isEmpty()) {
+            return null;
+        }
+
+        CollectRequest request = new CollectRequest();
+        String version = PomUpdater.resolveValue(pom, pom.getVersion(), reactor);
+        request.setRootArtifact(new DefaultArtifact(pom.getGroupId(), pom.getArtifactId(), "pom", Strings.notEmpty(version) ? version : "0"));
+        request.setDependencies(dependencies);
+        request.setManagedDependencies(new ArrayList<>(managed.values()));
+        request.setRepositories(repositories);
+
+        DependencyNode root;
+        try {
+            CollectResult result = system.collectDependencies(session, request);
+            root = result.getRoot();
+        } catch (DependencyCollectionException e) {
+            LOG.warn("Failed to collect all the dependencies of " + pom.getFile() + ". " + e);
+            root = e.getResult() != null ? e.getResult().getRoot() : null;
+        }
+        return root != null ? createDependencyTree(root) : null;
+    }
+
+    /**
+     * Converts the graph into a tree with a link from each artifact to each of its dependencies. The version of
+     * each artifact is the one nearest to the root or the first declared if there are several at the same depth.
+     * <p>
+     * Only dependencies on newer versions than the resolved version are conflicts as they may need classes
+     * or methods which the resolved version does not have
+     */
+    protected static DependencyTree createDependencyTree(DependencyNode root) {
+        DependencyTree tree = new DependencyTree();
+        tree.setUpperBoundComparator(MavenVersionComparator.INSTANCE);
+        Map<String, String> versions = new HashMap<>();
+        Set<String> expanded = new HashSet<>();
+        Deque<DependencyNode> queue = new ArrayDeque<>();
+        for (DependencyNode child : root.getChildren()) {
+            String key = getKey(child.getArtifact());
+            if (versions.putIfAbsent(key, child.getArtifact().getVersion()) == null) {
+                tree.getOrCreateDependencyInfo(key);
+            }
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            DependencyNode node = queue.poll();
+            Artifact artifact = node.getArtifact();
+            if (!expanded.add(getKey(artifact) + ":" + artifact.getVersion())) {
+                continue;
+            }
+            DependencyInfo parent = tree.getOrCreateDependencyInfo(getKey(artifact));
+            for (DependencyNode child : node.getChildren()) {
+                Artifact childArtifact = child.getArtifact();
+                String key = getKey(childArtifact);
+                versions.putIfAbsent(key, childArtifact.getVersion());
+                String scope = child.getDependency() != null ? child.getDependency().getScope() : null;
+                tree.getOrCreateDependencyInfo(key).addDependency(parent, childArtifact.getVersion(), scope);
+                queue.add(child);
+            }
+        }
+        for (Map.Entry<String, String> entry : versions.entrySet()) {
+            tree.getOrCreateDependencyInfo(entry.getKey()).setVersion(entry.getValue());
+        }
+        return tree;
+    }
+
+    /**
+     * Returns the dependency management of the pom and its parents within the reactor
+     */
+    protected Map<String, Dependency> getManagedDependencies(MavenPom pom, Map<String, MavenPom> reactor) {
+        Map<String, Dependency> answer = new LinkedHashMap<>();
+        Set<MavenPom> visited = new HashSet<>();
+        MavenPom current = pom;
+        while (current != null && visited.add(current)) {
+            for (VersionReference reference : current.getReferences()) {
+                if (!MavenDependencyKinds.DEPENDENCIES.equals(reference.getKind()) || !reference.isManaged() ||
+                        "import".equals(reference.getScope()) || answer.containsKey(reference.getKey())) {
+                    continue;
+                }
+                String version = PomUpdater.resolveValue(current, reference.getVersionValue(), reactor);
+                if (Strings.notEmpty(version)) {
+                    answer.put(reference.getKey(), createDependency(reference, version));
+                }
+            }
+            VersionReference parent = current.getParent();
+            current = parent != null ? reactor.get(parent.getKey()) : null;
+        }
+        return answer;
+    }
+
+    protected static Dependency createDependency(VersionReference reference, String version) {
+        String type = Strings.notEmpty(reference.getType()) ? reference.getType() : "jar";
+        String classifier = "";
+        String extension = type;
+        if (type.equals("test-jar")) {
+            classifier = "tests";
+            extension = "jar";
+        } else if (!type.equals("pom") && !type.equals("war") && !type.equals("ear")) {
+            extension = "jar";
+        }
+        List<Exclusion> exclusions = new ArrayList<>();
+        for (String exclusion : reference.getExclusions()) {
+            int idx = exclusion.indexOf(':');
+            exclusions.add(new Exclusion(exclusion.substring(0, idx), exclusion.substring(idx + 1), "*", "*"));
+        }
+        Artifact artifact = new DefaultArtifact(reference.getGroupId(), reference.getArtifactId(), classifier, extension, version);
+        String scope = Strings.notEmpty(reference.getScope()) ? reference.getScope() : "compile";
+        return new Dependency(artifact, scope, reference.isOptional(), exclusions);
+    }
+
+    public File getLocalRepository() {
+        return localRepository;
+    }
+
+    public List<RemoteRepository> getRepositories() {
+        return repositories;
+    }
+
+    private static String getKey(Artifact artifact) {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId();
+    }
+}
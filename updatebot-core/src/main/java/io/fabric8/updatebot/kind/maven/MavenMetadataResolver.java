@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.maven;
+
+import io.fabric8.updatebot.support.MetadataCache;
+import io.fabric8.updatebot.support.TextSpan;
+import io.fabric8.updatebot.support.XmlSpans;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the latest release of maven artifacts from the <code>maven-metadata.xml</code> of each repository.
+ * <p>
+ * The metadata is read through a shared {@link MetadataCache} and the latest version of each artifact is looked up
+ * at most once per run no matter how many poms refer to it. Repositories can be <code>file:</code> URLs of a local
+ * directory which is handy for testing or as an offline stand in for a remote repository.
+ */
+public class MavenMetadataResolver {
+    public static final String MAVEN_METADATA_XML = "maven-metadata.xml";
+
+    private static final transient Logger LOG = LoggerFactory.getLogger(MavenMetadataResolver.class);
+    private static final String VERSION_PATH = "metadata/versioning/versions/version";
+    private static final String NOT_FOUND = "";
+
+    private final List<String> repositories = new ArrayList<>();
+    private final MetadataCache cache;
+    private final Map<String, String> latestVersions = new ConcurrentHashMap<>();
+
+    /**
+     * @param repositories the URLs of the repositories
+     * @param cache        the cache of the metadata documents
+     * @param offline      whether to only use the <code>file:</code> repositories
+     */
+    public MavenMetadataResolver(List<String> repositories, MetadataCache cache, boolean offline) {
+        for (String repository : repositories) {
+            if (offline && !repository.startsWith("file:")) {
+                continue;
+            }
+            this.repositories.add(repository.endsWith("/") ? repository : repository + "/");
+        }
+        this.cache = cache;
+    }
+
+    @Override
+    public String toString() {
+        return "MavenMetadataResolver{" +
+                "repositories=" + repositories +
+                '}';
+    }
+
+    /**
+     * Returns the latest release version of the artifact in any of the repositories or null if
+     * there is no release or its metadata could not be loaded
+     */
+    public String getLatestVersion(String groupId, String artifactId) {
+        String key = groupId + ":" + artifactId;
+        String answer = latestVersions.get(key);
+        if (answer == null) {
+            answer = loadLatestVersion(groupId, artifactId);
+            if (answer == null) {
+                answer = NOT_FOUND;
+            }
+            latestVersions.put(key, answer);
+        }
+        return answer == NOT_FOUND ? null : answer;
+    }
+
+    public List<String> getRepositories() {
+        return Collections.unmodifiableList(repositories);
+    }
+
+    /**
+     * Returns the URL of the metadata document of the artifact in the given repository
+     */
+    public static String getMetadataUrl(String repository, String groupId, String artifactId) {
+        return repository + groupId.replace('.', '/') + "/" + artifactId + "/" + MAVEN_METADATA_XML;
+    }
+
+    /**
+     * Returns the versions listed in the given <code>maven-metadata.xml</code> document
+     */
+    public static List<String> parseVersions(String xml) throws IOException {
+        List<String> answer = new ArrayList<>();
+        XmlSpans.parse(xml, new XmlSpans.Handler() {
+            @Override
+            public void startElement(String path) {
+            }
+
+            @Override
+            public void textElement(String path, TextSpan span) {
+                if (VERSION_PATH.equals(path) && !span.getValue().isEmpty()) {
+                    answer.add(span.getValue());
+                }
+            }
+
+            @Override
+            public void endElement(String path) {
+            }
+        });
+        return answer;
+    }
+
+    /**
+     * Returns the release versions of the artifact listed in any of the repositories
+     */
+    public Set<String> getReleaseVersions(String groupId, String artifactId) {
+        Set<String> answer = new LinkedHashSet<>();
+        for (String repository : repositories) {
+            String url = getMetadataUrl(repository, groupId, artifactId);
+            List<String> versions;
+            try {
+                versions = parseVersions(cache.getText(url));
+            } catch (FileNotFoundException e) {
+                LOG.debug("No maven metadata at " + url);
+                continue;
+            } catch (IOException e) {
+                LOG.warn("Failed to load maven metadata for " + groupId + ":" + artifactId + " from " + url + ". " + e);
+                continue;
+            }
+            for (String version : versions) {
+                if (MavenVersionComparator.isRelease(version)) {
+                    answer.add(version);
+                }
+            }
+        }
+        return answer;
+    }
+
+    protected String loadLatestVersion(String groupId, String artifactId) {
+        MavenVersionComparator comparator = MavenVersionComparator.INSTANCE;
+        String answer = null;
+        for (String version : getReleaseVersions(groupId, artifactId)) {
+            if (answer == null || comparator.compare(version, answer) > 0) {
+                answer = version;
+            }
+        }
+        return answer;
+    }
+}
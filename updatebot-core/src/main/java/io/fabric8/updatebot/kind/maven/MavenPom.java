@@ -0,0 +1,365 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.maven;
+
+import io.fabric8.updatebot.support.SpanEditor;
+import io.fabric8.updatebot.support.Strings;
+import io.fabric8.updatebot.support.TextSpan;
+import io.fabric8.updatebot.support.XmlSpans;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The versions declared in a <code>pom.xml</code> along with the spans of their text so that they can be
+ * updated in place via the {@link SpanEditor} of the pom.
+ * <p>
+ * The pom is read in a single streaming pass which finds the coordinates of the project, its parent, the
+ * properties and every dependency and plugin including those in dependency management, plugin management
+ * and profiles.
+ */
+public class MavenPom {
+    private static final String PROJECT = "project";
+    private static final String PROPERTIES = "project/properties/";
+    private static final String EXCLUSION = "/exclusions/exclusion/";
+
+    private final File file;
+    private final SpanEditor editor;
+    private final Map<String, TextSpan> properties = new LinkedHashMap<>();
+    private final List<VersionReference> references = new ArrayList<>();
+    private String groupId;
+    private String artifactId;
+    private String version;
+    private VersionReference parent;
+
+    protected MavenPom(File file, SpanEditor editor) {
+        this.file = file;
+        this.editor = editor;
+    }
+
+    public static MavenPom load(File file) throws IOException {
+        MavenPom answer = new MavenPom(file, SpanEditor.load(file));
+        try {
+            XmlSpans.parse(answer.editor.getText(), answer.new PomHandler());
+        } catch (IOException e) {
+            throw new IOException("Failed to parse " + file + ". " + e.getMessage(), e);
+        }
+        return answer;
+    }
+
+    @Override
+    public String toString() {
+        return "MavenPom{" +
+                "file=" + file +
+                ", groupId='" + getGroupId() + '\'' +
+                ", artifactId='" + artifactId + '\'' +
+                '}';
+    }
+
+    /**
+     * Returns the name of the property if the value is a single <code>${name}</code> expression or null if not
+     */
+    public static String propertyName(String value) {
+        if (value != null && value.startsWith("${") && value.endsWith("}") && value.indexOf("${", 2) < 0) {
+            return value.substring(2, value.length() - 1);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the group id of the project which may be inherited from the parent
+     */
+    public String getGroupId() {
+        if (Strings.notEmpty(groupId)) {
+            return groupId;
+        }
+        return parent != null ? parent.getGroupId() : null;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    /**
+     * Returns the version of the project which may be inherited from the parent
+     */
+    public String getVersion() {
+        if (Strings.notEmpty(version)) {
+            return version;
+        }
+        return parent != null ? parent.getVersionValue() : null;
+    }
+
+    /**
+     * Returns the <code>groupId:artifactId</code> of the project
+     */
+    public String getKey() {
+        return getGroupId() + ":" + artifactId;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public SpanEditor getEditor() {
+        return editor;
+    }
+
+    public VersionReference getParent() {
+        return parent;
+    }
+
+    public Map<String, TextSpan> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Returns the parent, dependencies and plugins of the pom in document order
+     */
+    public List<VersionReference> getReferences() {
+        return references;
+    }
+
+    /**
+     * Replaces the value of the property returning true if it changed
+     */
+    public boolean replaceProperty(String name, String value) {
+        TextSpan span = properties.get(name);
+        if (span == null || value.equals(span.getValue())) {
+            return false;
+        }
+        editor.replace(span, XmlSpans.escape(value));
+        properties.put(name, new TextSpan(span.getStart(), span.getEnd(), value));
+        return true;
+    }
+
+    /**
+     * Replaces the version of the reference returning true if it changed
+     */
+    public boolean replaceVersion(VersionReference reference, String value) {
+        TextSpan span = reference.getVersion();
+        if (span == null || value.equals(span.getValue())) {
+            return false;
+        }
+        editor.replace(span, XmlSpans.escape(value));
+        reference.version = new TextSpan(span.getStart(), span.getEnd(), value);
+        return true;
+    }
+
+    protected String resolveGroupId(String value) {
+        if ("${project.groupId}".equals(value) || "${pom.groupId}".equals(value)) {
+            return getGroupId();
+        }
+        if ("${project.parent.groupId}".equals(value) && parent != null) {
+            return parent.getGroupId();
+        }
+        return value;
+    }
+
+    /**
+     * A dependency, plugin or parent of the pom
+     */
+    public static class VersionReference {
+        private final String kind;
+        private final String path;
+        private final List<String> exclusions = new ArrayList<>();
+        private String groupId;
+        private String artifactId;
+        private TextSpan version;
+        private String scope;
+        private String type;
+        private boolean optional;
+        private String exclusionGroupId;
+        private String exclusionArtifactId;
+
+        protected VersionReference(String kind, String path) {
+            this.kind = kind;
+            this.path = path;
+        }
+
+        @Override
+        public String toString() {
+            return "VersionReference{" +
+                    "kind='" + kind + '\'' +
+                    ", key='" + getKey() + '\'' +
+                    ", version='" + getVersionValue() + '\'' +
+                    '}';
+        }
+
+        /**
+         * Returns the kind of reference such as {@link MavenDependencyKinds#DEPENDENCIES}
+         */
+        public String getKind() {
+            return kind;
+        }
+
+        public String getGroupId() {
+            return groupId;
+        }
+
+        public String getArtifactId() {
+            return artifactId;
+        }
+
+        /**
+         * Returns the <code>groupId:artifactId</code> of the reference
+         */
+        public String getKey() {
+            return groupId + ":" + artifactId;
+        }
+
+        /**
+         * Returns the span of the version or null if there is no version such as for managed dependencies
+         */
+        public TextSpan getVersion() {
+            return version;
+        }
+
+        public String getVersionValue() {
+            return version != null ? version.getValue() : null;
+        }
+
+        public String getScope() {
+            return scope;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public boolean isOptional() {
+            return optional;
+        }
+
+        /**
+         * Returns the <code>groupId:artifactId</code> of each exclusion of a dependency
+         */
+        public List<String> getExclusions() {
+            return exclusions;
+        }
+
+        /**
+         * Returns true if this is inside a <code>dependencyManagement</code> or <code>pluginManagement</code> section
+         */
+        public boolean isManaged() {
+            return path.contains("Management/");
+        }
+
+        /**
+         * Returns true if this is only used when a profile is active
+         */
+        public boolean isInProfile() {
+            return path.startsWith("project/profiles/");
+        }
+
+        /**
+         * Returns true if this is a dependency of a plugin rather than of the project
+         */
+        public boolean isPluginDependency() {
+            return path.contains("/plugin/");
+        }
+    }
+
+    private class PomHandler implements XmlSpans.Handler {
+        private final Deque<VersionReference> stack = new ArrayDeque<>();
+
+        @Override
+        public void startElement(String path) {
+            if (path.equals("project/parent")) {
+                stack.push(new VersionReference(MavenDependencyKinds.PARENT, path));
+            } else if (path.endsWith("/dependencies/dependency")) {
+                stack.push(new VersionReference(MavenDependencyKinds.DEPENDENCIES, path));
+            } else if (path.endsWith("/plugins/plugin")) {
+                stack.push(new VersionReference(MavenDependencyKinds.PLUGINS, path));
+            }
+        }
+
+        @Override
+        public void textElement(String path, TextSpan span) {
+            VersionReference reference = stack.peek();
+            if (reference != null && path.startsWith(reference.path + EXCLUSION)) {
+                String name = path.substring(reference.path.length() + EXCLUSION.length());
+                if (name.equals("groupId")) {
+                    reference.exclusionGroupId = span.getValue();
+                } else if (name.equals("artifactId")) {
+                    reference.exclusionArtifactId = span.getValue();
+                }
+            } else if (reference != null && path.length() > reference.path.length() + 1 && path.startsWith(reference.path) &&
+                    path.charAt(reference.path.length()) == '/' && path.indexOf('/', reference.path.length() + 1) < 0) {
+                String name = path.substring(reference.path.length() + 1);
+                if (name.equals("groupId")) {
+                    reference.groupId = span.getValue();
+                } else if (name.equals("artifactId")) {
+                    reference.artifactId = span.getValue();
+                } else if (name.equals("version")) {
+                    reference.version = span;
+                } else if (name.equals("scope")) {
+                    reference.scope = span.getValue();
+                } else if (name.equals("type")) {
+                    reference.type = span.getValue();
+                } else if (name.equals("optional")) {
+                    reference.optional = "true".equals(span.getValue());
+                }
+            } else if (path.startsWith(PROPERTIES) && path.indexOf('/', PROPERTIES.length()) < 0) {
+                properties.put(path.substring(PROPERTIES.length()), span);
+            } else if (path.equals(PROJECT + "/groupId")) {
+                groupId = span.getValue();
+            } else if (path.equals(PROJECT + "/artifactId")) {
+                artifactId = span.getValue();
+            } else if (path.equals(PROJECT + "/version")) {
+                version = span.getValue();
+            }
+        }
+
+        @Override
+        public void endElement(String path) {
+            VersionReference reference = stack.peek();
+            if (reference == null) {
+                return;
+            }
+            if (path.equals(reference.path + EXCLUSION.substring(0, EXCLUSION.length() - 1))) {
+                if (reference.exclusionGroupId != null && reference.exclusionArtifactId != null) {
+                    reference.exclusions.add(reference.exclusionGroupId + ":" + reference.exclusionArtifactId);
+                }
+                reference.exclusionGroupId = null;
+                reference.exclusionArtifactId = null;
+                return;
+            }
+            if (!reference.path.equals(path)) {
+                return;
+            }
+            stack.pop();
+            if (reference.groupId == null && MavenDependencyKinds.PLUGINS.equals(reference.kind)) {
+                reference.groupId = MavenDependencyKinds.DEFAULT_PLUGIN_GROUP_ID;
+            }
+            if (reference.artifactId == null || reference.groupId == null) {
+                return;
+            }
+            if (MavenDependencyKinds.PARENT.equals(reference.kind)) {
+                parent = reference;
+            } else {
+                reference.groupId = resolveGroupId(reference.groupId);
+            }
+            references.add(reference);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.maven;
+
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.Version;
+import org.eclipse.aether.version.VersionScheme;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Orders maven versions the same way maven does so that <code>9.0 &lt; 23.0</code> and
+ * <code>2.0-SNAPSHOT &lt; 2.0</code>.
+ * <p>
+ * Each version string is parsed once and the parsed version is cached as the same versions are compared over and
+ * over again across all the poms being processed.
+ */
+public class MavenVersionComparator implements Comparator<String> {
+    public static final MavenVersionComparator INSTANCE = new MavenVersionComparator();
+
+    private static final int MAX_CACHE_SIZE = 10000;
+    private static final Pattern PRE_RELEASE = Pattern.compile("(?i)[.-](alpha|beta|rc|cr|m|milestone|ea|preview|snapshot)[.-]?\\d*(?=$|[.-])");
+
+    private final VersionScheme scheme = new GenericVersionScheme();
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns true if the version is a final release rather than a snapshot, alpha, beta, milestone or release candidate
+     */
+    public static boolean isRelease(String version) {
+        return !PRE_RELEASE.matcher(version).find();
+    }
+
+    @Override
+    public int compare(String v1, String v2) {
+        Version version1 = parseVersion(v1);
+        Version version2 = parseVersion(v2);
+        if (version1 == null || version2 == null) {
+            return v1.compareTo(v2);
+        }
+        return version1.compareTo(version2);
+    }
+
+    /**
+     * Returns the parsed version or null if it is not a valid version
+     */
+    protected Version parseVersion(String text) {
+        Version answer = versions.get(text);
+        if (answer == null) {
+            try {
+                answer = scheme.parseVersion(text);
+            } catch (InvalidVersionSpecificationException e) {
+                return null;
+            }
+            if (versions.size() >= MAX_CACHE_SIZE) {
+                versions.clear();
+            }
+            versions.put(text, answer);
+        }
+        return answer;
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.maven;
+
+import io.fabric8.updatebot.commands.CommandContext;
+import io.fabric8.updatebot.commands.PushVersionChangesContext;
+import io.fabric8.updatebot.kind.Kind;
+import io.fabric8.updatebot.kind.KindDependenciesCheck;
+import io.fabric8.updatebot.kind.Updater;
+import io.fabric8.updatebot.kind.maven.MavenPom.VersionReference;
+import io.fabric8.updatebot.kind.npm.dependency.DependencyTree;
+import io.fabric8.updatebot.model.Dependencies;
+import io.fabric8.updatebot.model.DependencyVersionChange;
+import io.fabric8.updatebot.model.GitHubRepositoryDetails;
+import io.fabric8.updatebot.model.GitRepository;
+import io.fabric8.updatebot.model.MavenDependencies;
+import io.fabric8.updatebot.model.MavenDependency;
+import io.fabric8.updatebot.model.MavenDependencyFilter;
+import io.fabric8.updatebot.support.Strings;
+import io.fabric8.updatebot.support.TextSpan;
+import io.fabric8.utils.Filter;
+import io.fabric8.utils.Filters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Updates the versions of dependencies, plugins and parents in all the <code>pom.xml</code> files of a
+ * repository which may be a multi module reactor.
+ * <p>
+ * When a version is a <code>${property}</code> expression the property is updated in the pom of the reactor
+ * which defines it. Only the text of the changed versions is replaced so formatting and comments are kept.
+ */
+public class PomUpdater implements Updater {
+    public static final String POM_XML = "pom.xml";
+
+    private static final transient Logger LOG = LoggerFactory.getLogger(PomUpdater.class);
+
+    @Override
+    public boolean isApplicable(CommandContext context) {
+        return !context.manifests(POM_XML).isEmpty();
+    }
+
+    @Override
+    public boolean pushVersions(PushVersionChangesContext context) throws IOException {
+        return pushVersions(Collections.singletonList(context));
+    }
+
+    @Override
+    public boolean pushVersions(List<PushVersionChangesContext> contexts) throws IOException {
+        if (contexts.isEmpty()) {
+            return false;
+        }
+        List<MavenPom> poms = loadPoms(contexts.get(0));
+        Map<String, MavenPom> reactor = indexPoms(poms);
+        Map<MavenPom, Set<PushVersionChangesContext>> modified = new LinkedHashMap<>();
+        for (PushVersionChangesContext context : contexts) {
+            String name = context.getName();
+            if (context.getKind() != Kind.MAVEN) {
+                continue;
+            }
+            if (name.indexOf(':') < 0) {
+                LOG.warn("Ignoring maven dependency " + name + " as it is not of the form groupId:artifactId");
+                continue;
+            }
+            for (MavenPom pom : poms) {
+                for (VersionReference reference : pom.getReferences()) {
+                    if (name.equals(reference.getKey())) {
+                        MavenPom changed = pushVersionChange(pom, reference, reactor, context);
+                        if (changed != null) {
+                            modified.computeIfAbsent(changed, p -> new LinkedHashSet<>()).add(context);
+                        }
+                    }
+                }
+            }
+        }
+        boolean answer = false;
+        for (Map.Entry<MavenPom, Set<PushVersionChangesContext>> entry : modified.entrySet()) {
+            File file = entry.getKey().getFile();
+            if (entry.getKey().getEditor().save(file)) {
+                answer = true;
+                for (PushVersionChangesContext context : entry.getValue()) {
+                    context.updatedFile(file);
+                }
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Updates the version of the reference or the property it uses returning the pom which was modified or null
+     */
+    protected MavenPom pushVersionChange(MavenPom pom, VersionReference reference, Map<String, MavenPom> reactor, PushVersionChangesContext context) {
+        String value = context.getValue();
+        String old = resolveValue(pom, reference.getVersionValue(), reactor);
+        MavenPom answer = replaceVersion(pom, reference, reactor, value);
+        if (answer != null) {
+            context.updatedVersion(reference.getKind(), context.getName(), value, old);
+        }
+        return answer;
+    }
+
+    /**
+     * Replaces the version of the reference or the property it uses within the reactor returning the pom which
+     * was modified or null if the version could not be changed
+     */
+    protected MavenPom replaceVersion(MavenPom pom, VersionReference reference, Map<String, MavenPom> reactor, String value) {
+        String old = reference.getVersionValue();
+        if (old == null || isVersionRange(old)) {
+            return null;
+        }
+        String propertyName = MavenPom.propertyName(old);
+        if (propertyName == null) {
+            return pom.replaceVersion(reference, value) ? pom : null;
+        }
+        MavenPom owner = findPropertyOwner(pom, propertyName, reactor);
+        if (owner == null) {
+            LOG.debug("Cannot update " + reference.getKey() + " in " + pom.getFile() + " as property " + propertyName + " is not defined in the reactor");
+            return null;
+        }
+        return owner.replaceProperty(propertyName, value) ? owner : null;
+    }
+
+    @Override
+    public void addPushVersionsSteps(CommandContext context, Dependencies dependencyConfig, List<DependencyVersionChange> list) {
+        MavenDependencies dependencies = dependencyConfig.getMaven();
+        List<MavenPom> poms = loadPoms(context);
+        Map<String, MavenPom> reactor = indexPoms(poms);
+        for (MavenPom pom : poms) {
+            String version = resolveValue(pom, pom.getVersion(), reactor);
+            if (Strings.notEmpty(pom.getGroupId()) && Strings.notEmpty(pom.getArtifactId()) && Strings.notEmpty(version)) {
+                if (isDevelopmentVersion(version)) {
+                    LOG.info("Not updating maven dependency " + pom.getKey() + " version " + version + " as this is a development version and not a release");
+                } else {
+                    addStep(list, new DependencyVersionChange(Kind.MAVEN, pom.getKey(), version, MavenDependencyKinds.DEPENDENCIES));
+                }
+            }
+        }
+        if (dependencies != null) {
+            Filter<MavenDependency> dependencyFilter = MavenDependencyFilter.createFilter(dependencies.getDependencies());
+            Filter<MavenDependency> pluginFilter = MavenDependencyFilter.createFilter(dependencies.getPlugins());
+            for (MavenPom pom : poms) {
+                for (VersionReference reference : pom.getReferences()) {
+                    Filter<MavenDependency> filter = MavenDependencyKinds.PLUGINS.equals(reference.getKind()) ? pluginFilter : dependencyFilter;
+                    if (!filter.matches(new MavenDependency(reference.getGroupId(), reference.getArtifactId()))) {
+                        continue;
+                    }
+                    String version = resolveValue(pom, reference.getVersionValue(), reactor);
+                    if (Strings.notEmpty(version) && !isVersionRange(version)) {
+                        addStep(list, new DependencyVersionChange(Kind.MAVEN, reference.getKey(), version, reference.getKind()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Upgrades the dependencies, plugins and parents matching the pull filters to the latest releases in the
+     * maven repositories. Modules of the reactor are not pulled
+     */
+    @Override
+    public boolean pullVersions(CommandContext context) throws IOException {
+        MavenDependencies pull = getPullDependencies(context);
+        Filter<MavenDependency> dependencyFilter = createPullFilter(pull != null ? pull.getDependencies() : null);
+        Filter<MavenDependency> pluginFilter = createPullFilter(pull != null ? pull.getPlugins() : null);
+        MavenMetadataResolver resolver = context.getConfiguration().getMavenMetadataResolver();
+        MavenVersionComparator comparator = MavenVersionComparator.INSTANCE;
+        List<MavenPom> poms = loadPoms(context);
+        Map<String, MavenPom> reactor = indexPoms(poms);
+        Set<MavenPom> modified = new LinkedHashSet<>();
+        Map<String, SharedProperty> properties = new LinkedHashMap<>();
+        for (MavenPom pom : poms) {
+            for (VersionReference reference : pom.getReferences()) {
+                String groupId = reference.getGroupId();
+                String artifactId = reference.getArtifactId();
+                SharedProperty property = getSharedProperty(properties, pom, reference, reactor);
+                if (Strings.empty(groupId) || Strings.empty(artifactId) || groupId.contains("${") || reactor.containsKey(reference.getKey())) {
+                    if (property != null) {
+                        property.excluded = true;
+                    }
+                    continue;
+                }
+                Filter<MavenDependency> filter = MavenDependencyKinds.PLUGINS.equals(reference.getKind()) ? pluginFilter : dependencyFilter;
+                if (!filter.matches(new MavenDependency(groupId, artifactId))) {
+                    if (property != null) {
+                        property.excluded = true;
+                    }
+                    continue;
+                }
+                String oldVersion = resolveValue(pom, reference.getVersionValue(), reactor);
+                if (Strings.empty(oldVersion) || isVersionRange(oldVersion)) {
+                    continue;
+                }
+                if (property != null) {
+                    property.oldVersion = oldVersion;
+                    property.references.add(reference);
+                    continue;
+                }
+                String latest = resolver.getLatestVersion(groupId, artifactId);
+                if (latest != null && comparator.compare(latest, oldVersion) > 0) {
+                    MavenPom changed = replaceVersion(pom, reference, reactor, latest);
+                    if (changed != null) {
+                        LOG.info("Pulling maven " + reference.getKind() + " " + reference.getKey() + " from " + oldVersion + " to " + latest + " in " + changed.getFile());
+                        modified.add(changed);
+                    }
+                }
+            }
+        }
+        for (SharedProperty property : properties.values()) {
+            if (property.excluded || property.references.isEmpty()) {
+                continue;
+            }
+            String latest = getLatestCommonVersion(resolver, property.references);
+            if (latest != null && comparator.compare(latest, property.oldVersion) > 0) {
+                if (property.owner.replaceProperty(property.name, latest)) {
+                    LOG.info("Pulling maven property " + property.name + " from " + property.oldVersion + " to " + latest + " in " + property.owner.getFile());
+                    modified.add(property.owner);
+                }
+            } else if (latest == null) {
+                LOG.info("Not pulling maven property " + property.name + " in " + property.owner.getFile() + " as its artifacts have no common release");
+            }
+        }
+        boolean answer = false;
+        for (MavenPom pom : modified) {
+            if (pom.getEditor().save(pom.getFile())) {
+                context.updatedFile(pom.getFile());
+                answer = true;
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Returns the property which the version of the reference uses so that all the references to a property are
+     * pulled together or null if the version does not use a property of the reactor
+     */
+    private static SharedProperty getSharedProperty(Map<String, SharedProperty> properties, MavenPom pom, VersionReference reference, Map<String, MavenPom> reactor) {
+        String propertyName = MavenPom.propertyName(reference.getVersionValue());
+        if (propertyName == null) {
+            return null;
+        }
+        MavenPom owner = findPropertyOwner(pom, propertyName, reactor);
+        if (owner == null) {
+            return null;
+        }
+        return properties.computeIfAbsent(owner.getFile() + "#" + propertyName, key -> new SharedProperty(owner, propertyName));
+    }
+
+    /**
+     * Returns the highest release of every artifact of the references or null if they have no release in common
+     */
+    protected static String getLatestCommonVersion(MavenMetadataResolver resolver, List<VersionReference> references) {
+        Map<String, VersionReference> artifacts = new LinkedHashMap<>();
+        for (VersionReference reference : references) {
+            artifacts.putIfAbsent(reference.getKey(), reference);
+        }
+        if (artifacts.size() == 1) {
+            VersionReference reference = references.get(0);
+            return resolver.getLatestVersion(reference.getGroupId(), reference.getArtifactId());
+        }
+        Set<String> common = null;
+        for (VersionReference reference : artifacts.values()) {
+            Set<String> versions = resolver.getReleaseVersions(reference.getGroupId(), reference.getArtifactId());
+            if (common == null) {
+                common = new HashSet<>(versions);
+            } else {
+                common.retainAll(versions);
+            }
+        }
+        String answer = null;
+        if (common != null) {
+            for (String version : common) {
+                if (answer == null || MavenVersionComparator.INSTANCE.compare(version, answer) > 0) {
+                    answer = version;
+                }
+            }
+        }
+        return answer;
+    }
+
+    protected MavenDependencies getPullDependencies(CommandContext context) {
+        GitRepository repo = context.getRepository().getRepo();
+        if (repo != null) {
+            GitHubRepositoryDetails details = repo.getRepositoryDetails();
+            if (details != null && details.getPull() != null) {
+                return details.getPull().getMaven();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the filter of the artifacts to pull; all artifacts are pulled if there is no pull configuration
+     */
+    protected Filter<MavenDependency> createPullFilter(List<MavenDependencyFilter> filters) {
+        if (filters == null) {
+            return Filters.trueFilter();
+        }
+        return MavenDependencyFilter.createFilter(filters);
+    }
+
+    /**
+     * Checks the changes for convergence conflicts by collecting the dependency graph of each pom in the reactor.
+     * If the graphs cannot be collected then the changes are assumed to be valid
+     */
+    @Override
+    public KindDependenciesCheck checkDependencies(CommandContext context, List<DependencyVersionChange> changes) {
+        MavenDependencyResolver resolver = context.getConfiguration().getMavenDependencyResolver();
+        List<DependencyTree> dependencyTrees = new ArrayList<>();
+        if (resolver != null) {
+            List<MavenPom> poms = loadPoms(context);
+            Map<String, MavenPom> reactor = indexPoms(poms);
+            for (MavenPom pom : poms) {
+                DependencyTree dependencyTree = resolver.collectDependencyTree(pom, reactor);
+                if (dependencyTree != null) {
+                    dependencyTrees.add(dependencyTree);
+                }
+            }
+        }
+        return KindDependenciesCheck.checkConflicts(dependencyTrees, changes);
+    }
+
+    protected List<MavenPom> loadPoms(CommandContext context) {
+        List<MavenPom> answer = new ArrayList<>();
+        for (File file : context.manifests(POM_XML)) {
+            try {
+                answer.add(MavenPom.load(file));
+            } catch (IOException e) {
+                LOG.warn("Ignoring " + file + ". " + e, e);
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Indexes the poms of the reactor by <code>groupId:artifactId</code> so that parents can be found
+     */
+    protected static Map<String, MavenPom> indexPoms(List<MavenPom> poms) {
+        Map<String, MavenPom> answer = new LinkedHashMap<>();
+        for (MavenPom pom : poms) {
+            if (pom.getArtifactId() != null) {
+                answer.putIfAbsent(pom.getKey(), pom);
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Returns the pom which defines the property looking in the pom then its parents within the reactor
+     */
+    protected static MavenPom findPropertyOwner(MavenPom pom, String propertyName, Map<String, MavenPom> reactor) {
+        Set<MavenPom> visited = new HashSet<>();
+        while (pom != null && visited.add(pom)) {
+            if (pom.getProperties().containsKey(propertyName)) {
+                return pom;
+            }
+            VersionReference parent = pom.getParent();
+            pom = parent != null ? reactor.get(parent.getKey()) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value with any <code>${property}</code> expression resolved or null if it cannot be resolved
+     */
+    protected static String resolveValue(MavenPom pom, String value, Map<String, MavenPom> reactor) {
+        String propertyName = MavenPom.propertyName(value);
+        if (propertyName == null) {
+            return value != null && value.contains("${") ? null : value;
+        }
+        MavenPom owner = findPropertyOwner(pom, propertyName, reactor);
+        if (owner == null) {
+            return null;
+        }
+        TextSpan span = owner.getProperties().get(propertyName);
+        return span.getValue().contains("${") ? null : span.getValue();
+    }
+
+    protected static boolean isDevelopmentVersion(String version) {
+        return version.endsWith("-SNAPSHOT");
+    }
+
+    protected static boolean isVersionRange(String version) {
+        return version.startsWith("[") || version.startsWith("(");
+    }
+
+    private static void addStep(List<DependencyVersionChange> list, DependencyVersionChange change) {
+        if (!DependencyVersionChange.hasDependency(list, change)) {
+            list.add(change);
+        }
+    }
+
+    /**
+     * The references of the poms whose version is the value of the same property
+     */
+    private static class SharedProperty {
+        private final MavenPom owner;
+        private final String name;
+        private final List<VersionReference> references = new ArrayList<>();
+        private String oldVersion;
+        private boolean excluded;
+
+        SharedProperty(MavenPom owner, String name) {
+            this.owner = owner;
+            this.name = name;
+        }
+    }
+}
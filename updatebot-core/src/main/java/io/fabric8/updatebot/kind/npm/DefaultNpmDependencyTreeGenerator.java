@@ -28,8 +28,7 @@ public class DefaultNpmDependencyTreeGenerator implements NpmDependencyTreeGener
     private static final transient Logger LOG = LoggerFactory.getLogger(DefaultNpmDependencyTreeGenerator.class);
 
     @Override
-    public void generateDependencyTree(CommandContext context, String dependencyFileName) {
-        File dir = context.getDir();
+    public void generateDependencyTree(CommandContext context, File dir, String dependencyFileName) {
         LOG.info("Generating dependency tree file " + dependencyFileName + " in " + dir);
 
         Commands.runCommandIgnoreOutput(dir, "npm", "install");
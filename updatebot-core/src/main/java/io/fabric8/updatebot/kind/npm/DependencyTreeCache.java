@@ -0,0 +1,244 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm;
+
+import io.fabric8.updatebot.kind.npm.dependency.DependencyTree;
+import io.fabric8.updatebot.model.DependencyVersionChange;
+import io.fabric8.updatebot.support.FileHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A content addressed cache of parsed dependency trees keyed by a hash of the <code>package.json</code>,
+ * the lock files and the dependency changes being applied.
+ * <p>
+ * Only sources with a lock file should be cached as otherwise the tree also depends on the versions
+ * currently published to the registry.
+ * <p>
+ * Trees are stored in a compact binary form and the least recently used entries are evicted
+ * when the cache grows beyond its maximum size.
+ */
+public class DependencyTreeCache {
+    public static final String[] LOCK_FILES = {"package-lock.json", "npm-shrinkwrap.json", "yarn.lock"};
+
+    private static final transient Logger LOG = LoggerFactory.getLogger(DependencyTreeCache.class);
+    private static final String EXTENSION = ".tree";
+
+    private final File dir;
+    private final long maxSize;
+
+    public DependencyTreeCache(File dir, long maxSize) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public String toString() {
+        return "DependencyTreeCache{" +
+                "dir=" + dir +
+                ", maxSize=" + maxSize +
+                '}';
+    }
+
+    /**
+     * Returns true if the directory has a lock file so that its dependency tree only depends on its files
+     */
+    public static boolean hasLockFile(File dir) {
+        for (String lockFile : LOCK_FILES) {
+            if (FileHelper.isFile(new File(dir, lockFile))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the cache key for the manifest and lock files in the given directory, the manifests of any workspace
+     * members and the changes being applied
+     *
+     * @param dir       the directory containing the <code>package.json</code>
+     * @param generator the name of the strategy used to generate the trees
+     * @param members   the <code>package.json</code> files of the workspace members inside the directory
+     * @param changes   the changes being applied to the manifest
+     */
+    public static String createKey(File dir, String generator, List<File> members, List<DependencyVersionChange> changes) throws IOException {
+        MessageDigest digest = createDigest();
+        updateDigest(digest, generator);
+        digestFile(digest, new File(dir, "package.json"));
+        for (String lockFile : LOCK_FILES) {
+            digestFile(digest, new File(dir, lockFile));
+        }
+        digestFile(digest, new File(dir, "lerna.json"));
+        List<String> memberPaths = members.stream().
+                map(f -> dir.toPath().relativize(f.toPath()).toString()).
+                sorted().collect(Collectors.toList());
+        for (String memberPath : memberPaths) {
+            digestFile(digest, memberPath, new File(dir, memberPath));
+        }
+        List<String> changeTexts = changes.stream().
+                map(c -> c.getKind() + ":" + c.getDependency() + ":" + c.getVersion() + ":" + c.getScope()).
+                sorted().collect(Collectors.toList());
+        for (String changeText : changeTexts) {
+            updateDigest(digest, changeText);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Returns the cached tree for the given key or null if there is no valid entry
+     */
+    public DependencyTree get(String key) {
+        File file = getFile(key);
+        if (!FileHelper.isFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            DependencyTree answer = DependencyTree.readTree(in);
+            file.setLastModified(System.currentTimeMillis());
+            return answer;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Ignoring corrupt dependency tree cache entry " + file + ". " + e, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the tree for the given key then evicts the least recently used entries if the cache is too big
+     */
+    public void put(String key, DependencyTree tree) {
+        File file = getFile(key);
+        dir.mkdirs();
+        try {
+            File tmpFile = File.createTempFile(key, ".tmp", dir);
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                    tree.writeTree(out);
+                }
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                tmpFile.delete();
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to write dependency tree cache entry " + file + ". " + e, e);
+            return;
+        }
+        evict();
+    }
+
+    /**
+     * Removes the least recently used entries until the cache fits within its maximum size
+     */
+    protected void evict() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxSize) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= maxSize) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                LOG.debug("Evicted dependency tree cache entry " + file.getName());
+                total -= length;
+            }
+        }
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    protected File getFile(String key) {
+        return new File(dir, key + EXTENSION);
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No SHA-256 support: " + e, e);
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        updateLength(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void digestFile(MessageDigest digest, File file) throws IOException {
+        digestFile(digest, file.getName(), file);
+    }
+
+    private static void digestFile(MessageDigest digest, String name, File file) throws IOException {
+        updateDigest(digest, name);
+        if (FileHelper.isFile(file)) {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            updateLength(digest, bytes.length);
+            digest.update(bytes);
+        } else {
+            updateLength(digest, -1);
+        }
+    }
+
+    private static void updateLength(MessageDigest digest, int length) {
+        digest.update((byte) (length >>> 24));
+        digest.update((byte) (length >>> 16));
+        digest.update((byte) (length >>> 8));
+        digest.update((byte) length);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+            builder.append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+}
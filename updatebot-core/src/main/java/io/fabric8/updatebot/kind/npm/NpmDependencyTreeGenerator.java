@@ -17,9 +17,18 @@ package io.fabric8.updatebot.kind.npm;
 
 import io.fabric8.updatebot.commands.CommandContext;
 
+import java.io.File;
+
 /**
  * The strategy used to generate the npm dependency tree
  */
 public interface NpmDependencyTreeGenerator {
-    void generateDependencyTree(CommandContext context, String dependencyFileName);
+    /**
+     * Generates the dependency tree of the <code>package.json</code> in the given directory of the repository
+     *
+     * @param context            the context of the repository
+     * @param dir                the directory of the <code>package.json</code> which may be a workspace root inside the repository
+     * @param dependencyFileName the name of the file to write the tree to in the directory
+     */
+    void generateDependencyTree(CommandContext context, File dir, String dependencyFileName);
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm;
+
+import io.fabric8.updatebot.support.ContentStore;
+import io.fabric8.updatebot.support.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of sandbox directories in which <code>npm install</code> can be run on a copy of a repository.
+ * <p>
+ * Each sandbox remembers the repository it was last used for and is handed back to that repository when it is free
+ * so that the packages already installed in its <code>node_modules</code> only need to be reconciled rather than
+ * downloaded and unpacked again. All installs share a single npm cache and the installed files are deduplicated into
+ * a {@link ContentStore} once they are unpacked so that identical files across sandboxes and later installs are hard
+ * links to one copy. The number of concurrent installs is limited by the number of processors and by how many
+ * installs fit in the physical memory.
+ */
+public class NpmInstallPool {
+
+    private final File dir;
+    private final int concurrency;
+    private final long memoryPerInstall;
+    private final Semaphore permits;
+    private final BlockingQueue<File> freeSandboxes = new LinkedBlockingQueue<>();
+    private final AtomicInteger sandboxCount = new AtomicInteger();
+    private final ContentStore store;
+
+    /**
+     * @param dir              the directory containing the sandboxes, the npm cache and the content store
+     * @param concurrency      the maximum number of concurrent installs or 0 to use the processors and memory available
+     * @param memoryPerInstall the number of bytes of memory to reserve for each install
+     */
+    public NpmInstallPool(File dir, int concurrency, long memoryPerInstall) {
+        this.dir = dir;
+        this.memoryPerInstall = memoryPerInstall;
+        this.concurrency = concurrency > 0 ? concurrency : defaultConcurrency(memoryPerInstall);
+        this.permits = new Semaphore(this.concurrency, true);
+        this.store = new ContentStore(new File(dir, "store"));
+        Metrics.gauge("updatebot_npm_install_queue_depth", "The number of npm installs waiting for a sandbox", permits::getQueueLength);
+    }
+
+    @Override
+    public String toString() {
+        return "NpmInstallPool{" +
+                "dir=" + dir +
+                ", concurrency=" + concurrency +
+                '}';
+    }
+
+    /**
+     * Waits until an install can be admitted then returns a sandbox directory which must be passed to
+     * {@link #release(File)} when the install is complete
+     */
+    public File acquire() throws InterruptedException {
+        return acquire(null);
+    }
+
+    /**
+     * Waits until an install can be admitted then returns a sandbox directory, preferring one last used for the
+     * given source directory, which must be passed to {@link #release(File)} when the install is complete
+     */
+    public File acquire(File source) throws InterruptedException {
+        permits.acquire();
+        File answer = null;
+        if (source != null) {
+            for (File sandbox : freeSandboxes) {
+                if (source.getAbsoluteFile().equals(getSandboxSource(sandbox)) && freeSandboxes.remove(sandbox)) {
+                    answer = sandbox;
+                    break;
+                }
+            }
+        }
+        if (answer == null) {
+            answer = freeSandboxes.poll();
+        }
+        if (answer == null) {
+            answer = new File(dir, "sandboxes/" + sandboxCount.incrementAndGet());
+            answer.mkdirs();
+        }
+        return answer;
+    }
+
+    public void release(File sandbox) {
+        freeSandboxes.add(sandbox);
+        permits.release();
+    }
+
+    /**
+     * Returns the source directory the sandbox was last used for or null if it is not known
+     */
+    public File getSandboxSource(File sandbox) {
+        File file = getSandboxSourceFile(sandbox);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return new File(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void setSandboxSource(File sandbox, File source) throws IOException {
+        Files.write(getSandboxSourceFile(sandbox).toPath(), source.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected static File getSandboxSourceFile(File sandbox) {
+        return new File(sandbox.getParentFile(), sandbox.getName() + ".source");
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * Returns the npm cache shared by all the sandboxes
+     */
+    public File getCacheDir() {
+        return new File(dir, "cache");
+    }
+
+    public ContentStore getStore() {
+        return store;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public long getMemoryPerInstall() {
+        return memoryPerInstall;
+    }
+
+    protected static int defaultConcurrency(long memoryPerInstall) {
+        int answer = Runtime.getRuntime().availableProcessors();
+        long totalMemory = getTotalPhysicalMemory();
+        if (totalMemory > 0 && memoryPerInstall > 0) {
+            answer = (int) Math.min(answer, totalMemory / memoryPerInstall);
+        }
+        return Math.max(1, answer);
+    }
+
+    /**
+     * Returns the total physical memory or 0 if it is not known
+     */
+    protected static long getTotalPhysicalMemory() {
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getTotalPhysicalMemorySize();
+        }
+        return 0;
+    }
+}
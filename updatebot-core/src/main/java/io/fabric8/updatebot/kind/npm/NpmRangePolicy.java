@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm;
+
+/**
+ * What to do when pushing a version which is already included in the version range declared by a dependency
+ */
+public enum NpmRangePolicy {
+    /**
+     * Update the range to the new version
+     */
+    UPDATE,
+    /**
+     * Leave the range as it is
+     */
+    SKIP,
+    /**
+     * Only update the range when the same file is being modified by another change
+     */
+    BATCH
+}
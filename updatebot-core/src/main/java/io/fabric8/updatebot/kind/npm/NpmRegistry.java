@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.fabric8.updatebot.support.MarkupHelper;
+import io.fabric8.updatebot.support.MetadataCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A client of the npm registry which looks up the latest release of each package at most once per run,
+ * using a shared {@link MetadataCache} to avoid downloading unchanged metadata between runs.
+ * <p>
+ * The registry can also be a <code>file:</code> URL of a directory containing a <code>name.json</code> document for
+ * each package which is handy for testing.
+ */
+public class NpmRegistry {
+    public static final String DEFAULT_REGISTRY = "https://registry.npmjs.org";
+    public static final String ABBREVIATED_METADATA = "application/vnd.npm.install-v1+json; q=1.0, application/json; q=0.8, */*";
+
+    private static final transient Logger LOG = LoggerFactory.getLogger(NpmRegistry.class);
+    private static final String NOT_FOUND = "";
+
+    private final String registry;
+    private final MetadataCache cache;
+    private final Map<String, String> latestVersions = new ConcurrentHashMap<>();
+
+    public NpmRegistry(String registry, MetadataCache cache) {
+        this.registry = registry.endsWith("/") ? registry.substring(0, registry.length() - 1) : registry;
+        this.cache = cache;
+    }
+
+    @Override
+    public String toString() {
+        return "NpmRegistry{" +
+                "registry='" + registry + '\'' +
+                '}';
+    }
+
+    /**
+     * Returns the version of the <code>latest</code> tag of the given package or null if the package
+     * could not be found or its metadata could not be loaded
+     */
+    public String getLatestVersion(String name) {
+        String answer = latestVersions.get(name);
+        if (answer == null) {
+            try {
+                answer = loadLatestVersion(name);
+            } catch (IOException e) {
+                LOG.warn("Failed to load npm metadata for " + name + " from " + getMetadataUrl(name) + ". " + e);
+            }
+            if (answer == null) {
+                answer = NOT_FOUND;
+            }
+            latestVersions.put(name, answer);
+        }
+        return answer == NOT_FOUND ? null : answer;
+    }
+
+    public String getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Returns the URL of the metadata document of the given package
+     */
+    public String getMetadataUrl(String name) {
+        if (registry.startsWith("file:")) {
+            return registry + "/" + name + ".json";
+        }
+        return registry + "/" + name.replace("/", "%2f");
+    }
+
+    protected String loadLatestVersion(String name) throws IOException {
+        String json = cache.getText(getMetadataUrl(name));
+        try (JsonParser parser = MarkupHelper.createJsonParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("dist-tags".equals(field) && token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String tag = parser.getCurrentName();
+                        token = parser.nextToken();
+                        if ("latest".equals(tag) && token == JsonToken.VALUE_STRING) {
+                            return parser.getText();
+                        }
+                        parser.skipChildren();
+                    }
+                    return null;
+                }
+                parser.skipChildren();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.fabric8.updatebot.commands.CommandContext;
+import io.fabric8.updatebot.support.FileHelper;
+import io.fabric8.updatebot.support.MarkupHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the <code>package.json</code> files of a repository which may be a monorepo using lerna or
+ * yarn/npm workspaces.
+ * <p>
+ * A workspace root is a <code>package.json</code> which is not inside another workspace; dependencies are
+ * installed and verified once per workspace root rather than once per <code>package.json</code>.
+ */
+public class NpmWorkspaces {
+    public static final String PACKAGE_JSON = "package.json";
+
+    private static final transient Logger LOG = LoggerFactory.getLogger(NpmWorkspaces.class);
+
+    /**
+     * Returns all the <code>package.json</code> files in the repository with the root one first
+     */
+    public static List<File> getPackageJsonFiles(CommandContext context) {
+        return context.manifests(PACKAGE_JSON);
+    }
+
+    /**
+     * Returns the directories in which to install and verify the dependencies of the repository
+     */
+    public static List<File> getWorkspaceRoots(CommandContext context) {
+        List<File> answer = new ArrayList<>();
+        List<File> workspaces = new ArrayList<>();
+        for (File file : getPackageJsonFiles(context)) {
+            File dir = file.getParentFile();
+            if (isInside(dir, workspaces)) {
+                continue;
+            }
+            answer.add(dir);
+            if (isWorkspace(file)) {
+                workspaces.add(dir);
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Returns the <code>package.json</code> files of the members of the workspace in the given root directory
+     * or an empty list if it is not a workspace
+     */
+    public static List<File> getWorkspaceMembers(CommandContext context, File root) {
+        List<File> answer = new ArrayList<>();
+        File rootPackageJson = new File(root, PACKAGE_JSON);
+        if (FileHelper.isFile(rootPackageJson) && isWorkspace(rootPackageJson)) {
+            for (File file : getPackageJsonFiles(context)) {
+                File dir = file.getParentFile();
+                if (!dir.equals(root) && dir.toPath().startsWith(root.toPath())) {
+                    answer.add(file);
+                }
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Returns true if the <code>package.json</code> declares workspaces or is next to a <code>lerna.json</code>
+     */
+    protected static boolean isWorkspace(File packageJson) {
+        if (FileHelper.isFile(new File(packageJson.getParentFile(), "lerna.json"))) {
+            return true;
+        }
+        try {
+            JsonNode tree = MarkupHelper.loadJson(packageJson);
+            return tree != null && tree.has("workspaces");
+        } catch (IOException e) {
+            LOG.warn("Failed to parse JSON " + packageJson + ". " + e, e);
+            return false;
+        }
+    }
+
+    private static boolean isInside(File dir, List<File> parents) {
+        for (File parent : parents) {
+            if (dir.toPath().startsWith(parent.toPath())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
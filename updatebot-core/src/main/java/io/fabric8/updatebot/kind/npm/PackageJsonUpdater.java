@@ -19,22 +19,29 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.fabric8.updatebot.commands.CommandContext;
 import io.fabric8.updatebot.commands.PushVersionChangesContext;
+import io.fabric8.updatebot.jfr.FlightRecorderEvents;
 import io.fabric8.updatebot.kind.Kind;
 import io.fabric8.updatebot.kind.KindDependenciesCheck;
 import io.fabric8.updatebot.kind.Updater;
 import io.fabric8.updatebot.kind.npm.dependency.DependencyCheck;
 import io.fabric8.updatebot.kind.npm.dependency.DependencyTree;
+import io.fabric8.updatebot.kind.npm.semver.SemVer;
+import io.fabric8.updatebot.kind.npm.semver.VersionChangeType;
 import io.fabric8.updatebot.model.Dependencies;
 import io.fabric8.updatebot.model.DependencySet;
 import io.fabric8.updatebot.model.DependencyVersionChange;
+import io.fabric8.updatebot.model.GitHubRepositoryDetails;
+import io.fabric8.updatebot.model.GitRepository;
 import io.fabric8.updatebot.model.NpmDependencies;
-import io.fabric8.updatebot.support.Commands;
-import io.fabric8.updatebot.support.FileHelper;
 import io.fabric8.updatebot.support.JsonNodes;
+import io.fabric8.updatebot.support.JsonSpans;
 import io.fabric8.updatebot.support.MarkupHelper;
+import io.fabric8.updatebot.support.SpanEditor;
 import io.fabric8.updatebot.support.Strings;
+import io.fabric8.updatebot.support.TextSpan;
 import io.fabric8.utils.Files;
 import io.fabric8.utils.Filter;
+import io.fabric8.utils.Filters;
 import io.fabric8.utils.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,10 +49,14 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 /**
  */
@@ -55,28 +66,92 @@ public class PackageJsonUpdater implements Updater {
 
     @Override
     public boolean isApplicable(CommandContext context) {
-        return FileHelper.isFile(context.file("package.json"));
+        return !NpmWorkspaces.getPackageJsonFiles(context).isEmpty();
     }
 
     @Override
     public boolean pushVersions(PushVersionChangesContext context) throws IOException {
-        File file = context.file("package.json");
-        JsonNode tree = MarkupHelper.loadJson(file);
+        return pushVersions(Collections.singletonList(context));
+    }
+
+    @Override
+    public boolean pushVersions(List<PushVersionChangesContext> contexts) throws IOException {
+        if (contexts.isEmpty()) {
+            return false;
+        }
         boolean answer = false;
-        for (String dependencyKey : NpmDependencyKinds.DEPENDENCY_KEYS) {
-            JsonNode dependencies = tree.get(dependencyKey);
-            if (dependencies instanceof ObjectNode) {
-                ObjectNode objectNode = (ObjectNode) dependencies;
-                if (doPushVersionChange(dependencyKey, objectNode, context)) {
-                    answer = true;
+        for (File file : NpmWorkspaces.getPackageJsonFiles(contexts.get(0))) {
+            if (pushVersions(file, contexts)) {
+                answer = true;
+            }
+        }
+        return answer;
+    }
+
+    protected boolean pushVersions(File file, List<PushVersionChangesContext> contexts) throws IOException {
+        Object event = FlightRecorderEvents.startPushVersions();
+        boolean answer = doPushVersions(file, contexts);
+        FlightRecorderEvents.commitPushVersions(event, file, contexts.size(), answer);
+        return answer;
+    }
+
+    protected boolean doPushVersions(File file, List<PushVersionChangesContext> contexts) throws IOException {
+        SpanEditor editor = SpanEditor.load(file);
+        Map<String, Map<String, TextSpan>> dependencySpans = JsonSpans.findTextValues(editor.getText(), NpmDependencyKinds.DEPENDENCY_KEYS);
+        NpmRangePolicy policy = contexts.get(0).getConfiguration().getNpmRangePolicy();
+        List<SpanChange> changes = new ArrayList<>();
+        List<PushVersionChangesContext> deferredContexts = new ArrayList<>();
+        for (PushVersionChangesContext context : contexts) {
+            if (policy != NpmRangePolicy.UPDATE && isSatisfiedByRange(dependencySpans, context)) {
+                if (policy == NpmRangePolicy.SKIP) {
+                    LOG.info("Not updating " + context.getName() + " to " + context.getValue() + " as it is already included in the declared version range");
+                    context.skippedByRange();
+                } else {
+                    deferredContexts.add(context);
                 }
+                continue;
             }
+            pushVersionChange(dependencySpans, editor, context, changes);
         }
-        if (answer) {
-            MarkupHelper.savePrettyJson(file, tree);
+        if (editor.isModified()) {
+            // lets include the changes already covered by their ranges as we are writing the file anyway
+            for (PushVersionChangesContext context : deferredContexts) {
+                pushVersionChange(dependencySpans, editor, context, changes);
+            }
+        } else {
+            for (PushVersionChangesContext context : deferredContexts) {
+                context.skippedByRange();
+            }
+        }
+        if (!editor.save(file)) {
+            return false;
+        }
+        recordChanges(file, changes);
+        return true;
+    }
+
+    /**
+     * Records the changes on their contexts once the file has been written, ignoring any value which a later
+     * change in the batch put back to the text it had in the file
+     */
+    protected void recordChanges(File file, List<SpanChange> changes) {
+        Map<String, String> originalValues = new TreeMap<>();
+        Map<String, String> finalValues = new TreeMap<>();
+        for (SpanChange change : changes) {
+            originalValues.putIfAbsent(change.getSpanKey(), change.oldValue);
+            finalValues.put(change.getSpanKey(), change.newValue);
+        }
+        Set<PushVersionChangesContext> updatedContexts = new LinkedHashSet<>();
+        for (SpanChange change : changes) {
+            String key = change.getSpanKey();
+            if (!Objects.equal(originalValues.get(key), finalValues.get(key))) {
+                change.context.updatedVersion(change.dependencyKey, change.name, change.newValue, change.oldValue);
+                updatedContexts.add(change.context);
+            }
+        }
+        for (PushVersionChangesContext context : updatedContexts) {
             context.updatedFile(file);
         }
-        return answer;
     }
 
     /**
@@ -86,7 +161,12 @@ public class PackageJsonUpdater implements Updater {
     @Override
     public void addPushVersionsSteps(CommandContext context, Dependencies dependencyConfig, List<DependencyVersionChange> list) {
         NpmDependencies dependencies = dependencyConfig.getNpm();
-        JsonNode tree = getPackageJsonTree(context);
+        for (File file : NpmWorkspaces.getPackageJsonFiles(context)) {
+            addPushVersionsSteps(getJsonFile(file), dependencies, list);
+        }
+    }
+
+    protected void addPushVersionsSteps(JsonNode tree, NpmDependencies dependencies, List<DependencyVersionChange> list) {
         if (tree != null) {
             String name = JsonNodes.textValue(tree, "name");
             String version = JsonNodes.textValue(tree, "version");
@@ -105,13 +185,8 @@ public class PackageJsonUpdater implements Updater {
         }
     }
 
-    protected JsonNode getPackageJsonTree(CommandContext context) {
-        return getJsonFile(context, "package.json");
-    }
-
-    protected JsonNode getJsonFile(CommandContext context, String fileName) {
+    protected JsonNode getJsonFile(File file) {
         JsonNode tree = null;
-        File file = context.file(fileName);
         if (Files.isFile(file)) {
             try {
                 tree = MarkupHelper.loadJson(file);
@@ -124,38 +199,132 @@ public class PackageJsonUpdater implements Updater {
 
     @Override
     public KindDependenciesCheck checkDependencies(CommandContext context, List<DependencyVersionChange> changes) {
+        List<DependencyTree> dependencyTrees = new ArrayList<>();
+        for (File dir : NpmWorkspaces.getWorkspaceRoots(context)) {
+            DependencyTree dependencyTree = loadDependencyTree(context, dir, changes);
+            if (dependencyTree != null) {
+                dependencyTrees.add(dependencyTree);
+            }
+        }
+        if (dependencyTrees.isEmpty()) {
+            return new KindDependenciesCheck();
+        }
+        return KindDependenciesCheck.checkConflicts(dependencyTrees, changes);
+    }
+
+    @Override
+    public KindDependenciesCheck predictDependencies(CommandContext context, List<DependencyVersionChange> changes) {
+        DependencyTree baseline = loadBaselineDependencyTree(context);
+        return baseline != null ? predictDependencies(baseline, changes) : null;
+    }
+
+    /**
+     * Returns the dependency tree of the unmodified source if a tree generated from the same files is cached
+     * or null if it is not available
+     */
+    protected DependencyTree loadBaselineDependencyTree(CommandContext context) {
+        DependencyTreeCache cache = context.getConfiguration().getDependencyTreeCache();
+        if (cache == null) {
+            return null;
+        }
+        // a single baseline can only describe a repository with one workspace root
+        List<File> roots = NpmWorkspaces.getWorkspaceRoots(context);
+        if (roots.size() != 1) {
+            return null;
+        }
+        String key = createDependencyTreeCacheKey(context, roots.get(0), Collections.emptyList());
+        return key != null ? cache.get(key) : null;
+    }
+
+    /**
+     * Estimates which changes are valid in memory by evaluating them against the baseline dependency tree
+     */
+    protected KindDependenciesCheck predictDependencies(DependencyTree baseline, List<DependencyVersionChange> changes) {
         List<DependencyVersionChange> validChanges = new ArrayList<>();
         List<DependencyVersionChange> invalidChanges = new ArrayList<>();
         Map<String, DependencyCheck> failedChecks = new TreeMap<>();
 
+        Set<String> changedDependencies = changes.stream().map(DependencyVersionChange::getDependency).collect(Collectors.toSet());
+        for (DependencyVersionChange change : changes) {
+            String dependency = change.getDependency();
+            DependencyCheck dependencyCheck = baseline.whatIfCheck(dependency, change.getVersion(), changedDependencies);
+            if (dependencyCheck.isValid()) {
+                validChanges.add(change);
+            } else {
+                invalidChanges.add(change);
+                failedChecks.put(dependency, dependencyCheck);
+            }
+        }
+        return new KindDependenciesCheck(validChanges, invalidChanges, failedChecks);
+    }
+
+    /**
+     * Loads the dependency tree of the workspace root from the cache if the manifest, lock files and changes have
+     * been seen before; otherwise generates the tree and adds it to the cache
+     */
+    protected DependencyTree loadDependencyTree(CommandContext context, File dir, List<DependencyVersionChange> changes) {
+        DependencyTreeCache cache = context.getConfiguration().getDependencyTreeCache();
+        String key = null;
+        if (cache != null) {
+            key = createDependencyTreeCacheKey(context, dir, changes);
+            if (key != null) {
+                DependencyTree answer = cache.get(key);
+                if (answer != null) {
+                    LOG.info("Using cached dependency tree for " + dir);
+                    return answer;
+                }
+            }
+        }
+
         String dependencyFileName = ".dependency-tree.json";
-        generateDependencyTree(context, dependencyFileName);
-        JsonNode json = null;
+        generateDependencyTree(context, dir, dependencyFileName);
+        File file = new File(dir, dependencyFileName);
+        DependencyTree answer = null;
         try {
-            json = getJsonFile(context, dependencyFileName);
+            if (Files.isFile(file)) {
+                answer = DependencyTree.parseTree(file);
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to parse JSON " + file + ". " + e, e);
         } finally {
-            File file = new File(context.getDir(), dependencyFileName);
             if (Files.isFile(file)) {
                 file.delete();
             }
         }
-        if (json != null) {
-            DependencyTree dependencyTree = DependencyTree.parseTree(json);
-            for (DependencyVersionChange change : changes) {
-                DependencyCheck dependencyCheck = dependencyTree.dependencyCheck(change.getDependency());
-                if (dependencyCheck.isValid()) {
-                    validChanges.add(change);
-                } else {
-                    invalidChanges.add(change);
-                    failedChecks.put(change.getDependency(), dependencyCheck);
-                }
+        if (answer == null) {
+            return null;
+        }
+        if (key != null) {
+            cache.put(key, answer);
+
+            // the tree also describes the source as it now is so it can be the baseline of future changes
+            String baselineKey = createDependencyTreeCacheKey(context, dir, Collections.emptyList());
+            if (baselineKey != null && !baselineKey.equals(key)) {
+                cache.put(baselineKey, answer);
             }
         }
-        return new KindDependenciesCheck(validChanges, invalidChanges, failedChecks);
+        return answer;
     }
 
-    protected void generateDependencyTree(CommandContext context, String dependencyFileName) {
-        context.getConfiguration().getNpmDependencyTreeGenerator().generateDependencyTree(context, dependencyFileName);
+    /**
+     * Returns the cache key of the tree or null if it should not be cached
+     */
+    protected String createDependencyTreeCacheKey(CommandContext context, File dir, List<DependencyVersionChange> changes) {
+        if (!DependencyTreeCache.hasLockFile(dir)) {
+            // without a lock file the tree changes whenever new versions within the ranges are published
+            return null;
+        }
+        String generator = context.getConfiguration().getNpmDependencyTreeGenerator().getClass().getName();
+        try {
+            return DependencyTreeCache.createKey(dir, generator, NpmWorkspaces.getWorkspaceMembers(context, dir), changes);
+        } catch (IOException e) {
+            LOG.warn("Failed to create dependency tree cache key for " + dir + ". " + e, e);
+            return null;
+        }
+    }
+
+    protected void generateDependencyTree(CommandContext context, File dir, String dependencyFileName) {
+        context.getConfiguration().getNpmDependencyTreeGenerator().generateDependencyTree(context, dir, dependencyFileName);
 
     }
 
@@ -194,29 +363,171 @@ public class PackageJsonUpdater implements Updater {
         }
     }
 
+    /**
+     * Upgrades the dependencies matching the pull filters to the latest versions in the npm registry
+     */
     @Override
     public boolean pullVersions(CommandContext context) throws IOException {
-        File dir = context.getRepository().getDir();
-        int status = Commands.runCommand(dir, "ncu", "--upgrade");
-        if (status == 0) {
+        NpmDependencies pull = getPullDependencies(context);
+        boolean answer = false;
+        for (File file : NpmWorkspaces.getPackageJsonFiles(context)) {
+            if (pullVersions(context, file, pull)) {
+                answer = true;
+            }
+        }
+        return answer;
+    }
+
+    protected boolean pullVersions(CommandContext context, File file, NpmDependencies pull) throws IOException {
+        NpmRegistry registry = context.getConfiguration().getNpmRegistry();
+        SpanEditor editor = SpanEditor.load(file);
+        Map<String, Map<String, TextSpan>> dependencySpans = JsonSpans.findTextValues(editor.getText(), NpmDependencyKinds.DEPENDENCY_KEYS);
+        for (String dependencyKey : NpmDependencyKinds.DEPENDENCY_KEYS) {
+            Map<String, TextSpan> dependencies = dependencySpans.get(dependencyKey);
+            if (dependencies == null) {
+                continue;
+            }
+            Filter<String> filter = createPullFilter(pull, dependencyKey);
+            for (Map.Entry<String, TextSpan> entry : dependencies.entrySet()) {
+                String name = entry.getKey();
+                if (!filter.matches(name)) {
+                    continue;
+                }
+                String latest = registry.getLatestVersion(name);
+                String oldValue = entry.getValue().getValue();
+                String newValue = latest != null ? upgradeVersionRange(oldValue, latest) : null;
+                if (newValue != null) {
+                    LOG.info("Pulling " + dependencyKey + " " + name + " from " + oldValue + " to " + newValue + " in " + file);
+                    editor.replace(entry.getValue(), JsonSpans.quote(newValue));
+                }
+            }
+        }
+        if (editor.save(file)) {
+            context.updatedFile(file);
             return true;
         }
         return false;
     }
 
+    protected NpmDependencies getPullDependencies(CommandContext context) {
+        GitRepository repo = context.getRepository().getRepo();
+        if (repo != null) {
+            GitHubRepositoryDetails details = repo.getRepositoryDetails();
+            if (details != null && details.getPull() != null) {
+                return details.getPull().getNpm();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the filter of the dependencies to pull; all dependencies are pulled if there is no pull configuration
+     */
+    protected Filter<String> createPullFilter(NpmDependencies pull, String dependencyKey) {
+        if (pull == null) {
+            return Filters.trueFilter();
+        }
+        DependencySet dependencySet;
+        if (NpmDependencyKinds.DEV_DEPENDENCIES.equals(dependencyKey)) {
+            dependencySet = pull.getDevDependencies();
+        } else if (NpmDependencyKinds.PEER_DEPENDENCIES.equals(dependencyKey)) {
+            dependencySet = pull.getPeerDependencies();
+        } else {
+            dependencySet = pull.getDependencies();
+        }
+        return dependencySet != null ? dependencySet.createFilter() : Filters.falseFilter();
+    }
+
+    /**
+     * Returns the new version range which uses the latest version keeping any <code>^</code> or <code>~</code> prefix
+     * or null if the range is not a simple version or is already at least the latest version
+     */
+    protected static String upgradeVersionRange(String range, String latest) {
+        String prefix = "";
+        String version = range.trim();
+        if (version.startsWith("^") || version.startsWith("~")) {
+            prefix = version.substring(0, 1);
+            version = version.substring(1);
+        }
+        SemVer current = SemVer.parse(version);
+        SemVer latestVersion = SemVer.parse(latest);
+        if (current == null || latestVersion == null || current.compareTo(latestVersion) >= 0) {
+            return null;
+        }
+        return prefix + latest;
+    }
+
+    protected boolean pushVersionChange(Map<String, Map<String, TextSpan>> dependencySpans, SpanEditor editor, PushVersionChangesContext context, List<SpanChange> changes) {
+        boolean answer = false;
+        for (String dependencyKey : NpmDependencyKinds.DEPENDENCY_KEYS) {
+            Map<String, TextSpan> dependencies = dependencySpans.get(dependencyKey);
+            if (dependencies != null) {
+                if (doPushVersionChange(dependencyKey, dependencies, editor, context, changes)) {
+                    answer = true;
+                }
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Returns true if every declaration of the dependency which would change is a range which already
+     * includes the new version
+     */
+    protected boolean isSatisfiedByRange(Map<String, Map<String, TextSpan>> dependencySpans, PushVersionChangesContext context) {
+        String name = context.getName();
+        String value = context.getValue();
+        boolean answer = false;
+        for (Map<String, TextSpan> dependencies : dependencySpans.values()) {
+            TextSpan dependency = dependencies.get(name);
+            if (dependency != null && !Objects.equal(dependency.getValue(), value)) {
+                if (VersionChangeType.classify(dependency.getValue(), value) != VersionChangeType.SATISFIED_BY_RANGE) {
+                    return false;
+                }
+                answer = true;
+            }
+        }
+        return answer;
+    }
 
-    protected boolean doPushVersionChange(String dependencyKey, ObjectNode dependencies, PushVersionChangesContext context) {
+    protected boolean doPushVersionChange(String dependencyKey, Map<String, TextSpan> dependencies, SpanEditor editor, PushVersionChangesContext context, List<SpanChange> changes) {
         String name = context.getName();
         String value = context.getValue();
-        JsonNode dependency = dependencies.get(name);
-        if (dependency != null && dependency.isTextual()) {
-            String old = dependency.textValue();
+        TextSpan dependency = dependencies.get(name);
+        if (dependency != null) {
+            String old = dependency.getValue();
             if (!Objects.equal(old, value)) {
-                dependencies.put(name, value);
-                context.updatedVersion(dependencyKey, name, value, old);
+                editor.replace(dependency, JsonSpans.quote(value));
+
+                // later changes in the same batch should see this value
+                dependencies.put(name, new TextSpan(dependency.getStart(), dependency.getEnd(), value));
+                changes.add(new SpanChange(context, dependencyKey, name, value, old));
                 return true;
             }
         }
         return false;
     }
+
+    /**
+     * A change to a dependency version which is only recorded on its context once the file is written
+     */
+    protected static class SpanChange {
+        private final PushVersionChangesContext context;
+        private final String dependencyKey;
+        private final String name;
+        private final String newValue;
+        private final String oldValue;
+
+        public SpanChange(PushVersionChangesContext context, String dependencyKey, String name, String newValue, String oldValue) {
+            this.context = context;
+            this.dependencyKey = dependencyKey;
+            this.name = name;
+            this.newValue = newValue;
+            this.oldValue = oldValue;
+        }
+
+        protected String getSpanKey() {
+            return dependencyKey + "/" + name;
+        }
+    }
 }
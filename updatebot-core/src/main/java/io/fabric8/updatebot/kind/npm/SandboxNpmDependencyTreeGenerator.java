@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm;
+
+import io.fabric8.updatebot.commands.CommandContext;
+import io.fabric8.updatebot.support.Commands;
+import io.fabric8.updatebot.support.FileHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * Generates the npm dependency tree by installing a copy of the repository in a sandbox from the
+ * {@link NpmInstallPool} rather than in the working clone of the repository.
+ * <p>
+ * All the sources apart from <code>.git</code> and <code>node_modules</code> directories are copied so that
+ * <code>file:</code> dependencies, workspaces and install scripts work as they would in place. The
+ * <code>node_modules</code> of the sandbox is kept between installs of the same repository so that unchanged
+ * packages are reused and is removed when the sandbox is used for a different repository.
+ * <p>
+ * Any lock files updated by the install are copied back into the repository so that they are included in the
+ * changes just as if the install had been run in place.
+ */
+public class SandboxNpmDependencyTreeGenerator implements NpmDependencyTreeGenerator {
+    private static final transient Logger LOG = LoggerFactory.getLogger(SandboxNpmDependencyTreeGenerator.class);
+
+    private static final String NODE_MODULES = "node_modules";
+
+    private final NpmInstallPool pool;
+
+    public SandboxNpmDependencyTreeGenerator(NpmInstallPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public String toString() {
+        return "SandboxNpmDependencyTreeGenerator{" +
+                "pool=" + pool +
+                '}';
+    }
+
+    @Override
+    public void generateDependencyTree(CommandContext context, File dir, String dependencyFileName) {
+        File sandbox;
+        try {
+            sandbox = pool.acquire(dir);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted waiting to generate the dependency tree of " + dir);
+            return;
+        }
+        try {
+            LOG.info("Generating dependency tree file " + dependencyFileName + " for " + dir + " in sandbox " + sandbox);
+            // packages installed for another repository could show up in the tree as extraneous or wrong versions
+            boolean sameSource = dir.getAbsoluteFile().equals(pool.getSandboxSource(sandbox));
+            syncSources(dir, sandbox, sameSource);
+            if (!sameSource) {
+                pool.setSandboxSource(sandbox, dir);
+            }
+
+            Commands.runCommandIgnoreOutput(sandbox, "npm", "install", "--cache", pool.getCacheDir().getAbsolutePath(), "--prefer-offline", "--no-audit");
+            copyChangedFiles(sandbox, dir, DependencyTreeCache.LOCK_FILES);
+
+            File outputFile = new File(dir, dependencyFileName);
+            File errorFile = new File(dir, "npm-list-errors.log");
+            if (Commands.runCommand(sandbox, outputFile, errorFile, "npm", "list", "-json") != 0) {
+                LOG.warn("Failed to generate dependencies file " + outputFile);
+            } else {
+                LOG.debug("Generate dependencies file " + outputFile);
+            }
+
+            int linked = pool.getStore().deduplicate(new File(sandbox, NODE_MODULES));
+            LOG.debug("Linked " + linked + " files in " + sandbox + " to the content store");
+        } catch (IOException e) {
+            LOG.warn("Failed to generate the dependency tree of " + dir + " in sandbox " + sandbox + ". " + e, e);
+        } finally {
+            pool.release(sandbox);
+        }
+    }
+
+    public NpmInstallPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Replaces the contents of the sandbox with a copy of the sources, apart from any <code>.git</code> or
+     * <code>node_modules</code> directories, keeping the top level <code>node_modules</code> of the sandbox if
+     * <code>keepNodeModules</code> is true
+     */
+    protected static void syncSources(File fromDir, File toDir, boolean keepNodeModules) throws IOException {
+        File[] children = toDir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (!keepNodeModules || !child.getName().equals(NODE_MODULES)) {
+                    deleteRecursively(child.toPath());
+                }
+            }
+        }
+        Path from = fromDir.toPath();
+        Path to = toDir.toPath();
+        Files.walkFileTree(from, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                String name = dir.getFileName().toString();
+                if (!dir.equals(from) && (name.equals(".git") || name.equals(NODE_MODULES))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories(to.resolve(from.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.copy(file, to.resolve(from.relativize(file)), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    if (e != null) {
+                        throw e;
+                    }
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } else {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Copies the files which exist in the source directory and are different in the destination
+     */
+    protected static void copyChangedFiles(File fromDir, File toDir, String... names) throws IOException {
+        for (String name : names) {
+            File from = new File(fromDir, name);
+            File to = new File(toDir, name);
+            if (FileHelper.isFile(from)) {
+                byte[] data = Files.readAllBytes(from.toPath());
+                if (!FileHelper.isFile(to) || !Arrays.equals(data, Files.readAllBytes(to.toPath()))) {
+                    Files.write(to.toPath(), data);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm.dependency;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact graph of packages and the links between them.
+ * <p>
+ * Package names, versions and dependency kinds are interned into int ids and each link is stored in
+ * primitive arrays rather than as an object. The incoming links of each package and the set of packages with
+ * conflicting versions are built lazily on first use so that lookups do not allocate.
+ */
+public class DependencyGraph {
+    public static final int NONE = -1;
+
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private String[] strings = new String[64];
+    private int stringCount;
+    private int[] nodeOfString = new int[64];
+
+    private int[] nodeNames = new int[64];
+    private int[] nodeVersions = new int[64];
+    private int nodeCount;
+
+    private int[] edgeParents = new int[256];
+    private int[] edgeChildren = new int[256];
+    private int[] edgeVersions = new int[256];
+    private int[] edgeRanges = new int[256];
+    private int[] edgeKinds = new int[256];
+    private int edgeCount;
+
+    private int[] incomingOffsets;
+    private int[] incomingEdges;
+    private BitSet conflicts;
+    private Comparator<String> upperBoundComparator;
+
+    /**
+     * Returns the id of the interned string or {@link #NONE} for null
+     */
+    public int intern(String text) {
+        if (text == null) {
+            return NONE;
+        }
+        Integer id = stringIds.get(text);
+        if (id != null) {
+            return id;
+        }
+        if (stringCount == strings.length) {
+            strings = Arrays.copyOf(strings, stringCount * 2);
+            nodeOfString = Arrays.copyOf(nodeOfString, stringCount * 2);
+        }
+        int answer = stringCount++;
+        strings[answer] = text;
+        nodeOfString[answer] = NONE;
+        stringIds.put(text, answer);
+        return answer;
+    }
+
+    public String getString(int id) {
+        return id == NONE ? null : strings[id];
+    }
+
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    /**
+     * Returns the node for the given package name or {@link #NONE} if there is no such package
+     */
+    public int findNode(String name) {
+        Integer id = stringIds.get(name);
+        return id != null ? nodeOfString[id] : NONE;
+    }
+
+    public int getOrCreateNode(String name) {
+        int nameId = intern(name);
+        int answer = nodeOfString[nameId];
+        if (answer == NONE) {
+            if (nodeCount == nodeNames.length) {
+                nodeNames = Arrays.copyOf(nodeNames, nodeCount * 2);
+                nodeVersions = Arrays.copyOf(nodeVersions, nodeCount * 2);
+            }
+            answer = nodeCount++;
+            nodeNames[answer] = nameId;
+            nodeVersions[answer] = NONE;
+            nodeOfString[nameId] = answer;
+            invalidateViews();
+        }
+        return answer;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public String getNodeName(int node) {
+        return strings[nodeNames[node]];
+    }
+
+    public int getNodeNameId(int node) {
+        return nodeNames[node];
+    }
+
+    public String getNodeVersion(int node) {
+        return getString(nodeVersions[node]);
+    }
+
+    public int getNodeVersionId(int node) {
+        return nodeVersions[node];
+    }
+
+    public void setNodeVersion(int node, String version) {
+        nodeVersions[node] = intern(version);
+        invalidateViews();
+    }
+
+    /**
+     * Adds a link from the parent package to the child package which depends on the given version of the child
+     */
+    public void addEdge(int parent, int child, String version, String dependencyKind) {
+        addEdge(parent, child, version, null, dependencyKind);
+    }
+
+    /**
+     * Adds a link from the parent package to the child package which depends on the given version of the child
+     * which was resolved from the given version range; or null if the range is not known
+     */
+    public void addEdge(int parent, int child, String version, String range, String dependencyKind) {
+        addEdge(parent, child, intern(version), intern(range), intern(dependencyKind));
+    }
+
+    protected void addEdge(int parent, int child, int versionId, int rangeId, int kindId) {
+        if (edgeCount == edgeParents.length) {
+            int size = edgeCount * 2;
+            edgeParents = Arrays.copyOf(edgeParents, size);
+            edgeChildren = Arrays.copyOf(edgeChildren, size);
+            edgeVersions = Arrays.copyOf(edgeVersions, size);
+            edgeRanges = Arrays.copyOf(edgeRanges, size);
+            edgeKinds = Arrays.copyOf(edgeKinds, size);
+        }
+        int edge = edgeCount++;
+        edgeParents[edge] = parent;
+        edgeChildren[edge] = child;
+        edgeVersions[edge] = versionId;
+        edgeRanges[edge] = rangeId;
+        edgeKinds[edge] = kindId;
+        invalidateViews();
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    public int getEdgeParent(int edge) {
+        return edgeParents[edge];
+    }
+
+    public int getEdgeChild(int edge) {
+        return edgeChildren[edge];
+    }
+
+    public int getEdgeVersionId(int edge) {
+        return edgeVersions[edge];
+    }
+
+    /**
+     * Returns the id of the version range the parent requested or {@link #NONE} if it is not known
+     */
+    public int getEdgeRangeId(int edge) {
+        return edgeRanges[edge];
+    }
+
+    public int getEdgeKindId(int edge) {
+        return edgeKinds[edge];
+    }
+
+    /**
+     * Returns the number of links to the given package
+     */
+    public int getIncomingCount(int node) {
+        buildViews();
+        return incomingOffsets[node + 1] - incomingOffsets[node];
+    }
+
+    /**
+     * Returns the link at the given index of the links to the given package in the order they were added
+     */
+    public int getIncomingEdge(int node, int index) {
+        buildViews();
+        return incomingEdges[incomingOffsets[node] + index];
+    }
+
+    /**
+     * Returns true if any package depends on a conflicting version of the given package
+     */
+    public boolean hasConflicts(int node) {
+        buildViews();
+        return conflicts.get(node);
+    }
+
+    /**
+     * Returns true if a link which depends on the given version of the package conflicts with its direct version.
+     * <p>
+     * Any other version conflicts unless an upper bound comparator is set, in which case only newer versions do
+     */
+    public boolean isConflict(int node, int versionId) {
+        int nodeVersionId = nodeVersions[node];
+        if (versionId == nodeVersionId) {
+            return false;
+        }
+        if (upperBoundComparator != null && versionId != NONE && nodeVersionId != NONE) {
+            return upperBoundComparator.compare(strings[versionId], strings[nodeVersionId]) > 0;
+        }
+        return true;
+    }
+
+    public Comparator<String> getUpperBoundComparator() {
+        return upperBoundComparator;
+    }
+
+    /**
+     * Sets the comparator used to only treat links to newer versions than the direct version as conflicts,
+     * such as for maven where depending on an older version transitively is normal
+     */
+    public void setUpperBoundComparator(Comparator<String> upperBoundComparator) {
+        this.upperBoundComparator = upperBoundComparator;
+        invalidateViews();
+    }
+
+    protected void invalidateViews() {
+        incomingOffsets = null;
+        incomingEdges = null;
+        conflicts = null;
+    }
+
+    protected void buildViews() {
+        if (incomingOffsets != null) {
+            return;
+        }
+        int[] offsets = new int[nodeCount + 1];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            offsets[edgeChildren[edge] + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] positions = Arrays.copyOf(offsets, nodeCount);
+        int[] edges = new int[edgeCount];
+        BitSet conflictSet = new BitSet(nodeCount);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            int child = edgeChildren[edge];
+            edges[positions[child]++] = edge;
+            if (isConflict(child, edgeVersions[edge])) {
+                conflictSet.set(child);
+            }
+        }
+        this.incomingEdges = edges;
+        this.conflicts = conflictSet;
+        this.incomingOffsets = offsets;
+    }
+}
@@ -28,38 +28,69 @@ import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
+ * A view of a package in a {@link DependencyGraph}
  */
 public class DependencyInfo {
     private static final transient Logger LOG = LoggerFactory.getLogger(DependencyInfo.class);
 
-    private final String dependency;
-    private String version;
-    private Map<String, List<DependencyLink>> versions = new TreeMap<>();
+    private final DependencyGraph graph;
+    private final int node;
 
     public DependencyInfo(String dependency) {
-        this.dependency = dependency;
+        this.graph = new DependencyGraph();
+        this.node = graph.getOrCreateNode(dependency);
+    }
+
+    DependencyInfo(DependencyGraph graph, int node) {
+        this.graph = graph;
+        this.node = node;
     }
 
     @Override
     public String toString() {
+        String version = getVersion();
+        String dependency = getDependency();
         return Strings.notEmpty(version) ? dependency + "@" + version : dependency;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        DependencyInfo that = (DependencyInfo) o;
+        return node == that.node && graph == that.graph;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(graph) + node;
+    }
+
     public DependencyCheck dependencyCheck() {
-        if (versions.isEmpty()) {
-            return new DependencyCheck(true, "No transient dependencies of " + dependency, this);
+        if (graph.getIncomingCount(node) == 0) {
+            return new DependencyCheck(true, "No transient dependencies of " + getDependency(), this);
         }
-        if (versions.keySet().size() == 1 && versions.containsKey(version)) {
+        String version = getVersion();
+        if (!graph.hasConflicts(node)) {
             return new DependencyCheck(true, "All transitive dependencies using " + version, this);
         }
         return new DependencyCheck(false, "Direct dependency is " + version + " but has conflicts: " + conflictedDependencyText(), this);
     }
 
+    /**
+     * Returns true if any package depends on a conflicting version of this package
+     */
+    public boolean hasConflicts() {
+        return graph.hasConflicts(node);
+    }
+
     private String conflictedDependencyText() {
+        String version = getVersion();
         List<String> messages = new ArrayList<>();
-        for (Map.Entry<String, List<DependencyLink>> entry : versions.entrySet()) {
+        for (Map.Entry<String, List<DependencyLink>> entry : getVersions().entrySet()) {
             String key = entry.getKey();
-            if (!Objects.equal(version, key)) {
+            if (!Objects.equal(version, key) && graph.isConflict(node, graph.intern(key))) {
                 List<DependencyLink> dependencies = entry.getValue();
                 String dependencyNames = dependencies.stream().map(link -> link.getParent().toString()).collect(Collectors.joining(", "));
                 messages.add(dependencyNames + " => " + key);
@@ -69,19 +100,37 @@ public class DependencyInfo {
     }
 
     public String getDependency() {
-        return dependency;
+        return graph.getNodeName(node);
     }
 
+    /**
+     * Returns the links to this package indexed by the version each parent depends on.
+     * <p>
+     * The map is created on each call from the underlying graph
+     */
     public Map<String, List<DependencyLink>> getVersions() {
+        Map<String, List<DependencyLink>> versions = new TreeMap<>();
+        int count = graph.getIncomingCount(node);
+        for (int i = 0; i < count; i++) {
+            int edge = graph.getIncomingEdge(node, i);
+            String version = graph.getString(graph.getEdgeVersionId(edge));
+            List<DependencyLink> dependencyLinks = versions.get(version);
+            if (dependencyLinks == null) {
+                dependencyLinks = new ArrayList<>();
+                versions.put(version, dependencyLinks);
+            }
+            DependencyInfo parent = new DependencyInfo(graph, graph.getEdgeParent(edge));
+            dependencyLinks.add(new DependencyLink(parent, this, version, graph.getString(graph.getEdgeKindId(edge))));
+        }
         return versions;
     }
 
     public String getVersion() {
-        return version;
+        return graph.getNodeVersion(node);
     }
 
     public void setVersion(String version) {
-        this.version = version;
+        graph.setNodeVersion(node, version);
     }
 
     /**
@@ -93,14 +142,18 @@ public class DependencyInfo {
      */
     public void addDependency(DependencyInfo parent, String version, String dependencyKey) {
         if (version == null) {
-            LOG.debug("Dependency " + parent + " does not specify a version for " + this.dependency);
+            LOG.debug("Dependency " + parent + " does not specify a version for " + getDependency());
         } else {
-            List<DependencyLink> dependencyLinks = versions.get(version);
-            if (dependencyLinks == null) {
-                dependencyLinks = new ArrayList<>();
-                versions.put(version, dependencyLinks);
-            }
-            dependencyLinks.add(new DependencyLink(parent, this, version, dependencyKey));
+            int parentNode = parent.graph == graph ? parent.node : graph.getOrCreateNode(parent.getDependency());
+            graph.addEdge(parentNode, node, version, dependencyKey);
         }
     }
+
+    DependencyGraph getGraph() {
+        return graph;
+    }
+
+    int getNode() {
+        return node;
+    }
 }
@@ -15,28 +15,62 @@
  */
 package io.fabric8.updatebot.kind.npm.dependency;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.fabric8.updatebot.jfr.FlightRecorderEvents;
+import io.fabric8.updatebot.kind.npm.semver.SemVerRange;
 import io.fabric8.updatebot.support.JsonNodes;
+import io.fabric8.updatebot.support.MarkupHelper;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import static io.fabric8.updatebot.kind.npm.NpmDependencyKinds.DEPENDENCY_KEYS;
 
 /**
  */
 public class DependencyTree {
-    private Map<String, DependencyInfo> dependencies = new LinkedHashMap<>();
+    private static final int MAGIC = 0x55424454;
+    private static final int FORMAT_VERSION = 3;
+
+    private final DependencyGraph graph = new DependencyGraph();
 
     public static DependencyTree parseTree(JsonNode tree) {
+        Object event = FlightRecorderEvents.startParseDependencyTree();
         DependencyTree dependencyTree = new DependencyTree();
-        dependencyTree.parse(tree, null);
+        dependencyTree.parse(tree, DependencyGraph.NONE);
+        FlightRecorderEvents.commitParseDependencyTree(event, null, dependencyTree.graph.getNodeCount());
         return dependencyTree;
     }
 
-    protected void parse(JsonNode tree, DependencyInfo parent) {
+    /**
+     * Parses the output of <code>npm list -json</code> without loading the whole document into memory
+     *
+     * @return the tree or null if the file is empty
+     */
+    public static DependencyTree parseTree(File file) throws IOException {
+        Object event = FlightRecorderEvents.startParseDependencyTree();
+        DependencyTree answer;
+        try (JsonParser parser = MarkupHelper.createJsonParser(file)) {
+            answer = DependencyTreeParser.parseTree(parser);
+        }
+        FlightRecorderEvents.commitParseDependencyTree(event, file, answer != null ? answer.graph.getNodeCount() : 0);
+        return answer;
+    }
+
+    protected void parse(JsonNode tree, int parent) {
         for (String dependencyKey : DEPENDENCY_KEYS) {
             JsonNode deps = tree.get(dependencyKey);
             if (deps instanceof ObjectNode) {
@@ -46,18 +80,129 @@ public class DependencyTree {
                     String field = iter.next();
                     JsonNode properties = objectNode.get(field);
                     String version = JsonNodes.textValue(properties, "version");
-                    DependencyInfo dependencyInfo = getOrCreateDependencyInfo(field);
-                    if (parent == null) {
-                        dependencyInfo.setVersion(version);
-                    } else {
-                        dependencyInfo.addDependency(parent, version, dependencyKey);
-                    }
-                    parse(properties, dependencyInfo);
+                    String range = getRange(field, JsonNodes.textValue(properties, "from"));
+                    int node = graph.getOrCreateNode(field);
+                    addVersion(parent, node, version, range, dependencyKey);
+                    parse(properties, node);
                 }
             }
         }
     }
 
+    /**
+     * Records the version of a package used by its parent and the range it was resolved from;
+     * or the direct version if there is no parent
+     */
+    void addVersion(int parent, int node, String version, String range, String dependencyKey) {
+        if (parent == DependencyGraph.NONE) {
+            graph.setNodeVersion(node, version);
+        } else if (version != null) {
+            graph.addEdge(parent, node, version, range, dependencyKey);
+        }
+    }
+
+    /**
+     * Returns the version range from the <code>from</code> property of a package such as <code>lodash@^4.0.0</code>
+     * or null if it is not present
+     */
+    static String getRange(String dependency, String from) {
+        if (from == null) {
+            return null;
+        }
+        String prefix = dependency + "@";
+        if (from.startsWith(prefix)) {
+            return from.substring(prefix.length());
+        }
+        int idx = from.lastIndexOf('@');
+        return idx > 0 ? from.substring(idx + 1) : null;
+    }
+
+    /**
+     * Reads a tree previously written via {@link #writeTree(DataOutput)}
+     */
+    public static DependencyTree readTree(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a dependency tree");
+        }
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported dependency tree format version " + formatVersion);
+        }
+        DependencyTree answer = new DependencyTree();
+        DependencyGraph graph = answer.graph;
+        int stringCount = readCount(in, "strings");
+        for (int i = 0; i < stringCount; i++) {
+            if (graph.intern(in.readUTF()) != i) {
+                throw new IOException("Duplicate string " + i + " in dependency tree");
+            }
+        }
+        int nodeCount = readCount(in, "packages");
+        for (int i = 0; i < nodeCount; i++) {
+            int node = graph.getOrCreateNode(graph.getString(readId(in, stringCount, false)));
+            if (node != i) {
+                throw new IOException("Duplicate package " + i + " in dependency tree");
+            }
+            graph.setNodeVersion(node, graph.getString(readId(in, stringCount, true)));
+        }
+        int edgeCount = readCount(in, "links");
+        for (int i = 0; i < edgeCount; i++) {
+            int child = readId(in, nodeCount, false);
+            int parent = readId(in, nodeCount, false);
+            int version = readId(in, stringCount, true);
+            int range = readId(in, stringCount, true);
+            int kind = readId(in, stringCount, true);
+            graph.addEdge(parent, child, version, range, kind);
+        }
+        return answer;
+    }
+
+    private static int readCount(DataInput in, String name) throws IOException {
+        int answer = in.readInt();
+        if (answer < 0) {
+            throw new IOException("Invalid number of " + name + " " + answer + " in dependency tree");
+        }
+        return answer;
+    }
+
+    /**
+     * Reads the index of a string or package validating that it is less than the given count
+     */
+    private static int readId(DataInput in, int count, boolean optional) throws IOException {
+        int answer = in.readInt();
+        if ((answer < 0 || answer >= count) && !(optional && answer == DependencyGraph.NONE)) {
+            throw new IOException("Invalid index " + answer + " in dependency tree of size " + count);
+        }
+        return answer;
+    }
+
+    /**
+     * Writes this tree in a compact binary form of the interned strings, packages and links
+     */
+    public void writeTree(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        int stringCount = graph.getStringCount();
+        out.writeInt(stringCount);
+        for (int i = 0; i < stringCount; i++) {
+            out.writeUTF(graph.getString(i));
+        }
+        int nodeCount = graph.getNodeCount();
+        out.writeInt(nodeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            out.writeInt(graph.getNodeNameId(node));
+            out.writeInt(graph.getNodeVersionId(node));
+        }
+        int edgeCount = graph.getEdgeCount();
+        out.writeInt(edgeCount);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            out.writeInt(graph.getEdgeChild(edge));
+            out.writeInt(graph.getEdgeParent(edge));
+            out.writeInt(graph.getEdgeVersionId(edge));
+            out.writeInt(graph.getEdgeRangeId(edge));
+            out.writeInt(graph.getEdgeKindId(edge));
+        }
+    }
+
     public DependencyCheck dependencyCheck(String dependency) {
         DependencyInfo info = getDependencyInfo(dependency);
         if (info == null) {
@@ -66,17 +211,109 @@ public class DependencyTree {
         return info.dependencyCheck();
     }
 
-    protected DependencyInfo getOrCreateDependencyInfo(String dependency) {
-        DependencyInfo answer = getDependencyInfo(dependency);
-        if (answer == null) {
-            answer = new DependencyInfo(dependency);
-            dependencies.put(dependency, answer);
+    /**
+     * Returns true if the dependency is used with a different version than its direct version.
+     * <p>
+     * This is equivalent to <code>!dependencyCheck(dependency).isValid()</code> but does not allocate
+     */
+    public boolean hasConflicts(String dependency) {
+        int node = graph.findNode(dependency);
+        return node != DependencyGraph.NONE && graph.hasConflicts(node);
+    }
+
+    /**
+     * Predicts what would happen if the direct version of the dependency were changed without modifying this tree.
+     * <p>
+     * A link conflicts if the range its parent requested does not include the new version, so that npm
+     * could not dedupe it; or, when the range is not known, if it resolved to a different version.
+     * Links from any of the changed dependencies are ignored as the new versions of those packages
+     * are not part of this tree. This is only an estimate; the tree generated from the changed source is
+     * needed to know for sure
+     *
+     * @param dependency          the dependency being changed
+     * @param version             the new direct version of the dependency
+     * @param changedDependencies the names of all the dependencies being changed together
+     */
+    public DependencyCheck whatIfCheck(String dependency, String version, Set<String> changedDependencies) {
+        int node = graph.findNode(dependency);
+        if (node == DependencyGraph.NONE) {
+            return new DependencyCheck(true, "Not found!", null);
         }
-        return answer;
+        DependencyInfo info = new DependencyInfo(graph, node);
+        boolean linked = false;
+        Map<String, List<String>> conflicts = null;
+        int count = graph.getIncomingCount(node);
+        for (int i = 0; i < count; i++) {
+            int edge = graph.getIncomingEdge(node, i);
+            int parent = graph.getEdgeParent(edge);
+            if (changedDependencies.contains(graph.getNodeName(parent))) {
+                continue;
+            }
+            linked = true;
+            String edgeVersion = graph.getString(graph.getEdgeVersionId(edge));
+            if (edgeVersion != null && !isSatisfied(version, edgeVersion, graph.getString(graph.getEdgeRangeId(edge)))) {
+                if (conflicts == null) {
+                    conflicts = new TreeMap<>();
+                }
+                conflicts.computeIfAbsent(edgeVersion, v -> new ArrayList<>()).add(new DependencyInfo(graph, parent).toString());
+            }
+        }
+        if (conflicts == null) {
+            if (linked) {
+                return new DependencyCheck(true, "All transitive dependencies would use " + version, info);
+            }
+            return new DependencyCheck(true, "No transient dependencies of " + dependency, info);
+        }
+        List<String> messages = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : conflicts.entrySet()) {
+            messages.add(String.join(", ", entry.getValue()) + " => " + entry.getKey());
+        }
+        return new DependencyCheck(false, "Direct dependency would be " + version + " but has conflicts: " + String.join(", ", messages), info);
+    }
+
+    private static boolean isSatisfied(String version, String edgeVersion, String range) {
+        if (range != null && SemVerRange.parse(range) != null) {
+            return SemVerRange.satisfies(version, range);
+        }
+        return edgeVersion.equals(version);
+    }
 
+    /**
+     * Returns the package with the given name adding it to the tree if it is not present so that trees can be
+     * built from other sources than <code>npm</code>
+     */
+    public DependencyInfo getOrCreateDependencyInfo(String dependency) {
+        return new DependencyInfo(graph, graph.getOrCreateNode(dependency));
+    }
+
+    /**
+     * Returns the names of all the packages in the tree in the order they were found
+     */
+    public Set<String> getDependencyNames() {
+        Set<String> answer = new LinkedHashSet<>();
+        int nodeCount = graph.getNodeCount();
+        for (int node = 0; node < nodeCount; node++) {
+            answer.add(graph.getNodeName(node));
+        }
+        return Collections.unmodifiableSet(answer);
     }
 
     public DependencyInfo getDependencyInfo(String dependency) {
-        return dependencies.get(dependency);
+        int node = graph.findNode(dependency);
+        return node != DependencyGraph.NONE ? new DependencyInfo(graph, node) : null;
+    }
+
+    /**
+     * Only treats links to versions which are newer than the direct version as conflicts, as with maven's
+     * nearest wins resolution where older transitive versions are normal.
+     * <p>
+     * The comparator is not stored by {@link #writeTree(DataOutput)}
+     */
+    public void setUpperBoundComparator(Comparator<String> comparator) {
+        graph.setUpperBoundComparator(comparator);
+    }
+
+    DependencyGraph getGraph() {
+        return graph;
     }
 }
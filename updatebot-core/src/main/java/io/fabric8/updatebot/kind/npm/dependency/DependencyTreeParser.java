@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm.dependency;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import static io.fabric8.updatebot.kind.npm.NpmDependencyKinds.DEPENDENCY_KEYS;
+
+/**
+ * Builds a {@link DependencyTree} from the output of <code>npm list -json</code> in a single streaming pass.
+ * <p>
+ * Rather than recursing, an explicit stack of the currently open objects is used so that deeply nested
+ * trees cannot overflow the stack and only the path to the current package is held in memory.
+ */
+public class DependencyTreeParser {
+    private static final Set<String> DEPENDENCY_KEY_SET = new HashSet<>(Arrays.asList(DEPENDENCY_KEYS));
+
+    private final JsonParser parser;
+    private final DependencyTree tree = new DependencyTree();
+    private final Deque<Frame> stack = new ArrayDeque<>();
+
+    public DependencyTreeParser(JsonParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Parses the tree from the given parser which must be positioned before the root object
+     *
+     * @return the tree or null if the document is empty
+     */
+    public static DependencyTree parseTree(JsonParser parser) throws IOException {
+        return new DependencyTreeParser(parser).parse();
+    }
+
+    public DependencyTree parse() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return tree;
+        }
+        DependencyGraph graph = tree.getGraph();
+        stack.push(new Frame(DependencyGraph.NONE, DependencyGraph.NONE, null, false));
+        while (!stack.isEmpty()) {
+            token = parser.nextToken();
+            if (token == null) {
+                throw new IOException("Unexpected end of dependency tree at " + parser.getCurrentLocation());
+            }
+            Frame frame = stack.peek();
+            if (token == JsonToken.END_OBJECT) {
+                stack.pop();
+                if (!frame.dependencies && frame.node != DependencyGraph.NONE) {
+                    link(frame);
+                }
+                continue;
+            }
+            String field = parser.getCurrentName();
+            token = parser.nextToken();
+            if (frame.dependencies) {
+                Frame child = new Frame(graph.getOrCreateNode(field), frame.node, frame.dependencyKey, false);
+                if (token == JsonToken.START_OBJECT) {
+                    stack.push(child);
+                } else {
+                    parser.skipChildren();
+                    link(child);
+                }
+            } else if (token == JsonToken.START_OBJECT && DEPENDENCY_KEY_SET.contains(field)) {
+                stack.push(new Frame(frame.node, DependencyGraph.NONE, field, true));
+            } else if (frame.node != DependencyGraph.NONE && token == JsonToken.VALUE_STRING && "version".equals(field)) {
+                frame.version = parser.getText();
+            } else if (frame.node != DependencyGraph.NONE && token == JsonToken.VALUE_STRING && "from".equals(field)) {
+                frame.from = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Records the version of a package and the range it was resolved from against its parent;
+     * or as the direct version for top level packages
+     */
+    protected void link(Frame frame) {
+        String range = DependencyTree.getRange(tree.getGraph().getNodeName(frame.node), frame.from);
+        tree.addVersion(frame.parent, frame.node, frame.version, range, frame.dependencyKey);
+    }
+
+    /**
+     * Either a package object or the object of dependencies of a package
+     */
+    private static class Frame {
+        private final int node;
+        private final int parent;
+        private final String dependencyKey;
+        private final boolean dependencies;
+        private String version;
+        private String from;
+
+        Frame(int node, int parent, String dependencyKey, boolean dependencies) {
+            this.node = node;
+            this.parent = parent;
+            this.dependencyKey = dependencyKey;
+            this.dependencies = dependencies;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm.semver;
+
+import java.util.Arrays;
+
+/**
+ * A <a href="https://semver.org/">semantic version</a> as used by npm.
+ * <p>
+ * Build metadata is ignored when comparing versions and pre release versions are older than their release.
+ */
+public final class SemVer implements Comparable<SemVer> {
+    private static final String[] NO_PRE_RELEASE = new String[0];
+
+    private final int major;
+    private final int minor;
+    private final int patch;
+    private final String[] preRelease;
+
+    public SemVer(int major, int minor, int patch, String... preRelease) {
+        this.major = major;
+        this.minor = minor;
+        this.patch = patch;
+        this.preRelease = preRelease != null ? preRelease : NO_PRE_RELEASE;
+    }
+
+    /**
+     * Parses a full version such as <code>1.2.3</code>, <code>v1.2.3</code> or <code>1.2.3-beta.1+build</code>
+     *
+     * @return the version or null if the text is not a valid version
+     */
+    public static SemVer parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        String version = text.trim();
+        int start = 0;
+        if (version.startsWith("v") || version.startsWith("=")) {
+            start = 1;
+        }
+        int length = version.length();
+        int[] numbers = new int[3];
+        int position = start;
+        for (int i = 0; i < 3; i++) {
+            int end = position;
+            long value = 0;
+            while (end < length && Character.isDigit(version.charAt(end))) {
+                value = value * 10 + (version.charAt(end) - '0');
+                if (value > Integer.MAX_VALUE) {
+                    return null;
+                }
+                end++;
+            }
+            if (end == position) {
+                return null;
+            }
+            numbers[i] = (int) value;
+            position = end;
+            if (i < 2) {
+                if (position >= length || version.charAt(position) != '.') {
+                    return null;
+                }
+                position++;
+            }
+        }
+        String[] preRelease = NO_PRE_RELEASE;
+        if (position < length && version.charAt(position) == '-') {
+            int end = version.indexOf('+', position);
+            if (end < 0) {
+                end = length;
+            }
+            String preReleaseText = version.substring(position + 1, end);
+            if (preReleaseText.isEmpty()) {
+                return null;
+            }
+            preRelease = preReleaseText.split("\\.");
+            position = end;
+        }
+        if (position < length && version.charAt(position) != '+') {
+            return null;
+        }
+        return new SemVer(numbers[0], numbers[1], numbers[2], preRelease);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(major).append('.').append(minor).append('.').append(patch);
+        if (preRelease.length > 0) {
+            builder.append('-').append(String.join(".", preRelease));
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SemVer that = (SemVer) o;
+        return major == that.major && minor == that.minor && patch == that.patch && Arrays.equals(preRelease, that.preRelease);
+    }
+
+    @Override
+    public int hashCode() {
+        return ((major * 31 + minor) * 31 + patch) * 31 + Arrays.hashCode(preRelease);
+    }
+
+    @Override
+    public int compareTo(SemVer that) {
+        int answer = compareRelease(that);
+        if (answer != 0) {
+            return answer;
+        }
+        String[] otherPreRelease = that.preRelease;
+        if (preRelease.length == 0 || otherPreRelease.length == 0) {
+            return otherPreRelease.length - preRelease.length;
+        }
+        for (int i = 0, size = Math.min(preRelease.length, otherPreRelease.length); i < size; i++) {
+            answer = compareIdentifiers(preRelease[i], otherPreRelease[i]);
+            if (answer != 0) {
+                return answer;
+            }
+        }
+        return preRelease.length - otherPreRelease.length;
+    }
+
+    /**
+     * Compares the major, minor and patch numbers ignoring any pre release
+     */
+    public int compareRelease(SemVer that) {
+        if (major != that.major) {
+            return major < that.major ? -1 : 1;
+        }
+        if (minor != that.minor) {
+            return minor < that.minor ? -1 : 1;
+        }
+        if (patch != that.patch) {
+            return patch < that.patch ? -1 : 1;
+        }
+        return 0;
+    }
+
+    public int getMajor() {
+        return major;
+    }
+
+    public int getMinor() {
+        return minor;
+    }
+
+    public int getPatch() {
+        return patch;
+    }
+
+    public boolean isPreRelease() {
+        return preRelease.length > 0;
+    }
+
+    private static int compareIdentifiers(String a, String b) {
+        boolean numeric1 = isNumeric(a);
+        boolean numeric2 = isNumeric(b);
+        if (numeric1 && numeric2) {
+            if (a.length() != b.length()) {
+                return a.length() < b.length() ? -1 : 1;
+            }
+            return a.compareTo(b);
+        }
+        if (numeric1 != numeric2) {
+            return numeric1 ? -1 : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    private static boolean isNumeric(String text) {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return !text.isEmpty();
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm.semver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compiled npm version range such as <code>^1.2.3</code>, <code>~1.2</code>, <code>1.x</code>,
+ * <code>&gt;=1.2.3 &lt;2</code>, <code>1.2.3 - 2.0.0</code> or <code>1.2.3 || ^2.0.0</code>.
+ * <p>
+ * Each range is desugared into sets of primitive comparators held in arrays so that matching a version does
+ * not allocate. Ranges are cached by their text as the same ranges appear in most repositories.
+ */
+public final class SemVerRange {
+    private static final int MAX_CACHE_SIZE = 4096;
+    private static final Map<String, SemVerRange> CACHE = new ConcurrentHashMap<>();
+    private static final SemVerRange INVALID = new SemVerRange("", new int[0], new SemVer[0], new int[0]);
+
+    private static final int EQ = 0;
+    private static final int GT = 1;
+    private static final int GTE = 2;
+    private static final int LT = 3;
+    private static final int LTE = 4;
+
+    private final String text;
+    private final int[] operators;
+    private final SemVer[] versions;
+    private final int[] setEnds;
+
+    private SemVerRange(String text, int[] operators, SemVer[] versions, int[] setEnds) {
+        this.text = text;
+        this.operators = operators;
+        this.versions = versions;
+        this.setEnds = setEnds;
+    }
+
+    /**
+     * Returns the compiled range for the given text or null if it is not a valid range
+     * such as a git URL, a file path or a tag like <code>latest</code>
+     */
+    public static SemVerRange parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        SemVerRange answer = CACHE.get(text);
+        if (answer == null) {
+            answer = compile(text);
+            if (answer == null) {
+                answer = INVALID;
+            }
+            if (CACHE.size() >= MAX_CACHE_SIZE) {
+                CACHE.clear();
+            }
+            CACHE.put(text, answer);
+        }
+        return answer == INVALID ? null : answer;
+    }
+
+    /**
+     * Returns true if the given version text is a valid version within the range text
+     */
+    public static boolean satisfies(String version, String range) {
+        SemVer semVer = SemVer.parse(version);
+        SemVerRange semVerRange = parse(range);
+        return semVer != null && semVerRange != null && semVerRange.satisfies(semVer);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * Returns true if the version is within this range.
+     * <p>
+     * As with npm a pre release version only matches if a comparator of the same set refers to a pre release
+     * of the same major, minor and patch version
+     */
+    public boolean satisfies(SemVer version) {
+        int start = 0;
+        for (int end : setEnds) {
+            if (satisfiesSet(version, start, end)) {
+                return true;
+            }
+            start = end;
+        }
+        return false;
+    }
+
+    private boolean satisfiesSet(SemVer version, int start, int end) {
+        for (int i = start; i < end; i++) {
+            int compare = version.compareTo(versions[i]);
+            boolean matches;
+            switch (operators[i]) {
+                case GT:
+                    matches = compare > 0;
+                    break;
+                case GTE:
+                    matches = compare >= 0;
+                    break;
+                case LT:
+                    matches = compare < 0;
+                    break;
+                case LTE:
+                    matches = compare <= 0;
+                    break;
+                default:
+                    matches = compare == 0;
+            }
+            if (!matches) {
+                return false;
+            }
+        }
+        if (version.isPreRelease()) {
+            for (int i = start; i < end; i++) {
+                SemVer comparatorVersion = versions[i];
+                if (comparatorVersion.isPreRelease() && comparatorVersion.compareRelease(version) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    // Compiling
+    //-------------------------------------------------------------------------
+
+    private static SemVerRange compile(String text) {
+        List<Integer> operators = new ArrayList<>();
+        List<SemVer> versions = new ArrayList<>();
+        List<Integer> setEnds = new ArrayList<>();
+        for (String set : text.split("\\|\\|")) {
+            if (!compileSet(set.trim(), operators, versions)) {
+                return null;
+            }
+            setEnds.add(operators.size());
+        }
+        int size = operators.size();
+        int[] operatorArray = new int[size];
+        for (int i = 0; i < size; i++) {
+            operatorArray[i] = operators.get(i);
+        }
+        int[] setEndArray = new int[setEnds.size()];
+        for (int i = 0; i < setEndArray.length; i++) {
+            setEndArray[i] = setEnds.get(i);
+        }
+        return new SemVerRange(text, operatorArray, versions.toArray(new SemVer[size]), setEndArray);
+    }
+
+    private static boolean compileSet(String set, List<Integer> operators, List<SemVer> versions) {
+        List<String> tokens = tokenize(set);
+        if (tokens.size() == 3 && "-".equals(tokens.get(1))) {
+            Partial from = Partial.parse(tokens.get(0));
+            Partial to = Partial.parse(tokens.get(2));
+            if (from == null || to == null) {
+                return false;
+            }
+            if (from.major >= 0) {
+                add(operators, versions, GTE, from.lowest());
+            }
+            addUpperBound(operators, versions, to, true);
+            return true;
+        }
+        if (tokens.isEmpty()) {
+            add(operators, versions, GTE, new SemVer(0, 0, 0));
+            return true;
+        }
+        for (String token : tokens) {
+            if (!compileComparator(token, operators, versions)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean compileComparator(String token, List<Integer> operators, List<SemVer> versions) {
+        int index = 0;
+        while (index < token.length() && "<>=~^".indexOf(token.charAt(index)) >= 0) {
+            index++;
+        }
+        String operator = token.substring(0, index);
+        Partial partial = Partial.parse(token.substring(index));
+        if (partial == null) {
+            return false;
+        }
+        switch (operator) {
+            case "":
+            case "=":
+                if (partial.isExact()) {
+                    add(operators, versions, EQ, partial.lowest());
+                } else {
+                    addLowerBound(operators, versions, partial);
+                    addUpperBound(operators, versions, partial, true);
+                }
+                return true;
+            case "~":
+            case "~>":
+                addLowerBound(operators, versions, partial);
+                if (partial.minor >= 0) {
+                    add(operators, versions, LT, new SemVer(partial.major, partial.minor + 1, 0, "0"));
+                } else {
+                    addUpperBound(operators, versions, partial, true);
+                }
+                return true;
+            case "^":
+                addLowerBound(operators, versions, partial);
+                if (partial.major > 0 || partial.minor < 0) {
+                    addUpperBound(operators, versions, new Partial(partial.major, -1, -1, null), true);
+                } else if (partial.minor > 0 || partial.patch < 0) {
+                    add(operators, versions, LT, new SemVer(0, partial.minor + 1, 0, "0"));
+                } else {
+                    add(operators, versions, LT, new SemVer(0, 0, partial.patch + 1, "0"));
+                }
+                return true;
+            case ">=":
+                addLowerBound(operators, versions, partial);
+                return true;
+            case ">":
+                if (partial.major < 0) {
+                    add(operators, versions, LT, new SemVer(0, 0, 0, "0"));
+                } else if (partial.isExact()) {
+                    add(operators, versions, GT, partial.lowest());
+                } else if (partial.minor < 0) {
+                    add(operators, versions, GTE, new SemVer(partial.major + 1, 0, 0));
+                } else {
+                    add(operators, versions, GTE, new SemVer(partial.major, partial.minor + 1, 0));
+                }
+                return true;
+            case "<":
+                if (partial.major < 0) {
+                    add(operators, versions, LT, new SemVer(0, 0, 0, "0"));
+                } else {
+                    add(operators, versions, LT, partial.isExact() ? partial.lowest() : withLowestPreRelease(partial.lowest()));
+                }
+                return true;
+            case "<=":
+                addUpperBound(operators, versions, partial, true);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void addLowerBound(List<Integer> operators, List<SemVer> versions, Partial partial) {
+        add(operators, versions, GTE, partial.major < 0 ? new SemVer(0, 0, 0) : partial.lowest());
+    }
+
+    /**
+     * Adds the bound below the next version after the partial version or includes the exact version
+     */
+    private static void addUpperBound(List<Integer> operators, List<SemVer> versions, Partial partial, boolean inclusive) {
+        if (partial.major < 0) {
+            return;
+        }
+        if (partial.isExact()) {
+            add(operators, versions, inclusive ? LTE : LT, partial.lowest());
+        } else if (partial.minor < 0) {
+            add(operators, versions, LT, new SemVer(partial.major + 1, 0, 0, "0"));
+        } else {
+            add(operators, versions, LT, new SemVer(partial.major, partial.minor + 1, 0, "0"));
+        }
+    }
+
+    private static SemVer withLowestPreRelease(SemVer version) {
+        return new SemVer(version.getMajor(), version.getMinor(), version.getPatch(), "0");
+    }
+
+    private static void add(List<Integer> operators, List<SemVer> versions, int operator, SemVer version) {
+        operators.add(operator);
+        versions.add(version);
+    }
+
+    /**
+     * Splits the comparators of a set joining any operators separated from their version by whitespace
+     */
+    private static List<String> tokenize(String set) {
+        List<String> answer = new ArrayList<>();
+        String pending = "";
+        for (String token : set.split("\\s+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (!"-".equals(token) && isOperator(token)) {
+                pending += token;
+            } else {
+                answer.add(pending + token);
+                pending = "";
+            }
+        }
+        if (!pending.isEmpty()) {
+            answer.add(pending);
+        }
+        return answer;
+    }
+
+    private static boolean isOperator(String token) {
+        for (int i = 0, length = token.length(); i < length; i++) {
+            if ("<>=~^".indexOf(token.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A version which may have wildcards for its minor or patch numbers such as <code>1.2</code>,
+     * <code>1.x</code> or <code>*</code> where missing numbers are -1
+     */
+    private static class Partial {
+        private final int major;
+        private final int minor;
+        private final int patch;
+        private final String preRelease;
+
+        Partial(int major, int minor, int patch, String preRelease) {
+            this.major = major;
+            this.minor = minor;
+            this.patch = patch;
+            this.preRelease = preRelease;
+        }
+
+        static Partial parse(String text) {
+            String version = text;
+            if (version.startsWith("v") || version.startsWith("=")) {
+                version = version.substring(1);
+            }
+            int plus = version.indexOf('+');
+            if (plus >= 0) {
+                version = version.substring(0, plus);
+            }
+            String preRelease = null;
+            int dash = version.indexOf('-');
+            if (dash >= 0) {
+                preRelease = version.substring(dash + 1);
+                version = version.substring(0, dash);
+                if (preRelease.isEmpty()) {
+                    return null;
+                }
+            }
+            int[] numbers = {-1, -1, -1};
+            if (!version.isEmpty()) {
+                String[] parts = version.split("\\.", -1);
+                if (parts.length > 3) {
+                    return null;
+                }
+                boolean wildcard = false;
+                for (int i = 0; i < parts.length; i++) {
+                    String part = parts[i];
+                    if ("x".equalsIgnoreCase(part) || "*".equals(part)) {
+                        wildcard = true;
+                    } else if (wildcard || !isNumber(part)) {
+                        return null;
+                    } else {
+                        numbers[i] = Integer.parseInt(part);
+                    }
+                }
+            }
+            if (preRelease != null && numbers[2] < 0) {
+                return null;
+            }
+            return new Partial(numbers[0], numbers[1], numbers[2], preRelease);
+        }
+
+        boolean isExact() {
+            return patch >= 0;
+        }
+
+        SemVer lowest() {
+            String[] ids = preRelease != null ? preRelease.split("\\.") : null;
+            return new SemVer(Math.max(major, 0), Math.max(minor, 0), Math.max(patch, 0), ids);
+        }
+
+        private static boolean isNumber(String text) {
+            if (text.isEmpty() || text.length() > 9) {
+                return false;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                if (!Character.isDigit(text.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
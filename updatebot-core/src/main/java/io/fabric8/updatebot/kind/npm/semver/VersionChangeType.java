@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm.semver;
+
+/**
+ * Describes how a new version relates to the version or range declared for a dependency
+ */
+public enum VersionChangeType {
+    /**
+     * The declared range is not an exact version but already includes the new version
+     */
+    SATISFIED_BY_RANGE,
+    /**
+     * The declared range does not include the new version so it needs to be changed
+     */
+    RANGE_BUMP,
+    /**
+     * The declared version is an exact version
+     */
+    EXACT_PIN;
+
+    /**
+     * Returns the type of change of the new version for the declared version range
+     * or null if either is not a valid version or range
+     */
+    public static VersionChangeType classify(String declared, String version) {
+        SemVer newVersion = SemVer.parse(version);
+        if (newVersion == null) {
+            return null;
+        }
+        if (SemVer.parse(declared) != null) {
+            return EXACT_PIN;
+        }
+        SemVerRange range = SemVerRange.parse(declared);
+        if (range == null) {
+            return null;
+        }
+        return range.satisfies(newVersion) ? SATISFIED_BY_RANGE : RANGE_BUMP;
+    }
+}
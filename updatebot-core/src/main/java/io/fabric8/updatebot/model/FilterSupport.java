@@ -15,7 +15,8 @@
  */
 package io.fabric8.updatebot.model;
 
-import io.fabric8.updatebot.support.FilterHelpers;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.fabric8.updatebot.support.WildcardFilter;
 import io.fabric8.utils.Filter;
 import io.fabric8.utils.Filters;
 
@@ -27,6 +28,8 @@ import java.util.List;
 public class FilterSupport extends DtoSupport {
     private List<String> includes = new ArrayList<>();
     private List<String> excludes = new ArrayList<>();
+    @JsonIgnore
+    private CompiledFilter compiledFilter;
 
     public void include(String... values) {
         addValues(this.includes, values);
@@ -53,21 +56,17 @@ public class FilterSupport extends DtoSupport {
     }
 
     /**
-     * Returns a filter for the names
+     * Returns a filter for the names.
+     * <p>
+     * The filter is compiled once and reused until the includes or excludes change
      */
     public Filter<String> createFilter() {
-        Filter<String> includeFilter = Filters.createStringFilters(includes);
-        if (excludes.isEmpty()) {
-            if (includes.isEmpty()) {
-                return Filters.falseFilter();
-            }
-            return includeFilter;
-        }
-        Filter<String> excludeFilter = Filters.createStringFilters(excludes);
-        if (includes.isEmpty()) {
-            return excludeFilter;
+        CompiledFilter compiled = this.compiledFilter;
+        if (compiled == null || !compiled.isFor(includes, excludes)) {
+            compiled = new CompiledFilter(includes, excludes);
+            this.compiledFilter = compiled;
         }
-        return FilterHelpers.and(includeFilter, Filters.not(excludeFilter));
+        return compiled.filter;
     }
 
     protected void addValues(List<String> list, String[] values) {
@@ -77,4 +76,30 @@ public class FilterSupport extends DtoSupport {
             }
         }
     }
+
+    private static class CompiledFilter {
+        private final List<String> includes;
+        private final List<String> excludes;
+        private final Filter<String> filter;
+
+        CompiledFilter(List<String> includes, List<String> excludes) {
+            this.includes = new ArrayList<>(includes);
+            this.excludes = new ArrayList<>(excludes);
+            if (excludes.isEmpty()) {
+                if (includes.isEmpty()) {
+                    this.filter = Filters.falseFilter();
+                } else {
+                    this.filter = WildcardFilter.create(includes, null);
+                }
+            } else if (includes.isEmpty()) {
+                this.filter = WildcardFilter.create(excludes, null);
+            } else {
+                this.filter = WildcardFilter.create(includes, excludes);
+            }
+        }
+
+        boolean isFor(List<String> includes, List<String> excludes) {
+            return this.includes.equals(includes) && this.excludes.equals(excludes);
+        }
+    }
 }
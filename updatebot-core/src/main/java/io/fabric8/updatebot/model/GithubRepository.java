@@ -15,18 +15,29 @@
  */
 package io.fabric8.updatebot.model;
 
+import io.fabric8.updatebot.support.GitHelper;
 import io.fabric8.updatebot.support.Strings;
 import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GitHub;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.URL;
 
 /**
  */
 public class GithubRepository extends GitRepository {
-    private final GHRepository repository;
+    private static final transient Logger LOG = LoggerFactory.getLogger(GithubRepository.class);
+
+    private final GitHub github;
+    private final String fullName;
+    private GHRepository repository;
 
     public GithubRepository(GHRepository repository) {
+        this.github = null;
         this.repository = repository;
+        this.fullName = repository.getFullName();
         URL htmlUrl = repository.getHtmlUrl();
         if (htmlUrl != null) {
             setHtmlUrl(htmlUrl.toString());
@@ -40,6 +51,17 @@ public class GithubRepository extends GitRepository {
         setRepositoryDetails(details);
     }
 
+    /**
+     * Creates a repository from previously loaded details which only loads the GitHub repository when it is used
+     */
+    public GithubRepository(GitHub github, String fullName, String name, String cloneUrl, String htmlUrl) {
+        this.github = github;
+        this.fullName = fullName;
+        setName(name);
+        setCloneUrl(cloneUrl);
+        setHtmlUrl(htmlUrl);
+    }
+
     @Override
     public String toString() {
         return "GithubRepository{" +
@@ -48,14 +70,23 @@ public class GithubRepository extends GitRepository {
                 '}';
     }
 
-    public GHRepository getRepository() {
+    /**
+     * Returns the GitHub repository loading it if required or null if it could not be loaded
+     */
+    public synchronized GHRepository getRepository() {
+        if (repository == null && github != null) {
+            try {
+                repository = github.getRepository(fullName);
+            } catch (IOException e) {
+                LOG.warn("Failed to load GitHub repository " + fullName + ". " + e, e);
+            }
+        }
         return repository;
     }
 
     @Override
     public String getFullName() {
-        return repository.getFullName();
-
+        return fullName;
     }
 
     @Override
@@ -63,11 +94,20 @@ public class GithubRepository extends GitRepository {
         if (super.hasCloneUrl(url)) {
             return true;
         }
+        GHRepository loaded;
+        synchronized (this) {
+            loaded = this.repository;
+        }
+        if (loaded == null) {
+            int idx = fullName.indexOf('/');
+            return idx > 0 && (Strings.equalAnyValue(url, getHtmlUrl()) ||
+                    Strings.equalAnyValue(url, GitHelper.getGitHubCloneUrls("github.com", fullName.substring(0, idx), fullName.substring(idx + 1))));
+        }
         return Strings.equalAnyValue(url,
-                repository.getGitTransportUrl(),
-                repository.gitHttpTransportUrl(),
-                repository.getSshUrl(),
-                repository.getUrl(),
-                repository.getSvnUrl());
+                loaded.getGitTransportUrl(),
+                loaded.gitHttpTransportUrl(),
+                loaded.getSshUrl(),
+                loaded.getUrl(),
+                loaded.getSvnUrl());
     }
 }
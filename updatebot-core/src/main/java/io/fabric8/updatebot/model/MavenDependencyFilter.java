@@ -15,12 +15,14 @@
  */
 package io.fabric8.updatebot.model;
 
-import io.fabric8.updatebot.support.FilterHelpers;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.fabric8.updatebot.support.Strings;
+import io.fabric8.updatebot.support.WildcardFilter;
 import io.fabric8.utils.Filter;
 import io.fabric8.utils.Filters;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -30,26 +32,17 @@ public class MavenDependencyFilter {
     private String groupExclude;
     private String artifactInclude;
     private String artifactExclude;
+    @JsonIgnore
+    private Filter<MavenDependency> filter;
+    @JsonIgnore
+    private String filterKey;
 
     protected static Filter<String> createStringFilter(String include, String exclude) {
-        Filter<String> includeFilter = null;
-        Filter<String> excludeFilter = null;
-        if (Strings.notEmpty(include)) {
-            includeFilter = Filters.createStringFilter(include);
-        }
-        if (Strings.notEmpty(exclude)) {
-            excludeFilter = Filters.not(Filters.createStringFilter(exclude));
-        }
-        if (includeFilter == null && excludeFilter == null) {
+        if (Strings.empty(include) && Strings.empty(exclude)) {
             return Filters.trueFilter();
         }
-        if (includeFilter == null) {
-            return excludeFilter;
-        }
-        if (excludeFilter == null) {
-            return includeFilter;
-        }
-        return FilterHelpers.and(includeFilter, excludeFilter);
+        return WildcardFilter.create(Strings.notEmpty(include) ? Collections.singletonList(include) : null,
+                Strings.notEmpty(exclude) ? Collections.singletonList(exclude) : null);
     }
 
     public static Filter<MavenDependency> createFilter(List<MavenDependencyFilter> dependencies) {
@@ -97,7 +90,19 @@ public class MavenDependencyFilter {
         this.artifactExclude = artifactExclude;
     }
 
+    /**
+     * Returns the filter of the dependencies which is compiled once and reused until the patterns change
+     */
     public Filter<MavenDependency> createFilter() {
+        String key = groupInclude + "|" + groupExclude + "|" + artifactInclude + "|" + artifactExclude;
+        if (filter == null || !key.equals(filterKey)) {
+            filter = doCreateFilter();
+            filterKey = key;
+        }
+        return filter;
+    }
+
+    protected Filter<MavenDependency> doCreateFilter() {
         final Filter<String> groupFilter = createStringFilter(groupInclude, groupExclude);
         final Filter<String> artifactFilter = createStringFilter(artifactInclude, artifactExclude);
 
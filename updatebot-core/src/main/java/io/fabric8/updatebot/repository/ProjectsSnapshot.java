@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.repository;
+
+import io.fabric8.updatebot.model.GitHubProjects;
+import io.fabric8.updatebot.model.GithubOrganisation;
+import io.fabric8.updatebot.model.Projects;
+import io.fabric8.updatebot.support.MarkupHelper;
+import io.fabric8.updatebot.support.MetadataCache;
+import io.fabric8.utils.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable snapshot of the UpdateBot project configuration which is compiled once each time the configuration
+ * changes.
+ * <p>
+ * The filters of the organisations are compiled when the snapshot is created and reused by the shared
+ * {@link Projects}. Snapshots are cached per configuration file so loading the configuration again, such as for
+ * each command parsed from a pull request comment or in long running mode, only checks the modification time and
+ * size of the file. If either changed the file is only bound again if its content hash changed too.
+ * <p>
+ * The {@link Projects} of a snapshot are shared so must not be modified.
+ */
+public class ProjectsSnapshot {
+    private static final transient Logger LOG = LoggerFactory.getLogger(ProjectsSnapshot.class);
+    private static final Map<String, ProjectsSnapshot> SNAPSHOTS = new ConcurrentHashMap<>();
+
+    private final String source;
+    private final byte[] digest;
+    private final long lastModified;
+    private final long length;
+    private final Projects projects;
+
+    protected ProjectsSnapshot(String source, byte[] digest, long lastModified, long length, Projects projects) {
+        this.source = source;
+        this.digest = digest;
+        this.lastModified = lastModified;
+        this.length = length;
+        this.projects = projects;
+
+        // compile the filters once as the shared projects reuse them until they are reloaded
+        GitHubProjects github = projects.getGithub();
+        if (github != null && github.getOrganisations() != null) {
+            for (GithubOrganisation organisation : github.getOrganisations()) {
+                organisation.createFilter();
+            }
+        }
+    }
+
+    private ProjectsSnapshot(ProjectsSnapshot snapshot, long lastModified, long length) {
+        this.source = snapshot.source;
+        this.digest = snapshot.digest;
+        this.lastModified = lastModified;
+        this.length = length;
+        this.projects = snapshot.projects;
+    }
+
+    /**
+     * Returns the snapshot of the project configuration from the given configFile (File or URL) and source directory
+     * reusing the previous snapshot if the configuration has not changed
+     */
+    public static ProjectsSnapshot load(String configFile, File sourceDir) throws IOException {
+        return load(configFile, sourceDir, null);
+    }
+
+    /**
+     * Returns the snapshot of the project configuration from the given configFile (File or URL) and source directory
+     * reusing the previous snapshot if the configuration has not changed
+     *
+     * @param cache the cache used to load a configuration URL or null to read the URL directly
+     */
+    public static ProjectsSnapshot load(String configFile, File sourceDir, MetadataCache cache) throws IOException {
+        File file = new File(configFile);
+        if (Files.isDirectory(sourceDir) && !file.isAbsolute()) {
+            file = new File(sourceDir, configFile);
+        }
+        if (!Files.isFile(file)) {
+            URL url;
+            try {
+                url = new URL(configFile);
+            } catch (MalformedURLException e) {
+                throw new FileNotFoundException(file.getCanonicalPath());
+            }
+            byte[] data;
+            try {
+                if (cache != null) {
+                    data = cache.get(url.toString());
+                } else {
+                    try (InputStream in = url.openStream()) {
+                        data = Files.readBytes(in);
+                    }
+                }
+            } catch (IOException e) {
+                throw new IOException("Failed to open URL " + configFile + ". " + e, e);
+            }
+            return update(configFile, data, 0, data.length);
+        }
+        String source = file.getCanonicalPath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        ProjectsSnapshot current = SNAPSHOTS.get(source);
+        if (current != null && current.lastModified == lastModified && current.length == length) {
+            return current;
+        }
+        return update(source, Files.readBytes(file), lastModified, length);
+    }
+
+    protected static ProjectsSnapshot update(String source, byte[] data, long lastModified, long length) throws IOException {
+        byte[] digest = digest(data);
+        ProjectsSnapshot current = SNAPSHOTS.get(source);
+        ProjectsSnapshot answer;
+        if (current != null && Arrays.equals(current.digest, digest)) {
+            answer = new ProjectsSnapshot(current, lastModified, length);
+        } else {
+            if (current != null) {
+                LOG.info("Reloading UpdateBot configuration " + source);
+            }
+            answer = new ProjectsSnapshot(source, digest, lastModified, length, MarkupHelper.loadYaml(data, Projects.class));
+        }
+        SNAPSHOTS.put(source, answer);
+        return answer;
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectsSnapshot{" +
+                "source='" + source + '\'' +
+                '}';
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Projects getProjects() {
+        return projects;
+    }
+
+    private static byte[] digest(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No SHA-256 support: " + e, e);
+        }
+    }
+}
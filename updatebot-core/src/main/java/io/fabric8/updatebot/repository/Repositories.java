@@ -17,39 +17,28 @@ package io.fabric8.updatebot.repository;
 
 import io.fabric8.updatebot.Configuration;
 import io.fabric8.updatebot.commands.CommandSupport;
-import io.fabric8.updatebot.github.GitHubHelpers;
+import io.fabric8.updatebot.github.OrganisationRepositories;
+import io.fabric8.updatebot.logging.LogContext;
 import io.fabric8.updatebot.model.GitHubProjects;
-import io.fabric8.updatebot.model.GitHubRepositoryDetails;
 import io.fabric8.updatebot.model.GitRepository;
 import io.fabric8.updatebot.model.GithubOrganisation;
-import io.fabric8.updatebot.model.GithubRepository;
 import io.fabric8.updatebot.model.Projects;
 import io.fabric8.updatebot.support.Commands;
 import io.fabric8.updatebot.support.FileHelper;
+import io.fabric8.updatebot.support.GitHelper;
 import io.fabric8.updatebot.support.Strings;
-import io.fabric8.utils.Files;
-import io.fabric8.utils.Filter;
 import io.fabric8.utils.Objects;
-import org.kohsuke.github.GHPerson;
-import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GitHub;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
-
-import static io.fabric8.updatebot.support.MarkupHelper.loadYaml;
+import java.util.concurrent.TimeUnit;
 
 /**
  */
@@ -60,7 +49,14 @@ public class Repositories {
     public static List<LocalRepository> cloneOrPullRepositories(CommandSupport command, Configuration configuration, Projects projects) throws IOException {
         List<LocalRepository> repositories = findRepositories(command, configuration, projects);
         for (LocalRepository repository : repositories) {
-            cloneOrPull(configuration, repository);
+            LogContext.put(LogContext.REPOSITORY, repository.getFullName());
+            LogContext.put(LogContext.STAGE, "clone");
+            try {
+                cloneOrPull(configuration, repository);
+            } finally {
+                LogContext.remove(LogContext.REPOSITORY);
+                LogContext.remove(LogContext.STAGE);
+            }
         }
         return repositories;
     }
@@ -69,12 +65,10 @@ public class Repositories {
         File dir = repository.getDir();
         File gitDir = new File(dir, ".git");
         if (gitDir.exists()) {
-            if (Commands.runCommandIgnoreOutput(dir, "git", "stash") == 0) {
-                if (Commands.runCommandIgnoreOutput(dir, "git", "checkout", "master") == 0) {
-                    if (!configuration.isPullDisabled()) {
-                        LOG.debug("Pulling: " + dir + " repo: " + repository.getCloneUrl());
-                        Commands.runCommandIgnoreOutput(dir, "git", "pull");
-                    }
+            if (GitHelper.gitCheckoutMaster(dir)) {
+                if (!configuration.isPullDisabled()) {
+                    LOG.debug("Pulling: " + dir + " repo: " + repository.getCloneUrl());
+                    Commands.runCommandIgnoreOutput(dir, "git", "pull");
                 }
             }
         } else {
@@ -87,14 +81,7 @@ public class Repositories {
     }
 
     protected static List<LocalRepository> findRepositories(CommandSupport updateBot, Configuration configuration, Projects projects) throws IOException {
-        String workDirPath = configuration.getWorkDir();
-        File workDir = new File(workDirPath);
-        if (!workDir.isAbsolute()) {
-            File sourceDir = configuration.getSourceDir();
-            if (io.fabric8.utils.Files.isDirectory(sourceDir)) {
-                workDir = new File(sourceDir, workDirPath);
-            }
-        }
+        File workDir = configuration.getWorkDirectory();
         workDir.mkdirs();
 
         Map<String, LocalRepository> map = new LinkedHashMap<>();
@@ -106,8 +93,14 @@ public class Repositories {
             List<GithubOrganisation> organisations = githubProjects.getOrganisations();
             if (organisations != null && !organisations.isEmpty()) {
                 GitHub github = configuration.getGithub();
-                for (GithubOrganisation organisation : organisations) {
-                    addGitHubRepositories(map, github, organisation, new File(gitHubDir, organisation.getName()));
+                File catalogDir = configuration.isCatalog() ? workDir : null;
+                long fullSyncInterval = TimeUnit.HOURS.toMillis(configuration.getCatalogFullSyncHours());
+                OrganisationRepositories finder = new OrganisationRepositories(github, configuration.getGithubConcurrency(), catalogDir, fullSyncInterval);
+                for (Map.Entry<GithubOrganisation, List<GitRepository>> entry : finder.findRepositories(organisations).entrySet()) {
+                    File dir = new File(gitHubDir, entry.getKey().getName());
+                    for (GitRepository gitRepository : entry.getValue()) {
+                        addRepository(map, dir, gitRepository);
+                    }
                 }
             }
         }
@@ -125,49 +118,6 @@ public class Repositories {
         map.putIfAbsent(localRepository.getCloneUrl(), localRepository);
     }
 
-    protected static void addGitHubRepositories(Map<String, LocalRepository> map, GitHub github, GithubOrganisation organisation, File file) {
-        String orgName = organisation.getName();
-        Filter<String> filter = organisation.createFilter();
-
-        GHPerson person = GitHubHelpers.getOrganisationOrUser(github, orgName);
-        if (person != null) {
-            try {
-                Set<String> foundNames = new TreeSet<>();
-                List<GitHubRepositoryDetails> namedRepositories = organisation.getRepositories();
-                if (namedRepositories != null) {
-                    for (GitHubRepositoryDetails namedRepository : namedRepositories) {
-                        String name = namedRepository.getName();
-                        if (Strings.notEmpty(name) && foundNames.add(name)) {
-                            GHRepository ghRepository = null;
-                            try {
-                                ghRepository = person.getRepository(name);
-                            } catch (IOException e) {
-                                LOG.warn("Github repository " + orgName + "/" + name + " not found: " + e);
-                                continue;
-                            }
-                            if (ghRepository != null) {
-                                GitRepository gitRepository = new GithubRepository(ghRepository, namedRepository);
-                                addRepository(map, file, gitRepository);
-                            } else {
-                                LOG.warn("Github repository " + orgName + "/" + name + " not found!");
-                            }
-                        }
-                    }
-                }
-                Map<String, GHRepository> repositories = person.getRepositories();
-                for (Map.Entry<String, GHRepository> entry : repositories.entrySet()) {
-                    String repoName = entry.getKey();
-                    if (filter.matches(repoName) && foundNames.add(repoName)) {
-                        GitRepository gitRepository = new GithubRepository(entry.getValue());
-                        addRepository(map, file, gitRepository);
-                    }
-                }
-            } catch (IOException e) {
-                LOG.warn("Failed to load organisation: " + orgName + ". " + e, e);
-            }
-        }
-    }
-
     /**
      * Returns the repository for the given name or null if it could not be found
      */
@@ -217,31 +167,20 @@ public class Repositories {
     }
 
     /**
-     * Returns the UpdateBot project configurations from the given configFile (File or URL) and source directory
+     * Returns the UpdateBot project configurations from the given configFile (File or URL) and source directory.
+     * <p>
+     * The configuration is only parsed again if it has changed since it was last loaded so the result is shared
+     * and must not be modified
      */
     public static Projects loadProjects(String configFile, File sourceDir) throws IOException {
-        File file = new File(configFile);
-        if (Files.isDirectory(sourceDir) && !file.isAbsolute()) {
-            file = new File(sourceDir, configFile);
-        }
-        if (!Files.isFile(file)) {
-            URL url = null;
-            try {
-                url = new URL(configFile);
-                InputStream in = null;
-                try {
-                    in = url.openStream();
-                } catch (IOException e) {
-                    throw new IOException("Failed to open URL " + configFile + ". " + e, e);
-                }
-                if (in != null) {
-                    return loadYaml(in, Projects.class);
-                }
-            } catch (MalformedURLException e) {
-                // ignore
-            }
-            throw new FileNotFoundException(file.getCanonicalPath());
-        }
-        return loadYaml(file, Projects.class);
+        return ProjectsSnapshot.load(configFile, sourceDir).getProjects();
+    }
+
+    /**
+     * Returns the UpdateBot project configurations of the given configuration using its cache to load a remote
+     * configuration URL
+     */
+    public static Projects loadProjects(Configuration configuration) throws IOException {
+        return ProjectsSnapshot.load(configuration.getConfigFile(), configuration.getSourceDir(), configuration.getConfigCache()).getProjects();
     }
 }
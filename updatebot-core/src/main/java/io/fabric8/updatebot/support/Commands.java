@@ -15,16 +15,58 @@
  */
 package io.fabric8.updatebot.support;
 
+import io.fabric8.updatebot.jfr.FlightRecorderEvents;
+import io.fabric8.updatebot.logging.LogContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
+ * Runs commands as child processes.
+ * <p>
+ * Unless the output is redirected to files the output and error streams are always read so that a chatty command
+ * cannot block on a full pipe; the last {@link #OUTPUT_TAIL_LINES} lines are kept in the {@link ProcessResult}.
+ * Commands which run for longer than the timeout are killed along with their child processes and the number
+ * of commands of each tool, such as <code>git</code> or <code>npm</code>, which run at once can be limited.
+ * The processes started in each directory are counted so that the cost of each repository can be reported.
  */
 public class Commands {
+    public static final int OUTPUT_TAIL_LINES = 100;
+    public static final long DEFAULT_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+
     private static final transient Logger LOG = LoggerFactory.getLogger(Commands.class);
+    private static final long DRAIN_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "updatebot-process-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<String, Semaphore> TOOL_LIMITS = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicInteger> SPAWN_COUNTS = new ConcurrentHashMap<>();
+    private static volatile long timeout = DEFAULT_TIMEOUT;
 
     public static int runCommand(File dir, String... commands) {
         return runCommand(dir, true, commands);
@@ -34,13 +76,11 @@ public class Commands {
         return runCommand(dir, false, commands);
     }
 
-    public static int runCommand(File dir, boolean inheritIO, String... commands) {
-        ProcessBuilder builder = new ProcessBuilder(commands);
-        builder.directory(dir);
-        if (inheritIO) {
-            builder.inheritIO();
-        }
-        return doRunCommand(builder, commands);
+    /**
+     * Runs the command logging its output at info level if <code>logOutput</code> is true otherwise at debug level
+     */
+    public static int runCommand(File dir, boolean logOutput, String... commands) {
+        return execute(dir, logOutput, commands).getExitCode();
     }
 
     public static int runCommand(File dir, File outputFile, File errorFile, String... commands) {
@@ -48,24 +88,274 @@ public class Commands {
         builder.directory(dir);
         builder.redirectOutput(outputFile);
         builder.redirectError(errorFile);
-        return doRunCommand(builder, commands);
+        return execute(builder, false, timeout).getExitCode();
     }
 
-    protected static int doRunCommand(ProcessBuilder builder, String[] commands) {
+    /**
+     * Runs the command returning its exit code, duration and the tail of its output
+     */
+    public static ProcessResult execute(File dir, boolean logOutput, String... commands) {
+        ProcessBuilder builder = new ProcessBuilder(commands);
+        builder.directory(dir);
+        return execute(builder, logOutput, timeout);
+    }
+
+    /**
+     * Runs the command waiting for it to complete or killing it after the given number of milliseconds
+     */
+    public static ProcessResult execute(ProcessBuilder builder, boolean logOutput, long timeoutMillis) {
+        List<String> commands = builder.command();
         String line = String.join(" ", commands);
+        File dir = builder.directory();
+        long start = System.currentTimeMillis();
+        String tool = commands.isEmpty() ? "" : getToolName(commands.get(0));
+        Semaphore semaphore = TOOL_LIMITS.get(tool);
+        try {
+            if (semaphore != null) {
+                long waitStart = System.nanoTime();
+                semaphore.acquire();
+                Metrics.timer("updatebot_command_wait_seconds", "The time commands waited for the concurrency limit of their tool", "tool", tool).observeSince(waitStart);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ProcessResult(line, dir, ProcessResult.FAILED_TO_START, System.currentTimeMillis() - start, false, Collections.emptyList());
+        }
+        long runStart = System.nanoTime();
+        ProcessResult answer;
         try {
-            Process process = builder.start();
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                LOG.warn("Failed to run command " + line + " in " + builder.directory() + " : exit " + exitCode);
+            answer = doRunCommand(builder, line, logOutput, timeoutMillis, start);
+        } finally {
+            if (semaphore != null) {
+                semaphore.release();
+            }
+        }
+        String status = answer.isSuccess() ? "ok" : answer.isTimedOut() ? "timeout" : "failed";
+        Metrics.timer("updatebot_command_duration_seconds", "The time taken to run commands such as git clone or npm install",
+                "tool", tool, "command", getSubCommand(commands), "status", status).observeSince(runStart);
+        return answer;
+    }
+
+    /**
+     * Limits how many commands of the given tool can run at once or removes the limit if the concurrency is zero
+     */
+    public static void setConcurrency(String tool, int concurrency) {
+        if (concurrency > 0) {
+            TOOL_LIMITS.put(tool, new Semaphore(concurrency, true));
+            Metrics.gauge("updatebot_command_queue_depth", "The number of commands waiting for the concurrency limit of their tool", () -> {
+                Semaphore semaphore = TOOL_LIMITS.get(tool);
+                return semaphore != null ? semaphore.getQueueLength() : 0;
+            }, "tool", tool);
+        } else {
+            TOOL_LIMITS.remove(tool);
+        }
+    }
+
+    public static long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the number of milliseconds commands can run before they are killed
+     */
+    public static void setTimeout(long timeout) {
+        Commands.timeout = timeout;
+    }
+
+    /**
+     * Returns the number of processes which have been started in the given directory
+     */
+    public static int getSpawnCount(File dir) {
+        AtomicInteger counter = SPAWN_COUNTS.get(getSpawnKey(dir));
+        return counter != null ? counter.get() : 0;
+    }
+
+    /**
+     * Returns a copy of the number of processes started in each directory which can be passed to
+     * {@link #getSpawnCount(File, Map)} to count the processes started since
+     */
+    public static Map<String, Integer> getSpawnCounts() {
+        Map<String, Integer> answer = new HashMap<>();
+        SPAWN_COUNTS.forEach((key, counter) -> answer.put(key, counter.get()));
+        return answer;
+    }
+
+    /**
+     * Returns the number of processes which have been started in the given directory since the counts were
+     * returned by {@link #getSpawnCounts()}
+     */
+    public static int getSpawnCount(File dir, Map<String, Integer> since) {
+        Integer previous = since.get(getSpawnKey(dir));
+        return getSpawnCount(dir) - (previous != null ? previous : 0);
+    }
+
+    /**
+     * Returns the directory the process is counted against; a <code>git clone</code> into a directory is counted
+     * against the directory it clones into rather than its parent
+     */
+    protected static File getSpawnDir(File dir, List<String> commands) {
+        if (commands.size() > 3 && "git".equals(commands.get(0)) && "clone".equals(getSubCommand(commands))) {
+            String target = commands.get(commands.size() - 1);
+            if (!target.startsWith("-") && !target.contains(":")) {
+                File file = new File(target);
+                return file.isAbsolute() || dir == null ? file : new File(dir, target);
+            }
+        }
+        return dir;
+    }
+
+    private static String getSpawnKey(File dir) {
+        return dir != null ? dir.getAbsoluteFile().toPath().normalize().toString() : "";
+    }
+
+    /**
+     * Returns the sub command such as <code>clone</code> in <code>git clone</code> or an empty string if the
+     * command has no sub command
+     */
+    protected static String getSubCommand(List<String> commands) {
+        if (commands.size() > 1) {
+            String answer = commands.get(1);
+            if (answer.matches("[a-z][a-z-]*")) {
+                return answer;
+            }
+        }
+        return "";
+    }
+
+    protected static String getToolName(String command) {
+        String answer = new File(command).getName();
+        int idx = answer.lastIndexOf('.');
+        if (idx > 0) {
+            answer = answer.substring(0, idx);
+        }
+        return answer;
+    }
+
+    protected static ProcessResult doRunCommand(ProcessBuilder builder, String line, boolean logOutput, long timeoutMillis, long start) {
+        File dir = builder.directory();
+        Object event = FlightRecorderEvents.startCommand();
+        boolean captureOutput = builder.redirectOutput() == ProcessBuilder.Redirect.PIPE;
+        if (captureOutput) {
+            builder.redirectErrorStream(true);
+        }
+        if (logOutput && builder.redirectInput() == ProcessBuilder.Redirect.PIPE) {
+            builder.redirectInput(ProcessBuilder.Redirect.INHERIT);
+        }
+        OutputTail tail = new OutputTail(OUTPUT_TAIL_LINES);
+        int exitCode = ProcessResult.FAILED_TO_START;
+        boolean timedOut = false;
+        Process process = null;
+        try {
+            process = builder.start();
+            SPAWN_COUNTS.computeIfAbsent(getSpawnKey(getSpawnDir(dir, builder.command())), key -> new AtomicInteger()).incrementAndGet();
+            if (builder.redirectInput() == ProcessBuilder.Redirect.PIPE) {
+                process.getOutputStream().close();
+            }
+            Future<?> drain = null;
+            if (captureOutput) {
+                Process drained = process;
+                drain = EXECUTOR.submit(LogContext.wrap(() -> drainOutput(drained, tail, logOutput)));
+            }
+            if (process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                exitCode = process.exitValue();
+            } else {
+                timedOut = true;
+                LOG.warn("Killing command " + line + " in " + dir + " as it did not complete within " + timeoutMillis + " millis");
+                destroyProcessTree(process);
+                if (process.waitFor(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    exitCode = process.exitValue();
+                }
+            }
+            if (drain != null) {
+                try {
+                    drain.get(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    LOG.debug("Gave up reading the output of command " + line + " as another process still has it open");
+                    drain.cancel(true);
+                } catch (Exception e) {
+                    LOG.debug("Failed to read the output of command " + line + ". " + e, e);
+                }
             }
-            return exitCode;
         } catch (IOException e) {
-            LOG.warn("Failed to run command " + line + " in " + builder.directory() + " : error " + e);
+            LOG.warn("Failed to run command " + line + " in " + dir + " : error " + e);
         } catch (InterruptedException e) {
-            // ignore
+            Thread.currentThread().interrupt();
+            if (process != null) {
+                destroyProcessTree(process);
+            }
+        }
+        FlightRecorderEvents.commitCommand(event, dir, line, exitCode, timedOut);
+        ProcessResult answer = new ProcessResult(line, dir, exitCode, System.currentTimeMillis() - start, timedOut, tail.getLines());
+        if (!answer.isSuccess() && process != null) {
+            String message = "Failed to run command " + line + " in " + dir + " : exit " + exitCode;
+            if (!logOutput && !answer.getOutputTail().isEmpty()) {
+                message += "\n" + answer.getOutputTailText();
+            }
+            LOG.warn(message);
+        }
+        return answer;
+    }
+
+    private static void drainOutput(Process process, OutputTail tail, boolean logOutput) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            while (true) {
+                String text = reader.readLine();
+                if (text == null) {
+                    break;
+                }
+                tail.add(text);
+                if (logOutput) {
+                    LOG.info(text);
+                } else {
+                    LOG.debug(text);
+                }
+            }
+        } catch (IOException e) {
+            // the process was killed
+        }
+    }
+
+    /**
+     * Kills the process and, on Java 9 or later, all of its descendants
+     */
+    protected static void destroyProcessTree(Process process) {
+        try {
+            Method toHandle = Process.class.getMethod("toHandle");
+            Class<?> handleClass = Class.forName("java.lang.ProcessHandle");
+            Method descendants = handleClass.getMethod("descendants");
+            Method destroyForcibly = handleClass.getMethod("destroyForcibly");
+            try (Stream<?> stream = (Stream<?>) descendants.invoke(toHandle.invoke(process))) {
+                for (Object handle : stream.toArray()) {
+                    destroyForcibly.invoke(handle);
+                }
+            }
+        } catch (NoSuchMethodException | ClassNotFoundException e) {
+            // Java 8 can only kill the process itself
+        } catch (Exception e) {
+            LOG.debug("Failed to kill the child processes of " + process + ". " + e, e);
         }
-        return 1;
+        process.destroyForcibly();
     }
 
+    /**
+     * Keeps the last lines of output
+     */
+    private static class OutputTail {
+        private final int maxLines;
+        private final Deque<String> lines = new ArrayDeque<>();
+
+        OutputTail(int maxLines) {
+            this.maxLines = maxLines;
+        }
+
+        synchronized void add(String line) {
+            if (lines.size() == maxLines) {
+                lines.removeFirst();
+            }
+            lines.addLast(line);
+        }
+
+        synchronized List<String> getLines() {
+            return new ArrayList<>(lines);
+        }
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A content addressable store of files keyed by the SHA-256 of their contents.
+ * <p>
+ * Directories such as <code>node_modules</code> can be deduplicated against the store so that identical files
+ * in different directories become hard links to a single copy on disk. Files are only linked after something like
+ * <code>npm install</code> has written them, so deduplication saves disk space rather than the I/O of unpacking
+ * them; later runs only save that I/O when the tool leaves files which are already in place untouched. Files which
+ * are already hard links are skipped so that deduplicating the same directory again is cheap. Stored files are made read only so that writing
+ * to one of the links fails rather than changing the content of every other link. If hard links or link counts are
+ * not supported, such as when the store is on a different file system, deduplication is disabled.
+ */
+public class ContentStore {
+    private static final transient Logger LOG = LoggerFactory.getLogger(ContentStore.class);
+
+    private final File dir;
+    private volatile boolean linksSupported = true;
+
+    public ContentStore(File dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public String toString() {
+        return "ContentStore{" +
+                "dir=" + dir +
+                '}';
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    public boolean isLinksSupported() {
+        return linksSupported;
+    }
+
+    /**
+     * Replaces the files in the given directory with hard links to the same content in the store,
+     * adding any new content to the store
+     *
+     * @return the number of files which were replaced by links to existing content
+     */
+    public int deduplicate(File directory) throws IOException {
+        if (!linksSupported || !FileHelper.isDirectory(directory)) {
+            return 0;
+        }
+        int[] linked = {0};
+        Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (!attributes.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                int linkCount = getLinkCount(file);
+                if (linkCount < 0) {
+                    LOG.warn("Disabling the content store " + dir + " as link counts are not supported");
+                    linksSupported = false;
+                }
+                if (!linksSupported) {
+                    return FileVisitResult.TERMINATE;
+                }
+                if (linkCount > 1) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (addOrLink(file, attributes.size())) {
+                    linked[0]++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return linked[0];
+    }
+
+    /**
+     * Returns true if the file was replaced by a link to existing content
+     */
+    protected boolean addOrLink(Path file, long size) throws IOException {
+        String hash = hash(file);
+        Path stored = dir.toPath().resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+        try {
+            if (!Files.exists(stored)) {
+                Files.createDirectories(stored.getParent());
+                try {
+                    Files.createLink(stored, file);
+                    stored.toFile().setWritable(false, false);
+                    return false;
+                } catch (FileAlreadyExistsException e) {
+                    // added concurrently so lets link to it
+                }
+            }
+            if (Files.size(stored) != size) {
+                LOG.warn("Ignoring corrupt content store entry " + stored);
+                return false;
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".link");
+            Files.deleteIfExists(tmp);
+            Files.createLink(tmp, stored);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (UnsupportedOperationException | IOException e) {
+            LOG.warn("Disabling the content store " + dir + " as hard links are not supported: " + e);
+            linksSupported = false;
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of hard links to the file or -1 if they cannot be counted
+     */
+    private static int getLinkCount(Path file) {
+        try {
+            Object value = Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+            if (value instanceof Number) {
+                return ((Number) value).intValue();
+            }
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            // not a unix file system
+        }
+        return -1;
+    }
+
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No SHA-256 support: " + e, e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        StringBuilder builder = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+            builder.append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+}
@@ -20,6 +20,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,24 +31,87 @@ public class GitHelper {
     private static final transient Logger LOG = LoggerFactory.getLogger(GitHelper.class);
 
     public static boolean gitAddAndCommit(File dir, String commitComment) {
-        if (Commands.runCommandIgnoreOutput(dir, "git", "add", "*") == 0) {
-            if (Commands.runCommand(dir, "git", "commit", "-m", commitComment) == 0) {
-                return true;
-            }
+        return gitAdd(dir) && gitCommit(dir, commitComment);
+    }
+
+    public static boolean gitAdd(File dir) {
+        return Commands.runCommandIgnoreOutput(dir, "git", "add", "*") == 0;
+    }
+
+    public static boolean gitCommit(File dir, String commitComment) {
+        return Commands.runCommand(dir, "git", "commit", "-m", commitComment) == 0;
+    }
+
+    /**
+     * Returns true if the staged tree is the same as the tree of the given commit; returns false if the commit is
+     * not available locally
+     */
+    public static boolean gitIsIndexUnchanged(File dir, String commitSha) {
+        if (Strings.empty(commitSha)) {
+            return false;
         }
-        return false;
+        ProcessResult result = Commands.execute(dir, false, "git", "diff", "--cached", "--name-only", commitSha);
+        return result.isSuccess() && result.getOutputTail().isEmpty();
     }
 
-    public static boolean gitStashAndCheckoutMaster(File dir) {
-        if (Commands.runCommandIgnoreOutput(dir, "git", "stash") == 0) {
-            if (Commands.runCommandIgnoreOutput(dir, "git", "checkout", "master") == 0) {
-                return true;
-            }
+    /**
+     * Checks out master discarding any local changes in a single git process
+     */
+    public static boolean gitCheckoutMaster(File dir) {
+        if (Commands.runCommandIgnoreOutput(dir, "git", "checkout", "-f", "master") == 0) {
+            return true;
         }
         LOG.warn("Failed to checkout master in " + dir);
         return false;
     }
 
+    /**
+     * Creates the branch from the current commit keeping any local changes, replacing any existing local branch
+     * of the same name
+     */
+    public static boolean gitCheckoutNewBranch(File dir, String branch) {
+        return Commands.runCommandIgnoreOutput(dir, "git", "checkout", "-B", branch) == 0;
+    }
+
+    /**
+     * Sets the URL of the remote unless it already has that URL
+     */
+    public static boolean gitSetRemoteUrl(File dir, String remote, String url) {
+        if (url.equals(getRemoteUrl(dir, remote))) {
+            return true;
+        }
+        return Commands.runCommandIgnoreOutput(dir, "git", "remote", "set-url", remote, url) == 0;
+    }
+
+    /**
+     * Returns the URL of the remote from the <code>.git/config</code> file without running git or null if it
+     * could not be found
+     */
+    public static String getRemoteUrl(File dir, String remote) {
+        File configFile = new File(dir, ".git" + File.separator + "config");
+        if (!FileHelper.isFile(configFile)) {
+            return null;
+        }
+        String section = "[remote \"" + remote + "\"]";
+        boolean inSection = false;
+        try {
+            for (String line : Files.readAllLines(configFile.toPath(), StandardCharsets.UTF_8)) {
+                String text = line.trim();
+                if (text.startsWith("[")) {
+                    inSection = text.equals(section);
+                } else if (inSection) {
+                    int idx = text.indexOf('=');
+                    if (idx > 0 && text.substring(0, idx).trim().equals("url")) {
+                        return text.substring(idx + 1).trim();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOG.debug("Failed to read " + configFile + ". " + e, e);
+        }
+        return null;
+    }
+
     public static void revertChanges(File dir) throws IOException {
         if (Commands.runCommandIgnoreOutput(dir, "git", "stash") != 0) {
             throw new IOException("Failed to stash old changes!");
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The patterns of a <code>.gitignore</code> file which are relative to the directory containing the file.
+ * <p>
+ * Supports the common syntax: blank lines and <code>#</code> comments, <code>!</code> negation, a leading
+ * or inner <code>/</code> to anchor a pattern to the directory, a trailing <code>/</code> to only match
+ * directories and the <code>*</code>, <code>?</code> and <code>**</code> wildcards.
+ */
+public class GitIgnore {
+    private final List<Rule> rules;
+
+    protected GitIgnore(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Loads the <code>.gitignore</code> in the given directory or returns null if there is none
+     */
+    public static GitIgnore load(File dir) throws IOException {
+        File file = new File(dir, ".gitignore");
+        if (!FileHelper.isFile(file)) {
+            return null;
+        }
+        return parse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    public static GitIgnore parse(String text) {
+        List<Rule> rules = new ArrayList<>();
+        for (String line : text.split("\r?\n")) {
+            Rule rule = Rule.parse(line);
+            if (rule != null) {
+                rules.add(rule);
+            }
+        }
+        return new GitIgnore(rules);
+    }
+
+    /**
+     * Returns {@link Boolean#TRUE} if the path is ignored, {@link Boolean#FALSE} if it is explicitly included
+     * by a negated pattern or null if no pattern matches
+     *
+     * @param relativePath the path relative to the directory of the <code>.gitignore</code> using <code>/</code>
+     * @param directory    whether the path is a directory
+     */
+    public Boolean isIgnored(String relativePath, boolean directory) {
+        String name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        Boolean answer = null;
+        for (Rule rule : rules) {
+            if (rule.matches(relativePath, name, directory)) {
+                answer = !rule.negated;
+            }
+        }
+        return answer;
+    }
+
+    protected static class Rule {
+        private final Pattern pattern;
+        private final boolean negated;
+        private final boolean directoryOnly;
+        private final boolean anchored;
+
+        protected Rule(Pattern pattern, boolean negated, boolean directoryOnly, boolean anchored) {
+            this.pattern = pattern;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+            this.anchored = anchored;
+        }
+
+        protected static Rule parse(String line) {
+            String text = line.trim();
+            if (text.isEmpty() || text.startsWith("#")) {
+                return null;
+            }
+            boolean negated = text.startsWith("!");
+            if (negated) {
+                text = text.substring(1);
+            }
+            boolean directoryOnly = text.endsWith("/");
+            if (directoryOnly) {
+                text = text.substring(0, text.length() - 1);
+            }
+            boolean anchored = text.contains("/");
+            if (text.startsWith("/")) {
+                text = text.substring(1);
+            }
+            if (text.isEmpty()) {
+                return null;
+            }
+            return new Rule(Pattern.compile(toRegex(text)), negated, directoryOnly, anchored);
+        }
+
+        protected boolean matches(String relativePath, String name, boolean directory) {
+            if (directoryOnly && !directory) {
+                return false;
+            }
+            return pattern.matcher(anchored ? relativePath : name).matches();
+        }
+
+        protected static String toRegex(String glob) {
+            StringBuilder builder = new StringBuilder();
+            int length = glob.length();
+            for (int i = 0; i < length; i++) {
+                char ch = glob.charAt(i);
+                if (ch == '*') {
+                    if (i + 1 < length && glob.charAt(i + 1) == '*') {
+                        i++;
+                        if (i + 1 < length && glob.charAt(i + 1) == '/') {
+                            i++;
+                            builder.append("(?:.*/)?");
+                        } else {
+                            builder.append(".*");
+                        }
+                    } else {
+                        builder.append("[^/]*");
+                    }
+                } else if (ch == '?') {
+                    builder.append("[^/]");
+                } else if ("\\.[]{}()+-^$|".indexOf(ch) >= 0) {
+                    builder.append('\\').append(ch);
+                } else {
+                    builder.append(ch);
+                }
+            }
+            return builder.toString();
+        }
+    }
+}
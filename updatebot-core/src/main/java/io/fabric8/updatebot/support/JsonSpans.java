@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locates the spans of string values in JSON text so that they can be replaced via a {@link SpanEditor}
+ * without parsing and writing the whole document.
+ */
+public class JsonSpans {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Returns the spans of the string properties of each of the given top level objects in a single pass
+     * of the JSON. The span of each value includes its quotes.
+     *
+     * @param json        the JSON text
+     * @param objectNames the names of the top level object properties to find
+     * @return a map of each object name found to a map of property names to the spans of their string values
+     */
+    public static Map<String, Map<String, TextSpan>> findTextValues(String json, String... objectNames) throws IOException {
+        List<String> names = Arrays.asList(objectNames);
+        Map<String, Map<String, TextSpan>> answer = new LinkedHashMap<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return answer;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String objectName = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT && names.contains(objectName)) {
+                    answer.put(objectName, findTextValues(parser, json));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Returns the JSON string literal for the given value including its quotes
+     */
+    public static String quote(String value) {
+        return "\"" + new String(JsonStringEncoder.getInstance().quoteAsString(value)) + "\"";
+    }
+
+    private static Map<String, TextSpan> findTextValues(JsonParser parser, String json) throws IOException {
+        Map<String, TextSpan> answer = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_STRING) {
+                int start = (int) parser.getTokenLocation().getCharOffset();
+                answer.put(name, new TextSpan(start, findEndOfString(json, start), parser.getText()));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Returns the index after the closing quote of the string literal starting at the given index
+     */
+    protected static int findEndOfString(String json, int start) throws IOException {
+        if (start < 0 || start >= json.length() || json.charAt(start) != '"') {
+            throw new IOException("No string literal at offset " + start);
+        }
+        for (int i = start + 1, length = json.length(); i < length; i++) {
+            char ch = json.charAt(i);
+            if (ch == '\\') {
+                i++;
+            } else if (ch == '"') {
+                return i + 1;
+            }
+        }
+        throw new IOException("Unterminated string literal at offset " + start);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Finds all the manifest files, such as <code>package.json</code>, of a repository in a single walk of its
+ * directory tree.
+ * <p>
+ * Files and directories ignored by the <code>.gitignore</code> files of the repository are skipped along with
+ * the <code>.git</code> and <code>node_modules</code> directories.
+ */
+public class ManifestScanner {
+    public static final List<String> MANIFEST_FILE_NAMES = Collections.unmodifiableList(Arrays.asList("package.json", "pom.xml"));
+    public static final Set<String> EXCLUDED_DIRECTORIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(".git", "node_modules")));
+
+    private static final transient Logger LOG = LoggerFactory.getLogger(ManifestScanner.class);
+
+    /**
+     * Returns the files with the given names in the directory tree indexed by file name. The files of each name
+     * are ordered by depth then path so that the manifest in the root directory comes first
+     */
+    public static Map<String, List<File>> scan(File dir, Collection<String> fileNames) {
+        Map<String, List<File>> answer = new TreeMap<>();
+        for (String fileName : fileNames) {
+            answer.put(fileName, new ArrayList<>());
+        }
+        if (!FileHelper.isDirectory(dir)) {
+            return answer;
+        }
+        Path root = dir.toPath();
+        Deque<IgnoreScope> scopes = new ArrayDeque<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes) throws IOException {
+                    if (!path.equals(root)) {
+                        if (EXCLUDED_DIRECTORIES.contains(path.getFileName().toString()) || isIgnored(scopes, path, true)) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                    }
+                    GitIgnore gitIgnore = GitIgnore.load(path.toFile());
+                    if (gitIgnore != null) {
+                        scopes.push(new IgnoreScope(path, gitIgnore));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) throws IOException {
+                    List<File> files = answer.get(path.getFileName().toString());
+                    if (files != null && attributes.isRegularFile() && !isIgnored(scopes, path, false)) {
+                        files.add(path.toFile());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path path, IOException e) throws IOException {
+                    if (!scopes.isEmpty() && scopes.peek().dir.equals(path)) {
+                        scopes.pop();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.warn("Failed to scan " + dir + " for manifests. " + e, e);
+        }
+        for (List<File> files : answer.values()) {
+            files.sort((f1, f2) -> compareDepthThenPath(root, f1.toPath(), f2.toPath()));
+        }
+        return answer;
+    }
+
+    /**
+     * Uses the innermost <code>.gitignore</code> with a matching pattern like git does
+     */
+    protected static boolean isIgnored(Deque<IgnoreScope> scopes, Path path, boolean directory) {
+        for (IgnoreScope scope : scopes) {
+            String relativePath = scope.dir.relativize(path).toString().replace(File.separatorChar, '/');
+            Boolean ignored = scope.gitIgnore.isIgnored(relativePath, directory);
+            if (ignored != null) {
+                return ignored;
+            }
+        }
+        return false;
+    }
+
+    private static int compareDepthThenPath(Path root, Path p1, Path p2) {
+        Path r1 = root.relativize(p1);
+        Path r2 = root.relativize(p2);
+        int answer = Integer.compare(r1.getNameCount(), r2.getNameCount());
+        return answer != 0 ? answer : r1.toString().compareTo(r2.toString());
+    }
+
+    private static class IgnoreScope {
+        private final Path dir;
+        private final GitIgnore gitIgnore;
+
+        IgnoreScope(Path dir, GitIgnore gitIgnore) {
+            this.dir = dir;
+            this.gitIgnore = gitIgnore;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package io.fabric8.updatebot.support;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -32,10 +33,14 @@ import java.io.Writer;
 import java.net.URL;
 
 /**
+ * Helper methods for reading and writing JSON and YAML.
+ * <p>
+ * The object mappers are created once and shared as they are thread safe and expensive to create.
  */
 public class MarkupHelper {
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-
+    private static final ObjectMapper YAML_OBJECT_MAPPER = createYamlObjectMapper();
+    private static final ObjectMapper PRETTY_JSON_OBJECT_MAPPER = createPrettyJsonObjectMapper();
 
     public static ObjectMapper createYamlObjectMapper() {
         ObjectMapper objectMapper = new ObjectMapper(new YAMLFactory());
@@ -57,8 +62,7 @@ public class MarkupHelper {
             return "null";
         }
         Class<?> clazz = dto.getClass();
-        ObjectMapper objectMapper = createPrettyJsonObjectMapper();
-        return objectMapper.writerFor(clazz).writeValueAsString(dto);
+        return PRETTY_JSON_OBJECT_MAPPER.writerFor(clazz).writeValueAsString(dto);
     }
 
     protected static ObjectMapper createPrettyJsonObjectMapper() {
@@ -71,16 +75,14 @@ public class MarkupHelper {
      * Loads the YAML for the given DTO class
      */
     public static <T> T loadYaml(File file, Class<T> clazz) throws IOException {
-        ObjectMapper mapper = createYamlObjectMapper();
-        return mapper.readValue(file, clazz);
+        return YAML_OBJECT_MAPPER.readValue(file, clazz);
     }
 
     /**
      * Loads the YAML for the given DTO class
      */
     public static <T> T loadYaml(URL src, Class<T> clazz) throws IOException {
-        ObjectMapper mapper = createYamlObjectMapper();
-        return mapper.readValue(src, clazz);
+        return YAML_OBJECT_MAPPER.readValue(src, clazz);
     }
 
     /**
@@ -105,38 +107,60 @@ public class MarkupHelper {
      * Loads the YAML file for the given DTO class
      */
     public static <T> T loadYaml(byte[] data, Class<T> clazz) throws IOException {
-        ObjectMapper mapper = createYamlObjectMapper();
-        return mapper.readValue(data, clazz);
+        return YAML_OBJECT_MAPPER.readValue(data, clazz);
     }
 
     public static void saveYaml(Object data, File file) throws IOException {
-        ObjectMapper mapper = createYamlObjectMapper();
-        mapper.writeValue(file, data);
+        YAML_OBJECT_MAPPER.writeValue(file, data);
     }
 
     public static void saveYaml(Object data, FileObject fileObject) throws IOException {
-        ObjectMapper mapper = createYamlObjectMapper();
         try (Writer writer = fileObject.openWriter()) {
-            mapper.writeValue(writer, data);
+            YAML_OBJECT_MAPPER.writeValue(writer, data);
         }
     }
 
     public static String toYaml(Object data) throws IOException {
-        ObjectMapper mapper = createYamlObjectMapper();
-        return mapper.writeValueAsString(data);
+        return YAML_OBJECT_MAPPER.writeValueAsString(data);
     }
 
     public static JsonNode loadJson(File file) throws IOException {
         return OBJECT_MAPPER.readTree(file);
     }
 
+    /**
+     * Loads the JSON file for the given DTO class
+     */
+    public static <T> T loadJson(File file, Class<T> clazz) throws IOException {
+        return OBJECT_MAPPER.readValue(file, clazz);
+    }
+
+    /**
+     * Writes the DTO as compact JSON to the given file
+     */
+    public static void saveJson(File file, Object value) throws IOException {
+        OBJECT_MAPPER.writeValue(file, value);
+    }
+
+    /**
+     * Creates a streaming parser for the given JSON file which the caller must close
+     */
+    public static JsonParser createJsonParser(File file) throws IOException {
+        return OBJECT_MAPPER.getFactory().createParser(file);
+    }
+
+    /**
+     * Creates a streaming parser for the given JSON text which the caller must close
+     */
+    public static JsonParser createJsonParser(String json) throws IOException {
+        return OBJECT_MAPPER.getFactory().createParser(json);
+    }
+
     public static void savePrettyJson(File file, Object value) throws IOException {
         // lets use the node layout
         NpmJsonPrettyPrinter printer = new NpmJsonPrettyPrinter();
 
-        ObjectMapper objectMapper = createPrettyJsonObjectMapper();
-        objectMapper.setDefaultPrettyPrinter(printer);
-        String json = objectMapper.writer().writeValueAsString(value);
+        String json = PRETTY_JSON_OBJECT_MAPPER.writer(printer).writeValueAsString(value);
 
         IOHelpers.writeFully(file, json + System.lineSeparator());
     }
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An on disk cache of remote metadata such as npm registry documents or maven metadata which can be shared
+ * across all of the repositories being processed.
+ * <p>
+ * Entries younger than the time to live are used without any request. Older entries are revalidated with a
+ * conditional request using the <code>ETag</code> and <code>Last-Modified</code> headers of the cached response so
+ * that unchanged documents are not downloaded again. The least recently used entries are evicted when the cache
+ * grows beyond its maximum size. A maximum size of zero disables caching.
+ * <p>
+ * <code>file:</code> URLs are read directly which makes it easy to use a local directory as a stand in for a
+ * remote repository in tests.
+ */
+public class MetadataCache {
+    private static final transient Logger LOG = LoggerFactory.getLogger(MetadataCache.class);
+    private static final String BODY_EXTENSION = ".body";
+    private static final String HEADERS_EXTENSION = ".headers";
+    private static final String URL = "url";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String FETCHED = "fetched";
+
+    private final File dir;
+    private final long maxSize;
+    private final long timeToLive;
+    private int connectTimeout = 30000;
+    private int readTimeout = 60000;
+    private String accept;
+    private volatile long lastFetchDuration = -1;
+
+    /**
+     * @param dir        the directory to store the entries
+     * @param maxSize    the maximum size in bytes of the cache or 0 to disable caching
+     * @param timeToLive the number of milliseconds an entry can be used before it is revalidated
+     */
+    public MetadataCache(File dir, long maxSize, long timeToLive) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public String toString() {
+        return "MetadataCache{" +
+                "dir=" + dir +
+                ", maxSize=" + maxSize +
+                ", timeToLive=" + timeToLive +
+                '}';
+    }
+
+    /**
+     * Returns the content of the given URL using the cached copy if it is still valid
+     *
+     * @throws FileNotFoundException if the URL does not exist
+     * @throws IOException           if the URL could not be read and there is no cached copy
+     */
+    public byte[] get(String url) throws IOException {
+        if (url.startsWith("file:")) {
+            return readFully(new URL(url).openStream());
+        }
+        if (maxSize <= 0) {
+            return timedFetch(url, null).body;
+        }
+        String key = createKey(url);
+        File bodyFile = new File(dir, key + BODY_EXTENSION);
+        File headersFile = new File(dir, key + HEADERS_EXTENSION);
+        Properties headers = loadHeaders(headersFile, url);
+        if (headers != null && !FileHelper.isFile(bodyFile)) {
+            headers = null;
+        }
+        long now = System.currentTimeMillis();
+        if (headers != null) {
+            long fetched = Long.parseLong(headers.getProperty(FETCHED, "0"));
+            if (now - fetched < timeToLive) {
+                byte[] answer = Files.readAllBytes(bodyFile.toPath());
+                touch(now, bodyFile, headersFile);
+                return answer;
+            }
+        }
+        Response response;
+        try {
+            response = timedFetch(url, headers);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            if (headers == null) {
+                throw e;
+            }
+            LOG.warn("Failed to revalidate " + url + " so using the stale cached copy. " + e);
+            return Files.readAllBytes(bodyFile.toPath());
+        }
+        Properties newHeaders = new Properties();
+        newHeaders.setProperty(URL, url);
+        newHeaders.setProperty(FETCHED, Long.toString(now));
+        if (response.body == null) {
+            LOG.debug("Not modified " + url);
+            copyHeader(headers, newHeaders, ETAG);
+            copyHeader(headers, newHeaders, LAST_MODIFIED);
+            saveHeaders(headersFile, newHeaders);
+            byte[] answer = Files.readAllBytes(bodyFile.toPath());
+            touch(now, bodyFile, headersFile);
+            return answer;
+        }
+        if (response.etag != null) {
+            newHeaders.setProperty(ETAG, response.etag);
+        }
+        if (response.lastModified != null) {
+            newHeaders.setProperty(LAST_MODIFIED, response.lastModified);
+        }
+        dir.mkdirs();
+        writeAtomically(bodyFile, response.body);
+        saveHeaders(headersFile, newHeaders);
+        evict();
+        return response.body;
+    }
+
+    /**
+     * Returns the content of the given URL as UTF-8 text
+     */
+    public String getText(String url) throws IOException {
+        return new String(get(url), StandardCharsets.UTF_8);
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public String getAccept() {
+        return accept;
+    }
+
+    /**
+     * Sets the <code>Accept</code> header to use such as to request abbreviated documents
+     */
+    public void setAccept(String accept) {
+        this.accept = accept;
+    }
+
+    /**
+     * Returns the number of milliseconds taken by the last request to the origin, including failed requests,
+     * or -1 if no request has been made
+     */
+    public long getLastFetchDuration() {
+        return lastFetchDuration;
+    }
+
+    protected Response timedFetch(String url, Properties headers) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return fetch(url, headers);
+        } finally {
+            lastFetchDuration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            LOG.debug("Fetched " + url + " in " + lastFetchDuration + " ms");
+        }
+    }
+
+    /**
+     * Performs the request returning a response without a body if the cached copy is still valid
+     */
+    protected Response fetch(String url, Properties headers) throws IOException {
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        if (accept != null) {
+            connection.setRequestProperty("Accept", accept);
+        }
+        if (headers != null) {
+            String etag = headers.getProperty(ETAG);
+            if (etag != null) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            String lastModified = headers.getProperty(LAST_MODIFIED);
+            if (lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+        }
+        if (connection instanceof HttpURLConnection) {
+            HttpURLConnection httpConnection = (HttpURLConnection) connection;
+            try {
+                int status = httpConnection.getResponseCode();
+                if (status == HttpURLConnection.HTTP_NOT_MODIFIED && headers != null) {
+                    return new Response(null, null, null);
+                }
+                if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                    throw new FileNotFoundException(url);
+                }
+                if (status != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("Failed to get " + url + " status: " + status + " " + httpConnection.getResponseMessage());
+                }
+                byte[] body = readFully(httpConnection.getInputStream());
+                return new Response(body, httpConnection.getHeaderField("ETag"), httpConnection.getHeaderField("Last-Modified"));
+            } finally {
+                httpConnection.disconnect();
+            }
+        }
+        return new Response(readFully(connection.getInputStream()), null, null);
+    }
+
+    /**
+     * Removes the least recently used entries until the cache fits within its maximum size
+     */
+    protected void evict() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(BODY_EXTENSION));
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxSize) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (total <= maxSize) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                String name = file.getName();
+                new File(dir, name.substring(0, name.length() - BODY_EXTENSION.length()) + HEADERS_EXTENSION).delete();
+                LOG.debug("Evicted metadata cache entry " + name);
+                total -= length;
+            }
+        }
+    }
+
+    private Properties loadHeaders(File file, String url) {
+        if (!FileHelper.isFile(file)) {
+            return null;
+        }
+        Properties answer = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            answer.load(in);
+        } catch (IOException e) {
+            LOG.warn("Ignoring corrupt metadata cache entry " + file + ". " + e, e);
+            return null;
+        }
+        if (!url.equals(answer.getProperty(URL))) {
+            return null;
+        }
+        return answer;
+    }
+
+    private void saveHeaders(File file, Properties headers) throws IOException {
+        File tmpFile = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (OutputStream out = new FileOutputStream(tmpFile)) {
+                headers.store(out, null);
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    private void writeAtomically(File file, byte[] data) throws IOException {
+        File tmpFile = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            Files.write(tmpFile.toPath(), data);
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    private static void touch(long now, File... files) {
+        for (File file : files) {
+            file.setLastModified(now);
+        }
+    }
+
+    private static void copyHeader(Properties from, Properties to, String name) {
+        String value = from.getProperty(name);
+        if (value != null) {
+            to.setProperty(name, value);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try {
+            return io.fabric8.utils.Files.readBytes(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String createKey(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+                builder.append(Character.forDigit(b & 0xf, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No SHA-256 support: " + e, e);
+        }
+    }
+
+    protected static class Response {
+        private final byte[] body;
+        private final String etag;
+        private final String lastModified;
+
+        Response(byte[] body, String etag, String lastModified) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+}
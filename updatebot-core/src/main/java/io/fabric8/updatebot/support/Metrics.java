@@ -0,0 +1,337 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A registry of the counters, gauges and histograms which describe where a run spends its time.
+ * <p>
+ * Metrics are identified by a name and pairs of label names and values in the style of Prometheus. They can be
+ * exported in the Prometheus text format or written as JSON at the end of a run.
+ */
+public class Metrics {
+    /**
+     * The upper bounds in seconds of the buckets of duration histograms
+     */
+    public static final double[] DURATION_BUCKETS = {0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300, 600, 1800};
+
+    private static final Map<String, Family> FAMILIES = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the counter with the given name and label name/value pairs
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) getFamily(name, help, "counter").children.computeIfAbsent(labelText(labels), key -> new Counter());
+    }
+
+    /**
+     * Returns the histogram of durations in seconds with the given name and label name/value pairs
+     */
+    public static Histogram timer(String name, String help, String... labels) {
+        return histogram(name, help, DURATION_BUCKETS, labels);
+    }
+
+    public static Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) getFamily(name, help, "histogram").children.computeIfAbsent(labelText(labels), key -> new Histogram(buckets));
+    }
+
+    /**
+     * Registers a gauge whose value is read from the supplier whenever the metrics are exported
+     */
+    public static void gauge(String name, String help, LongSupplier supplier, String... labels) {
+        getFamily(name, help, "gauge").children.put(labelText(labels), new Gauge(supplier));
+    }
+
+    /**
+     * Removes all the metrics
+     */
+    public static void clear() {
+        FAMILIES.clear();
+    }
+
+    /**
+     * Returns the metrics in the Prometheus text exposition format
+     */
+    public static String toPrometheusText() {
+        StringBuilder builder = new StringBuilder();
+        for (Family family : new TreeMap<>(FAMILIES).values()) {
+            builder.append("# HELP ").append(family.name).append(' ').append(family.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            builder.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Metric> entry : new TreeMap<>(family.children).entrySet()) {
+                entry.getValue().appendPrometheusText(builder, family.name, entry.getKey());
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the metrics as maps and lists which can be written as JSON
+     */
+    public static Map<String, Object> toMap() {
+        Map<String, Object> answer = new LinkedHashMap<>();
+        for (Family family : new TreeMap<>(FAMILIES).values()) {
+            List<Object> values = new ArrayList<>();
+            for (Map.Entry<String, Metric> entry : new TreeMap<>(family.children).entrySet()) {
+                Map<String, Object> value = new LinkedHashMap<>();
+                value.put("labels", parseLabelText(entry.getKey()));
+                entry.getValue().addValues(value);
+                values.add(value);
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("help", family.help);
+            map.put("type", family.type);
+            map.put("values", values);
+            answer.put(family.name, map);
+        }
+        return answer;
+    }
+
+    public static void saveJson(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            dir.mkdirs();
+        }
+        MarkupHelper.savePrettyJson(file, toMap());
+    }
+
+    private static Family getFamily(String name, String help, String type) {
+        Family answer = FAMILIES.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (!answer.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is a " + answer.type + " not a " + type);
+        }
+        return answer;
+    }
+
+    protected static String labelText(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            String value = labels[i + 1] != null ? labels[i + 1] : "";
+            builder.append(labels[i]).append("=\"").
+                    append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+        }
+        return builder.toString();
+    }
+
+    private static Map<String, String> parseLabelText(String text) {
+        Map<String, String> answer = new LinkedHashMap<>();
+        int i = 0;
+        while (i < text.length()) {
+            int eq = text.indexOf('=', i);
+            String name = text.substring(i, eq);
+            StringBuilder value = new StringBuilder();
+            int j = eq + 2;
+            for (; text.charAt(j) != '"'; j++) {
+                char ch = text.charAt(j);
+                if (ch == '\\') {
+                    ch = text.charAt(++j);
+                    value.append(ch == 'n' ? '\n' : ch);
+                } else {
+                    value.append(ch);
+                }
+            }
+            answer.put(name, value.toString());
+            i = j + 2;
+        }
+        return answer;
+    }
+
+    private static String formatValue(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static void appendSample(StringBuilder builder, String name, String labels, String extraLabel, String value) {
+        builder.append(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            builder.append('{').append(labels);
+            if (extraLabel != null) {
+                if (!labels.isEmpty()) {
+                    builder.append(',');
+                }
+                builder.append(extraLabel);
+            }
+            builder.append('}');
+        }
+        builder.append(' ').append(value).append('\n');
+    }
+
+    private static class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final Map<String, Metric> children = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private interface Metric {
+        void appendPrometheusText(StringBuilder builder, String name, String labels);
+
+        void addValues(Map<String, Object> map);
+    }
+
+    /**
+     * A value which only increases
+     */
+    public static class Counter implements Metric {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long getValue() {
+            return value.sum();
+        }
+
+        @Override
+        public void appendPrometheusText(StringBuilder builder, String name, String labels) {
+            appendSample(builder, name, labels, null, Long.toString(getValue()));
+        }
+
+        @Override
+        public void addValues(Map<String, Object> map) {
+            map.put("value", getValue());
+        }
+    }
+
+    private static class Gauge implements Metric {
+        private final LongSupplier supplier;
+
+        Gauge(LongSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public void appendPrometheusText(StringBuilder builder, String name, String labels) {
+            appendSample(builder, name, labels, null, Long.toString(supplier.getAsLong()));
+        }
+
+        @Override
+        public void addValues(Map<String, Object> map) {
+            map.put("value", supplier.getAsLong());
+        }
+    }
+
+    /**
+     * Counts the observed values in buckets along with their count, sum and maximum
+     */
+    public static class Histogram implements Metric {
+        private final double[] buckets;
+        private final LongAdder[] bucketCounts;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+        private final AtomicLong maxBits = new AtomicLong(Double.doubleToLongBits(0));
+
+        Histogram(double[] buckets) {
+            this.buckets = buckets;
+            this.bucketCounts = new LongAdder[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                bucketCounts[i] = new LongAdder();
+            }
+        }
+
+        public void observe(double value) {
+            for (int i = 0; i < buckets.length; i++) {
+                if (value <= buckets[i]) {
+                    bucketCounts[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sum.add(value);
+            maxBits.accumulateAndGet(Double.doubleToLongBits(value), (a, b) -> Double.longBitsToDouble(b) > Double.longBitsToDouble(a) ? b : a);
+        }
+
+        /**
+         * Records the time in seconds since the given value of {@link System#nanoTime()}
+         */
+        public void observeSince(long startNanos) {
+            observe((System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getSum() {
+            return sum.sum();
+        }
+
+        public double getMax() {
+            return Double.longBitsToDouble(maxBits.get());
+        }
+
+        @Override
+        public void appendPrometheusText(StringBuilder builder, String name, String labels) {
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += bucketCounts[i].sum();
+                appendSample(builder, name + "_bucket", labels, "le=\"" + formatValue(buckets[i]) + "\"", Long.toString(cumulative));
+            }
+            long total = getCount();
+            appendSample(builder, name + "_bucket", labels, "le=\"+Inf\"", Long.toString(total));
+            appendSample(builder, name + "_sum", labels, null, formatValue(getSum()));
+            appendSample(builder, name + "_count", labels, null, Long.toString(total));
+        }
+
+        @Override
+        public void addValues(Map<String, Object> map) {
+            long total = getCount();
+            map.put("count", total);
+            map.put("sum", getSum());
+            map.put("max", getMax());
+            map.put("mean", total > 0 ? getSum() / total : 0);
+            Map<String, Long> counts = new LinkedHashMap<>();
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += bucketCounts[i].sum();
+                counts.put(formatValue(buckets[i]), cumulative);
+            }
+            counts.put("+Inf", total);
+            map.put("buckets", counts);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * The result of running a command with its exit code, how long it took and the last lines of its output
+ */
+public class ProcessResult {
+    public static final int FAILED_TO_START = 1;
+
+    private final String commandLine;
+    private final File dir;
+    private final int exitCode;
+    private final long duration;
+    private final boolean timedOut;
+    private final List<String> outputTail;
+
+    public ProcessResult(String commandLine, File dir, int exitCode, long duration, boolean timedOut, List<String> outputTail) {
+        this.commandLine = commandLine;
+        this.dir = dir;
+        this.exitCode = exitCode;
+        this.duration = duration;
+        this.timedOut = timedOut;
+        this.outputTail = outputTail;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessResult{" +
+                "commandLine='" + commandLine + '\'' +
+                ", exitCode=" + exitCode +
+                ", duration=" + duration +
+                ", timedOut=" + timedOut +
+                '}';
+    }
+
+    public boolean isSuccess() {
+        return exitCode == 0 && !timedOut;
+    }
+
+    public String getCommandLine() {
+        return commandLine;
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * Returns the number of milliseconds the command took including any time waiting to be allowed to run
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Returns the last lines of the output and error streams of the command unless they were redirected to files
+     */
+    public List<String> getOutputTail() {
+        return outputTail;
+    }
+
+    public String getOutputTailText() {
+        return String.join("\n", outputTail);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Replaces spans of the text of a file leaving everything else such as formatting, ordering and line endings
+ * exactly as it was.
+ * <p>
+ * Edits are collected and then applied together in a single pass so that the file is only written once
+ * however many values are changed. The spans are located by a format specific helper such as {@link JsonSpans}.
+ */
+public class SpanEditor {
+    private final String text;
+    private final List<Edit> edits = new ArrayList<>();
+
+    public SpanEditor(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Loads the UTF-8 text of the given file
+     */
+    public static SpanEditor load(File file) throws IOException {
+        return new SpanEditor(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        return "SpanEditor{" +
+                "edits=" + edits.size() +
+                '}';
+    }
+
+    /**
+     * Returns the original text before any edits
+     */
+    public String getText() {
+        return text;
+    }
+
+    public boolean isModified() {
+        return !edits.isEmpty();
+    }
+
+    /**
+     * Replaces the given span with the new text
+     *
+     * @throws IllegalArgumentException if the span overlaps a span which has already been replaced
+     */
+    public void replace(TextSpan span, String replacement) {
+        replace(span.getStart(), span.getEnd(), replacement);
+    }
+
+    /**
+     * Replaces the characters from the start index up to the end index with the new text.
+     * <p>
+     * Replacing exactly the same range again replaces the earlier edit.
+     *
+     * @throws IllegalArgumentException if the range overlaps a different range which has already been replaced
+     */
+    public void replace(int start, int end, String replacement) {
+        if (start < 0 || end < start || end > text.length()) {
+            throw new IllegalArgumentException("Invalid span " + start + "-" + end + " for text of length " + text.length());
+        }
+        for (Iterator<Edit> iter = edits.iterator(); iter.hasNext(); ) {
+            Edit edit = iter.next();
+            if (start == edit.start && end == edit.end) {
+                iter.remove();
+            } else if (start < edit.end && edit.start < end) {
+                throw new IllegalArgumentException("Span " + start + "-" + end + " overlaps span " + edit.start + "-" + edit.end);
+            }
+        }
+        if (end - start == replacement.length() && text.regionMatches(start, replacement, 0, replacement.length())) {
+            return;
+        }
+        edits.add(new Edit(start, end, replacement));
+    }
+
+    /**
+     * Returns the text with all of the edits applied
+     */
+    public String apply() {
+        if (edits.isEmpty()) {
+            return text;
+        }
+        List<Edit> sorted = new ArrayList<>(edits);
+        sorted.sort(Comparator.comparingInt(e -> e.start));
+        int length = text.length();
+        for (Edit edit : sorted) {
+            length += edit.replacement.length() - (edit.end - edit.start);
+        }
+        StringBuilder builder = new StringBuilder(length);
+        int position = 0;
+        for (Edit edit : sorted) {
+            builder.append(text, position, edit.start);
+            builder.append(edit.replacement);
+            position = edit.end;
+        }
+        builder.append(text, position, text.length());
+        return builder.toString();
+    }
+
+    /**
+     * Writes the edited text to the given file if there are any edits
+     *
+     * @return true if the file was written
+     */
+    public boolean save(File file) throws IOException {
+        if (edits.isEmpty()) {
+            return false;
+        }
+        Files.write(file.toPath(), apply().getBytes(StandardCharsets.UTF_8));
+        return true;
+    }
+
+    private static class Edit {
+        private final int start;
+        private final int end;
+        private final String replacement;
+
+        Edit(int start, int end, String replacement) {
+            this.start = start;
+            this.end = end;
+            this.replacement = replacement;
+        }
+    }
+}
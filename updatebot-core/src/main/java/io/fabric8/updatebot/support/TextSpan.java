@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+/**
+ * The range of characters of a value within the text of a file along with the value itself
+ */
+public class TextSpan {
+    private final int start;
+    private final int end;
+    private final String value;
+
+    public TextSpan(int start, int end, String value) {
+        this.start = start;
+        this.end = end;
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return "TextSpan{" +
+                "start=" + start +
+                ", end=" + end +
+                ", value='" + value + '\'' +
+                '}';
+    }
+
+    /**
+     * Returns the index of the first character of the span
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the index after the last character of the span
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the decoded value of the span
+     */
+    public String getValue() {
+        return value;
+    }
+}
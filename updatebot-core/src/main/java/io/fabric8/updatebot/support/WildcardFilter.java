@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import io.fabric8.utils.Filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * A filter of names compiled once from include and exclude patterns where <code>*</code> matches any characters
+ * and each pattern may be a comma separated list of patterns.
+ * <p>
+ * Exact names are looked up in a hash set, patterns which only have a trailing <code>*</code> are matched by walking
+ * a prefix trie and any other patterns are merged into a single regular expression. The result for each name is
+ * memoised as the same names are matched over and over again across repositories.
+ */
+public class WildcardFilter implements Filter<String> {
+    private static final int MAX_CACHE_SIZE = 10000;
+
+    private final Patterns includes;
+    private final Patterns excludes;
+    private final Map<String, Boolean> results = new ConcurrentHashMap<>();
+
+    protected WildcardFilter(Patterns includes, Patterns excludes) {
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    /**
+     * Creates a filter matching the names which match any of the includes and none of the excludes
+     *
+     * @param includes the include patterns or null to include all names
+     * @param excludes the exclude patterns or null to not exclude any names
+     */
+    public static WildcardFilter create(Collection<String> includes, Collection<String> excludes) {
+        return new WildcardFilter(includes != null ? new Patterns(includes) : null, excludes != null ? new Patterns(excludes) : null);
+    }
+
+    @Override
+    public String toString() {
+        return "WildcardFilter{" +
+                "includes=" + includes +
+                ", excludes=" + excludes +
+                '}';
+    }
+
+    @Override
+    public boolean matches(String name) {
+        if (name == null) {
+            return false;
+        }
+        Boolean answer = results.get(name);
+        if (answer == null) {
+            answer = (includes == null || includes.matches(name)) && (excludes == null || !excludes.matches(name));
+            if (results.size() >= MAX_CACHE_SIZE) {
+                results.clear();
+            }
+            results.put(name, answer);
+        }
+        return answer;
+    }
+
+    /**
+     * A compiled set of patterns
+     */
+    protected static class Patterns {
+        private final List<String> patterns = new ArrayList<>();
+        private final Set<String> names = new HashSet<>();
+        private final TrieNode prefixes = new TrieNode();
+        private final Pattern regex;
+        private boolean all;
+
+        Patterns(Collection<String> values) {
+            StringBuilder builder = new StringBuilder();
+            for (String value : values) {
+                if (value == null) {
+                    continue;
+                }
+                for (String text : value.split(",")) {
+                    String pattern = text.trim();
+                    if (pattern.isEmpty()) {
+                        continue;
+                    }
+                    patterns.add(pattern);
+                    int index = pattern.indexOf('*');
+                    if (index < 0) {
+                        names.add(pattern);
+                    } else if (index == 0 && pattern.length() == 1) {
+                        all = true;
+                    } else if (index == pattern.length() - 1) {
+                        prefixes.add(pattern.substring(0, index));
+                    } else {
+                        if (builder.length() > 0) {
+                            builder.append('|');
+                        }
+                        builder.append("(?:").append(toRegex(pattern)).append(')');
+                    }
+                }
+            }
+            regex = builder.length() > 0 ? Pattern.compile(builder.toString(), Pattern.DOTALL) : null;
+        }
+
+        @Override
+        public String toString() {
+            return patterns.toString();
+        }
+
+        public boolean matches(String name) {
+            return all || names.contains(name) || prefixes.matchesPrefixOf(name) || (regex != null && regex.matcher(name).matches());
+        }
+
+        private static String toRegex(String pattern) {
+            StringBuilder builder = new StringBuilder();
+            int start = 0;
+            while (true) {
+                int index = pattern.indexOf('*', start);
+                if (index < 0) {
+                    break;
+                }
+                if (index > start) {
+                    builder.append(Pattern.quote(pattern.substring(start, index)));
+                }
+                builder.append(".*");
+                start = index + 1;
+            }
+            if (start < pattern.length()) {
+                builder.append(Pattern.quote(pattern.substring(start)));
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * A node of a trie of the prefixes of names
+     */
+    private static class TrieNode {
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private boolean terminal;
+
+        void add(String prefix) {
+            TrieNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new TrieNode());
+            }
+            node.terminal = true;
+        }
+
+        /**
+         * Returns true if any of the prefixes in the trie is a prefix of the name
+         */
+        boolean matchesPrefixOf(String name) {
+            TrieNode node = this;
+            for (int i = 0; ; i++) {
+                if (node.terminal) {
+                    return true;
+                }
+                if (i == name.length()) {
+                    return false;
+                }
+                node = node.children.get(name.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+        }
+    }
+}
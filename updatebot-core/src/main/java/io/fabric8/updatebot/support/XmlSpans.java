@@ -0,0 +1,313 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A streaming pass over XML text which reports the span of the text content of each element that has no
+ * child elements so that values can be replaced via a {@link SpanEditor} while keeping the formatting and
+ * comments of the document.
+ * <p>
+ * Elements are identified by their path of local names from the root element separated by <code>/</code>
+ * such as <code>project/dependencies/dependency/version</code>. Namespaces and DTDs are not processed.
+ */
+public class XmlSpans {
+
+    /**
+     * Receives the elements of the document in order
+     */
+    public interface Handler {
+        void startElement(String path);
+
+        /**
+         * Invoked for an element containing only text with the span of its trimmed content
+         */
+        void textElement(String path, TextSpan span);
+
+        void endElement(String path);
+    }
+
+    /**
+     * Parses the XML text invoking the handler for each element
+     *
+     * @throws IOException if the XML is not well formed
+     */
+    public static void parse(String xml, Handler handler) throws IOException {
+        new Parser(xml, handler).parse();
+    }
+
+    /**
+     * Returns the value escaped so that it can be used as the text content of an element
+     */
+    public static String escape(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '&') {
+                builder.append("&amp;");
+            } else if (ch == '<') {
+                builder.append("&lt;");
+            } else if (ch == '>') {
+                builder.append("&gt;");
+            } else {
+                builder.append(ch);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static class Parser {
+        private final String xml;
+        private final Handler handler;
+        private final List<String> names = new ArrayList<>();
+        private final List<String> paths = new ArrayList<>();
+        private int pos;
+        private int contentStart = -1;
+        private final StringBuilder content = new StringBuilder();
+
+        Parser(String xml, Handler handler) {
+            this.xml = xml;
+            this.handler = handler;
+        }
+
+        void parse() throws IOException {
+            int length = xml.length();
+            while (pos < length) {
+                char ch = xml.charAt(pos);
+                if (ch != '<') {
+                    int end = xml.indexOf('<', pos);
+                    if (end < 0) {
+                        end = length;
+                    }
+                    appendText(pos, end, true);
+                    pos = end;
+                } else if (xml.startsWith("<!--", pos)) {
+                    // replacing the content would lose the comment so its not a text element
+                    contentStart = -1;
+                    pos = skipPast("-->", pos + 4);
+                } else if (xml.startsWith("<![CDATA[", pos)) {
+                    int end = xml.indexOf("]]>", pos + 9);
+                    if (end < 0) {
+                        throw error("Unterminated CDATA section");
+                    }
+                    appendText(pos + 9, end, false);
+                    pos = end + 3;
+                } else if (xml.startsWith("<?", pos)) {
+                    pos = skipPast("?>", pos + 2);
+                } else if (xml.startsWith("<!", pos)) {
+                    skipDeclaration();
+                } else if (xml.startsWith("</", pos)) {
+                    endTag();
+                } else {
+                    startTag();
+                }
+            }
+            if (!names.isEmpty()) {
+                throw error("Unclosed element " + names.get(names.size() - 1));
+            }
+        }
+
+        private void appendText(int start, int end, boolean decode) throws IOException {
+            if (contentStart < 0) {
+                return;
+            }
+            if (decode) {
+                content.append(decode(start, end));
+            } else {
+                content.append(xml, start, end);
+            }
+        }
+
+        private void startTag() throws IOException {
+            int nameStart = pos + 1;
+            int nameEnd = nameStart;
+            while (nameEnd < xml.length() && !isNameEnd(xml.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            if (nameEnd == nameStart) {
+                throw error("Invalid start tag");
+            }
+            String name = localName(xml.substring(nameStart, nameEnd));
+            int end = findTagEnd(nameEnd);
+            boolean empty = xml.charAt(end - 1) == '/';
+            pos = end + 1;
+
+            // the parent has child elements so it is not a text element
+            contentStart = -1;
+            String path = paths.isEmpty() ? name : paths.get(paths.size() - 1) + "/" + name;
+            handler.startElement(path);
+            if (empty) {
+                handler.endElement(path);
+            } else {
+                names.add(name);
+                paths.add(path);
+                contentStart = pos;
+                content.setLength(0);
+            }
+        }
+
+        private void endTag() throws IOException {
+            int nameStart = pos + 2;
+            int end = xml.indexOf('>', nameStart);
+            if (end < 0) {
+                throw error("Unterminated end tag");
+            }
+            String name = localName(xml.substring(nameStart, end).trim());
+            if (names.isEmpty() || !names.get(names.size() - 1).equals(name)) {
+                throw error("Unexpected end tag " + name);
+            }
+            String path = paths.remove(paths.size() - 1);
+            names.remove(names.size() - 1);
+            if (contentStart >= 0) {
+                int start = contentStart;
+                int finish = pos;
+                while (start < finish && Character.isWhitespace(xml.charAt(start))) {
+                    start++;
+                }
+                while (finish > start && Character.isWhitespace(xml.charAt(finish - 1))) {
+                    finish--;
+                }
+                if (start < finish) {
+                    handler.textElement(path, new TextSpan(start, finish, content.toString().trim()));
+                }
+            }
+            contentStart = -1;
+            handler.endElement(path);
+            pos = end + 1;
+        }
+
+        private int findTagEnd(int from) throws IOException {
+            char quote = 0;
+            for (int i = from; i < xml.length(); i++) {
+                char ch = xml.charAt(i);
+                if (quote != 0) {
+                    if (ch == quote) {
+                        quote = 0;
+                    }
+                } else if (ch == '"' || ch == '\'') {
+                    quote = ch;
+                } else if (ch == '>') {
+                    return i;
+                }
+            }
+            throw error("Unterminated start tag");
+        }
+
+        private void skipDeclaration() throws IOException {
+            int depth = 0;
+            for (int i = pos + 2; i < xml.length(); i++) {
+                char ch = xml.charAt(i);
+                if (ch == '[') {
+                    depth++;
+                } else if (ch == ']') {
+                    depth--;
+                } else if (ch == '>' && depth <= 0) {
+                    pos = i + 1;
+                    return;
+                }
+            }
+            throw error("Unterminated declaration");
+        }
+
+        private int skipPast(String terminator, int from) throws IOException {
+            int end = xml.indexOf(terminator, from);
+            if (end < 0) {
+                throw error("Missing " + terminator);
+            }
+            return end + terminator.length();
+        }
+
+        private String decode(int start, int end) throws IOException {
+            int amp = xml.indexOf('&', start);
+            if (amp < 0 || amp >= end) {
+                return xml.substring(start, end);
+            }
+            StringBuilder builder = new StringBuilder();
+            int i = start;
+            while (i < end) {
+                char ch = xml.charAt(i);
+                if (ch != '&') {
+                    builder.append(ch);
+                    i++;
+                    continue;
+                }
+                int semicolon = xml.indexOf(';', i);
+                if (semicolon < 0 || semicolon >= end) {
+                    throw error("Unterminated entity reference");
+                }
+                String entity = xml.substring(i + 1, semicolon);
+                switch (entity) {
+                    case "amp":
+                        builder.append('&');
+                        break;
+                    case "lt":
+                        builder.append('<');
+                        break;
+                    case "gt":
+                        builder.append('>');
+                        break;
+                    case "quot":
+                        builder.append('"');
+                        break;
+                    case "apos":
+                        builder.append('\'');
+                        break;
+                    default:
+                        if (entity.startsWith("#")) {
+                            builder.appendCodePoint(parseCharacterReference(entity));
+                        } else {
+                            // leave unknown entities as they are
+                            builder.append('&').append(entity).append(';');
+                        }
+                }
+                i = semicolon + 1;
+            }
+            return builder.toString();
+        }
+
+        private int parseCharacterReference(String entity) throws IOException {
+            int answer = -1;
+            try {
+                if (entity.startsWith("#x")) {
+                    answer = Integer.parseInt(entity.substring(2), 16);
+                } else {
+                    answer = Integer.parseInt(entity.substring(1));
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            if (!Character.isValidCodePoint(answer)) {
+                throw error("Invalid character reference &" + entity + ";");
+            }
+            return answer;
+        }
+
+        private IOException error(String message) {
+            return new IOException(message + " at offset " + pos);
+        }
+
+        private static boolean isNameEnd(char ch) {
+            return Character.isWhitespace(ch) || ch == '>' || ch == '/';
+        }
+
+        private static String localName(String name) {
+            return name.substring(name.indexOf(':') + 1);
+        }
+    }
+}
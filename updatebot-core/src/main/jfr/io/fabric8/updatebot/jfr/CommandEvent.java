@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Records a child process such as <code>git clone</code> or <code>npm install</code>
+ */
+@Name(FlightRecorderEvents.PREFIX + "Command")
+@Label("Command")
+@Description("A git, npm or other command run as a child process")
+@Category(FlightRecorderEvents.CATEGORY)
+@StackTrace(false)
+class CommandEvent extends Event {
+    @Label("Directory")
+    String directory;
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Command")
+    String command;
+
+    @Label("Exit Code")
+    int exitCode;
+
+    @Label("Timed Out")
+    boolean timedOut;
+}
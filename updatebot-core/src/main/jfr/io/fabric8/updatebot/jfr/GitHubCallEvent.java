@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Records a call to the GitHub API
+ */
+@Name(FlightRecorderEvents.PREFIX + "GitHubCall")
+@Label("GitHub Call")
+@Description("A call to the GitHub API")
+@Category(FlightRecorderEvents.CATEGORY)
+@StackTrace(false)
+class GitHubCallEvent extends Event {
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Status")
+    String status;
+}
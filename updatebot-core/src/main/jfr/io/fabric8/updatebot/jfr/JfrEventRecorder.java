@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.jfr;
+
+import jdk.jfr.Event;
+
+import java.io.File;
+
+/**
+ * Records the events of {@link FlightRecorderEvents} with the Java Flight Recorder
+ */
+public class JfrEventRecorder implements EventRecorder {
+
+    @Override
+    public Object startCommand() {
+        return begin(new CommandEvent());
+    }
+
+    @Override
+    public void commitCommand(Object object, File dir, String repository, String command, int exitCode, boolean timedOut) {
+        CommandEvent event = (CommandEvent) object;
+        event.end();
+        if (event.shouldCommit()) {
+            event.directory = getPath(dir);
+            event.repository = repository;
+            event.command = command;
+            event.exitCode = exitCode;
+            event.timedOut = timedOut;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object startGitHubCall() {
+        return begin(new GitHubCallEvent());
+    }
+
+    @Override
+    public void commitGitHubCall(Object object, String endpoint, String status) {
+        GitHubCallEvent event = (GitHubCallEvent) object;
+        event.end();
+        if (event.shouldCommit()) {
+            event.endpoint = endpoint;
+            event.status = status;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object startParseDependencyTree() {
+        return begin(new ParseDependencyTreeEvent());
+    }
+
+    @Override
+    public void commitParseDependencyTree(Object object, File file, int packages) {
+        ParseDependencyTreeEvent event = (ParseDependencyTreeEvent) object;
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = getPath(file);
+            event.packages = packages;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object startPushVersions() {
+        return begin(new PushVersionsEvent());
+    }
+
+    @Override
+    public void commitPushVersions(Object object, File file, int changes, boolean modified) {
+        PushVersionsEvent event = (PushVersionsEvent) object;
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = getPath(file);
+            event.changes = changes;
+            event.modified = modified;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object startRepository() {
+        return begin(new RepositoryEvent());
+    }
+
+    @Override
+    public void commitRepository(Object object, String repository, String command, String status) {
+        RepositoryEvent event = (RepositoryEvent) object;
+        event.end();
+        if (event.shouldCommit()) {
+            event.repository = repository;
+            event.command = command;
+            event.status = status;
+            event.commit();
+        }
+    }
+
+    private static Object begin(Event event) {
+        event.begin();
+        return event;
+    }
+
+    private static String getPath(File file) {
+        return file != null ? file.getPath() : null;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Records parsing the output of <code>npm list -json</code>
+ */
+@Name(FlightRecorderEvents.PREFIX + "ParseDependencyTree")
+@Label("Parse Dependency Tree")
+@Description("Parsing the npm dependency tree of a project")
+@Category(FlightRecorderEvents.CATEGORY)
+@StackTrace(false)
+class ParseDependencyTreeEvent extends Event {
+    @Label("File")
+    String file;
+
+    @Label("Packages")
+    int packages;
+}
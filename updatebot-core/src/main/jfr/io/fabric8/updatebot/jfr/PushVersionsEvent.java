@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Records applying version changes to a manifest
+ */
+@Name(FlightRecorderEvents.PREFIX + "PushVersions")
+@Label("Push Versions")
+@Description("Applying dependency version changes to a manifest")
+@Category(FlightRecorderEvents.CATEGORY)
+@StackTrace(false)
+class PushVersionsEvent extends Event {
+    @Label("File")
+    String file;
+
+    @Label("Changes")
+    int changes;
+
+    @Label("Modified")
+    boolean modified;
+}
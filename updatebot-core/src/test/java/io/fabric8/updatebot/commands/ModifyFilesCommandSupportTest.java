@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.commands;
+
+import io.fabric8.updatebot.Configuration;
+import io.fabric8.updatebot.kind.DependenciesCheck;
+import io.fabric8.updatebot.kind.Kind;
+import io.fabric8.updatebot.kind.KindDependenciesCheck;
+import io.fabric8.updatebot.kind.npm.NpmRangePolicy;
+import io.fabric8.updatebot.model.DependencyVersionChange;
+import io.fabric8.updatebot.repository.LocalRepository;
+import io.fabric8.updatebot.support.Commands;
+import io.fabric8.updatebot.test.Tests;
+import io.fabric8.utils.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ModifyFilesCommandSupportTest {
+    protected StubPushVersionChanges command = new StubPushVersionChanges();
+    protected CommandContext context;
+    protected List<DependencyVersionChange> steps = Arrays.asList(
+            new DependencyVersionChange(Kind.NPM, "a", "1.0.0"),
+            new DependencyVersionChange(Kind.NPM, "b", "1.0.0"),
+            new DependencyVersionChange(Kind.NPM, "c", "1.0.0"));
+
+    @Before
+    public void init() throws Exception {
+        File dir = Tests.getTestDataDir(getClass());
+        Files.recursiveDelete(dir);
+        dir.mkdirs();
+        assertThat(Commands.runCommandIgnoreOutput(dir, "git", "init")).isEqualTo(0);
+        assertThat(Commands.runCommandIgnoreOutput(dir, "git", "-c", "user.name=test", "-c", "user.email=test@example.com", "commit", "--allow-empty", "-m", "initial")).isEqualTo(0);
+        context = new CommandContext(LocalRepository.fromDirectory(dir), new Configuration());
+    }
+
+    @Test
+    public void testOnlyPredictedValidChangesAreWritten() throws Exception {
+        command.predictedInvalid.add("b");
+        command.invalid.add("b");
+
+        assertThat(command.pushVersionsWithChecks(context, steps)).isTrue();
+
+        assertThat(command.writes).containsExactly(Arrays.asList("a", "c"));
+        assertThat(command.checks).containsExactly(Arrays.asList("a", "c"));
+        assertThat(dependencies(command.pendingCheck.getInvalidChanges())).containsExactly("b");
+        assertThat(context.getVersionChangeResults()).containsEntry(steps.get(1), VersionChangeStatus.REJECTED);
+    }
+
+    @Test
+    public void testWrongPredictionRewritesTheValidChanges() throws Exception {
+        command.invalid.add("c");
+
+        assertThat(command.pushVersionsWithChecks(context, steps)).isTrue();
+
+        assertThat(command.writes).containsExactly(Arrays.asList("a", "b", "c"), Arrays.asList("a", "b"));
+        assertThat(dependencies(command.pendingCheck.getInvalidChanges())).containsExactly("c");
+        assertThat(context.getVersionChangeResults()).containsEntry(steps.get(2), VersionChangeStatus.REJECTED);
+    }
+
+    @Test
+    public void testAllChangesPredictedInvalid() throws Exception {
+        command.predictedInvalid.addAll(Arrays.asList("a", "b", "c"));
+
+        assertThat(command.pushVersionsWithChecks(context, steps)).isFalse();
+
+        assertThat(command.writes).isEmpty();
+        assertThat(command.checks).isEmpty();
+        assertThat(dependencies(command.pendingCheck.getInvalidChanges())).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    public void testResultOfEachChange() throws Exception {
+        File packageJson = new File(context.getDir(), "package.json");
+        String text = "{\n  \"dependencies\": {\n    \"a\": \"0.9.0\",\n    \"b\": \"^1.0.0\",\n    \"c\": \"1.0.0\"\n  }\n}\n";
+        java.nio.file.Files.write(packageJson.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        Configuration configuration = context.getConfiguration();
+        configuration.setCheckDependencies(false);
+        configuration.setNpmRangePolicy(NpmRangePolicy.SKIP);
+        List<DependencyVersionChange> changes = Arrays.asList(
+                new DependencyVersionChange(Kind.NPM, "a", "1.0.0"),
+                new DependencyVersionChange(Kind.NPM, "b", "1.0.1"),
+                new DependencyVersionChange(Kind.NPM, "c", "1.0.0"),
+                new DependencyVersionChange(Kind.NPM, "d", "1.0.0"));
+
+        assertThat(new PushVersionChanges().pushVersionsWithChecks(context, changes)).isTrue();
+
+        Map<DependencyVersionChange, VersionChangeStatus> results = context.getVersionChangeResults();
+        assertThat(results).containsEntry(changes.get(0), VersionChangeStatus.APPLIED);
+        assertThat(results).containsEntry(changes.get(1), VersionChangeStatus.IN_RANGE);
+        assertThat(results).containsEntry(changes.get(2), VersionChangeStatus.UNCHANGED);
+        assertThat(results).containsEntry(changes.get(3), VersionChangeStatus.UNCHANGED);
+    }
+
+    protected static List<String> dependencies(List<DependencyVersionChange> changes) {
+        return changes.stream().map(DependencyVersionChange::getDependency).collect(Collectors.toList());
+    }
+
+    protected static DependenciesCheck partition(List<DependencyVersionChange> steps, Set<String> invalid) {
+        List<DependencyVersionChange> validChanges = new ArrayList<>();
+        List<DependencyVersionChange> invalidChanges = new ArrayList<>();
+        for (DependencyVersionChange step : steps) {
+            if (invalid.contains(step.getDependency())) {
+                invalidChanges.add(step);
+            } else {
+                validChanges.add(step);
+            }
+        }
+        Map<Kind, KindDependenciesCheck> failures = new LinkedHashMap<>();
+        failures.put(Kind.NPM, new KindDependenciesCheck(new ArrayList<>(validChanges), new ArrayList<>(invalidChanges), new LinkedHashMap<>()));
+        return new DependenciesCheck(validChanges, invalidChanges, failures);
+    }
+
+    protected static class StubPushVersionChanges extends PushVersionChanges {
+        protected Set<String> predictedInvalid = new HashSet<>();
+        protected Set<String> invalid = new HashSet<>();
+        protected List<List<String>> writes = new ArrayList<>();
+        protected List<List<String>> checks = new ArrayList<>();
+        protected DependenciesCheck pendingCheck;
+
+        @Override
+        protected List<DependencyVersionChange> loadPendingChanges(CommandContext context) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void updatePendingChanges(CommandContext context, DependenciesCheck check, List<DependencyVersionChange> pendingChanges) {
+            pendingCheck = check;
+        }
+
+        @Override
+        protected DependenciesCheck predictDependencyChanges(CommandContext context, List<DependencyVersionChange> steps) {
+            return partition(steps, predictedInvalid);
+        }
+
+        @Override
+        protected DependenciesCheck checkDependencyChanges(CommandContext context, List<DependencyVersionChange> steps) {
+            checks.add(dependencies(steps));
+            return partition(steps, invalid);
+        }
+
+        @Override
+        protected boolean pushVersionChangesWithoutChecks(CommandContext parentContext, List<DependencyVersionChange> steps) {
+            writes.add(dependencies(steps));
+            return !steps.isEmpty();
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package io.fabric8.updatebot.comments;
 
+import io.fabric8.updatebot.commands.VersionChangeStatus;
 import io.fabric8.updatebot.github.Issues;
 import io.fabric8.updatebot.kind.DependenciesCheck;
 import io.fabric8.updatebot.kind.Kind;
@@ -27,6 +28,7 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -65,6 +67,15 @@ public class IssuePendingChangeReadWriteTest {
 
         List<DependencyVersionChange> changes = Issues.parseUpdateBotIssuePendingChangesComment(command);
         assertThat(changes).describedAs("Parsed changes " + changes).hasSize(2).isEqualTo(expectedChanges);
+
+        Map<DependencyVersionChange, VersionChangeStatus> results = new LinkedHashMap<>();
+        results.put(new DependencyVersionChange(Kind.NPM, dependency3, version3), VersionChangeStatus.APPLIED);
+        results.put(change1, VersionChangeStatus.REJECTED);
+        String resultsComment = Issues.versionChangeResultsComment(results);
+        assertThat(resultsComment).contains("`" + dependency3 + "` `" + version3 + "` " + VersionChangeStatus.APPLIED.getDescription());
+
+        changes = Issues.parseUpdateBotIssuePendingChangesComment(command + resultsComment);
+        assertThat(changes).describedAs("Parsed changes with results " + changes).isEqualTo(expectedChanges);
     }
 
     private void addFailedCheck(Map<String, DependencyCheck> failedChecks, String dependency, String version) {
@@ -53,8 +53,8 @@ public class TestNpmDependencyTreeGenerator implements NpmDependencyTreeGenerato
     }
 
     @Override
-    public void generateDependencyTree(CommandContext context, String dependencyFileName) {
-        File outFile = new File(context.getDir(), dependencyFileName);
+    public void generateDependencyTree(CommandContext context, File dir, String dependencyFileName) {
+        File outFile = new File(dir, dependencyFileName);
         LocalRepository repository = context.getRepository();
         GHRepository gitHubRepository = GitHubHelpers.getGitHubRepository(repository);
         if (gitHubRepository != null) {
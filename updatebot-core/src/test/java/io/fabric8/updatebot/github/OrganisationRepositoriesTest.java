@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.github;
+
+import io.fabric8.updatebot.model.GitHubRepositoryDetails;
+import io.fabric8.updatebot.model.GitRepository;
+import io.fabric8.updatebot.model.GithubOrganisation;
+import org.junit.Test;
+import org.kohsuke.github.GHPerson;
+import org.kohsuke.github.GHRepository;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class OrganisationRepositoriesTest {
+
+    @Test
+    public void testExactIncludesAreLookedUpDirectly() throws Exception {
+        GithubOrganisation organisation = new GithubOrganisation();
+        organisation.include("updatebot", "updatebot-plugin, fabric8-maven-plugin");
+        organisation.exclude("fabric8-*");
+
+        assertThat(OrganisationRepositories.getExactIncludes(organisation)).containsExactly("updatebot", "updatebot-plugin", "fabric8-maven-plugin");
+    }
+
+    @Test
+    public void testWildcardIncludesAreListed() throws Exception {
+        GithubOrganisation organisation = new GithubOrganisation();
+        organisation.include("updatebot", "spring-boot-*");
+
+        assertThat(OrganisationRepositories.getExactIncludes(organisation)).isNull();
+    }
+
+    @Test
+    public void testFindRepositoriesListsThenLooksUpMissingNames() throws Exception {
+        GithubOrganisation listedOrganisation = new GithubOrganisation();
+        listedOrganisation.setName("fabric8io");
+        listedOrganisation.getRepositories().add(new GitHubRepositoryDetails("updatebot"));
+        listedOrganisation.getRepositories().add(new GitHubRepositoryDetails("fabric8-maven-plugin"));
+        listedOrganisation.include("updatebot*");
+
+        GithubOrganisation namedOrganisation = new GithubOrganisation();
+        namedOrganisation.setName("jstrachan");
+        namedOrganisation.getRepositories().add(new GitHubRepositoryDetails("c-repo"));
+        namedOrganisation.include("b-repo, a-repo", "missing");
+
+        StubOrganisationRepositories finder = new StubOrganisationRepositories();
+        finder.listings.put("fabric8io", Arrays.asList("updatebot-plugin", "updatebot", "other", "updatebot-sample"));
+        finder.repositories.addAll(Arrays.asList("fabric8io/fabric8-maven-plugin", "jstrachan/a-repo", "jstrachan/b-repo", "jstrachan/c-repo"));
+
+        Map<GithubOrganisation, List<GitRepository>> answer = finder.findRepositories(Arrays.asList(listedOrganisation, namedOrganisation));
+
+        assertThat(names(answer.get(listedOrganisation))).describedAs("named repositories then listed matches").
+                containsExactly("updatebot", "fabric8-maven-plugin", "updatebot-plugin", "updatebot-sample");
+        assertThat(names(answer.get(namedOrganisation))).describedAs("named repositories then exact includes").
+                containsExactly("c-repo", "b-repo", "a-repo");
+        assertThat(answer.get(listedOrganisation).get(0).getRepositoryDetails()).describedAs("configured details").
+                isSameAs(listedOrganisation.getRepositories().get(0));
+
+        assertThat(finder.listed).describedAs("organisations listed").containsExactly("fabric8io");
+        assertThat(new TreeSet<>(finder.lookups)).describedAs("repositories looked up").
+                containsExactly("fabric8io/fabric8-maven-plugin", "jstrachan/a-repo", "jstrachan/b-repo", "jstrachan/c-repo", "jstrachan/missing");
+        assertThat(finder.lookups).describedAs("each repository is only looked up once").hasSize(5);
+        for (String thread : finder.threads) {
+            assertThat(thread).startsWith("updatebot-github-");
+        }
+    }
+
+    protected static List<String> names(List<GitRepository> repositories) {
+        List<String> answer = new ArrayList<>();
+        for (GitRepository repository : repositories) {
+            answer.add(repository.getName());
+        }
+        return answer;
+    }
+
+    /**
+     * Finds the repositories from canned listings rather than GitHub
+     */
+    private static class StubOrganisationRepositories extends OrganisationRepositories {
+        private final Map<String, List<String>> listings = new HashMap<>();
+        private final Set<String> repositories = new HashSet<>();
+        private final List<String> listed = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> lookups = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+        StubOrganisationRepositories() {
+            super(null, 4);
+        }
+
+        @Override
+        protected GHPerson getOrganisationOrUser(String orgName) {
+            threads.add(Thread.currentThread().getName());
+            return new GHPerson() {
+                @Override
+                public GHRepository getRepository(String name) {
+                    String fullName = orgName + "/" + name;
+                    threads.add(Thread.currentThread().getName());
+                    lookups.add(fullName);
+                    return repositories.contains(fullName) ? new StubRepository(orgName, name) : null;
+                }
+
+                @Override
+                public String getLogin() {
+                    return orgName;
+                }
+
+                @Override
+                public URL getHtmlUrl() {
+                    return null;
+                }
+            };
+        }
+
+        @Override
+        protected Iterable<GHRepository> listRepositories(GHPerson person) {
+            String orgName = person.getLogin();
+            listed.add(orgName);
+            List<GHRepository> answer = new ArrayList<>();
+            for (String name : listings.get(orgName)) {
+                answer.add(new StubRepository(orgName, name));
+            }
+            return answer;
+        }
+    }
+
+    private static class StubRepository extends GHRepository {
+        private final String owner;
+        private final String name;
+
+        StubRepository(String owner, String name) {
+            this.owner = owner;
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getFullName() {
+            return owner + "/" + name;
+        }
+
+        @Override
+        public String getGitTransportUrl() {
+            return "git://github.com/" + getFullName() + ".git";
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.github;
+
+import io.fabric8.updatebot.model.GithubRepository;
+import io.fabric8.updatebot.support.FileHelper;
+import io.fabric8.updatebot.test.Tests;
+import io.fabric8.utils.Files;
+import io.fabric8.utils.IOHelpers;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class RepositoryCatalogTest {
+    private File dir;
+
+    @Before
+    public void init() throws Exception {
+        dir = Tests.getTestDataDir(getClass());
+        Files.recursiveDelete(dir);
+        dir.mkdirs();
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        RepositoryCatalog catalog = new RepositoryCatalog("fabric8io");
+        catalog.putRepository(createEntry("updatebot"));
+        catalog.putRepository(createEntry("fabric8-ui"));
+        catalog.setLastSync(1000L);
+        catalog.setLastFullSync(2000L);
+
+        File file = OrganisationRepositories.getCatalogFile(dir, "fabric8io");
+        catalog.save(file);
+        assertThat(FileHelper.isFile(file)).isTrue();
+
+        RepositoryCatalog loaded = RepositoryCatalog.load(file);
+        assertThat(loaded.getOrganisation()).isEqualTo("fabric8io");
+        assertThat(loaded.getLastSync()).isEqualTo(1000L);
+        assertThat(loaded.getLastFullSync()).isEqualTo(2000L);
+        assertThat(loaded.getRepositories()).hasSize(2);
+
+        RepositoryCatalog.Entry entry = loaded.getRepository("updatebot");
+        assertThat(entry.getFullName()).isEqualTo("fabric8io/updatebot");
+        assertThat(entry.getCloneUrl()).isEqualTo("git://github.com/fabric8io/updatebot.git");
+        assertThat(entry.getHtmlUrl()).isEqualTo("https://github.com/fabric8io/updatebot");
+    }
+
+    @Test
+    public void testMissingOrCorruptCatalogIsIgnored() throws Exception {
+        File file = new File(dir, "corrupt.json");
+        assertThat(RepositoryCatalog.load(file)).isNull();
+
+        IOHelpers.writeFully(file, "{ not json");
+        assertThat(RepositoryCatalog.load(file)).isNull();
+    }
+
+    @Test
+    public void testFullSyncInterval() throws Exception {
+        long interval = TimeUnit.HOURS.toMillis(24);
+        long now = System.currentTimeMillis();
+        RepositoryCatalog catalog = new RepositoryCatalog("fabric8io");
+        assertThat(catalog.isFullSyncRequired(now, interval)).isTrue();
+
+        catalog.setLastFullSync(now - TimeUnit.HOURS.toMillis(1));
+        assertThat(catalog.isFullSyncRequired(now, interval)).isFalse();
+
+        catalog.setLastFullSync(now - TimeUnit.HOURS.toMillis(25));
+        assertThat(catalog.isFullSyncRequired(now, interval)).isTrue();
+    }
+
+    @Test
+    public void testRepositoryCreatedFromEntryMatchesCloneUrls() throws Exception {
+        GithubRepository repository = createEntry("updatebot").createRepository(null);
+
+        assertThat(repository.getFullName()).isEqualTo("fabric8io/updatebot");
+        assertThat(repository.getRepository()).isNull();
+        assertThat(repository.hasCloneUrl("git://github.com/fabric8io/updatebot.git")).isTrue();
+        assertThat(repository.hasCloneUrl("https://github.com/fabric8io/updatebot.git")).isTrue();
+        assertThat(repository.hasCloneUrl("git@github.com:fabric8io/updatebot.git")).isTrue();
+        assertThat(repository.hasCloneUrl("https://github.com/fabric8io/fabric8-ui.git")).isFalse();
+    }
+
+    protected static RepositoryCatalog.Entry createEntry(String name) {
+        RepositoryCatalog.Entry entry = new RepositoryCatalog.Entry();
+        entry.setName(name);
+        entry.setFullName("fabric8io/" + name);
+        entry.setCloneUrl("git://github.com/fabric8io/" + name + ".git");
+        entry.setHtmlUrl("https://github.com/fabric8io/" + name);
+        return entry;
+    }
+}
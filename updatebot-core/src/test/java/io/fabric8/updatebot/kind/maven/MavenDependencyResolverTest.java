@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.maven;
+
+import io.fabric8.updatebot.Configuration;
+import io.fabric8.updatebot.commands.CommandContext;
+import io.fabric8.updatebot.kind.Kind;
+import io.fabric8.updatebot.kind.KindDependenciesCheck;
+import io.fabric8.updatebot.kind.npm.dependency.DependencyCheck;
+import io.fabric8.updatebot.model.DependencyVersionChange;
+import io.fabric8.updatebot.repository.LocalRepository;
+import io.fabric8.updatebot.test.Tests;
+import io.fabric8.utils.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class MavenDependencyResolverTest {
+    protected PomUpdater updater = new PomUpdater();
+    protected Configuration configuration = new Configuration();
+    protected File testDir;
+
+    @Before
+    public void init() throws Exception {
+        testDir = Tests.getTestDataDir(getClass());
+        Files.recursiveDelete(testDir);
+        testDir.mkdirs();
+
+        File repository = new File(Tests.getBasedir(), "src/test/resources/maven/repository");
+        configuration.setMavenRepositories(repository.toURI().toString());
+        configuration.setMavenLocalRepository(new File(testDir, "local-repository").getPath());
+        configuration.setMavenOffline(true);
+    }
+
+    @Test
+    public void testConvergenceConflict() throws Exception {
+        CommandContext context = createProject("lib-b", "1.0");
+
+        KindDependenciesCheck check = updater.checkDependencies(context, Arrays.asList(
+                new DependencyVersionChange(Kind.MAVEN, "org.example:lib-a", "1.0"),
+                new DependencyVersionChange(Kind.MAVEN, "org.example:lib-c", "1.0")));
+
+        assertThat(check.getValidChanges()).containsExactly(new DependencyVersionChange(Kind.MAVEN, "org.example:lib-a", "1.0"));
+        assertThat(check.getInvalidChanges()).containsExactly(new DependencyVersionChange(Kind.MAVEN, "org.example:lib-c", "1.0"));
+        DependencyCheck failure = check.getFailedChecks().get("org.example:lib-c");
+        assertThat(failure.isValid()).isFalse();
+        assertThat(failure.getVersion()).describedAs("the version maven would pick").isEqualTo("1.0");
+        assertThat(failure.getMessage()).contains("org.example:lib-b@1.0 => 2.0");
+    }
+
+    @Test
+    public void testConverged() throws Exception {
+        CommandContext context = createProject("lib-b", "2.0");
+
+        List<DependencyVersionChange> changes = Collections.singletonList(new DependencyVersionChange(Kind.MAVEN, "org.example:lib-b", "2.0"));
+        KindDependenciesCheck check = updater.checkDependencies(context, changes);
+
+        assertThat(check.getValidChanges()).containsExactly(changes.get(0));
+        assertThat(check.getInvalidChanges()).isEmpty();
+    }
+
+    @Test
+    public void testOlderTransitiveVersionIsValid() throws Exception {
+        // lib-a depends on lib-c 1.0 which is older than the lib-c the project uses
+        CommandContext context = createProjectWithDependencies("project-newer-lib-c", dependency("lib-a", "1.0") + dependency("lib-c", "2.0"));
+
+        List<DependencyVersionChange> changes = Collections.singletonList(new DependencyVersionChange(Kind.MAVEN, "org.example:lib-c", "2.0"));
+        KindDependenciesCheck check = updater.checkDependencies(context, changes);
+
+        assertThat(check.getValidChanges()).containsExactly(changes.get(0));
+        assertThat(check.getInvalidChanges()).isEmpty();
+    }
+
+    /**
+     * Creates a project which depends on <code>lib-a</code>, <code>lib-c</code> and the given version of another artifact
+     */
+    protected CommandContext createProject(String artifactId, String version) throws Exception {
+        return createProjectWithDependencies("project-" + artifactId + "-" + version,
+                dependency("lib-a", "1.0") + dependency(artifactId, version) + dependency("lib-c", "1.0"));
+    }
+
+    protected CommandContext createProjectWithDependencies(String name, String dependencies) throws Exception {
+        File dir = new File(testDir, name);
+        dir.mkdirs();
+        String pom = "<project>\n" +
+                "  <modelVersion>4.0.0</modelVersion>\n" +
+                "  <groupId>org.example</groupId>\n" +
+                "  <artifactId>project</artifactId>\n" +
+                "  <version>1.0-SNAPSHOT</version>\n" +
+                "  <dependencies>\n" +
+                dependencies +
+                "  </dependencies>\n" +
+                "</project>\n";
+        java.nio.file.Files.write(new File(dir, "pom.xml").toPath(), pom.getBytes(StandardCharsets.UTF_8));
+        return new CommandContext(LocalRepository.fromDirectory(dir), configuration);
+    }
+
+    protected static String dependency(String artifactId, String version) {
+        return "    <dependency>\n" +
+                "      <groupId>org.example</groupId>\n" +
+                "      <artifactId>" + artifactId + "</artifactId>\n" +
+                "      <version>" + version + "</version>\n" +
+                "    </dependency>\n";
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.maven;
+
+import io.fabric8.updatebot.support.MetadataCache;
+import io.fabric8.updatebot.test.Tests;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class MavenMetadataResolverTest {
+    protected AtomicInteger requests = new AtomicInteger();
+    protected MavenMetadataResolver resolver;
+
+    @Before
+    public void init() throws Exception {
+        File cacheDir = Tests.getTestDataDir(getClass());
+        MetadataCache cache = new MetadataCache(cacheDir, 0, 0) {
+            @Override
+            public byte[] get(String url) throws IOException {
+                requests.incrementAndGet();
+                return super.get(url);
+            }
+        };
+        String repository = new File(Tests.getBasedir(), "src/test/resources/maven/repository").toURI().toString();
+        resolver = new MavenMetadataResolver(Arrays.asList(repository, "https://repo1.maven.org/maven2/"), cache, true);
+    }
+
+    @Test
+    public void testLatestRelease() throws Exception {
+        assertThat(resolver.getRepositories()).describedAs("offline repositories").hasSize(1);
+        assertThat(resolver.getLatestVersion("com.google.guava", "guava")).describedAs("release candidates are skipped").isEqualTo("23.0");
+        assertThat(resolver.getLatestVersion("org.apache.camel", "camel-core")).describedAs("milestones are skipped").isEqualTo("2.20.1");
+        assertThat(resolver.getLatestVersion("does.not", "exist")).isNull();
+
+        resolver.getLatestVersion("com.google.guava", "guava");
+        resolver.getLatestVersion("does.not", "exist");
+        assertThat(requests.get()).describedAs("the metadata of each artifact should be loaded once").isEqualTo(3);
+    }
+
+    @Test
+    public void testVersionOrder() throws Exception {
+        MavenVersionComparator comparator = MavenVersionComparator.INSTANCE;
+        assertThat(comparator.compare("9.0", "23.0")).isLessThan(0);
+        assertThat(comparator.compare("2.0-SNAPSHOT", "2.0")).isLessThan(0);
+        assertThat(comparator.compare("2.20.1", "2.20")).isGreaterThan(0);
+        assertThat(comparator.compare("1.5.8.RELEASE", "1.5.7.RELEASE")).isGreaterThan(0);
+        assertThat(MavenVersionComparator.isRelease("1.5.8.RELEASE")).isTrue();
+        assertThat(MavenVersionComparator.isRelease("23.0-jre")).isTrue();
+        assertThat(MavenVersionComparator.isRelease("3.0.0-M1")).isFalse();
+        assertThat(MavenVersionComparator.isRelease("2.0.0-beta.1")).isFalse();
+        assertThat(MavenVersionComparator.isRelease("5.0.0.Alpha2")).isFalse();
+        assertThat(MavenVersionComparator.isRelease("1.0-SNAPSHOT")).isFalse();
+    }
+}
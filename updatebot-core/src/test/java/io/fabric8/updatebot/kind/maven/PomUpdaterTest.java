@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.maven;
+
+import io.fabric8.updatebot.Configuration;
+import io.fabric8.updatebot.commands.CommandContext;
+import io.fabric8.updatebot.commands.PushVersionChangesContext;
+import io.fabric8.updatebot.kind.Kind;
+import io.fabric8.updatebot.model.Dependencies;
+import io.fabric8.updatebot.model.DependencyVersionChange;
+import io.fabric8.updatebot.model.GitHubRepositoryDetails;
+import io.fabric8.updatebot.model.MavenDependencies;
+import io.fabric8.updatebot.model.MavenDependencyFilter;
+import io.fabric8.updatebot.repository.LocalRepository;
+import io.fabric8.updatebot.test.Tests;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class PomUpdaterTest {
+    protected PomUpdater updater = new PomUpdater();
+    protected CommandContext parentContext;
+    protected File testDir;
+    protected File rootPom;
+    protected File modulePom;
+    protected Configuration configuration = new Configuration();
+
+    @Before
+    public void init() throws Exception {
+        testDir = Tests.copyPackageSources(getClass());
+        parentContext = new CommandContext(LocalRepository.fromDirectory(testDir), configuration);
+        rootPom = Tests.testFile(testDir, "pom.xml");
+        modulePom = Tests.testFile(testDir, "module-a/pom.xml");
+    }
+
+    @Test
+    public void testPushVersionsAcrossReactor() throws Exception {
+        String rootText = readFile(rootPom);
+        String moduleText = readFile(modulePom);
+        assertThat(updater.isApplicable(parentContext)).describedAs("applicable").isTrue();
+
+        List<PushVersionChangesContext> contexts = Arrays.asList(
+                parentContext.updateVersion(Kind.MAVEN, "org.apache.camel:camel-spring-boot", "2.20.0"),
+                parentContext.updateVersion(Kind.MAVEN, "com.google.guava:guava", "23.0"),
+                parentContext.updateVersion(Kind.MAVEN, "org.apache.maven.plugins:maven-surefire-plugin", "2.20.1"),
+                parentContext.updateVersion(Kind.MAVEN, "org.springframework.boot:spring-boot-starter-parent", "1.5.8.RELEASE"),
+                parentContext.updateVersion(Kind.MAVEN, "io.fabric8.updatebot.sample:module-b", "2.0.0"),
+                parentContext.updateVersion(Kind.MAVEN, "does.not:exist", "1.0.0"));
+        assertThat(updater.pushVersions(contexts)).describedAs("should have updated the reactor").isTrue();
+
+        String expectedRoot = rootText.
+                replace("<camel.version>2.19.3</camel.version>", "<camel.version>2.20.0</camel.version>").
+                replace("<version>2.20</version>", "<version>2.20.1</version>").
+                replace("<version>1.5.7.RELEASE</version>", "<version>1.5.8.RELEASE</version>");
+        String expectedModule = moduleText.
+                replace("<version>  20.0  </version>", "<version>  23.0  </version>").
+                replace("<version>20.0</version>", "<version>23.0</version>");
+        assertThat(readFile(rootPom)).describedAs("only the versions should change in " + rootPom).isEqualTo(expectedRoot);
+        assertThat(readFile(modulePom)).describedAs("only the versions should change in " + modulePom).isEqualTo(expectedModule);
+
+        PushVersionChangesContext.Change camel = contexts.get(0).change("org.apache.camel:camel-spring-boot");
+        assertThat(camel.getOldValue()).isEqualTo("2.19.3");
+        assertThat(camel.getNewValue()).isEqualTo("2.20.0");
+        assertThat(contexts.get(0).getUpdatedFiles()).describedAs("the property is defined in the parent").containsOnly(rootPom);
+        assertThat(contexts.get(1).getUpdatedFiles()).containsOnly(modulePom);
+        assertThat(contexts.get(4).getChanges()).describedAs("versions using project properties").isEmpty();
+        assertThat(contexts.get(5).getChanges()).describedAs("changes for a missing dependency").isEmpty();
+    }
+
+    @Test
+    public void testAddPushVersionsSteps() throws Exception {
+        MavenDependencyFilter filter = new MavenDependencyFilter();
+        filter.setGroupInclude("org.apache.camel");
+        MavenDependencies maven = new MavenDependencies();
+        maven.getDependencies().add(filter);
+        Dependencies dependencies = new Dependencies();
+        dependencies.setMaven(maven);
+
+        List<DependencyVersionChange> list = new ArrayList<>();
+        updater.addPushVersionsSteps(parentContext, dependencies, list);
+
+        assertThat(list).containsExactly(
+                new DependencyVersionChange(Kind.MAVEN, "io.fabric8.updatebot.sample:sample-parent", "1.0.3", MavenDependencyKinds.DEPENDENCIES),
+                new DependencyVersionChange(Kind.MAVEN, "io.fabric8.updatebot.sample:module-a", "1.0.3", MavenDependencyKinds.DEPENDENCIES),
+                new DependencyVersionChange(Kind.MAVEN, "org.apache.camel:camel-core", "2.19.3", MavenDependencyKinds.DEPENDENCIES),
+                new DependencyVersionChange(Kind.MAVEN, "org.apache.camel:camel-spring-boot", "2.19.3", MavenDependencyKinds.DEPENDENCIES));
+    }
+
+    @Test
+    public void testPullVersionsFromRepository() throws Exception {
+        File repositoryDir = new File(Tests.getBasedir(), "src/test/resources/maven/repository");
+        configuration.setMavenRepositories(repositoryDir.toURI().toString());
+
+        MavenDependencyFilter camel = new MavenDependencyFilter();
+        camel.setGroupInclude("org.apache.camel");
+        MavenDependencyFilter guava = new MavenDependencyFilter();
+        guava.setArtifactInclude("guava");
+        MavenDependencyFilter surefire = new MavenDependencyFilter();
+        surefire.setArtifactInclude("maven-surefire-plugin");
+        MavenDependencies maven = new MavenDependencies();
+        maven.getDependencies().add(camel);
+        maven.getDependencies().add(guava);
+        maven.getPlugins().add(surefire);
+        Dependencies pull = new Dependencies();
+        pull.setMaven(maven);
+        GitHubRepositoryDetails details = new GitHubRepositoryDetails(testDir.getName());
+        details.setPull(pull);
+        parentContext.getRepository().getRepo().setRepositoryDetails(details);
+
+        String rootText = readFile(rootPom);
+        String moduleText = readFile(modulePom);
+        assertThat(updater.pullVersions(parentContext)).describedAs("should have pulled versions into the reactor").isTrue();
+
+        String expectedRoot = rootText.
+                replace("<camel.version>2.19.3</camel.version>", "<camel.version>2.20.0</camel.version>").
+                replace("<version>2.20</version>", "<version>2.20.1</version>");
+        String expectedModule = moduleText.
+                replace("<version>  20.0  </version>", "<version>  23.0  </version>").
+                replace("<version>20.0</version>", "<version>23.0</version>");
+        // camel-core and camel-spring-boot share camel.version so it is the latest release of both
+        assertThat(readFile(rootPom)).describedAs("only the latest releases should be pulled into " + rootPom).isEqualTo(expectedRoot);
+        assertThat(readFile(modulePom)).describedAs("only the latest releases should be pulled into " + modulePom).isEqualTo(expectedModule);
+        assertThat(parentContext.getUpdatedFiles()).containsOnly(rootPom, modulePom);
+    }
+
+    @Test
+    public void testPullSkipsPropertySharedWithExcludedArtifact() throws Exception {
+        File repositoryDir = new File(Tests.getBasedir(), "src/test/resources/maven/repository");
+        configuration.setMavenRepositories(repositoryDir.toURI().toString());
+
+        MavenDependencyFilter camelCore = new MavenDependencyFilter();
+        camelCore.setArtifactInclude("camel-core");
+        MavenDependencies maven = new MavenDependencies();
+        maven.getDependencies().add(camelCore);
+        Dependencies pull = new Dependencies();
+        pull.setMaven(maven);
+        GitHubRepositoryDetails details = new GitHubRepositoryDetails(testDir.getName());
+        details.setPull(pull);
+        parentContext.getRepository().getRepo().setRepositoryDetails(details);
+
+        String rootText = readFile(rootPom);
+        assertThat(updater.pullVersions(parentContext)).describedAs("should not pull camel.version as camel-spring-boot also uses it").isFalse();
+        assertThat(readFile(rootPom)).isEqualTo(rootText);
+    }
+
+    protected static String readFile(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -15,10 +15,14 @@
  */
 package io.fabric8.updatebot.kind.npm;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.fabric8.updatebot.kind.npm.dependency.DependencyCheck;
 import io.fabric8.updatebot.kind.npm.dependency.DependencyInfo;
+import io.fabric8.updatebot.kind.npm.dependency.DependencyLink;
 import io.fabric8.updatebot.kind.npm.dependency.DependencyTree;
+import io.fabric8.updatebot.kind.npm.dependency.DependencyTreeParser;
 import io.fabric8.updatebot.support.MarkupHelper;
 import io.fabric8.updatebot.test.Tests;
 import org.junit.Test;
@@ -27,6 +31,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -71,6 +80,91 @@ public class DependencyCheckTest {
         assertDependencyCheck(tree, "ngx-fabric8-wit", true);
     }
 
+    @Test
+    public void testStreamingParserMatchesTreeParser() throws Exception {
+        for (String name : new String[]{"fabric8-planner.json", "fabric8-planner-change-ngx-base.json", "fabric8-planner-change-ngx-fabric8-wit.json"}) {
+            File file = new File(testDir, name);
+            DependencyTree expected = assertLoadDependencyTree(file);
+            DependencyTree actual = DependencyTree.parseTree(file);
+            assertThat(actual).describedAs("streamed tree " + name).isNotNull();
+            assertThat(actual.getDependencyNames()).describedAs("dependencies of " + name).containsExactlyElementsOf(expected.getDependencyNames());
+
+            for (String dependency : expected.getDependencyNames()) {
+                DependencyCheck expectedCheck = expected.dependencyCheck(dependency);
+                DependencyCheck actualCheck = actual.dependencyCheck(dependency);
+                assertThat(actualCheck.isValid()).describedAs(name + " valid " + dependency).isEqualTo(expectedCheck.isValid());
+                assertThat(actualCheck.getMessage()).describedAs(name + " message " + dependency).isEqualTo(expectedCheck.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testHasConflictsMatchesDependencyCheck() throws Exception {
+        DependencyTree tree = assertLoadDependencyTree("fabric8-planner-change-ngx-base.json");
+        assertThat(tree.hasConflicts("ngx-base")).describedAs("ngx-base has conflicts").isTrue();
+        assertThat(tree.hasConflicts("does-not-exist")).describedAs("unknown dependency has conflicts").isFalse();
+
+        for (String dependency : tree.getDependencyNames()) {
+            boolean valid = tree.dependencyCheck(dependency).isValid();
+            assertThat(tree.hasConflicts(dependency)).describedAs("hasConflicts " + dependency).isEqualTo(!valid);
+        }
+    }
+
+    @Test
+    public void testWhatIfCheck() throws Exception {
+        DependencyTree tree = assertLoadDependencyTree("fabric8-planner.json");
+        String version = "2.0.0";
+
+        DependencyCheck check = tree.whatIfCheck("ngx-base", version, Collections.singleton("ngx-base"));
+        LOG.info(fileName + " what if ngx-base " + version + ": " + check.getMessage());
+        assertThat(check.isValid()).describedAs("changing ngx-base alone: " + check.getMessage()).isFalse();
+        assertThat(check.getMessage()).contains("ngx-fabric8-wit");
+
+        Set<String> changed = new HashSet<>(Collections.singleton("ngx-base"));
+        for (List<DependencyLink> links : tree.getDependencyInfo("ngx-base").getVersions().values()) {
+            for (DependencyLink link : links) {
+                changed.add(link.getParent().getDependency());
+            }
+        }
+        check = tree.whatIfCheck("ngx-base", version, changed);
+        assertThat(check.isValid()).describedAs("changing ngx-base with its dependents: " + check.getMessage()).isTrue();
+
+        assertThat(tree.whatIfCheck("does-not-exist", version, changed).isValid()).isTrue();
+
+        // the tree itself should not be modified
+        assertDependencyCheck(tree, "ngx-base", true);
+    }
+
+    @Test
+    public void testWhatIfCheckUsesRequestedRanges() throws Exception {
+        String json = "{\"dependencies\": {" +
+                "\"lodash\": {\"version\": \"4.17.4\", \"from\": \"lodash@4.17.4\"}," +
+                "\"foo\": {\"version\": \"1.0.0\", \"dependencies\": {" +
+                "\"lodash\": {\"version\": \"4.17.4\", \"from\": \"lodash@^4.0.0\"}}}," +
+                "\"bar\": {\"version\": \"1.0.0\", \"dependencies\": {" +
+                "\"lodash\": {\"version\": \"4.17.4\"}}}}}";
+        List<DependencyTree> trees = Arrays.asList(
+                DependencyTree.parseTree(new ObjectMapper().readTree(json)),
+                DependencyTreeParser.parseTree(new JsonFactory().createParser(json)));
+        Set<String> changed = Collections.singleton("lodash");
+        for (DependencyTree tree : trees) {
+            // foo would dedupe to the new version but bar is only known to use 4.17.4
+            DependencyCheck check = tree.whatIfCheck("lodash", "4.17.5", changed);
+            assertThat(check.isValid()).describedAs(check.getMessage()).isFalse();
+            assertThat(check.getMessage()).contains("bar").doesNotContain("foo");
+
+            check = tree.whatIfCheck("lodash", "4.17.4", changed);
+            assertThat(check.isValid()).describedAs(check.getMessage()).isTrue();
+
+            check = tree.whatIfCheck("lodash", "5.0.0", new HashSet<>(Arrays.asList("lodash", "bar")));
+            assertThat(check.isValid()).describedAs(check.getMessage()).isFalse();
+            assertThat(check.getMessage()).contains("foo");
+
+            check = tree.whatIfCheck("lodash", "4.18.0", new HashSet<>(Arrays.asList("lodash", "bar")));
+            assertThat(check.isValid()).describedAs(check.getMessage()).isTrue();
+        }
+    }
+
     public DependencyTree assertLoadDependencyTree(String fileName) throws IOException {
         this.fileName = fileName;
         return assertLoadDependencyTree(new File(testDir, fileName));
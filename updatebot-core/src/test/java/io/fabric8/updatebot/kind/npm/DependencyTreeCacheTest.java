@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm;
+
+import io.fabric8.updatebot.kind.Kind;
+import io.fabric8.updatebot.kind.npm.dependency.DependencyCheck;
+import io.fabric8.updatebot.kind.npm.dependency.DependencyTree;
+import io.fabric8.updatebot.model.DependencyVersionChange;
+import io.fabric8.updatebot.test.NpmTests;
+import io.fabric8.updatebot.test.Tests;
+import io.fabric8.utils.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class DependencyTreeCacheTest {
+    protected File testDir = new File(Tests.getBasedir(), "src/test/resources/npm/dependencies");
+    protected File cacheDir;
+    protected DependencyTree tree;
+
+    @Before
+    public void init() throws Exception {
+        cacheDir = Tests.getTestDataDir(getClass());
+        Files.recursiveDelete(cacheDir);
+        tree = DependencyCheckTest.assertLoadDependencyTree(new File(testDir, "fabric8-planner-change-ngx-base.json"));
+    }
+
+    @Test
+    public void testCachedTreeHasSameChecks() throws Exception {
+        DependencyTreeCache cache = new DependencyTreeCache(cacheDir, 10 * 1024 * 1024);
+        cache.put("planner", tree);
+
+        DependencyTree cached = cache.get("planner");
+        assertThat(cached).describedAs("cached tree").isNotNull();
+        for (String dependency : Arrays.asList("ngx-base", "ngx-fabric8-wit", "@angular/core", "rxjs", "does-not-exist")) {
+            DependencyCheck expected = tree.dependencyCheck(dependency);
+            DependencyCheck actual = cached.dependencyCheck(dependency);
+            assertThat(actual.isValid()).describedAs("valid for " + dependency).isEqualTo(expected.isValid());
+            assertThat(actual.getMessage()).describedAs("message for " + dependency).isEqualTo(expected.getMessage());
+        }
+        assertThat(cache.get("unknown")).describedAs("unknown key").isNull();
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        DependencyTreeCache cache = new DependencyTreeCache(cacheDir, 10 * 1024 * 1024);
+        cache.put("first", tree);
+        long entrySize = new File(cacheDir, "first.tree").length();
+        assertThat(entrySize).describedAs("entry size").isGreaterThan(0L);
+
+        cache = new DependencyTreeCache(cacheDir, entrySize * 2);
+        new File(cacheDir, "first.tree").setLastModified(System.currentTimeMillis() - 60000);
+        cache.put("second", tree);
+        cache.put("third", tree);
+
+        assertThat(cache.get("first")).describedAs("evicted entry").isNull();
+        assertThat(cache.get("second")).describedAs("second entry").isNotNull();
+        assertThat(cache.get("third")).describedAs("third entry").isNotNull();
+    }
+
+    @Test
+    public void testCorruptEntriesAreEvicted() throws Exception {
+        DependencyTreeCache cache = new DependencyTreeCache(cacheDir, 10 * 1024 * 1024);
+        cache.put("planner", tree);
+        File file = cache.getFile("planner");
+        byte[] data = java.nio.file.Files.readAllBytes(file.toPath());
+
+        // point the child of the last link past the end of the packages
+        ByteBuffer.wrap(data).putInt(data.length - 20, Integer.MAX_VALUE);
+        java.nio.file.Files.write(file.toPath(), data);
+        assertThat(cache.get("planner")).describedAs("entry with an invalid index").isNull();
+        assertThat(file).describedAs("evicted entry").doesNotExist();
+
+        java.nio.file.Files.write(file.toPath(), Arrays.copyOf(data, data.length / 2));
+        assertThat(cache.get("planner")).describedAs("truncated entry").isNull();
+        assertThat(file).describedAs("evicted entry").doesNotExist();
+    }
+
+    @Test
+    public void testKeyUsesManifestAndChanges() throws Exception {
+        File dir = Tests.copyPackageSources(getClass());
+        List<DependencyVersionChange> changes = Collections.singletonList(new DependencyVersionChange(Kind.NPM, "ngx-base", "2.0.0"));
+
+        String key = DependencyTreeCache.createKey(dir, "npm", Collections.emptyList(), changes);
+        assertThat(DependencyTreeCache.createKey(dir, "npm", Collections.emptyList(), changes)).isEqualTo(key);
+        assertThat(DependencyTreeCache.createKey(dir, "npm", Collections.emptyList(), Collections.emptyList())).isNotEqualTo(key);
+
+        NpmTests.updatePackageJsonVersion(new File(dir, "package.json"), "1.2.3");
+        assertThat(DependencyTreeCache.createKey(dir, "npm", Collections.emptyList(), changes)).isNotEqualTo(key);
+    }
+
+    @Test
+    public void testKeyUsesWorkspaceMembers() throws Exception {
+        File dir = Tests.copyPackageSources(getClass());
+        File member = new File(dir, "packages/member/package.json");
+        member.getParentFile().mkdirs();
+        java.nio.file.Files.write(member.toPath(), "{\"dependencies\": {\"ngx-base\": \"^1.0.0\"}}".getBytes(StandardCharsets.UTF_8));
+        List<File> members = Collections.singletonList(member);
+        List<DependencyVersionChange> changes = Collections.emptyList();
+
+        String key = DependencyTreeCache.createKey(dir, "npm", members, changes);
+        assertThat(DependencyTreeCache.createKey(dir, "npm", Collections.emptyList(), changes)).isNotEqualTo(key);
+
+        java.nio.file.Files.write(member.toPath(), "{\"dependencies\": {\"ngx-base\": \"^2.0.0\"}}".getBytes(StandardCharsets.UTF_8));
+        assertThat(DependencyTreeCache.createKey(dir, "npm", members, changes)).describedAs("key after member changed").isNotEqualTo(key);
+    }
+
+    @Test
+    public void testOnlyLockedSourcesAreCacheable() throws Exception {
+        File dir = Tests.copyPackageSources(getClass());
+        assertThat(DependencyTreeCache.hasLockFile(dir)).describedAs("without a lock file").isFalse();
+
+        java.nio.file.Files.write(new File(dir, "package-lock.json").toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+        assertThat(DependencyTreeCache.hasLockFile(dir)).describedAs("with a lock file").isTrue();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm;
+
+import io.fabric8.updatebot.test.Tests;
+import io.fabric8.utils.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class NpmInstallPoolTest {
+    protected File testDir;
+
+    @Before
+    public void init() throws Exception {
+        testDir = Tests.getTestDataDir(getClass());
+        Files.recursiveDelete(testDir);
+    }
+
+    @Test
+    public void testReleasedSandboxesAreReused() throws Exception {
+        NpmInstallPool pool = new NpmInstallPool(testDir, 2, 0);
+
+        File first = pool.acquire();
+        File second = pool.acquire();
+        assertThat(first).isDirectory();
+        assertThat(second).isDirectory();
+        assertThat(second).describedAs("concurrent sandbox").isNotEqualTo(first);
+
+        pool.release(first);
+        assertThat(pool.acquire()).describedAs("sandbox after release").isEqualTo(first);
+    }
+
+    @Test
+    public void testSandboxesArePreferredForTheirSource() throws Exception {
+        NpmInstallPool pool = new NpmInstallPool(testDir, 2, 0);
+        File repo1 = new File(testDir, "repo1");
+        File repo2 = new File(testDir, "repo2");
+
+        File first = pool.acquire(repo1);
+        File second = pool.acquire(repo2);
+        pool.setSandboxSource(first, repo1);
+        pool.setSandboxSource(second, repo2);
+        pool.release(first);
+        pool.release(second);
+
+        assertThat(pool.getSandboxSource(second)).isEqualTo(repo2.getAbsoluteFile());
+        assertThat(pool.acquire(repo2)).describedAs("sandbox of the same repository").isEqualTo(second);
+        assertThat(pool.acquire(new File(testDir, "repo3"))).describedAs("sandbox of another repository").isEqualTo(first);
+    }
+
+    @Test
+    public void testInstallsWaitForSandbox() throws Exception {
+        NpmInstallPool pool = new NpmInstallPool(testDir, 1, 0);
+        assertThat(pool.getConcurrency()).isEqualTo(1);
+
+        File sandbox = pool.acquire();
+        AtomicReference<File> waiting = new AtomicReference<>();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                waiting.set(pool.acquire());
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+
+        assertThat(acquired.await(200, TimeUnit.MILLISECONDS)).describedAs("acquired while sandbox in use").isFalse();
+        pool.release(sandbox);
+        assertThat(acquired.await(10, TimeUnit.SECONDS)).describedAs("acquired after release").isTrue();
+        assertThat(waiting.get()).isEqualTo(sandbox);
+        thread.join();
+    }
+
+    @Test
+    public void testDefaultConcurrency() throws Exception {
+        NpmInstallPool pool = new NpmInstallPool(testDir, 0, 0);
+        assertThat(pool.getConcurrency()).isEqualTo(Runtime.getRuntime().availableProcessors());
+        assertThat(NpmInstallPool.defaultConcurrency(Long.MAX_VALUE)).describedAs("concurrency without enough memory").isEqualTo(1);
+        assertThat(pool.getCacheDir()).isEqualTo(new File(testDir, "cache"));
+        assertThat(pool.getStore().getDir()).isEqualTo(new File(testDir, "store"));
+    }
+}
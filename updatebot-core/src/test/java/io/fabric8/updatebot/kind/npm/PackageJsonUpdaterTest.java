@@ -20,6 +20,9 @@ import io.fabric8.updatebot.Configuration;
 import io.fabric8.updatebot.commands.CommandContext;
 import io.fabric8.updatebot.commands.PushVersionChangesContext;
 import io.fabric8.updatebot.kind.Kind;
+import io.fabric8.updatebot.model.Dependencies;
+import io.fabric8.updatebot.model.GitHubRepositoryDetails;
+import io.fabric8.updatebot.model.NpmDependencies;
 import io.fabric8.updatebot.repository.LocalRepository;
 import io.fabric8.updatebot.support.MarkupHelper;
 import io.fabric8.updatebot.test.Tests;
@@ -28,6 +31,11 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static io.fabric8.updatebot.test.MarkupAssertions.assertTextValue;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -58,6 +66,172 @@ public class PackageJsonUpdaterTest {
         assertUpdatePackageJson(packageJson, "devDependencies", "@angular/compiler", "4.3.7");
     }
 
+    @Test
+    public void testUpdatePreservesFormatting() throws Exception {
+        String crlf = new String(Files.readAllBytes(packageJson.toPath()), StandardCharsets.UTF_8).replaceAll("\r?\n", "\r\n");
+        Files.write(packageJson.toPath(), crlf.getBytes(StandardCharsets.UTF_8));
+        String oldVersion = assertTextValue(MarkupHelper.loadJson(packageJson), "dependencies", "@angular/core");
+
+        assertUpdatePackageJson(packageJson, "dependencies", "@angular/core", "4.3.7");
+
+        String expected = crlf.replace("\"@angular/core\": \"" + oldVersion + "\"", "\"@angular/core\": \"4.3.7\"");
+        String actual = new String(Files.readAllBytes(packageJson.toPath()), StandardCharsets.UTF_8);
+        assertThat(actual).describedAs("only the version should change").isEqualTo(expected);
+    }
+
+    @Test
+    public void testUpdateManyDependenciesInOneBatch() throws Exception {
+        List<PushVersionChangesContext> contexts = Arrays.asList(
+                parentContext.updateVersion(Kind.NPM, "@angular/core", "4.3.7"),
+                parentContext.updateVersion(Kind.NPM, "@angular/compiler", "4.3.7"),
+                parentContext.updateVersion(Kind.NPM, "does-not-exist", "1.0.0"),
+                parentContext.updateVersion(Kind.NPM, "@angular/core", "4.3.8"));
+        assertThat(updater.pushVersions(contexts)).describedAs("should have updated " + packageJson).isTrue();
+
+        assertThat(contexts.get(0).change("@angular/core").getNewValue()).isEqualTo("4.3.7");
+        assertThat(contexts.get(1).change("@angular/compiler").getNewValue()).isEqualTo("4.3.7");
+        assertThat(contexts.get(2).getChanges()).describedAs("changes for a missing dependency").isEmpty();
+        PushVersionChangesContext.Change change = contexts.get(3).change("@angular/core");
+        assertThat(change.getOldValue()).describedAs("later changes in a batch should see earlier ones").isEqualTo("4.3.7");
+        assertThat(change.getNewValue()).isEqualTo("4.3.8");
+
+        JsonNode tree = MarkupHelper.loadJson(packageJson);
+        assertThat(assertTextValue(tree, "dependencies", "@angular/core")).isEqualTo("4.3.8");
+        assertThat(assertTextValue(tree, "devDependencies", "@angular/compiler")).isEqualTo("4.3.7");
+    }
+
+    @Test
+    public void testRevertedChangesAreNotRecorded() throws Exception {
+        String oldVersion = assertTextValue(MarkupHelper.loadJson(packageJson), "dependencies", "@angular/core");
+
+        List<PushVersionChangesContext> reverted = Arrays.asList(
+                parentContext.updateVersion(Kind.NPM, "@angular/core", "4.3.7"),
+                parentContext.updateVersion(Kind.NPM, "@angular/core", oldVersion));
+        assertThat(updater.pushVersions(reverted)).describedAs("should not write a file whose changes were reverted").isFalse();
+        assertThat(reverted.get(0).getChanges()).isEmpty();
+        assertThat(reverted.get(1).getChanges()).isEmpty();
+
+        List<PushVersionChangesContext> contexts = Arrays.asList(
+                parentContext.updateVersion(Kind.NPM, "@angular/core", "4.3.7"),
+                parentContext.updateVersion(Kind.NPM, "@angular/compiler", "4.3.7"),
+                parentContext.updateVersion(Kind.NPM, "@angular/core", oldVersion));
+        assertThat(updater.pushVersions(contexts)).describedAs("should have updated " + packageJson).isTrue();
+        assertThat(contexts.get(0).getChanges()).describedAs("changes reverted later in the batch").isEmpty();
+        assertThat(contexts.get(1).change("@angular/compiler").getNewValue()).isEqualTo("4.3.7");
+        assertThat(contexts.get(2).getChanges()).describedAs("changes back to the original version").isEmpty();
+
+        JsonNode tree = MarkupHelper.loadJson(packageJson);
+        assertThat(assertTextValue(tree, "dependencies", "@angular/core")).isEqualTo(oldVersion);
+        assertThat(assertTextValue(tree, "devDependencies", "@angular/compiler")).isEqualTo("4.3.7");
+    }
+
+    @Test
+    public void testPullVersionsFromRegistry() throws Exception {
+        File registryDir = new File(Tests.getBasedir(), "src/test/resources/npm/registry");
+        configuration.setNpmRegistryUrl(registryDir.toURI().toString());
+
+        NpmDependencies npm = new NpmDependencies();
+        npm.getDependencies().include("@angular/*");
+        npm.getDevDependencies().include("@angular/compiler");
+        Dependencies pull = new Dependencies();
+        pull.setNpm(npm);
+        GitHubRepositoryDetails details = new GitHubRepositoryDetails(testDir.getName());
+        details.setPull(pull);
+        parentContext.getRepository().getRepo().setRepositoryDetails(details);
+
+        assertThat(updater.pullVersions(parentContext)).describedAs("should have pulled versions into " + packageJson).isTrue();
+
+        JsonNode tree = MarkupHelper.loadJson(packageJson);
+        assertThat(assertTextValue(tree, "dependencies", "@angular/core")).isEqualTo("5.0.1");
+        assertThat(assertTextValue(tree, "dependencies", "@angular/http")).isEqualTo("5.0.1");
+        assertThat(assertTextValue(tree, "dependencies", "lodash")).describedAs("excluded by the filter").isEqualTo("4.17.4");
+        assertThat(assertTextValue(tree, "devDependencies", "@angular/compiler")).isEqualTo("5.0.1");
+        assertThat(assertTextValue(tree, "devDependencies", "@angular/common")).describedAs("excluded by the filter").isEqualTo("4.3.6");
+    }
+
+    @Test
+    public void testUpgradeVersionRange() throws Exception {
+        assertThat(PackageJsonUpdater.upgradeVersionRange("4.3.6", "5.0.1")).isEqualTo("5.0.1");
+        assertThat(PackageJsonUpdater.upgradeVersionRange("^4.3.6", "5.0.1")).isEqualTo("^5.0.1");
+        assertThat(PackageJsonUpdater.upgradeVersionRange("~4.3.6", "4.3.10")).isEqualTo("~4.3.10");
+        assertThat(PackageJsonUpdater.upgradeVersionRange("5.0.1", "5.0.1")).isNull();
+        assertThat(PackageJsonUpdater.upgradeVersionRange("5.1.0-beta.0", "5.0.1")).isNull();
+        assertThat(PackageJsonUpdater.upgradeVersionRange("5.0.1-beta.0", "5.0.1")).isEqualTo("5.0.1");
+        assertThat(PackageJsonUpdater.upgradeVersionRange("1.x", "5.0.1")).isNull();
+        assertThat(PackageJsonUpdater.upgradeVersionRange(">= 1.0.0 < 2", "5.0.1")).isNull();
+        assertThat(PackageJsonUpdater.upgradeVersionRange("git+https://github.com/foo/bar.git", "5.0.1")).isNull();
+    }
+
+    @Test
+    public void testRangePolicySkip() throws Exception {
+        useVersionRanges();
+        configuration.setNpmRangePolicy(NpmRangePolicy.SKIP);
+
+        PushVersionChangesContext context = parentContext.updateVersion(Kind.NPM, "@angular/core", "4.3.7");
+        assertThat(updater.pushVersions(context)).describedAs("should not update a version within its range").isFalse();
+        assertThat(context.getChanges()).isEmpty();
+
+        assertUpdatePackageJson(packageJson, "dependencies", "@angular/core", "5.0.0");
+    }
+
+    @Test
+    public void testRangePolicyBatch() throws Exception {
+        useVersionRanges();
+        configuration.setNpmRangePolicy(NpmRangePolicy.BATCH);
+
+        PushVersionChangesContext context = parentContext.updateVersion(Kind.NPM, "@angular/core", "4.3.7");
+        assertThat(updater.pushVersions(context)).describedAs("should not update a version within its range on its own").isFalse();
+
+        List<PushVersionChangesContext> contexts = Arrays.asList(
+                parentContext.updateVersion(Kind.NPM, "@angular/core", "4.3.7"),
+                parentContext.updateVersion(Kind.NPM, "@angular/http", "4.3.7"));
+        assertThat(updater.pushVersions(contexts)).describedAs("should update a version within its range with other changes").isTrue();
+        JsonNode tree = MarkupHelper.loadJson(packageJson);
+        assertThat(assertTextValue(tree, "dependencies", "@angular/core")).isEqualTo("4.3.7");
+        assertThat(assertTextValue(tree, "dependencies", "@angular/http")).isEqualTo("4.3.7");
+    }
+
+    @Test
+    public void testUpdateMonorepo() throws Exception {
+        File moduleA = writeFile("packages/a/package.json", "{\n  \"name\": \"a\",\n  \"dependencies\": {\n    \"@angular/core\": \"4.3.6\"\n  }\n}\n");
+        File moduleB = writeFile("packages/b/package.json", "{\n  \"name\": \"b\",\n  \"devDependencies\": {\n    \"@angular/core\": \"4.3.6\"\n  }\n}\n");
+        File installed = writeFile("packages/a/node_modules/x/package.json", "{\"dependencies\": {\"@angular/core\": \"4.3.6\"}}");
+        File ignored = writeFile("dist/package.json", "{\"dependencies\": {\"@angular/core\": \"4.3.6\"}}");
+        writeFile(".gitignore", "/dist\n");
+
+        assertThat(NpmWorkspaces.getWorkspaceRoots(parentContext)).describedAs("workspace roots without a workspace").
+                containsExactly(testDir, moduleA.getParentFile(), moduleB.getParentFile());
+        assertThat(NpmWorkspaces.getWorkspaceMembers(parentContext, testDir)).describedAs("workspace members without a workspace").isEmpty();
+
+        PushVersionChangesContext context = parentContext.updateVersion(Kind.NPM, "@angular/core", "4.3.7");
+        assertThat(updater.pushVersions(Collections.singletonList(context))).describedAs("should have updated the monorepo").isTrue();
+
+        assertThat(assertTextValue(MarkupHelper.loadJson(packageJson), "dependencies", "@angular/core")).isEqualTo("4.3.7");
+        assertThat(assertTextValue(MarkupHelper.loadJson(moduleA), "dependencies", "@angular/core")).isEqualTo("4.3.7");
+        assertThat(assertTextValue(MarkupHelper.loadJson(moduleB), "devDependencies", "@angular/core")).isEqualTo("4.3.7");
+        assertThat(assertTextValue(MarkupHelper.loadJson(installed), "dependencies", "@angular/core")).describedAs("node_modules").isEqualTo("4.3.6");
+        assertThat(assertTextValue(MarkupHelper.loadJson(ignored), "dependencies", "@angular/core")).describedAs("ignored by git").isEqualTo("4.3.6");
+        assertThat(context.getUpdatedFiles()).containsOnly(packageJson, moduleA, moduleB);
+
+        writeFile("lerna.json", "{\"packages\": [\"packages/*\"]}");
+        CommandContext lernaContext = new CommandContext(parentContext.getRepository(), configuration);
+        assertThat(NpmWorkspaces.getWorkspaceRoots(lernaContext)).describedAs("workspace roots of a lerna repo").containsExactly(testDir);
+        assertThat(NpmWorkspaces.getWorkspaceMembers(lernaContext, testDir)).describedAs("workspace members of a lerna repo").containsExactly(moduleA, moduleB);
+    }
+
+    protected File writeFile(String path, String text) throws IOException {
+        File file = new File(testDir, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    protected void useVersionRanges() throws IOException {
+        String json = new String(Files.readAllBytes(packageJson.toPath()), StandardCharsets.UTF_8);
+        json = json.replace("\"@angular/core\": \"4.3.6\"", "\"@angular/core\": \"^4.3.0\"");
+        Files.write(packageJson.toPath(), json.getBytes(StandardCharsets.UTF_8));
+    }
+
     public void assertUpdatePackageJson(File packageJson, String dependencyKey, String name, String version) throws IOException {
         PushVersionChangesContext context = parentContext.updateVersion(Kind.NPM, name, version);
         assertThat(updater.isApplicable(context)).
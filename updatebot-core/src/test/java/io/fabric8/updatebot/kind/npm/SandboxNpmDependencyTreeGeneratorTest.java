@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm;
+
+import io.fabric8.updatebot.test.Tests;
+import io.fabric8.utils.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class SandboxNpmDependencyTreeGeneratorTest {
+    protected File testDir;
+    protected File sourceDir;
+    protected NpmInstallPool pool;
+
+    @Before
+    public void init() throws Exception {
+        testDir = Tests.getTestDataDir(getClass());
+        Files.recursiveDelete(testDir);
+        sourceDir = new File(testDir, "source");
+        pool = new NpmInstallPool(new File(testDir, "pool"), 1, 0);
+
+        writeFile(new File(sourceDir, "package.json"), "{\"name\": \"app\", \"version\": \"1.0.0\", \"dependencies\": {\"util\": \"file:./libs/util\"}}");
+        writeFile(new File(sourceDir, "libs/util/package.json"), "{\"name\": \"util\", \"version\": \"2.0.0\"}");
+        writeFile(new File(sourceDir, "libs/util/index.js"), "module.exports = {};");
+        writeFile(new File(sourceDir, ".git/HEAD"), "ref: refs/heads/master");
+        writeFile(new File(sourceDir, "node_modules/stale/package.json"), "{}");
+    }
+
+    @Test
+    public void testSyncSourcesCopiesRepository() throws Exception {
+        File sandbox = pool.acquire();
+        writeFile(new File(sandbox, "removed.js"), "");
+        writeFile(new File(sandbox, "node_modules/kept/package.json"), "{}");
+
+        SandboxNpmDependencyTreeGenerator.syncSources(sourceDir, sandbox, true);
+
+        assertThat(new File(sandbox, "package.json")).isFile();
+        assertThat(new File(sandbox, "libs/util/index.js")).isFile();
+        assertThat(new File(sandbox, "removed.js")).describedAs("file removed from sources").doesNotExist();
+        assertThat(new File(sandbox, ".git")).describedAs("git directory").doesNotExist();
+        assertThat(new File(sandbox, "node_modules/stale")).describedAs("node_modules of the sources").doesNotExist();
+        assertThat(new File(sandbox, "node_modules/kept")).describedAs("node_modules of the sandbox").isDirectory();
+
+        SandboxNpmDependencyTreeGenerator.syncSources(sourceDir, sandbox, false);
+        assertThat(new File(sandbox, "node_modules/kept")).describedAs("node_modules of another repository").doesNotExist();
+        assertThat(new File(sandbox, "package.json")).isFile();
+    }
+
+    @Test
+    public void testCopyChangedFiles() throws Exception {
+        File sandbox = pool.acquire();
+        writeFile(new File(sandbox, "package-lock.json"), "{\"lockfileVersion\": 1}");
+
+        SandboxNpmDependencyTreeGenerator.copyChangedFiles(sandbox, sourceDir, DependencyTreeCache.LOCK_FILES);
+
+        assertThat(readFile(new File(sourceDir, "package-lock.json"))).isEqualTo("{\"lockfileVersion\": 1}");
+        assertThat(new File(sourceDir, "yarn.lock")).describedAs("lock file missing from sandbox").doesNotExist();
+    }
+
+    @Test
+    public void testGenerateDependencyTreeWithFileDependency() throws Exception {
+        SandboxNpmDependencyTreeGenerator generator = new SandboxNpmDependencyTreeGenerator(pool);
+        generator.generateDependencyTree(null, sourceDir, "dependency-tree.json");
+
+        assertThat(readFile(new File(sourceDir, "dependency-tree.json"))).contains("\"util\"");
+        assertThat(new File(sourceDir, "package-lock.json")).describedAs("lock file copied back").isFile();
+        assertThat(new File(sourceDir, "node_modules/stale")).describedAs("node_modules of the sources").isDirectory();
+    }
+
+    @Test
+    public void testSandboxNodeModulesAreClearedForAnotherRepository() throws Exception {
+        File sandbox = pool.acquire();
+        writeFile(new File(sandbox, "node_modules/other/package.json"), "{\"name\": \"other\", \"version\": \"1.0.0\"}");
+        pool.setSandboxSource(sandbox, new File(testDir, "other"));
+        pool.release(sandbox);
+
+        SandboxNpmDependencyTreeGenerator generator = new SandboxNpmDependencyTreeGenerator(pool);
+        generator.generateDependencyTree(null, sourceDir, "dependency-tree.json");
+
+        assertThat(new File(sandbox, "node_modules/other")).describedAs("package installed for another repository").doesNotExist();
+        assertThat(readFile(new File(sourceDir, "dependency-tree.json"))).doesNotContain("\"other\"");
+        assertThat(pool.getSandboxSource(sandbox)).isEqualTo(sourceDir.getAbsoluteFile());
+    }
+
+    protected static void writeFile(File file, String text) throws Exception {
+        file.getParentFile().mkdirs();
+        java.nio.file.Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected static String readFile(File file) throws Exception {
+        return new String(java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.kind.npm.semver;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class SemVerRangeTest {
+
+    @Test
+    public void testCompareVersions() throws Exception {
+        assertOlder("1.2.3", "1.2.4");
+        assertOlder("1.2.3", "1.10.0");
+        assertOlder("1.2.3-beta", "1.2.3");
+        assertOlder("1.2.3-alpha", "1.2.3-beta");
+        assertOlder("1.2.3-alpha.2", "1.2.3-alpha.10");
+        assertOlder("1.2.3-alpha", "1.2.3-alpha.1");
+        assertOlder("1.2.3-1", "1.2.3-alpha");
+        assertThat(SemVer.parse("v1.2.3+build.5")).isEqualTo(SemVer.parse("1.2.3"));
+
+        assertThat(SemVer.parse("1.2")).isNull();
+        assertThat(SemVer.parse("1.2.x")).isNull();
+        assertThat(SemVer.parse("^1.2.3")).isNull();
+        assertThat(SemVer.parse("1.2.3-")).isNull();
+    }
+
+    @Test
+    public void testSatisfies() throws Exception {
+        assertSatisfies("^1.4.0", "1.4.2", true);
+        assertSatisfies("^1.4.0", "1.9.0", true);
+        assertSatisfies("^1.4.0", "2.0.0", false);
+        assertSatisfies("^1.4.0", "1.3.9", false);
+        assertSatisfies("^1.4.0", "1.5.0-beta.1", false);
+        assertSatisfies("^0.2.3", "0.2.9", true);
+        assertSatisfies("^0.2.3", "0.3.0", false);
+        assertSatisfies("^0.0.3", "0.0.4", false);
+        assertSatisfies("^1.x", "1.99.0", true);
+        assertSatisfies("~1.2.3", "1.2.9", true);
+        assertSatisfies("~1.2.3", "1.3.0", false);
+        assertSatisfies("~1", "1.9.9", true);
+        assertSatisfies("1.x", "1.2.3", true);
+        assertSatisfies("1.2.*", "1.3.0", false);
+        assertSatisfies("1.2", "1.2.7", true);
+        assertSatisfies("*", "5.0.0", true);
+        assertSatisfies("", "5.0.0", true);
+        assertSatisfies("*", "5.0.0-beta", false);
+        assertSatisfies("1.2.3", "1.2.3", true);
+        assertSatisfies("=1.2.3", "1.2.4", false);
+        assertSatisfies(">=1.2.3 <2", "1.9.9", true);
+        assertSatisfies(">= 1.2.3 < 2", "2.0.0", false);
+        assertSatisfies(">1.2", "1.2.9", false);
+        assertSatisfies(">1.2", "1.3.0", true);
+        assertSatisfies("<=1.2", "1.2.9", true);
+        assertSatisfies("<1.2", "1.1.9", true);
+        assertSatisfies("<1.2", "1.2.0", false);
+        assertSatisfies("1.2.3 - 2.3", "2.3.9", true);
+        assertSatisfies("1.2.3 - 2.3.4", "2.3.5", false);
+        assertSatisfies("1.2.3 - 2.3.4", "1.2.2", false);
+        assertSatisfies("^1.2.3 || ^2.0.0", "2.1.0", true);
+        assertSatisfies("^1.2.3 || ^2.0.0", "3.0.0", false);
+        assertSatisfies("^1.2.3-beta.2", "1.2.3-beta.4", true);
+        assertSatisfies("^1.2.3-beta.2", "1.2.4-beta.4", false);
+        assertSatisfies("^1.2.3-beta.2", "1.2.4", true);
+    }
+
+    @Test
+    public void testInvalidRanges() throws Exception {
+        assertThat(SemVerRange.parse("latest")).isNull();
+        assertThat(SemVerRange.parse("git+https://github.com/foo/bar.git")).isNull();
+        assertThat(SemVerRange.parse("file:../bar")).isNull();
+        assertThat(SemVerRange.parse("1.2.3.4")).isNull();
+        assertThat(SemVerRange.parse("^1.2.3")).describedAs("cached range").isSameAs(SemVerRange.parse("^1.2.3"));
+    }
+
+    @Test
+    public void testClassify() throws Exception {
+        assertThat(VersionChangeType.classify("^1.4.0", "1.4.2")).isEqualTo(VersionChangeType.SATISFIED_BY_RANGE);
+        assertThat(VersionChangeType.classify("^1.4.0", "2.0.0")).isEqualTo(VersionChangeType.RANGE_BUMP);
+        assertThat(VersionChangeType.classify("1.4.0", "1.4.2")).isEqualTo(VersionChangeType.EXACT_PIN);
+        assertThat(VersionChangeType.classify("latest", "1.4.2")).isNull();
+        assertThat(VersionChangeType.classify("^1.4.0", "next")).isNull();
+    }
+
+    protected void assertOlder(String older, String newer) {
+        SemVer v1 = SemVer.parse(older);
+        SemVer v2 = SemVer.parse(newer);
+        assertThat(v1).describedAs(older).isNotNull();
+        assertThat(v2).describedAs(newer).isNotNull();
+        assertThat(v1.compareTo(v2)).describedAs(older + " compared to " + newer).isLessThan(0);
+        assertThat(v2.compareTo(v1)).describedAs(newer + " compared to " + older).isGreaterThan(0);
+    }
+
+    protected void assertSatisfies(String range, String version, boolean expected) {
+        assertThat(SemVerRange.satisfies(version, range)).describedAs("version " + version + " satisfies range '" + range + "'").isEqualTo(expected);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.repository;
+
+import com.sun.net.httpserver.HttpServer;
+import io.fabric8.updatebot.model.GithubOrganisation;
+import io.fabric8.updatebot.model.Projects;
+import io.fabric8.updatebot.support.MetadataCache;
+import io.fabric8.updatebot.test.Tests;
+import io.fabric8.utils.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ProjectsSnapshotTest {
+    protected File configFile;
+    protected String yaml;
+
+    @Before
+    public void init() throws Exception {
+        File testDir = Tests.getTestDataDir(getClass());
+        Files.recursiveDelete(testDir);
+        testDir.mkdirs();
+        configFile = new File(testDir, "updatebot.yml");
+        yaml = new String(Files.readBytes(new File(Tests.getBasedir(), "src/test/resources/maven/source/updatebot.yml")), StandardCharsets.UTF_8);
+        writeConfig(yaml, 1000000000L);
+    }
+
+    @Test
+    public void testReloadOnlyWhenChanged() throws Exception {
+        ProjectsSnapshot snapshot = ProjectsSnapshot.load(configFile.getPath(), null);
+        Projects projects = snapshot.getProjects();
+        GithubOrganisation organisation = projects.getGithub().getOrganisations().get(0);
+        assertThat(organisation.getName()).isEqualTo("jstrachan-testing");
+        assertThat(organisation.createFilter()).describedAs("precompiled filter").isSameAs(organisation.createFilter());
+        assertThat(organisation.getRepositories().get(1).getName()).isEqualTo("updatebot-plugin");
+
+        assertThat(ProjectsSnapshot.load(configFile.getPath(), null)).describedAs("unchanged file").isSameAs(snapshot);
+
+        writeConfig(yaml, 2000000000L);
+        assertThat(ProjectsSnapshot.load(configFile.getPath(), null).getProjects()).describedAs("touched file with the same content").isSameAs(projects);
+
+        writeConfig(yaml.replace("updatebot-plugin", "updatebot-other"), 3000000000L);
+        ProjectsSnapshot reloaded = ProjectsSnapshot.load(configFile.getPath(), null);
+        assertThat(reloaded.getProjects()).describedAs("changed file").isNotSameAs(projects);
+        assertThat(reloaded.getProjects().getGithub().getOrganisations().get(0).getRepositories().get(1).getName()).isEqualTo("updatebot-other");
+    }
+
+    @Test
+    public void testRemoteConfigIsRevalidated() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        AtomicInteger notModified = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/updatebot.yml", exchange -> {
+            requests.incrementAndGet();
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] data = yaml.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                exchange.sendResponseHeaders(200, data.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(data);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        String url = "http://localhost:" + server.getAddress().getPort() + "/updatebot.yml";
+
+        File cacheDir = new File(configFile.getParentFile(), "config-cache");
+        MetadataCache cache = new MetadataCache(cacheDir, 1024 * 1024, 0);
+        Projects projects;
+        try {
+            projects = ProjectsSnapshot.load(url, null, cache).getProjects();
+            assertThat(ProjectsSnapshot.load(url, null, cache).getProjects()).describedAs("unchanged remote configuration").isSameAs(projects);
+            assertThat(requests.get()).describedAs("requests").isEqualTo(2);
+            assertThat(notModified.get()).describedAs("not modified responses").isEqualTo(1);
+            assertThat(cache.getLastFetchDuration()).isGreaterThanOrEqualTo(0L);
+        } finally {
+            server.stop(0);
+        }
+
+        assertThat(ProjectsSnapshot.load(url, null, cache).getProjects()).describedAs("cached copy when the origin is down").isSameAs(projects);
+    }
+
+    protected void writeConfig(String text, long lastModified) throws Exception {
+        java.nio.file.Files.write(configFile.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        configFile.setLastModified(lastModified);
+    }
+}
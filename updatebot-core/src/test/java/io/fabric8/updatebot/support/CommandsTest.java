@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import io.fabric8.updatebot.test.Tests;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class CommandsTest {
+    private File dir = new File(".");
+
+    @After
+    public void cleanup() {
+        Commands.setTimeout(Commands.DEFAULT_TIMEOUT);
+        Commands.setConcurrency("sh", 0);
+    }
+
+    @Test
+    public void testLargeOutputIsDrained() throws Exception {
+        ProcessResult result = Commands.execute(dir, false, "sh", "-c", "i=0; while [ $i -lt 5000 ]; do echo line $i of some chatty output; i=$((i+1)); done");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getOutputTail()).hasSize(Commands.OUTPUT_TAIL_LINES);
+        assertThat(result.getOutputTail().get(Commands.OUTPUT_TAIL_LINES - 1)).isEqualTo("line 4999 of some chatty output");
+    }
+
+    @Test
+    public void testExitCodeAndErrorOutput() throws Exception {
+        ProcessResult result = Commands.execute(dir, false, "sh", "-c", "echo failed >&2; exit 3");
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.getExitCode()).isEqualTo(3);
+        assertThat(result.getOutputTail()).containsExactly("failed");
+        assertThat(Commands.runCommandIgnoreOutput(dir, "sh", "-c", "exit 3")).isEqualTo(3);
+    }
+
+    @Test
+    public void testCommandIsKilledAfterTimeout() throws Exception {
+        Commands.setTimeout(500);
+        long start = System.currentTimeMillis();
+        ProcessResult result = Commands.execute(dir, false, "sh", "-c", "sleep 30 | cat");
+
+        assertThat(result.isTimedOut()).isTrue();
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(System.currentTimeMillis() - start).isLessThan(15000L);
+    }
+
+    @Test
+    public void testConcurrencyIsLimitedPerTool() throws Exception {
+        Commands.setConcurrency("sh", 1);
+        File marker = new File(Tests.getTestDataDir(getClass()), "running");
+        marker.getParentFile().mkdirs();
+        marker.delete();
+        String script = "if [ -f " + marker + " ]; then exit 7; fi; touch " + marker + "; sleep 0.2; rm " + marker;
+
+        List<CompletableFuture<ProcessResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> Commands.execute(dir, false, "sh", "-c", script)));
+        }
+        for (CompletableFuture<ProcessResult> future : futures) {
+            assertThat(future.get().getExitCode()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void testToolName() throws Exception {
+        assertThat(Commands.getToolName("git")).isEqualTo("git");
+        assertThat(Commands.getToolName("/usr/local/bin/npm")).isEqualTo("npm");
+        assertThat(Commands.getToolName("npm.cmd")).isEqualTo("npm");
+    }
+
+    @Test
+    public void testSpawnCountsSince() throws Exception {
+        Map<String, Integer> since = Commands.getSpawnCounts();
+        assertThat(Commands.getSpawnCount(dir, since)).isEqualTo(0);
+
+        Commands.runCommandIgnoreOutput(dir, "sh", "-c", "exit 0");
+        assertThat(Commands.getSpawnCount(dir, since)).isEqualTo(1);
+        assertThat(Commands.getSpawnCount(dir, Commands.getSpawnCounts())).isEqualTo(0);
+    }
+
+    @Test
+    public void testCloneIsCountedInTargetDirectory() throws Exception {
+        File parentDir = new File("/work/github/fabric8io");
+        assertThat(Commands.getSpawnDir(parentDir, Arrays.asList("git", "clone", "https://github.com/fabric8io/updatebot.git", "updatebot"))).
+                isEqualTo(new File(parentDir, "updatebot"));
+        assertThat(Commands.getSpawnDir(parentDir, Arrays.asList("git", "clone", "https://github.com/fabric8io/updatebot.git"))).
+                isEqualTo(parentDir);
+        assertThat(Commands.getSpawnDir(parentDir, Arrays.asList("git", "pull"))).isEqualTo(parentDir);
+    }
+}
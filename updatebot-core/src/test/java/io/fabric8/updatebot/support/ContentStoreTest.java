@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import io.fabric8.updatebot.test.Tests;
+import io.fabric8.utils.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ContentStoreTest {
+    protected File testDir;
+    protected ContentStore store;
+
+    @Before
+    public void init() throws Exception {
+        testDir = Tests.getTestDataDir(getClass());
+        Files.recursiveDelete(testDir);
+        store = new ContentStore(new File(testDir, "store"));
+    }
+
+    @Test
+    public void testDeduplicateIdenticalFiles() throws Exception {
+        File first = new File(testDir, "first/node_modules");
+        File second = new File(testDir, "second/node_modules");
+        writeFile(new File(first, "lodash/index.js"), "module.exports = {};");
+        writeFile(new File(first, "lodash/package.json"), "{\"version\": \"4.17.4\"}");
+        writeFile(new File(second, "lodash/index.js"), "module.exports = {};");
+        writeFile(new File(second, "lodash/package.json"), "{\"version\": \"4.17.5\"}");
+
+        int linkedFirst = store.deduplicate(first);
+        int linkedSecond = store.deduplicate(second);
+        int linkedAgain = store.deduplicate(second);
+
+        Path firstIndex = new File(first, "lodash/index.js").toPath();
+        Path secondIndex = new File(second, "lodash/index.js").toPath();
+        assertThat(readFile(secondIndex)).isEqualTo("module.exports = {};");
+        assertThat(readFile(new File(second, "lodash/package.json").toPath())).isEqualTo("{\"version\": \"4.17.5\"}");
+        if (store.isLinksSupported()) {
+            assertThat(linkedFirst).describedAs("files linked in first").isEqualTo(0);
+            assertThat(linkedSecond).describedAs("files linked in second").isEqualTo(1);
+            assertThat(linkedAgain).describedAs("files linked when deduplicating again").isEqualTo(0);
+            assertThat(java.nio.file.Files.isSameFile(firstIndex, secondIndex)).describedAs("index.js is linked").isTrue();
+            assertThat(java.nio.file.Files.getPosixFilePermissions(secondIndex).contains(PosixFilePermission.OWNER_WRITE)).describedAs("linked index.js is writable").isFalse();
+        }
+    }
+
+    @Test
+    public void testDeduplicateMissingDirectory() throws Exception {
+        assertThat(store.deduplicate(new File(testDir, "missing"))).isEqualTo(0);
+    }
+
+    protected static void writeFile(File file, String text) throws Exception {
+        file.getParentFile().mkdirs();
+        java.nio.file.Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected static String readFile(Path path) throws Exception {
+        return new String(java.nio.file.Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+}
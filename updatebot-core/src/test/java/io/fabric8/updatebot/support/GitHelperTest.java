@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import io.fabric8.updatebot.test.Tests;
+import io.fabric8.utils.Files;
+import io.fabric8.utils.IOHelpers;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class GitHelperTest {
+    private File dir;
+
+    @Before
+    public void init() throws Exception {
+        dir = Tests.getTestDataDir(getClass());
+        Files.recursiveDelete(dir);
+        new File(dir, ".git").mkdirs();
+    }
+
+    @Test
+    public void testRemoteUrlIsReadFromConfig() throws Exception {
+        IOHelpers.writeFully(new File(dir, ".git/config"), "[core]\n" +
+                "\trepositoryformatversion = 0\n" +
+                "[remote \"upstream\"]\n" +
+                "\turl = git://github.com/fabric8io/updatebot.git\n" +
+                "[remote \"origin\"]\n" +
+                "\turl = git@github.com:jstrachan/updatebot\n" +
+                "\tfetch = +refs/heads/*:refs/remotes/origin/*\n");
+
+        assertThat(GitHelper.getRemoteUrl(dir, "origin")).isEqualTo("git@github.com:jstrachan/updatebot");
+        assertThat(GitHelper.getRemoteUrl(dir, "upstream")).isEqualTo("git://github.com/fabric8io/updatebot.git");
+        assertThat(GitHelper.getRemoteUrl(dir, "other")).isNull();
+    }
+
+    @Test
+    public void testRemoteUrlIsOnlySetIfChanged() throws Exception {
+        IOHelpers.writeFully(new File(dir, ".git/config"), "[remote \"origin\"]\n" +
+                "\turl = git@github.com:jstrachan/updatebot\n");
+
+        int spawnCount = Commands.getSpawnCount(dir);
+        assertThat(GitHelper.gitSetRemoteUrl(dir, "origin", "git@github.com:jstrachan/updatebot")).isTrue();
+        assertThat(Commands.getSpawnCount(dir)).isEqualTo(spawnCount);
+    }
+
+    @Test
+    public void testIndexComparedWithCommitTree() throws Exception {
+        Files.recursiveDelete(dir);
+        dir.mkdirs();
+        assertThat(Commands.runCommandIgnoreOutput(dir, "git", "init", "-q")).isEqualTo(0);
+        Commands.runCommandIgnoreOutput(dir, "git", "config", "user.email", "updatebot@example.com");
+        Commands.runCommandIgnoreOutput(dir, "git", "config", "user.name", "updatebot");
+        File file = new File(dir, "pom.xml");
+        IOHelpers.writeFully(file, "<project/>\n");
+        assertThat(GitHelper.gitAddAndCommit(dir, "initial")).isTrue();
+        String sha = Commands.execute(dir, false, "git", "rev-parse", "HEAD").getOutputTailText();
+
+        assertThat(GitHelper.gitCheckoutNewBranch(dir, "updatebot-test")).isTrue();
+        IOHelpers.writeFully(file, "<project/>\n");
+        assertThat(GitHelper.gitAdd(dir)).isTrue();
+        assertThat(GitHelper.gitIsIndexUnchanged(dir, sha)).isTrue();
+
+        IOHelpers.writeFully(file, "<project><version>2</version></project>\n");
+        assertThat(GitHelper.gitAdd(dir)).isTrue();
+        assertThat(GitHelper.gitIsIndexUnchanged(dir, sha)).isFalse();
+        assertThat(GitHelper.gitIsIndexUnchanged(dir, null)).isFalse();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import io.fabric8.updatebot.test.Tests;
+import io.fabric8.utils.Files;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class ManifestScannerTest {
+    protected File testDir;
+
+    @Before
+    public void init() throws Exception {
+        testDir = Tests.getTestDataDir(getClass());
+        Files.recursiveDelete(testDir);
+    }
+
+    @Test
+    public void testScanRespectsGitIgnore() throws Exception {
+        writeFile(".gitignore", "# build output\n/dist\n*.tmp/\nfixtures/**/package.json\n!fixtures/keep/package.json\n");
+        writeFile("package.json", "{}");
+        writeFile("packages/b/package.json", "{}");
+        writeFile("packages/a/package.json", "{}");
+        writeFile("packages/a/node_modules/lodash/package.json", "{}");
+        writeFile("packages/a/dist/package.json", "{}");
+        writeFile("packages/c/.gitignore", "package.json\n");
+        writeFile("packages/c/package.json", "{}");
+        writeFile("dist/package.json", "{}");
+        writeFile("work.tmp/package.json", "{}");
+        writeFile("fixtures/ignored/package.json", "{}");
+        writeFile("fixtures/keep/package.json", "{}");
+        writeFile("pom.xml", "<project/>");
+
+        Map<String, List<File>> manifests = ManifestScanner.scan(testDir, Arrays.asList("package.json", "pom.xml"));
+
+        assertThat(relativePaths(manifests.get("package.json"))).containsExactly(
+                "package.json",
+                "fixtures/keep/package.json",
+                "packages/a/package.json",
+                "packages/b/package.json",
+                "packages/a/dist/package.json");
+        assertThat(relativePaths(manifests.get("pom.xml"))).containsExactly("pom.xml");
+    }
+
+    @Test
+    public void testGitIgnorePatterns() throws Exception {
+        GitIgnore gitIgnore = GitIgnore.parse("*.log\n/build/\ndocs/**/*.md\n!important.log\n");
+        assertThat(gitIgnore.isIgnored("debug.log", false)).isTrue();
+        assertThat(gitIgnore.isIgnored("src/debug.log", false)).isTrue();
+        assertThat(gitIgnore.isIgnored("important.log", false)).isFalse();
+        assertThat(gitIgnore.isIgnored("build", true)).isTrue();
+        assertThat(gitIgnore.isIgnored("build", false)).isNull();
+        assertThat(gitIgnore.isIgnored("src/build", true)).isNull();
+        assertThat(gitIgnore.isIgnored("docs/README.md", false)).isTrue();
+        assertThat(gitIgnore.isIgnored("docs/a/b/README.md", false)).isTrue();
+        assertThat(gitIgnore.isIgnored("README.md", false)).isNull();
+    }
+
+    protected List<String> relativePaths(List<File> files) {
+        return files.stream().
+                map(f -> testDir.toPath().relativize(f.toPath()).toString().replace(File.separatorChar, '/')).
+                collect(Collectors.toList());
+    }
+
+    protected void writeFile(String path, String text) throws Exception {
+        File file = new File(testDir, path);
+        file.getParentFile().mkdirs();
+        java.nio.file.Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+}
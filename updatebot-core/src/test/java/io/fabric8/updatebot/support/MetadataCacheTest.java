@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import com.sun.net.httpserver.HttpServer;
+import io.fabric8.updatebot.test.Tests;
+import io.fabric8.utils.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ */
+public class MetadataCacheTest {
+    protected HttpServer server;
+    protected String url;
+    protected File cacheDir;
+    protected AtomicInteger requests = new AtomicInteger();
+    protected AtomicInteger notModified = new AtomicInteger();
+    protected volatile String body = "{\"version\": 1}";
+    protected volatile String etag = "\"v1\"";
+
+    @Before
+    public void init() throws Exception {
+        cacheDir = Tests.getTestDataDir(getClass());
+        Files.recursiveDelete(cacheDir);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/package", exchange -> {
+            requests.incrementAndGet();
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] data = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("ETag", etag);
+                exchange.sendResponseHeaders(200, data.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(data);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/package";
+    }
+
+    @After
+    public void destroy() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testUsesCacheWithinTimeToLive() throws Exception {
+        MetadataCache cache = new MetadataCache(cacheDir, 1024 * 1024, 60000);
+        assertThat(cache.getText(url)).isEqualTo(body);
+        assertThat(cache.getText(url)).isEqualTo(body);
+        assertThat(requests.get()).describedAs("requests").isEqualTo(1);
+
+        MetadataCache anotherRun = new MetadataCache(cacheDir, 1024 * 1024, 60000);
+        assertThat(anotherRun.getText(url)).isEqualTo(body);
+        assertThat(requests.get()).describedAs("requests after reusing the cache directory").isEqualTo(1);
+    }
+
+    @Test
+    public void testRevalidatesWithETag() throws Exception {
+        MetadataCache cache = new MetadataCache(cacheDir, 1024 * 1024, 0);
+        String oldBody = body;
+        assertThat(cache.getText(url)).isEqualTo(oldBody);
+        assertThat(cache.getText(url)).isEqualTo(oldBody);
+        assertThat(requests.get()).describedAs("requests").isEqualTo(2);
+        assertThat(notModified.get()).describedAs("not modified responses").isEqualTo(1);
+
+        body = "{\"version\": 2}";
+        etag = "\"v2\"";
+        assertThat(cache.getText(url)).isEqualTo(body);
+        assertThat(notModified.get()).describedAs("not modified responses").isEqualTo(1);
+    }
+
+    @Test
+    public void testMissingDocument() throws Exception {
+        MetadataCache cache = new MetadataCache(cacheDir, 1024 * 1024, 60000);
+        try {
+            cache.getText(url.replace("/package", "/does-not-exist"));
+            fail("Should have failed to find the document");
+        } catch (FileNotFoundException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import io.fabric8.updatebot.Configuration;
+import io.fabric8.utils.IOHelpers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class MetricsTest {
+
+    @Before
+    @After
+    public void cleanup() {
+        Metrics.clear();
+    }
+
+    @Test
+    public void testPrometheusText() throws Exception {
+        Metrics.counter("updatebot_pull_requests_total", "Pull requests", "action", "created").increment();
+        Metrics.counter("updatebot_pull_requests_total", "Pull requests", "action", "created").increment();
+        Metrics.counter("updatebot_pull_requests_total", "Pull requests", "action", "merged").increment();
+        Metrics.gauge("updatebot_queue_depth", "Queue depth", () -> 3, "tool", "git");
+        Metrics.Histogram timer = Metrics.timer("updatebot_command_duration_seconds", "Commands", "tool", "git", "command", "clone");
+        timer.observe(0.2);
+        timer.observe(3);
+
+        String text = Metrics.toPrometheusText();
+        assertThat(text).contains("# TYPE updatebot_pull_requests_total counter\n");
+        assertThat(text).contains("updatebot_pull_requests_total{action=\"created\"} 2\n");
+        assertThat(text).contains("updatebot_pull_requests_total{action=\"merged\"} 1\n");
+        assertThat(text).contains("updatebot_queue_depth{tool=\"git\"} 3\n");
+        assertThat(text).contains("# TYPE updatebot_command_duration_seconds histogram\n");
+        assertThat(text).contains("updatebot_command_duration_seconds_bucket{tool=\"git\",command=\"clone\",le=\"0.25\"} 1\n");
+        assertThat(text).contains("updatebot_command_duration_seconds_bucket{tool=\"git\",command=\"clone\",le=\"5\"} 2\n");
+        assertThat(text).contains("updatebot_command_duration_seconds_bucket{tool=\"git\",command=\"clone\",le=\"+Inf\"} 2\n");
+        assertThat(text).contains("updatebot_command_duration_seconds_count{tool=\"git\",command=\"clone\"} 2\n");
+        assertThat(text).contains("updatebot_command_duration_seconds_sum{tool=\"git\",command=\"clone\"} 3.2\n");
+    }
+
+    @Test
+    public void testJsonValues() throws Exception {
+        Metrics.timer("updatebot_github_request_duration_seconds", "GitHub", "endpoint", "pulls.list", "status", "ok").observe(0.5);
+        Metrics.counter("updatebot_issues_total", "Issues", "action", "say \"hello\"").add(4);
+
+        Map<String, Object> map = Metrics.toMap();
+        Map<String, Object> issues = getValue(map, "updatebot_issues_total");
+        assertThat(issues.get("labels")).isEqualTo(Collections.singletonMap("action", "say \"hello\""));
+        assertThat(issues.get("value")).isEqualTo(4L);
+
+        Map<String, Object> requests = getValue(map, "updatebot_github_request_duration_seconds");
+        assertThat(requests.get("count")).isEqualTo(1L);
+        assertThat(requests.get("max")).isEqualTo(0.5);
+        assertThat(MarkupHelper.toJson(map)).contains("\"pulls.list\"");
+    }
+
+    @Test
+    public void testServerScrape() throws Exception {
+        Metrics.counter("updatebot_repositories_total", "Repositories").add(7);
+        MetricsServer server = MetricsServer.start(0);
+        try {
+            String text = IOHelpers.readFully(new URL("http://localhost:" + server.getPort() + "/metrics").openStream());
+            assertThat(text).contains("updatebot_repositories_total 7\n");
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testConfigurationStopsServer() throws Exception {
+        Configuration configuration = new Configuration();
+        assertThat(configuration.startMetricsServer()).describedAs("server without a port").isNull();
+
+        ServerSocket socket = new ServerSocket(0);
+        int port = socket.getLocalPort();
+        socket.close();
+        configuration.setMetricsPort(port);
+        MetricsServer server = configuration.startMetricsServer();
+        assertThat(server).isNotNull();
+        assertThat(configuration.startMetricsServer()).describedAs("server when already started").isSameAs(server);
+
+        configuration.stopMetricsServer();
+        // the port can only be bound again once the server has stopped
+        new ServerSocket(port).close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getValue(Map<String, Object> map, String name) {
+        Map<String, Object> family = (Map<String, Object>) map.get(name);
+        return (Map<String, Object>) ((List<Object>) family.get("values")).get(0);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ */
+public class SpanEditorTest {
+    private String json = "{\r\n" +
+            "  \"name\": \"cheese\",\n" +
+            "  \"scripts\": {\"build\": {\"ignored\": \"1.0.0\"}},\n" +
+            "  \"dependencies\"  :  {\n" +
+            "\t\"a\":\"1.0.0\", \"b\" : \"say \\\"hi\\\"\",\n" +
+            "    \"c\": 3\n" +
+            "  },\n" +
+            "  \"devDependencies\": {\"d\": \"2.0.0\"}\n" +
+            "}\n";
+
+    @Test
+    public void testFindTextValues() throws Exception {
+        Map<String, Map<String, TextSpan>> spans = JsonSpans.findTextValues(json, "dependencies", "devDependencies", "peerDependencies");
+        assertThat(spans).containsOnlyKeys("dependencies", "devDependencies");
+
+        Map<String, TextSpan> dependencies = spans.get("dependencies");
+        assertThat(dependencies).containsOnlyKeys("a", "b");
+        assertSpan(dependencies.get("a"), "1.0.0", "\"1.0.0\"");
+        assertSpan(dependencies.get("b"), "say \"hi\"", "\"say \\\"hi\\\"\"");
+        assertSpan(spans.get("devDependencies").get("d"), "2.0.0", "\"2.0.0\"");
+    }
+
+    @Test
+    public void testApplyEditsInOnePass() throws Exception {
+        Map<String, Map<String, TextSpan>> spans = JsonSpans.findTextValues(json, "dependencies", "devDependencies");
+        SpanEditor editor = new SpanEditor(json);
+        editor.replace(spans.get("dependencies").get("a"), JsonSpans.quote("1.0.0"));
+        assertThat(editor.isModified()).describedAs("replacing with the same text is not a change").isFalse();
+
+        editor.replace(spans.get("devDependencies").get("d"), JsonSpans.quote("2.0.1"));
+        editor.replace(spans.get("devDependencies").get("d"), JsonSpans.quote("2.1.0"));
+        editor.replace(spans.get("dependencies").get("a"), JsonSpans.quote("10.0.0-\"beta\""));
+        String expected = json.replace("\"1.0.0\", \"b\"", "\"10.0.0-\\\"beta\\\"\", \"b\"").replace("\"2.0.0\"", "\"2.1.0\"");
+        assertThat(editor.apply()).isEqualTo(expected);
+        assertThat(editor.getText()).isEqualTo(json);
+    }
+
+    @Test
+    public void testOverlappingEditsFail() throws Exception {
+        SpanEditor editor = new SpanEditor(json);
+        editor.replace(10, 20, "foo");
+        try {
+            editor.replace(15, 25, "bar");
+            fail("Should have failed to replace an overlapping span");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    protected void assertSpan(TextSpan span, String value, String text) {
+        assertThat(span).describedAs("span of " + value).isNotNull();
+        assertThat(span.getValue()).isEqualTo(value);
+        assertThat(json.substring(span.getStart(), span.getEnd())).isEqualTo(text);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.support;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class WildcardFilterTest {
+
+    @Test
+    public void testPatterns() throws Exception {
+        WildcardFilter filter = WildcardFilter.create(Arrays.asList("bar", "foo-*", "*-camel-*, spring-*-starter", "org.apache*"), Arrays.asList("foo-x*", "cheese"));
+
+        assertMatches(true, filter, "bar", "foo-", "foo-bar", "spring-boot-camel-xml", "spring-boot-starter", "org.apache", "org.apache.maven");
+        assertMatches(false, filter, null, "", "ba", "barn", "foo", "foo-x", "foo-xml", "cheese", "spring-boot", "orgXapache", "spring-boot-camel");
+    }
+
+    @Test
+    public void testIncludeAllAndExclude() throws Exception {
+        WildcardFilter filter = WildcardFilter.create(null, Arrays.asList("*-SNAPSHOT", "test"));
+
+        assertMatches(true, filter, "", "tests", "1.0");
+        assertMatches(false, filter, "test", "1.0-SNAPSHOT");
+        assertMatches(true, WildcardFilter.create(Arrays.asList("*"), null), "anything");
+        assertMatches(false, WildcardFilter.create(new ArrayList<>(), null), "anything");
+    }
+
+    @Test
+    public void testManyPatterns() throws Exception {
+        List<String> includes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            includes.add("repo-" + i + "-*");
+            includes.add("*-service-" + i);
+            includes.add("app-" + i);
+        }
+        WildcardFilter filter = WildcardFilter.create(includes, null);
+
+        assertMatches(true, filter, "repo-7-web", "orders-service-499", "app-250");
+        assertMatches(false, filter, "repo-500-web", "orders-service-500", "app-2500", "repo-7");
+    }
+
+    private void assertMatches(boolean expected, WildcardFilter filter, String... names) {
+        for (String name : names) {
+            for (int i = 0; i < 2; i++) {
+                assertThat(filter.matches(name)).describedAs("Filter " + filter + " matching " + name).isEqualTo(expected);
+            }
+        }
+    }
+}
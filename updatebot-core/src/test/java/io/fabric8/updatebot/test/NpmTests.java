@@ -33,7 +33,7 @@ import java.util.List;
 import java.util.UUID;
 
 import static io.fabric8.updatebot.support.GitHelper.gitAddAndCommit;
-import static io.fabric8.updatebot.support.GitHelper.gitStashAndCheckoutMaster;
+import static io.fabric8.updatebot.support.GitHelper.gitCheckoutMaster;
 import static io.fabric8.updatebot.test.MarkupAssertions.assertObjectNode;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -91,7 +91,7 @@ public class NpmTests {
         ObjectNode objectNode = assertObjectNode(tree);
         objectNode.put("version", version);
 
-        gitStashAndCheckoutMaster(packageJson.getParentFile());
+        gitCheckoutMaster(packageJson.getParentFile());
         MarkupHelper.savePrettyJson(packageJson, objectNode);
 
         if (!gitAddAndCommit(packageJson.getParentFile(), "Simulated release of version " + version)) {
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.jfr;
+
+import io.fabric8.updatebot.github.GitHubHelpers;
+import io.fabric8.updatebot.logging.LogContext;
+import io.fabric8.updatebot.support.Commands;
+import io.fabric8.updatebot.test.Tests;
+import io.fabric8.utils.Files;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class FlightRecorderEventsTest {
+
+    @Test
+    public void testEventsAreRecordedWithBundledSettings() throws Exception {
+        assertThat(FlightRecorderEvents.isAvailable()).isTrue();
+
+        File dir = Tests.getTestDataDir(getClass());
+        Files.recursiveDelete(dir);
+        dir.mkdirs();
+        File file = new File(dir, "updatebot.jfr");
+
+        Configuration configuration;
+        try (Reader reader = new InputStreamReader(getClass().getResourceAsStream("updatebot.jfc"), StandardCharsets.UTF_8)) {
+            configuration = Configuration.create(reader);
+        }
+        try (Recording recording = new Recording(configuration)) {
+            recording.start();
+            LogContext.put(LogContext.REPOSITORY, "fabric8io/updatebot");
+            try {
+                Commands.runCommandIgnoreOutput(dir, "sh", "-c", "exit 2");
+            } finally {
+                LogContext.remove(LogContext.REPOSITORY);
+            }
+            GitHubHelpers.callGithub("repos.get", () -> "updatebot");
+            recording.stop();
+            recording.dump(file.toPath());
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+        RecordedEvent command = findEvent(events, "io.fabric8.updatebot.Command");
+        assertThat(command).isNotNull();
+        assertThat(command.getString("command")).isEqualTo("sh -c exit 2");
+        assertThat(command.getInt("exitCode")).isEqualTo(2);
+        assertThat(command.getString("directory")).isEqualTo(dir.getPath());
+        assertThat(command.getString("repository")).isEqualTo("fabric8io/updatebot");
+
+        RecordedEvent call = findEvent(events, "io.fabric8.updatebot.GitHubCall");
+        assertThat(call).isNotNull();
+        assertThat(call.getString("endpoint")).isEqualTo("repos.get");
+        assertThat(call.getString("status")).isEqualTo("ok");
+    }
+
+    private static RecordedEvent findEvent(List<RecordedEvent> events, String name) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                return event;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.logging;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes log records from a background thread so that logging threads only append to a {@link RingBuffer}.
+ * <p>
+ * Records are written as JSON lines or as text to the output stream and, when a log directory is configured,
+ * to a file per repository in the {@link LogContext}. When the buffer is three quarters full debug and info
+ * records are dropped so that warnings and errors can still use the rest of it; the number of dropped records
+ * is logged once the writer catches up.
+ */
+public class AsyncLogWriter implements Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final int MAX_OPEN_FILES = 32;
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FLUSH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final RingBuffer<LogRecord> buffer;
+    private final int lowPriorityLimit;
+    private final Writer out;
+    private final boolean json;
+    private final File logDir;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Map<String, Writer> repositoryWriters = new LinkedHashMap<String, Writer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Writer> eldest) {
+            if (size() > MAX_OPEN_FILES) {
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Set<String> failedRepositories = new HashSet<>();
+    private long reportedDrops;
+    private volatile long written;
+    private volatile boolean running = true;
+    private volatile boolean idle;
+    private Thread thread;
+    private Thread shutdownHook;
+
+    public AsyncLogWriter(OutputStream out, int bufferSize, boolean json, File logDir) {
+        this.buffer = new RingBuffer<>(bufferSize);
+        this.lowPriorityLimit = buffer.capacity() * 3 / 4;
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        this.json = json;
+        this.logDir = logDir;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncLogWriter{" +
+                "bufferSize=" + buffer.capacity() +
+                ", json=" + json +
+                ", logDir=" + logDir +
+                '}';
+    }
+
+    /**
+     * Starts the thread which writes the records and registers a shutdown hook to write any remaining records
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this::writeRecords, "updatebot-logger");
+            thread.setDaemon(true);
+            thread.start();
+            shutdownHook = new Thread(this::close, "updatebot-logger-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+    }
+
+    /**
+     * Returns a stream which publishes a record each time it is flushed by the thread which wrote to it
+     */
+    public PrintStream createPrintStream() {
+        try {
+            return new PrintStream(new LogRecordOutputStream(this), false, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds the record to the buffer without blocking, returning false if it was dropped
+     */
+    public boolean publish(LogRecord record) {
+        if ((!record.isWarnOrError() && buffer.size() >= lowPriorityLimit) || !buffer.offer(record)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        published.incrementAndGet();
+        Thread writerThread = thread;
+        if (idle && writerThread != null) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    /**
+     * Waits for the records published so far to be written
+     */
+    public void flush() {
+        Thread writerThread = thread;
+        long target = published.get();
+        long deadline = System.nanoTime() + FLUSH_TIMEOUT_NANOS;
+        while (writerThread != null && writerThread.isAlive() && written < target && System.nanoTime() < deadline) {
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Writes any remaining records then stops the writer thread
+     */
+    @Override
+    public void close() {
+        Thread writerThread;
+        synchronized (this) {
+            writerThread = thread;
+            running = false;
+            if (shutdownHook != null && Thread.currentThread() != shutdownHook) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                } catch (IllegalStateException e) {
+                    // already shutting down
+                }
+            }
+            shutdownHook = null;
+        }
+        if (writerThread != null && writerThread != Thread.currentThread()) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join(TimeUnit.NANOSECONDS.toMillis(FLUSH_TIMEOUT_NANOS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public int getBufferSize() {
+        return buffer.capacity();
+    }
+
+    public boolean isJson() {
+        return json;
+    }
+
+    public File getLogDir() {
+        return logDir;
+    }
+
+    // Implementation methods
+    //-------------------------------------------------------------------------
+    protected void writeRecords() {
+        long count = 0;
+        while (true) {
+            LogRecord record = buffer.poll();
+            if (record != null) {
+                write(record);
+                count++;
+                continue;
+            }
+            reportDroppedRecords();
+            flushOutputs();
+            written = count;
+            if (!running) {
+                break;
+            }
+            idle = true;
+            if (buffer.isEmpty()) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+            idle = false;
+        }
+        closeOutputs();
+    }
+
+    protected void write(LogRecord record) {
+        String text = json ? record.toJson() : record.toText();
+        try {
+            out.write(text);
+            out.write('\n');
+        } catch (IOException e) {
+            // nowhere left to report it
+        }
+        String repository = record.getContext().get(LogContext.REPOSITORY);
+        if (logDir != null && repository != null && !failedRepositories.contains(repository)) {
+            try {
+                Writer writer = repositoryWriters.get(repository);
+                if (writer == null) {
+                    File file = getRepositoryLogFile(repository);
+                    file.getParentFile().mkdirs();
+                    writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+                    repositoryWriters.put(repository, writer);
+                }
+                writer.write(text);
+                writer.write('\n');
+            } catch (IOException e) {
+                failedRepositories.add(repository);
+                closeQuietly(repositoryWriters.remove(repository));
+                write(new LogRecord(System.currentTimeMillis(), "WARN", getClass().getName(), Thread.currentThread().getName(),
+                        "Failed to write the log file of " + repository + " in " + logDir + ". " + e, null, Collections.emptyMap()));
+            }
+        }
+    }
+
+    /**
+     * Returns the log file of the repository inside the log directory, failing if the repository name is an
+     * absolute path or contains <code>..</code> so that it could write outside of it
+     */
+    protected File getRepositoryLogFile(String repository) throws IOException {
+        Path path;
+        try {
+            path = Paths.get(repository + ".log");
+        } catch (InvalidPathException e) {
+            throw new IOException("Invalid repository name " + repository, e);
+        }
+        if (path.getRoot() != null) {
+            throw new IOException("Invalid repository name " + repository);
+        }
+        for (Path element : path) {
+            if (element.toString().equals("..")) {
+                throw new IOException("Invalid repository name " + repository);
+            }
+        }
+        return new File(logDir, path.toString());
+    }
+
+    protected void reportDroppedRecords() {
+        long total = dropped.get();
+        if (total > reportedDrops) {
+            long count = total - reportedDrops;
+            reportedDrops = total;
+            write(new LogRecord(System.currentTimeMillis(), "WARN", getClass().getName(), Thread.currentThread().getName(),
+                    "Dropped " + count + " log records as the log buffer of " + buffer.capacity() + " records was full", null, Collections.emptyMap()));
+        }
+    }
+
+    protected void flushOutputs() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            // ignore
+        }
+        for (Writer writer : repositoryWriters.values()) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    protected void closeOutputs() {
+        for (Writer writer : repositoryWriters.values()) {
+            closeQuietly(writer);
+        }
+        repositoryWriters.clear();
+    }
+
+    private static void closeQuietly(Writer writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
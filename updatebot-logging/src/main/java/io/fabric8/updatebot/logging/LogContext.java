@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.logging;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * A per thread context, like the slf4j MDC, which is attached to each log record written by the
+ * {@link AsyncLogWriter} so that the lines from repositories processed in parallel can be told apart
+ */
+public class LogContext {
+    public static final String REPOSITORY = "repo";
+    public static final String COMMAND = "command";
+    public static final String STAGE = "stage";
+    public static final String PULL_REQUEST = "pr";
+
+    private static final ThreadLocal<Map<String, String>> context = ThreadLocal.withInitial(LinkedHashMap::new);
+
+    /**
+     * Sets the value of the given key for the current thread, removing it if the value is null
+     */
+    public static void put(String key, Object value) {
+        if (value == null) {
+            remove(key);
+        } else {
+            context.get().put(key, value.toString());
+        }
+    }
+
+    public static String get(String key) {
+        return context.get().get(key);
+    }
+
+    public static void remove(String key) {
+        context.get().remove(key);
+    }
+
+    public static void clear() {
+        context.get().clear();
+    }
+
+    /**
+     * Returns a copy of the context of the current thread
+     */
+    public static Map<String, String> getContext() {
+        Map<String, String> map = context.get();
+        if (map.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return new LinkedHashMap<>(map);
+    }
+
+    /**
+     * Returns a task which runs with the context of the current thread so that it can be submitted to another thread
+     */
+    public static Runnable wrap(Runnable task) {
+        Map<String, String> values = getContext();
+        return () -> {
+            Map<String, String> previous = getContext();
+            setContext(values);
+            try {
+                task.run();
+            } finally {
+                setContext(previous);
+            }
+        };
+    }
+
+    /**
+     * Returns a task which runs with the context of the current thread so that it can be submitted to another thread
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        Map<String, String> values = getContext();
+        return () -> {
+            Map<String, String> previous = getContext();
+            setContext(values);
+            try {
+                return task.call();
+            } finally {
+                setContext(previous);
+            }
+        };
+    }
+
+    /**
+     * Replaces the context of the current thread such as with a copy returned by {@link #getContext()}
+     */
+    public static void setContext(Map<String, String> values) {
+        Map<String, String> map = context.get();
+        map.clear();
+        if (values != null) {
+            map.putAll(values);
+        }
+    }
+}
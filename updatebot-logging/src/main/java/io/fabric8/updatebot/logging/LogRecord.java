@@ -0,0 +1,198 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.logging;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A log line along with the thread and {@link LogContext} it was logged from
+ */
+public class LogRecord {
+    private final long timestamp;
+    private final String level;
+    private final String loggerName;
+    private final String threadName;
+    private final String message;
+    private final String stackTrace;
+    private final Map<String, String> context;
+
+    public LogRecord(long timestamp, String level, String loggerName, String threadName, String message, String stackTrace, Map<String, String> context) {
+        this.timestamp = timestamp;
+        this.level = level;
+        this.loggerName = loggerName;
+        this.threadName = threadName;
+        this.message = message;
+        this.stackTrace = stackTrace;
+        this.context = context;
+    }
+
+    /**
+     * Parses the text written by the simple logger which is of the form <code>LEVEL logger - message</code>
+     * followed by the stack trace of any exception
+     */
+    public static LogRecord parse(String text, long timestamp, String threadName, Map<String, String> context) {
+        if (text.endsWith("\n")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        String stackTrace = null;
+        int idx = text.indexOf("\n\tat ");
+        if (idx > 0) {
+            int start = text.lastIndexOf('\n', idx - 1);
+            if (start > 0) {
+                stackTrace = text.substring(start + 1);
+                text = text.substring(0, start);
+            }
+        }
+        String level = "INFO";
+        String loggerName = null;
+        String message = text;
+        int levelEnd = text.indexOf(' ');
+        int loggerEnd = text.indexOf(" - ");
+        if (levelEnd > 0 && loggerEnd > levelEnd) {
+            level = text.substring(0, levelEnd).trim();
+            loggerName = text.substring(levelEnd + 1, loggerEnd).trim();
+            message = text.substring(loggerEnd + 3);
+        }
+        return new LogRecord(timestamp, level, loggerName, threadName, message, stackTrace, context);
+    }
+
+    @Override
+    public String toString() {
+        return "LogRecord{" +
+                "level='" + level + '\'' +
+                ", loggerName='" + loggerName + '\'' +
+                ", message='" + message + '\'' +
+                ", context=" + context +
+                '}';
+    }
+
+    /**
+     * Returns true if this record is a warning or error which should be kept in preference to other records
+     */
+    public boolean isWarnOrError() {
+        return "WARN".equals(level) || "ERROR".equals(level);
+    }
+
+    /**
+     * Returns the record as a single line JSON object with the context values as top level fields
+     */
+    public String toJson() {
+        StringBuilder builder = new StringBuilder(128 + message.length());
+        builder.append('{');
+        appendField(builder, "timestamp", Instant.ofEpochMilli(timestamp).toString());
+        appendField(builder, "level", level);
+        appendField(builder, "logger", loggerName);
+        appendField(builder, "thread", threadName);
+        appendField(builder, "message", message);
+        for (Map.Entry<String, String> entry : context.entrySet()) {
+            appendField(builder, entry.getKey(), entry.getValue());
+        }
+        appendField(builder, "stackTrace", stackTrace);
+        builder.append('}');
+        return builder.toString();
+    }
+
+    /**
+     * Returns the record in the simple logger format with the repository prefixed to the message
+     */
+    public String toText() {
+        StringBuilder builder = new StringBuilder();
+        if (loggerName != null) {
+            builder.append(level).append(' ').append(loggerName).append(" - ");
+        }
+        String repository = context.get(LogContext.REPOSITORY);
+        if (repository != null) {
+            builder.append('[').append(repository).append("] ");
+        }
+        builder.append(message);
+        if (stackTrace != null) {
+            builder.append('\n').append(stackTrace);
+        }
+        return builder.toString();
+    }
+
+    private static void appendField(StringBuilder builder, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        if (builder.length() > 1) {
+            builder.append(',');
+        }
+        appendString(builder, name);
+        builder.append(':');
+        appendString(builder, value);
+    }
+
+    private static void appendString(StringBuilder builder, String text) {
+        builder.append('"');
+        for (int i = 0, size = text.length(); i < size; i++) {
+            char ch = text.charAt(i);
+            switch (ch) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (ch < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        builder.append(ch);
+                    }
+            }
+        }
+        builder.append('"');
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getLevel() {
+        return level;
+    }
+
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getStackTrace() {
+        return stackTrace;
+    }
+
+    public Map<String, String> getContext() {
+        return context;
+    }
+}
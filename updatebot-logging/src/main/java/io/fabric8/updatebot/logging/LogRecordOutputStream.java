@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Collects the bytes each thread writes until the stream is flushed, which the simple logger does after each line
+ * and its stack trace, then publishes them as a {@link LogRecord} with the current {@link LogContext}
+ */
+class LogRecordOutputStream extends OutputStream {
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private final AsyncLogWriter writer;
+    private final ThreadLocal<ByteArrayOutputStream> buffers = ThreadLocal.withInitial(() -> new ByteArrayOutputStream(256));
+
+    LogRecordOutputStream(AsyncLogWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(int b) {
+        buffers.get().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        buffers.get().write(b, off, len);
+    }
+
+    @Override
+    public void flush() {
+        ByteArrayOutputStream buffer = buffers.get();
+        if (buffer.size() == 0) {
+            return;
+        }
+        String text = new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+        if (buffer.size() > MAX_RETAINED_BUFFER) {
+            buffers.remove();
+        } else {
+            buffer.reset();
+        }
+        writer.publish(LogRecord.parse(text, System.currentTimeMillis(), Thread.currentThread().getName(), LogContext.getContext()));
+    }
+}
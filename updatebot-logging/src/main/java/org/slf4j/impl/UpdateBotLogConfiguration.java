@@ -15,13 +15,25 @@
  */
 package org.slf4j.impl;
 
+import io.fabric8.updatebot.logging.AsyncLogWriter;
+
+import java.io.File;
 import java.io.PrintStream;
 
 /**
- * Replaces the simple logging configuration with a custom stream
+ * Replaces the simple logging configuration with a custom stream.
+ * <p>
+ * When a buffer size is configured the log lines are written asynchronously by an {@link AsyncLogWriter},
+ * optionally as JSON and to a file per repository.
  */
 public class UpdateBotLogConfiguration extends SimpleLoggerConfiguration {
+    private static AsyncLogWriter currentWriter;
+
     private final PrintStream out;
+    private int bufferSize;
+    private boolean json;
+    private File logDir;
+    private AsyncLogWriter writer;
 
     public UpdateBotLogConfiguration(PrintStream out) {
         this.out = out;
@@ -32,7 +44,71 @@ public class UpdateBotLogConfiguration extends SimpleLoggerConfiguration {
         SimpleLogger.lazyInit();
         SimpleLogger.CONFIG_PARAMS = this;
         super.init();
-        this.outputChoice = new OutputChoice(out);
         this.showThreadName = false;
+        if (bufferSize > 0) {
+            writer = new AsyncLogWriter(out, bufferSize, json, logDir);
+            writer.start();
+            this.outputChoice = new OutputChoice(writer.createPrintStream());
+
+            // the lines are parsed into records so lets use a fixed format
+            this.showDateTime = false;
+            this.showLogName = true;
+            this.showShortLogName = false;
+            this.levelInBrackets = false;
+        } else {
+            this.outputChoice = new OutputChoice(out);
+        }
+        replaceWriter(writer);
+    }
+
+    /**
+     * Waits for any asynchronously written log lines to be written
+     */
+    public void flush() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    public boolean isAsync() {
+        return writer != null;
+    }
+
+    public AsyncLogWriter getWriter() {
+        return writer;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the number of log records buffered for the background writer thread or 0 to log synchronously
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public boolean isJson() {
+        return json;
+    }
+
+    public void setJson(boolean json) {
+        this.json = json;
+    }
+
+    public File getLogDir() {
+        return logDir;
+    }
+
+    public void setLogDir(File logDir) {
+        this.logDir = logDir;
+    }
+
+    private static synchronized void replaceWriter(AsyncLogWriter writer) {
+        if (currentWriter != null && currentWriter != writer) {
+            currentWriter.close();
+        }
+        currentWriter = writer;
     }
 }
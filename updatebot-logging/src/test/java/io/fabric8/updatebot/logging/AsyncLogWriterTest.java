@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.updatebot.logging;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ */
+public class AsyncLogWriterTest {
+    private ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private AsyncLogWriter writer;
+
+    @Before
+    public void init() {
+        LogContext.clear();
+    }
+
+    @After
+    public void cleanup() {
+        LogContext.clear();
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testJsonLinesWithContext() throws Exception {
+        writer = new AsyncLogWriter(output, 64, true, null);
+        writer.start();
+        PrintStream out = writer.createPrintStream();
+
+        LogContext.put(LogContext.REPOSITORY, "fabric8io/updatebot");
+        LogContext.put(LogContext.PULL_REQUEST, 12);
+        out.println("INFO io.fabric8.updatebot.Foo - Updated \"PR\"");
+        out.flush();
+        LogContext.clear();
+        out.println("WARN io.fabric8.updatebot.Bar - Failed");
+        new IllegalStateException("boom").printStackTrace(out);
+        out.flush();
+        writer.flush();
+
+        String[] lines = output.toString("UTF-8").split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{\"timestamp\":\"");
+        assertThat(lines[0]).contains("\"level\":\"INFO\",\"logger\":\"io.fabric8.updatebot.Foo\",\"thread\":\"" + Thread.currentThread().getName() + "\"");
+        assertThat(lines[0]).endsWith("\"message\":\"Updated \\\"PR\\\"\",\"repo\":\"fabric8io/updatebot\",\"pr\":\"12\"}");
+        assertThat(lines[1]).contains("\"level\":\"WARN\"", "\"message\":\"Failed\"",
+                "\"stackTrace\":\"java.lang.IllegalStateException: boom\\n\\tat ").doesNotContain("\"repo\"");
+    }
+
+    @Test
+    public void testRepositoryLogFiles() throws Exception {
+        File logDir = new File(System.getProperty("basedir", "."), "target/test-logs/" + System.nanoTime());
+        writer = new AsyncLogWriter(output, 64, false, logDir);
+        writer.start();
+
+        writer.publish(record("INFO", "Cloning", Collections.singletonMap(LogContext.REPOSITORY, "fabric8io/updatebot")));
+        writer.publish(record("INFO", "Summary", Collections.emptyMap()));
+        writer.flush();
+
+        assertThat(output.toString("UTF-8")).isEqualTo("INFO Test - [fabric8io/updatebot] Cloning\nINFO Test - Summary\n");
+        File file = new File(logDir, "fabric8io/updatebot.log");
+        assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)).isEqualTo("INFO Test - [fabric8io/updatebot] Cloning\n");
+    }
+
+    @Test
+    public void testRejectsRepositoryLogFilesOutsideLogDir() throws Exception {
+        File logDir = new File(System.getProperty("basedir", "."), "target/test-logs/" + System.nanoTime());
+        writer = new AsyncLogWriter(output, 64, false, logDir);
+        writer.start();
+
+        writer.publish(record("INFO", "Escaped", Collections.singletonMap(LogContext.REPOSITORY, "../escaped")));
+        writer.publish(record("INFO", "Absolute", Collections.singletonMap(LogContext.REPOSITORY, new File(logDir, "absolute").getAbsolutePath())));
+        writer.flush();
+
+        assertThat(new File(logDir.getParentFile(), "escaped.log")).doesNotExist();
+        assertThat(new File(logDir, "absolute.log")).doesNotExist();
+        assertThat(output.toString("UTF-8")).contains("Failed to write the log file of ../escaped", "Invalid repository name");
+    }
+
+    @Test
+    public void testWrappedTasksUseContext() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            LogContext.put(LogContext.REPOSITORY, "fabric8io/updatebot");
+            Callable<String> task = LogContext.wrap(() -> LogContext.get(LogContext.REPOSITORY));
+            LogContext.clear();
+
+            assertThat(executor.submit(task).get()).isEqualTo("fabric8io/updatebot");
+            assertThat(executor.submit(() -> LogContext.get(LogContext.REPOSITORY)).get()).describedAs("context after task").isNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDropsInfoBeforeWarningsWhenFull() throws Exception {
+        writer = new AsyncLogWriter(output, 16, false, null);
+
+        int accepted = 0;
+        for (int i = 0; i < 20; i++) {
+            if (writer.publish(record("INFO", "info " + i, Collections.emptyMap()))) {
+                accepted++;
+            }
+        }
+        assertThat(accepted).isEqualTo(12);
+        assertThat(writer.publish(record("WARN", "warn", Collections.emptyMap()))).isTrue();
+        assertThat(writer.getDroppedCount()).isEqualTo(8);
+
+        writer.start();
+        writer.flush();
+        String text = output.toString("UTF-8");
+        assertThat(text).contains("info 11\n", "WARN Test - warn\n", "Dropped 8 log records").doesNotContain("info 12");
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        writer = new AsyncLogWriter(output, 1024, true, null);
+        writer.start();
+        int threads = 4;
+        int count = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            String repository = "org/repo" + t;
+            executor.execute(() -> {
+                LogContext.put(LogContext.REPOSITORY, repository);
+                for (int i = 0; i < count; i++) {
+                    while (!writer.publish(record("WARN", repository, LogContext.getContext()))) {
+                        Thread.yield();
+                    }
+                }
+                latch.countDown();
+            });
+        }
+        assertThat(latch.await(30, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        writer.flush();
+
+        List<String> lines = new ArrayList<>();
+        Collections.addAll(lines, output.toString("UTF-8").split("\n"));
+        assertThat(lines).hasSize(threads * count);
+        for (int t = 0; t < threads; t++) {
+            String repository = "org/repo" + t;
+            long matches = lines.stream().filter(l -> l.contains("\"message\":\"" + repository + "\",\"repo\":\"" + repository + "\"")).count();
+            assertThat(matches).isEqualTo(count);
+        }
+    }
+
+    protected static LogRecord record(String level, String message, Map<String, String> context) {
+        return new LogRecord(System.currentTimeMillis(), level, "Test", "main", message, null, context);
+    }
+}